@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.SerialFormat;
+import org.apache.uima.util.CasIOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CasIOUtils.save and CasIOUtils.load, for every SerialFormat that CasIOUtils supports.
+ * 
+ * To compare the space / time trade offs of the formats, the serialized sizes are printed,
+ * outside of any benchmark run, by the main method:
+ * <pre>
+ * java -cp target/benchmarks.jar org.apache.uima.benchmarks.CasIOBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CasIOBenchmark {
+
+  // keep the same as the @Param values below
+  private static final int[] NBR_TOKENS = {10000, 100000, 1000000};
+  
+  private static final SerialFormat[] FORMATS = {SerialFormat.XCAS, SerialFormat.XMI, 
+      SerialFormat.BINARY, SerialFormat.BINARY_TSI, SerialFormat.COMPRESSED, SerialFormat.COMPRESSED_TSI,
+      SerialFormat.COMPRESSED_FILTERED, SerialFormat.COMPRESSED_FILTERED_TS, SerialFormat.COMPRESSED_FILTERED_TSI,
+      SerialFormat.SERIALIZED, SerialFormat.SERIALIZED_TSI};
+
+  @Param({"10000", "100000", "1000000"})
+  public int nbrTokens;
+
+  @Param({"XCAS", "XMI", "BINARY", "BINARY_TSI", "COMPRESSED", "COMPRESSED_TSI",
+          "COMPRESSED_FILTERED", "COMPRESSED_FILTERED_TS", "COMPRESSED_FILTERED_TSI",
+          "SERIALIZED", "SERIALIZED_TSI"})
+  public SerialFormat format;
+
+  private CAS sourceCas;
+
+  private CAS targetCas;
+
+  private byte[] serialized;
+
+  private ByteArrayOutputStream baos;
+
+  @Setup(Level.Trial)
+  public void createCas() throws Exception {
+    sourceCas = SyntheticDocument.createCas();
+    SyntheticDocument.fill(sourceCas, nbrTokens, true);
+    targetCas = SyntheticDocument.createCas();
+    baos = new ByteArrayOutputStream(nbrTokens * 64);
+    CasIOUtils.save(sourceCas, baos, format);
+    serialized = baos.toByteArray();
+  }
+
+  @Benchmark
+  public ByteArrayOutputStream save() throws Exception {
+    baos.reset();
+    CasIOUtils.save(sourceCas, baos, format);
+    return baos;
+  }
+
+  @Benchmark
+  public CAS load() throws Exception {
+    targetCas.reset();
+    CasIOUtils.load(new ByteArrayInputStream(serialized), targetCas);
+    return targetCas;
+  }
+
+  /**
+   * Print the serialized size of the benchmark documents, for each format
+   * @param args not used
+   * @throws Exception -
+   */
+  public static void main(String[] args) throws Exception {
+    System.out.format("%-24s %12s %14s%n", "format", "tokens", "bytes");
+    for (int nbrTokens : NBR_TOKENS) {
+      CAS cas = SyntheticDocument.createCas();
+      SyntheticDocument.fill(cas, nbrTokens, true);
+      for (SerialFormat format : FORMATS) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(nbrTokens * 64);
+        CasIOUtils.save(cas, baos, format);
+        System.out.format("%-24s %,12d %,14d%n", format, nbrTokens, baos.size());
+      }
+    }
+  }
+}
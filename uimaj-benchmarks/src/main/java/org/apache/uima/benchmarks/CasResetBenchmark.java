@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.cas.CAS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CASImpl.reset(), both on its own (the CAS is refilled before each invocation)
+ * and as part of a typical fill / reset cycle of a pooled CAS.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CasResetBenchmark {
+
+  @State(Scope.Thread)
+  public static class EmptyCas {
+
+    @Param({"10000", "100000", "1000000"})
+    public int nbrTokens;
+
+    CAS cas;
+
+    @Setup(Level.Trial)
+    public void createCas() throws Exception {
+      cas = SyntheticDocument.createCas();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class FilledCas extends EmptyCas {
+
+    @Setup(Level.Invocation)
+    public void fillCas() {
+      cas.reset();
+      SyntheticDocument.fill(cas, nbrTokens, true);
+    }
+  }
+
+  @Benchmark
+  public CAS reset(FilledCas s) {
+    s.cas.reset();
+    return s.cas;
+  }
+
+  @Benchmark
+  public CAS fillAndReset(EmptyCas s) {
+    SyntheticDocument.fill(s.cas, s.nbrTokens, true);
+    s.cas.reset();
+    return s.cas;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FSIndex;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Full iteration over the sorted, set and bag indexes of one type,
+ * and over the (multi-type) annotation index of the whole type hierarchy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class IndexIterationBenchmark {
+
+  @Param({"10000", "100000", "1000000"})
+  public int nbrTokens;
+
+  private FSIndex<AnnotationFS> sortedIndex;
+
+  private FSIndex<FeatureStructure> setIndex;
+
+  private FSIndex<FeatureStructure> bagIndex;
+
+  private FSIndex<AnnotationFS> allAnnotationsIndex;
+
+  @Setup(Level.Trial)
+  public void createCas() throws Exception {
+    CAS cas = SyntheticDocument.createCas();
+    SyntheticDocument.fill(cas, nbrTokens, true);
+    Type tokenType = cas.getTypeSystem().getType(SyntheticDocument.TOKEN_TYPE);
+    sortedIndex = cas.getAnnotationIndex(tokenType);
+    setIndex = cas.getIndexRepository().getIndex(SyntheticDocument.TOKEN_SET_INDEX);
+    bagIndex = cas.getIndexRepository().getIndex(SyntheticDocument.TOKEN_BAG_INDEX);
+    allAnnotationsIndex = cas.getAnnotationIndex();
+  }
+
+  @Benchmark
+  public void sorted(Blackhole bh) {
+    iterate(sortedIndex.iterator(), bh);
+  }
+
+  @Benchmark
+  public void set(Blackhole bh) {
+    iterate(setIndex.iterator(), bh);
+  }
+
+  @Benchmark
+  public void bag(Blackhole bh) {
+    iterate(bagIndex.iterator(), bh);
+  }
+
+  @Benchmark
+  public void sortedTypeHierarchy(Blackhole bh) {
+    iterate(allAnnotationsIndex.iterator(), bh);
+  }
+
+  @Benchmark
+  public void sortedBackwards(Blackhole bh) {
+    FSIterator<AnnotationFS> it = sortedIndex.iterator();
+    for (it.moveToLast(); it.isValid(); it.moveToPrevious()) {
+      bh.consume(it.get());
+    }
+  }
+
+  private static <T extends FeatureStructure> void iterate(FSIterator<T> it, Blackhole bh) {
+    for (; it.isValid(); it.moveToNext()) {
+      bh.consume(it.get());
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FSIndexRepository;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FSIndexRepositoryImpl.addFS / removeFS for all the tokens of a document.
+ * Each Token goes into the sorted annotation index, a set index and a bag index.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class IndexUpdateBenchmark {
+
+  @Param({"10000", "100000", "1000000"})
+  public int nbrTokens;
+
+  private CAS cas;
+
+  private FSIndexRepository ir;
+
+  private AnnotationFS[] tokens;
+
+  @Setup(Level.Trial)
+  public void createCas() throws Exception {
+    cas = SyntheticDocument.createCas();
+    ir = cas.getIndexRepository();
+    tokens = SyntheticDocument.fill(cas, nbrTokens, false);
+  }
+
+  @Setup(Level.Invocation)
+  public void clearIndexes() {
+    ir.removeAllIncludingSubtypes(cas.getAnnotationType());
+  }
+
+  @Benchmark
+  public FSIndexRepository addFS() {
+    for (AnnotationFS token : tokens) {
+      ir.addFS(token);
+    }
+    return ir;
+  }
+
+  @Benchmark
+  public FSIndexRepository addRemoveFS() {
+    for (AnnotationFS token : tokens) {
+      ir.addFS(token);
+    }
+    for (AnnotationFS token : tokens) {
+      ir.removeFS(token);
+    }
+    return ir;
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.cas.text.AnnotationIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The common "for each sentence, for each token in the sentence" pattern, using
+ * AnnotationIndex.subiterator (Subiterator), in its ambiguous and unambiguous flavors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SubiteratorBenchmark {
+
+  @Param({"10000", "100000", "1000000"})
+  public int nbrTokens;
+
+  @Param({"true", "false"})
+  public boolean ambiguous;
+
+  private AnnotationIndex<AnnotationFS> tokenIndex;
+
+  private AnnotationIndex<AnnotationFS> sentenceIndex;
+
+  @Setup(Level.Trial)
+  public void createCas() throws Exception {
+    CAS cas = SyntheticDocument.createCas();
+    SyntheticDocument.fill(cas, nbrTokens, true);
+    Type tokenType = cas.getTypeSystem().getType(SyntheticDocument.TOKEN_TYPE);
+    Type sentenceType = cas.getTypeSystem().getType(SyntheticDocument.SENTENCE_TYPE);
+    tokenIndex = cas.getAnnotationIndex(tokenType);
+    sentenceIndex = cas.getAnnotationIndex(sentenceType);
+  }
+
+  @Benchmark
+  public void tokensInSentences(Blackhole bh) {
+    for (FSIterator<AnnotationFS> sIt = sentenceIndex.iterator(); sIt.isValid(); sIt.moveToNext()) {
+      FSIterator<AnnotationFS> tIt = tokenIndex.subiterator(sIt.get(), ambiguous, true);
+      for (; tIt.isValid(); tIt.moveToNext()) {
+        bh.consume(tIt.get());
+      }
+    }
+  }
+}
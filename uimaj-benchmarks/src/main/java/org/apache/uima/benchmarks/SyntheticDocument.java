@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.benchmarks;
+
+import java.util.Random;
+
+import org.apache.uima.ResourceSpecifierFactory;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.FsIndexDescription;
+import org.apache.uima.resource.metadata.FsIndexKeyDescription;
+import org.apache.uima.resource.metadata.TypeDescription;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+
+/**
+ * Builds CASes holding a synthetic, but realistically shaped, document for the benchmarks:
+ *   - a document text made of words drawn from a small vocabulary
+ *   - one Token annotation per word, with a part-of-speech string and a length int feature
+ *   - one Sentence annotation per ~20 tokens
+ *
+ * Besides the built-in annotation index (sorted), Tokens are in a set index (keyed on begin)
+ * and a bag index, so all 3 index kinds can be measured.
+ *
+ * Generation is deterministic (fixed seed), so runs are comparable between releases.
+ */
+public class SyntheticDocument {
+
+  public static final String TOKEN_TYPE = "org.apache.uima.benchmarks.Token";
+  public static final String SENTENCE_TYPE = "org.apache.uima.benchmarks.Sentence";
+  public static final String POS_FEAT = "pos";
+  public static final String LENGTH_FEAT = "length";
+
+  public static final String TOKEN_SET_INDEX = "TokenSetIndex";
+  public static final String TOKEN_BAG_INDEX = "TokenBagIndex";
+
+  private static final long SEED = 12345;
+
+  private static final int TOKENS_PER_SENTENCE = 20;
+
+  private static final String[] VOCABULARY = {
+    "the", "of", "and", "to", "in", "a", "is", "that", "for", "it", "as", "was", "with", "be", "by",
+    "on", "not", "he", "this", "are", "or", "his", "from", "at", "which", "but", "have", "an", "had",
+    "they", "you", "were", "their", "one", "all", "we", "can", "her", "has", "there", "been", "if",
+    "more", "when", "will", "would", "who", "so", "no", "annotation", "structure", "analysis",
+    "engine", "document", "sentence", "token", "feature", "index", "iterator", "serialization"};
+
+  private static final String[] POS_TAGS = {"DT", "IN", "CC", "TO", "NN", "NNS", "VB", "VBZ", "VBD",
+    "JJ", "RB", "PRP", "PRP$", "WDT", "MD"};
+
+  /**
+   * @return a new CAS with the benchmark type system and index definitions, no content
+   * @throws ResourceInitializationException -
+   */
+  public static CAS createCas() throws ResourceInitializationException {
+    ResourceSpecifierFactory f = UIMAFramework.getResourceSpecifierFactory();
+    TypeSystemDescription tsd = f.createTypeSystemDescription();
+    TypeDescription token = tsd.addType(TOKEN_TYPE, "", CAS.TYPE_NAME_ANNOTATION);
+    token.addFeature(POS_FEAT, "", CAS.TYPE_NAME_STRING);
+    token.addFeature(LENGTH_FEAT, "", CAS.TYPE_NAME_INTEGER);
+    tsd.addType(SENTENCE_TYPE, "", CAS.TYPE_NAME_ANNOTATION);
+
+    FsIndexKeyDescription beginKey = f.createFsIndexKeyDescription();
+    beginKey.setFeatureName(CAS.FEATURE_BASE_NAME_BEGIN);
+    beginKey.setComparator(FsIndexKeyDescription.STANDARD_COMPARE);
+
+    FsIndexDescription setIndex = f.createFsIndexDescription();
+    setIndex.setLabel(TOKEN_SET_INDEX);
+    setIndex.setTypeName(TOKEN_TYPE);
+    setIndex.setKind(FsIndexDescription.KIND_SET);
+    setIndex.setKeys(new FsIndexKeyDescription[] {beginKey});
+
+    FsIndexDescription bagIndex = f.createFsIndexDescription();
+    bagIndex.setLabel(TOKEN_BAG_INDEX);
+    bagIndex.setTypeName(TOKEN_TYPE);
+    bagIndex.setKind(FsIndexDescription.KIND_BAG);
+
+    return CasCreationUtils.createCas(tsd, null, new FsIndexDescription[] {setIndex, bagIndex});
+  }
+
+  /**
+   * Fill an empty CAS (as made by {@link #createCas()}) with a document of nbrTokens tokens
+   * @param cas the CAS to fill
+   * @param nbrTokens the number of Token annotations to create
+   * @param addToIndexes false to only create the annotations, leaving the indexes empty
+   * @return the token annotations, in document order
+   */
+  public static AnnotationFS[] fill(CAS cas, int nbrTokens, boolean addToIndexes) {
+    final Random r = new Random(SEED);
+    final Type tokenType = cas.getTypeSystem().getType(TOKEN_TYPE);
+    final Type sentenceType = cas.getTypeSystem().getType(SENTENCE_TYPE);
+    final Feature posFeat = tokenType.getFeatureByBaseName(POS_FEAT);
+    final Feature lengthFeat = tokenType.getFeatureByBaseName(LENGTH_FEAT);
+
+    final int[] wordIndexes = new int[nbrTokens];
+    final StringBuilder sb = new StringBuilder(nbrTokens * 6);
+    for (int i = 0; i < nbrTokens; i++) {
+      wordIndexes[i] = r.nextInt(VOCABULARY.length);
+      sb.append(VOCABULARY[wordIndexes[i]]).append(((i + 1) % TOKENS_PER_SENTENCE == 0) ? ". " : " ");
+    }
+    cas.setDocumentText(sb.toString());
+
+    final AnnotationFS[] tokens = new AnnotationFS[nbrTokens];
+    int begin = 0;
+    int sentenceBegin = 0;
+    for (int i = 0; i < nbrTokens; i++) {
+      final String word = VOCABULARY[wordIndexes[i]];
+      final int end = begin + word.length();
+      AnnotationFS t = cas.createAnnotation(tokenType, begin, end);
+      t.setStringValue(posFeat, POS_TAGS[wordIndexes[i] % POS_TAGS.length]);
+      t.setIntValue(lengthFeat, word.length());
+      tokens[i] = t;
+      final boolean isSentenceEnd = (i + 1) % TOKENS_PER_SENTENCE == 0 || i == nbrTokens - 1;
+      if (addToIndexes) {
+        cas.addFsToIndexes(t);
+        if (isSentenceEnd) {
+          cas.addFsToIndexes(cas.createAnnotation(sentenceType, sentenceBegin, end + 1));
+        }
+      }
+      begin = end + (isSentenceEnd ? 2 : 1);
+      if (isSentenceEnd) {
+        sentenceBegin = begin;
+      }
+    }
+    return tokens;
+  }
+}
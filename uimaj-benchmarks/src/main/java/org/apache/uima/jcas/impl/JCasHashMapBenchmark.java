@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.jcas.impl;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.cas.impl.FeatureStructureImpl;
+import org.apache.uima.jcas.cas.TOP;
+import org.apache.uima.jcas.cas.TOP_Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JCasHashMap.getReserve, the lookup of the JCas cover object for an FS address.
+ *   - lookup:      all keys present (the common case when iterating over already-accessed FSs)
+ *   - lookupOrPut: starting from an empty map, reserve + put each key (first access of each FS)
+ *   - lookupContended: lookups from 4 threads sharing one map
+ *
+ * This is in the jcas.impl package because the JCasHashMap constructors are package private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JCasHashMapBenchmark {
+
+  private static final long SEED = 12345;
+
+  private static class FakeTopType extends TOP_Type {
+    FakeTopType() {
+      super();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class MapState {
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    final TOP_Type fakeType = new FakeTopType();
+
+    /** FS-like addresses: increasing by small random steps, then shuffled */
+    int[] addrs;
+
+    JCasHashMap filledMap;
+
+    JCasHashMap emptyMap;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      Random r = new Random(SEED);
+      addrs = new int[size];
+      int prev = 0;
+      for (int i = 0; i < size; i++) {
+        addrs[i] = prev = prev + r.nextInt(14) + 1;
+      }
+      for (int i = size - 1; i >= 1; i--) {
+        int ir = r.nextInt(i + 1);
+        int temp = addrs[i];
+        addrs[i] = addrs[ir];
+        addrs[ir] = temp;
+      }
+      filledMap = new JCasHashMap(size, true);
+      for (int addr : addrs) {
+        filledMap.getReserve(addr);
+        filledMap.put(new TOP(addr, fakeType));
+      }
+      emptyMap = new JCasHashMap(size, true);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearEmptyMap() {
+      emptyMap.clear();
+    }
+  }
+
+  @Benchmark
+  public void lookup(MapState s, Blackhole bh) {
+    final JCasHashMap m = s.filledMap;
+    for (int addr : s.addrs) {
+      bh.consume(m.getReserve(addr));
+    }
+  }
+
+  @Benchmark
+  public JCasHashMap lookupOrPut(MapState s) {
+    final JCasHashMap m = s.emptyMap;
+    for (int addr : s.addrs) {
+      FeatureStructureImpl fs = m.getReserve(addr);
+      if (null == fs) {
+        m.put(new TOP(addr, s.fakeType));
+      }
+    }
+    return m;
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void lookupContended(MapState s, Blackhole bh) {
+    final JCasHashMap m = s.filledMap;
+    for (int addr : s.addrs) {
+      bh.consume(m.getReserve(addr));
+    }
+  }
+}
@@ -27,6 +27,7 @@ import org.apache.uima.analysis_engine.metadata.AnalysisEngineMetaData;
 import org.apache.uima.analysis_engine.metadata.CapabilityLanguageFlow;
 import org.apache.uima.analysis_engine.metadata.FixedFlow;
 import org.apache.uima.analysis_engine.metadata.FlowControllerDeclaration;
+import org.apache.uima.analysis_engine.metadata.DelegateScaleout;
 import org.apache.uima.analysis_engine.metadata.SofaMapping;
 import org.apache.uima.collection.CasConsumerDescription;
 import org.apache.uima.collection.CollectionReaderDescription;
@@ -402,6 +403,19 @@ public interface ResourceSpecifierFactory {
    */
   public SofaMapping createSofaMapping();
 
+  /**
+   * Creates a <code>DelegateScaleout</code>.
+   * <p>
+   * The default implementation, for factories other than the framework's, does not support
+   * delegate scaleouts.
+   * 
+   * @return an instance of an object implementing <code>DelegateScaleout</code>, or null if
+   *         delegate scaleouts are not supported
+   */
+  default DelegateScaleout createDelegateScaleout() {
+    return null;
+  }
+
   /**
    * Creates an <code>Import</code>
    * 
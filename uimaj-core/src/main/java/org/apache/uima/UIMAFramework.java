@@ -92,6 +92,42 @@ public abstract class UIMAFramework {
    */
   public static final String JCAS_CACHE_ENABLED = "jcas_cache_enabled";
 
+  /**
+   * Key to be used in the Properties object returned by
+   * {@link #getDefaultPerformanceTuningProperties()}. The value of this key indicates whether the
+   * CAS should keep its storage in direct ByteBuffers outside of the Java heap: the main heap 
+   * (feature structures, int and float values), the string values, and the values of byte, boolean, 
+   * short, long and double arrays and of long and double features. This storage grows in pages,
+   * without copying, and does not add to Java garbage collection work, at the cost of slower 
+   * access; in particular, each string value that is read is a new String. The default is false. 
+   * A value of "true" (case insensitive) for this property enables off heap storage; any other 
+   * value leaves the default setting of false.
+   */
+  public static final String CAS_HEAPS_OFF_HEAP = "cas_heaps_off_heap";
+
+  /**
+   * Key to be used in the Properties object returned by
+   * {@link #getDefaultPerformanceTuningProperties()}. The value of this key is the name of a 
+   * directory. If set, the CAS keeps its storage off the Java heap, as for 
+   * {@link #CAS_HEAPS_OFF_HEAP}, but in memory mapped temporary files created in this directory
+   * (they are deleted right away, and their space is freed when the storage is released), 
+   * so the operating system can page out the storage of large CASes. There is no default.
+   */
+  public static final String CAS_HEAPS_MAPPED_FILE_DIRECTORY = "cas_heaps_mapped_file_directory";
+
+  /**
+   * Key to be used in the Properties object returned by
+   * {@link #getDefaultPerformanceTuningProperties()}. The value of this key indicates whether the
+   * CASes of a {@link org.apache.uima.util.CasPool} or {@link org.apache.uima.resource.CasManager}
+   * should share one string intern table, storing one instance of each (short) string value 
+   * among them, instead of a copy per CAS. This saves space when the same labels are set in many
+   * CASes, at the cost of a lookup for each string value set. The default is false. A value of 
+   * "true" (case insensitive) for this property enables the sharing; any other value leaves the 
+   * default setting of false.
+   * @see org.apache.uima.cas.impl.StringInternTable
+   */
+  public static final String CAS_STRING_INTERNING = "cas_string_interning";
+
   /**
    * To be implemented by subclasses; this should return a Properties object representing the
    * default performance tuning settings for the framework. It must return a new Properties object
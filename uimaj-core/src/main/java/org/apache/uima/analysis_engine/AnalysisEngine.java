@@ -21,6 +21,11 @@ package org.apache.uima.analysis_engine;
 
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
 
 import org.apache.uima.analysis_engine.metadata.AnalysisEngineMetaData;
 import org.apache.uima.cas.CAS;
@@ -166,6 +171,55 @@ public interface AnalysisEngine extends ConfigurableResource, CasObjectProcessor
    * {@link #initialize(ResourceSpecifier,Map)} method.
    */
   public static final String PARAM_MBEAN_NAME_PREFIX = "MBEAN_NAME_PREFIX";
+
+  /**
+   * Key for the initialization parameter whose value is a {@link java.util.concurrent.Executor}
+   * on which an aggregate Analysis Engine runs the delegates of a 
+   * {@link org.apache.uima.flow.ParallelStep} concurrently, instead of one after the other.
+   * <p>
+   * The first delegate of the step runs on the calling thread, on the CAS itself; each of the
+   * others runs on the executor, on its own copy of the CAS. When they have all finished, the 
+   * Feature Structures the other delegates added to the indexes of their copy are copied back into 
+   * the CAS and indexed, in the order of the delegates in the step, so the result does not depend
+   * on which delegate finished first. Changes to, and index removals of, Feature Structures which 
+   * were already in the CAS are not copied back, so this is meant for delegates that only add
+   * new Feature Structures, for instance of distinct types. 
+   * <p>
+   * A step runs sequentially, as without this parameter, if one of its delegates may output new
+   * CASes.
+   * <p>
+   * This value is used as a key in the <code>aAdditionalParams</code> Map that is passed to the
+   * {@link #initialize(ResourceSpecifier,Map)} method of an aggregate. It is not passed on to its 
+   * delegates.
+   */
+  public static final String PARAM_PARALLEL_STEP_EXECUTOR = "PARALLEL_STEP_EXECUTOR";
+
+  /**
+   * Key for the initialization parameter which, when its value is <code>Boolean.TRUE</code>,
+   * makes an aggregate Analysis Engine a pipeline: its <code>process</code> methods may then be
+   * called by several threads at once, and each delegate is a stage which processes one CAS at a
+   * time. So while one CAS is in the second delegate, the next one can be in the first, and one
+   * instance of the aggregate keeps up to as many threads busy as it has delegates, instead of
+   * needing one replica of the whole aggregate per thread (see
+   * {@link #PARAM_NUM_SIMULTANEOUS_REQUESTS}). The CASes waiting for a delegate are let in in the
+   * order they arrived.
+   * A slow delegate can be given several instances, so it processes as many CASes at once, with a
+   * {@link org.apache.uima.analysis_engine.metadata.DelegateScaleout} in the aggregate descriptor.
+   * <p>
+   * Each CAS is processed on the thread which passed it in, so the number of CASes in flight is
+   * the number of threads sharing the aggregate. The FlowController's <code>computeFlow</code>
+   * method is called for one CAS at a time, but the <code>Flow</code> objects of different CASes
+   * are used concurrently.
+   * <p>
+   * If a delegate may output new CASes, the aggregate is not split into stages: it then lets in
+   * one CAS at a time, and the next CAS waits until all the output CASes of the previous one have
+   * been obtained or released.
+   * <p>
+   * This value is used as a key in the <code>aAdditionalParams</code> Map that is passed to the
+   * {@link #initialize(ResourceSpecifier,Map)} method of an aggregate. It is passed on to its
+   * delegates, so nested aggregates are pipelines too.
+   */
+  public static final String PARAM_PIPELINED = "PIPELINED";
   
   /**
    * Initializes this <code>Resource</code> from a <code>ResourceSpecifier</code>. Applications
@@ -461,6 +515,168 @@ public interface AnalysisEngine extends ConfigurableResource, CasObjectProcessor
    */
   CasIterator processAndOutputNewCASes(CAS aCAS) throws AnalysisEngineProcessException;
 
+  /**
+   * Invokes this AnalysisEngine's analysis logic asynchronously. This is the non-blocking form of
+   * {@link #process(CAS)}: it returns at once, and the work is carried out by
+   * <code>aExecutor</code>.
+   * <p>
+   * An Analysis Engine still processes one CAS at a time (unless it was created to serve several
+   * simultaneous requests, see {@link #PARAM_NUM_SIMULTANEOUS_REQUESTS}). Requests made while it
+   * is busy are queued, without occupying a thread, and are started in the order they were made.
+   * This includes requests to remote services, whose stubs accept one call at a time.
+   * <p>
+   * The default implementation, for Analysis Engines not derived from the framework's base class,
+   * just runs {@link #process(CAS)} on the executor and does no queuing, so the caller must not
+   * make a request before the previous one has completed.
+   * <p>
+   * The caller should not access <code>aCAS</code> until the returned future is complete.
+   * 
+   * @param aCAS
+   *          the CAS containing the inputs to the processing. Analysis results will also be
+   *          written to this CAS.
+   * @param aExecutor
+   *          the executor that runs the processing. If <code>null</code>, the
+   *          {@link java.util.concurrent.ForkJoinPool#commonPool() common pool} is used.
+   * 
+   * @return a future completed with the trace of the processing, or completed exceptionally with
+   *         an {@link AnalysisEngineProcessException} or a runtime exception if a failure occurs
+   *         during processing
+   */
+  default CompletableFuture<ProcessTrace> processAsync(final CAS aCAS, Executor aExecutor) {
+    final CompletableFuture<ProcessTrace> result = new CompletableFuture<ProcessTrace>();
+    Runnable task = new Runnable() {
+      public void run() {
+        try {
+          result.complete(process(aCAS));
+        } catch (AnalysisEngineProcessException | RuntimeException e) {
+          result.completeExceptionally(e);
+        }
+      }
+    };
+    try {
+      ((aExecutor == null) ? ForkJoinPool.commonPool() : aExecutor).execute(task);
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  /**
+   * Processes a CAS asynchronously, possibly producing multiple CASes as a result. This is the
+   * non-blocking form of {@link #processAndOutputNewCASes(CAS)}; queuing and ownership of
+   * <code>aCAS</code> work as described for {@link #processAsync(CAS, Executor)} and
+   * {@link #processAndOutputNewCASes(CAS)}, with ownership returning to the caller once the
+   * iterator has signaled that there are no more CASes, or has been released.
+   * <p>
+   * Like for {@link #processAsync(CAS, Executor)}, the default implementation does no queuing: it
+   * runs {@link #processAndOutputNewCASes(CAS)}, and then the calls of the returned
+   * <code>CasIterator</code>, on the executor, one after the other.
+   * 
+   * @param aCAS
+   *          the CAS to be processed
+   * @param aExecutor
+   *          the executor that runs the processing. If <code>null</code>, the
+   *          {@link java.util.concurrent.ForkJoinPool#commonPool() common pool} is used.
+   * 
+   * @return an object for asynchronously iterating through any output CASes. Failures are reported
+   *         through the futures it returns.
+   */
+  default AsyncCasIterator processAndOutputNewCASesAsync(final CAS aCAS, Executor aExecutor) {
+    final Executor executor = (aExecutor == null) ? ForkJoinPool.commonPool() : aExecutor;
+    return new AsyncCasIterator() {
+      // completed when the last call has been carried out; the next one is run after it
+      private CompletableFuture<?> mLastCall = CompletableFuture.completedFuture(null);
+
+      // the fields below are used by the calls, which are run one after the other, but maybe on
+      // different threads
+
+      private volatile CasIterator mCasIterator;
+
+      private volatile Throwable mFailure;
+
+      private volatile boolean mDone;
+
+      {
+        final CompletableFuture<Void> started = new CompletableFuture<Void>();
+        call(new Runnable() {
+          public void run() {
+            try {
+              mCasIterator = processAndOutputNewCASes(aCAS);
+            } catch (AnalysisEngineProcessException | RuntimeException e) {
+              mFailure = e;
+            } finally {
+              started.complete(null);
+            }
+          }
+        }, started);
+      }
+
+      public CompletableFuture<CAS> next() {
+        final CompletableFuture<CAS> result = new CompletableFuture<CAS>();
+        return call(new Runnable() {
+          public void run() {
+            if (mFailure != null) {
+              result.completeExceptionally(mFailure);
+              return;
+            }
+            if (mDone) {
+              result.complete(null);
+              return;
+            }
+            try {
+              if (mCasIterator.hasNext()) {
+                result.complete(mCasIterator.next());
+              } else {
+                mDone = true;
+                result.complete(null);
+              }
+            } catch (AnalysisEngineProcessException | RuntimeException e) {
+              mFailure = e;
+              result.completeExceptionally(e);
+            }
+          }
+        }, result);
+      }
+
+      public CompletableFuture<Void> release() {
+        final CompletableFuture<Void> result = new CompletableFuture<Void>();
+        return call(new Runnable() {
+          public void run() {
+            try {
+              if (mFailure == null && !mDone) {
+                mCasIterator.release();
+              }
+            } finally {
+              mDone = true;
+              result.complete(null);
+            }
+          }
+        }, result);
+      }
+
+      // runs a call, which completes aResult, after the previous one
+      private synchronized <T> CompletableFuture<T> call(final Runnable aCall,
+              final CompletableFuture<T> aResult) {
+        CompletableFuture<?> previous = mLastCall;
+        mLastCall = aResult;
+        previous.whenComplete(new BiConsumer<Object, Throwable>() {
+          public void accept(Object aValue, Throwable aPreviousFailure) {
+            try {
+              executor.execute(aCall);
+            } catch (RejectedExecutionException e) {
+              // the state of the iteration is unknown, so the following calls fail too
+              if (mFailure == null) {
+                mFailure = e;
+              }
+              aResult.completeExceptionally(e);
+            }
+          }
+        });
+        return aResult;
+      }
+    };
+  }
+
   /**
    * Processes a JCAS, possibly producing multiple JCASes as a result. The application uses the
    * {@link JCasIterator} interface to step through the output JCASes.
@@ -29,6 +29,7 @@ import org.apache.uima.Constants;
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_engine.metadata.AnalysisEngineMetaData;
 import org.apache.uima.analysis_engine.metadata.FlowControllerDeclaration;
+import org.apache.uima.analysis_engine.metadata.DelegateScaleout;
 import org.apache.uima.analysis_engine.metadata.SofaMapping;
 import org.apache.uima.resource.ResourceCreationSpecifier;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -289,6 +290,38 @@ public interface AnalysisEngineDescription extends ResourceCreationSpecifier {
    */
   public void setSofaMappings(SofaMapping[] aSofaMappings);
 
+  /**
+   * For an aggregate AnalysisEngine only, gets the number of instances of those delegates which
+   * have more than one. See {@link DelegateScaleout}.
+   * 
+   * <p>
+   * The default implementation, for descriptions not derived from the framework's implementation,
+   * has no delegate scaleouts.
+   * 
+   * @return the delegate scaleouts, null if none
+   */
+  default DelegateScaleout[] getDelegateScaleouts() {
+    return null;
+  }
+
+  /**
+   * For an aggregate AnalysisEngine only, sets the number of instances of those delegates which
+   * have more than one. See {@link DelegateScaleout}.
+   * 
+   * <p>
+   * The default implementation, for descriptions not derived from the framework's implementation,
+   * does not support delegate scaleouts.
+   * 
+   * @param aDelegateScaleouts
+   *          the delegate scaleouts, null if none
+   * @throws UnsupportedOperationException
+   *           if delegate scaleouts are not supported
+   */
+  default void setDelegateScaleouts(DelegateScaleout[] aDelegateScaleouts) {
+    throw new UnsupportedOperationException("Delegate scaleouts are not supported by " 
+            + getClass().getName());
+  }
+
   /**
    * Gets the ResourceSpecifier of one a component of this aggregate, based on its key. This may be
    * the specifier of a component (i.e. delegate) AnalysisEngine, or it may be the specifier of the
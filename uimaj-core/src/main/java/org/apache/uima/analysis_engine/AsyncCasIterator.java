@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.analysis_engine;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.uima.cas.CAS;
+
+/**
+ * The asynchronous counterpart of {@link CasIterator}, returned by
+ * {@link AnalysisEngine#processAndOutputNewCASesAsync(CAS, java.util.concurrent.Executor)}. No
+ * thread is blocked while the Analysis Engine produces the next CAS; the caller is notified
+ * through the returned futures instead.
+ * <p>
+ * Calls may be made without waiting for the futures of earlier calls; they are carried out one
+ * after the other, in the order they were made.
+ */
+public interface AsyncCasIterator {
+  /**
+   * Gets the next CAS from the iterator.
+   * 
+   * @return a future completed with the next CAS, or with <code>null</code> if there are no more
+   *         CASes. It is completed exceptionally, with an
+   *         {@link AnalysisEngineProcessException} or a runtime exception, if a failure has occurred
+   *         during processing; this indicates that processing has aborted, so no further calls
+   *         should be made.
+   */
+  CompletableFuture<CAS> next();
+
+  /**
+   * Releases any CASes owned by this iterator. You only need to call this method if you stop using
+   * the iterator before it has signaled that there are no more CASes.
+   * 
+   * @return a future completed once the CASes have been released and the Analysis Engine is done
+   *         with the input CAS
+   */
+  CompletableFuture<Void> release();
+}
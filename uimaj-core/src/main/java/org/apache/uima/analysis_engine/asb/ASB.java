@@ -49,6 +49,13 @@ public interface ASB extends Resource {
    */
   public static final String PARAM_AGGREGATE_ANALYSIS_ENGINE_NAME = "PARAM_AGGREGATE_ANALYSIS_ENGINE_NAME";
 
+  /**
+   * Key for the initialization parameter whose value is the array of 
+   * {@link org.apache.uima.analysis_engine.metadata.DelegateScaleout} objects of the aggregate 
+   * analysis engine that owns this ASB.
+   */
+  public static final String PARAM_AGGREGATE_DELEGATE_SCALEOUTS = "PARAM_AGGREGATE_DELEGATE_SCALEOUTS";
+
   /**
    * Called by the Aggregate Analysis Engine to provide this ASB with information it needs to
    * operate.
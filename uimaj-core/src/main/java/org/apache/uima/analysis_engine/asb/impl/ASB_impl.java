@@ -30,6 +30,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.uima.ResourceFactory;
 import org.apache.uima.UIMAFramework;
@@ -40,11 +43,14 @@ import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.analysis_engine.CasIterator;
 import org.apache.uima.analysis_engine.ResultSpecification;
 import org.apache.uima.analysis_engine.asb.ASB;
+import org.apache.uima.analysis_engine.impl.AggregateAnalysisEngine_impl;
 import org.apache.uima.analysis_engine.impl.AnalysisEngineImplBase;
 import org.apache.uima.analysis_engine.impl.AnalysisEngineManagementImpl;
 import org.apache.uima.analysis_engine.impl.EmptyCasIterator;
+import org.apache.uima.analysis_engine.impl.MultiprocessingAnalysisEngine_impl;
 import org.apache.uima.analysis_engine.impl.PrimitiveAnalysisEngine_impl;
 import org.apache.uima.analysis_engine.metadata.AnalysisEngineMetaData;
+import org.apache.uima.analysis_engine.metadata.DelegateScaleout;
 import org.apache.uima.analysis_engine.metadata.FlowControllerDeclaration;
 import org.apache.uima.analysis_engine.metadata.SofaMapping;
 import org.apache.uima.analysis_engine.metadata.impl.AnalysisEngineMetaData_impl;
@@ -61,6 +67,7 @@ import org.apache.uima.resource.ResourceCreationSpecifier;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.ResourceSpecifier;
 import org.apache.uima.resource.Resource_ImplBase;
+import org.apache.uima.resource.metadata.OperationalProperties;
 import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
 import org.apache.uima.util.Level;
 import org.apache.uima.util.UimaTimer;
@@ -111,6 +118,11 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
   private Map<String, Object> mInitParams;
 
   private SofaMapping[] mSofaMappings;
+  
+  /**
+   * The number of instances of the delegates which have more than one, by key.
+   */
+  private Map<String, Integer> mNumberOfInstances = new HashMap<String, Integer>();
 
   private FlowControllerContainer mFlowControllerContainer;
 
@@ -124,6 +136,40 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
    */
   private UimaContextAdmin mAggregateUimaContext;
 
+  /**
+   * Executor for running the delegates of a ParallelStep concurrently, 
+   * see {@link AnalysisEngine#PARAM_PARALLEL_STEP_EXECUTOR}. Null if not specified.
+   */
+  private Executor mParallelStepExecutor;
+  
+  /**
+   * Runs the ParallelSteps concurrently; null if no mParallelStepExecutor is specified 
+   */
+  private ParallelStepRunner mParallelStepRunner;
+  
+  /**
+   * Whether this aggregate is a pipeline, see {@link AnalysisEngine#PARAM_PIPELINED}.
+   */
+  private boolean mPipelined;
+  
+  /**
+   * The delegates as stages of the pipeline, by key. Null if not pipelined, or if a delegate
+   * may output new CASes. Nested aggregates have no stage, they are pipelines themselves, 
+   * and neither have scaled out delegates, which are pools of instances. 
+   */
+  private Map<String, DelegateStage> mDelegateStages;
+  
+  /**
+   * Serializes the computeFlow calls when the delegates are stages, null otherwise. 
+   */
+  private ReentrantLock mFlowControllerLock;
+  
+  /**
+   * Lets one CAS at a time into a pipelined aggregate having a delegate which may output 
+   * new CASes, null otherwise.
+   */
+  private Semaphore mAggregateEntry;
+
   /**
    * Initializes this ASB.
    * 
@@ -158,6 +204,20 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
     // on to delegates
     // if (mSofaMappings != null)
     // mInitParams.remove(mInitParams.get(Resource.PARAM_AGGREGATE_SOFA_MAPPINGS));
+    
+    // not passed on to delegates: a nested aggregate waiting on the executor 
+    // for its own steps, from a thread of the executor, could starve it
+    mParallelStepExecutor = (Executor) mInitParams.remove(AnalysisEngine.PARAM_PARALLEL_STEP_EXECUTOR);
+    
+    mPipelined = Boolean.TRUE.equals(mInitParams.get(AnalysisEngine.PARAM_PIPELINED));
+    
+    // the number of instances of the delegates, not passed on to them either
+    DelegateScaleout[] scaleouts = (DelegateScaleout[]) mInitParams.remove(ASB.PARAM_AGGREGATE_DELEGATE_SCALEOUTS);
+    if (scaleouts != null) {
+      for (DelegateScaleout scaleout : scaleouts) {
+        mNumberOfInstances.put(scaleout.getComponentKey(), scaleout.getNumberOfInstances());
+      }
+    }
 
     UIMAFramework.getLogger(CLASS_NAME).logrb(Level.CONFIG, CLASS_NAME.getName(), "initialize",
             LOG_RESOURCE_BUNDLE, "UIMA_asb_init_successful__CONFIG");
@@ -250,6 +310,11 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
               && !(spec instanceof ResourceCreationSpecifier)) {
         // but we need placeholder entries in maps to satisfy later checking
         ae = new DummyAnalysisEngine();
+      } else if (mPipelined && mNumberOfInstances.containsKey(key) && mNumberOfInstances.get(key) > 1) {
+        // a scaled out delegate of a pipeline is a pool of instances, sharing its UimaContext
+        Map<String, Object> poolParams = new HashMap<String, Object>(mInitParams);
+        poolParams.put(AnalysisEngine.PARAM_NUM_SIMULTANEOUS_REQUESTS, mNumberOfInstances.get(key));
+        ae = UIMAFramework.produceAnalysisEngine(spec, poolParams);
       } else {
         // construct an AnalysisEngine - initializing it with the parameters
         // passed to this ASB's initialize method
@@ -269,6 +334,16 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
             .unmodifiableMap(mComponentAnalysisEngineMetaDataMap);
 
     mOutputNewCASes = aAggregateMetadata.getOperationalProperties().getOutputsNewCASes();
+    
+    if (mPipelined) {
+      setupPipeline();
+    }
+    
+    if (mParallelStepExecutor != null) {
+      mParallelStepRunner = new ParallelStepRunner(mParallelStepExecutor, 
+          aParentContext.getResourceManager().getCasManager(), 
+          mComponentAnalysisEngineMap, mComponentAnalysisEngineMetaDataMap, mDelegateStages);
+    }
 
     // initialize the FlowController
     initFlowController(aFlowControllerDeclaration, aParentContext, aAggregateMetadata);
@@ -280,6 +355,34 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
     mAllComponentMetaDataMap = Collections.unmodifiableMap(mAllComponentMetaDataMap);
   }
 
+  /*
+   * Makes a stage of each delegate, unless a delegate may output new CASes: its CasIterator
+   * can't be left while other CASes go through the other stages, so then the whole aggregate
+   * is entered by one CAS at a time.
+   */
+  private void setupPipeline() {
+    boolean outputsNewCASes = mOutputNewCASes;
+    for (AnalysisEngineMetaData md : mComponentAnalysisEngineMetaDataMap.values()) {
+      OperationalProperties operationalProperties = md.getOperationalProperties();
+      if (operationalProperties == null || operationalProperties.getOutputsNewCASes()) {
+        outputsNewCASes = true;
+      }
+    }
+    if (outputsNewCASes) {
+      mAggregateEntry = new Semaphore(1, true);
+      return;
+    }
+    Map<String, DelegateStage> stages = new HashMap<String, DelegateStage>();
+    for (Map.Entry<String, AnalysisEngine> entry : mComponentAnalysisEngineMap.entrySet()) {
+      if (!(entry.getValue() instanceof AggregateAnalysisEngine_impl) &&
+          !(entry.getValue() instanceof MultiprocessingAnalysisEngine_impl)) {
+        stages.put(entry.getKey(), new DelegateStage(entry.getValue()));
+      }
+    }
+    mDelegateStages = Collections.unmodifiableMap(stages);
+    mFlowControllerLock = new ReentrantLock(true);
+  }
+
   /*
    * Initializes the FlowController for this aggregate.
    */
@@ -344,6 +447,21 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
     return new AggregateCasIterator(aCAS);
   }
 
+  /*
+   * Computes the flow, one CAS at a time if the delegates are stages.
+   */
+  private FlowContainer computeFlow(CAS aCAS) throws AnalysisEngineProcessException {
+    if (mFlowControllerLock == null) {
+      return mFlowControllerContainer.computeFlow(aCAS);
+    }
+    mFlowControllerLock.lock();
+    try {
+      return mFlowControllerContainer.computeFlow(aCAS);
+    } finally {
+      mFlowControllerLock.unlock();
+    }
+  }
+
   /** Not public API. Is declared public so it can be used by test case. */
   public FlowControllerContainer getFlowControllerContainer() {
     return mFlowControllerContainer;
@@ -387,6 +505,9 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
 
     /** timer for timing processing done during calls to next() */
     UimaTimer timer = UIMAFramework.newTimer();
+    
+    /** Whether this iterator holds the mAggregateEntry */
+    boolean holdsAggregateEntry = false;
 
     /**
      * Creates a new AggregateCasIterator for the given input CAS. The CasIterator will return all
@@ -402,8 +523,18 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
       timer.startIt();
       try {
         mInputCas = inputCas;
+        if (mAggregateEntry != null) {
+          mAggregateEntry.acquireUninterruptibly();
+          holdsAggregateEntry = true;
+        }
         // compute the flow for this CAS
-        FlowContainer flow = mFlowControllerContainer.computeFlow(inputCas);
+        FlowContainer flow;
+        try {
+          flow = computeFlow(inputCas);
+        } catch (AnalysisEngineProcessException | RuntimeException e) {
+          exitAggregate();
+          throw e;
+        }
         // store CAS and Flow in an initial stack frame which will later be read by the
         // processUtilNextOutputCas method.
         casIteratorStack.push(new StackFrame(new EmptyCasIterator(), inputCas, flow, null));
@@ -479,6 +610,17 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
       //clear the active CASes list, to guard against ever trying to
       //reuse these CASes or trying to release them a second time.
       activeCASes.clear();       
+      exitAggregate();
+    }
+    
+    /**
+     * Lets the next CAS into a pipelined aggregate which is entered by one CAS at a time.
+     */
+    private void exitAggregate() {
+      if (holdsAggregateEntry) {
+        holdsAggregateEntry = false;
+        mAggregateEntry.release();
+      }
     }
 
     /**
@@ -504,6 +646,7 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
           // get an initial CAS from the CasIteratorStack
           while (cas == null) {
             if (casIteratorStack.isEmpty()) {
+              exitAggregate();
               return null; // there are no more CAS Iterators to obtain CASes from
             }
             StackFrame frame = casIteratorStack.peek();
@@ -556,31 +699,42 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
               String nextAeKey = ((SimpleStep) nextStep).getAnalysisEngineKey();
               AnalysisEngine nextAe = mComponentAnalysisEngineMap.get(nextAeKey);
               if (nextAe != null) {
-                //check if we have to set result spec, to support capability language flow
-                if (nextStep instanceof SimpleStepWithResultSpec) {
-                  ResultSpecification rs = ((SimpleStepWithResultSpec)nextStep).getResultSpecification();
-                  if (rs != null) {
-                    nextAe.setResultSpecification(rs);
-                  }
+                // in a pipeline, wait for the delegate to be free
+                DelegateStage stage = (mDelegateStages == null) ? null : mDelegateStages.get(nextAeKey);
+                if (stage != null) {
+                  nextAe = stage.enter();
                 }
-                // invoke next AE in flow
                 CasIterator casIter = null;
                 CAS outputCas = null; //used if the AE we call outputs a new CAS
                 try {
-                  casIter = nextAe.processAndOutputNewCASes(cas);
-                  if (casIter.hasNext()) {
-                    outputCas = casIter.next();
+                  //check if we have to set result spec, to support capability language flow
+                  if (nextStep instanceof SimpleStepWithResultSpec) {
+                    ResultSpecification rs = ((SimpleStepWithResultSpec)nextStep).getResultSpecification();
+                    if (rs != null) {
+                      nextAe.setResultSpecification(rs);
+                    }
                   }
-                }
-                catch(Exception e) {
-                  //ask the FlowController if we should continue
-                  //TODO: should this be configurable?
-                  if (!flow.continueOnFailure(nextAeKey, e)) {
-                    throw e;
+                  // invoke next AE in flow
+                  try {
+                    casIter = nextAe.processAndOutputNewCASes(cas);
+                    if (casIter.hasNext()) {
+                      outputCas = casIter.next();
+                    }
                   }
-                  else {
-                    UIMAFramework.getLogger(CLASS_NAME).logrb(Level.FINE, CLASS_NAME.getName(), "processUntilNextOutputCas",
-                            LOG_RESOURCE_BUNDLE, "UIMA_continuing_after_exception__FINE", e);
+                  catch(Exception e) {
+                    //ask the FlowController if we should continue
+                    //TODO: should this be configurable?
+                    if (!flow.continueOnFailure(nextAeKey, e)) {
+                      throw e;
+                    }
+                    else {
+                      UIMAFramework.getLogger(CLASS_NAME).logrb(Level.FINE, CLASS_NAME.getName(), "processUntilNextOutputCas",
+                              LOG_RESOURCE_BUNDLE, "UIMA_continuing_after_exception__FINE", e);
+                    }
+                  }
+                } finally {
+                  if (stage != null) {
+                    stage.exit(nextAe);
                   }
                 }
                 if (outputCas != null) // new CASes are output
@@ -604,6 +758,11 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
                         new Object[] { nextAeKey });
               }
             } 
+            //ParallelStep whose delegates run concurrently, see AnalysisEngine.PARAM_PARALLEL_STEP_EXECUTOR
+            else if (nextStep instanceof ParallelStep && mParallelStepRunner != null &&
+                     mParallelStepRunner.canRunConcurrently(cas, ((ParallelStep)nextStep).getAnalysisEngineKeys())) {
+              mParallelStepRunner.run(cas, ((ParallelStep)nextStep).getAnalysisEngineKeys(), flow);
+            }
             //ParallelStep (TODO: refactor out common parts with SimpleStep?)
             else if (nextStep instanceof ParallelStep) {
               //create modifiable list of destinations 
@@ -615,6 +774,11 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
                 //execute this step as we would a single step
                 AnalysisEngine nextAe = mComponentAnalysisEngineMap.get(nextAeKey);
                 if (nextAe != null) {
+                  // in a pipeline, wait for the delegate to be free
+                  DelegateStage stage = (mDelegateStages == null) ? null : mDelegateStages.get(nextAeKey);
+                  if (stage != null) {
+                    nextAe = stage.enter();
+                  }
                   // invoke next AE in flow
                   CasIterator casIter = null;
                   CAS outputCas = null; //used if the AE we call outputs a new CAS
@@ -635,6 +799,11 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
                               LOG_RESOURCE_BUNDLE, "UIMA_continuing_after_exception__FINE", e);
                     }
                   }
+                  finally {
+                    if (stage != null) {
+                      stage.exit(nextAe);
+                    }
+                  }
                   if (outputCas != null) // new CASes are output
                   {
                     // when pushing the stack frame so we know where to pick up later,
@@ -681,6 +850,7 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
               throw new AnalysisEngineProcessException(
                       AnalysisEngineProcessException.ILLEGAL_DROP_CAS, new Object[0]);
             }
+            exitAggregate();
             return null;
           }
           // Otherwise, this is a new CAS produced within this Aggregate. We may or
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.analysis_engine.asb.impl;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.uima.analysis_engine.AnalysisEngine;
+
+/**
+ * A delegate of a pipelined aggregate, see {@link AnalysisEngine#PARAM_PIPELINED}.
+ * 
+ * The stage processes one CAS at a time. The CASes waiting for it are let in in the order 
+ * they arrived, so CASes pass through the stages of the pipeline in order.
+ */
+class DelegateStage {
+  
+  private final AnalysisEngine analysisEngine;
+  
+  private final ReentrantLock lock = new ReentrantLock(true);
+  
+  DelegateStage(AnalysisEngine analysisEngine) {
+    this.analysisEngine = analysisEngine;
+  }
+  
+  /**
+   * Waits until the stage is free, and takes it.
+   * @return the delegate to call with the CAS
+   */
+  AnalysisEngine enter() {
+    lock.lock();
+    return analysisEngine;
+  }
+  
+  /**
+   * Frees the stage, on the thread which entered it.
+   * @param ae the delegate returned by {@link #enter()}
+   */
+  void exit(AnalysisEngine ae) {
+    lock.unlock();
+  }
+}
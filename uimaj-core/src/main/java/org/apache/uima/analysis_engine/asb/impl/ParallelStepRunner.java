@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.analysis_engine.asb.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.analysis_engine.CasIterator;
+import org.apache.uima.analysis_engine.metadata.AnalysisEngineMetaData;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASRuntimeException;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.FSIndexRepositoryImpl;
+import org.apache.uima.cas.impl.LowLevelIterator;
+import org.apache.uima.internal.util.IntVector;
+import org.apache.uima.resource.CasManager;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.CasCopier;
+import org.apache.uima.util.CasCreationUtils;
+
+/**
+ * Runs the delegates of a ParallelStep concurrently, for the ASB_impl.
+ * See {@link AnalysisEngine#PARAM_PARALLEL_STEP_EXECUTOR}.
+ * 
+ * The first delegate runs on the calling thread, on the CAS itself. Each of the others runs on
+ * the executor, on a copy of the CAS in a scratch CAS, made before any of the delegates starts.
+ * Then the FSs added to the indexes of each copy are copied back into the CAS and indexed, in 
+ * the order of the delegates in the step. 
+ * 
+ * The scratch CASs are kept and reused. They are made with the type system of the CAS
+ * being processed, so the copies are done by the CasCopier fast path for identical type systems.
+ * 
+ * The steps of a pipelined ASB_impl are run one at a time, and the delegates are called
+ * through their stages, see {@link AnalysisEngine#PARAM_PIPELINED}.
+ */
+class ParallelStepRunner {
+  
+  private final Executor executor;
+  
+  private final CasManager casManager;
+  
+  private final Map<String, AnalysisEngine> analysisEngines;
+  
+  private final Map<String, AnalysisEngineMetaData> analysisEngineMetaData;
+  
+  /** the delegates as stages of a pipeline; null if not pipelined */
+  private final Map<String, DelegateStage> stages;
+  
+  /** reused scratch CASs, one per delegate of a step beyond the first one */
+  private final List<CAS> scratchCases = new ArrayList<CAS>();
+  
+  /** the type system of the scratch CASs */
+  private TypeSystem scratchTypeSystem;
+  
+  ParallelStepRunner(Executor executor, CasManager casManager, 
+      Map<String, AnalysisEngine> analysisEngines, 
+      Map<String, AnalysisEngineMetaData> analysisEngineMetaData,
+      Map<String, DelegateStage> stages) {
+    this.executor = executor;
+    this.casManager = casManager;
+    this.analysisEngines = analysisEngines;
+    this.analysisEngineMetaData = analysisEngineMetaData;
+    this.stages = stages;
+  }
+  
+  /**
+   * @param cas the CAS to process
+   * @param aeKeys the keys of the delegates of the ParallelStep
+   * @return true if the step can be run concurrently; if false, the caller runs it sequentially
+   */
+  boolean canRunConcurrently(CAS cas, Collection<String> aeKeys) {
+    if (aeKeys.size() < 2 || new HashSet<String>(aeKeys).size() != aeKeys.size()) {
+      return false;
+    }
+    for (String key : aeKeys) {
+      AnalysisEngineMetaData md = analysisEngineMetaData.get(key);
+      if (md == null || !analysisEngines.containsKey(key) || 
+          md.getOperationalProperties() == null || md.getOperationalProperties().getOutputsNewCASes()) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Runs the delegates of the step, and merges their results into the CAS.
+   * Failures are handed to the flow, in the order of the delegates in the step; the
+   * results of a failed delegate are not merged.
+   * 
+   * @param cas the CAS to process
+   * @param aeKeys the keys of the delegates of the ParallelStep, as checked by canRunConcurrently
+   * @param flow the flow of the CAS, which decides whether to continue after a failure
+   * @throws Exception from the first failed delegate for which the flow does not continue
+   */
+  synchronized void run(final CAS cas, Collection<String> aAeKeys, FlowContainer flow) throws Exception {
+    final List<String> aeKeys = new ArrayList<String>(aAeKeys);
+    final int nbrCopies = aeKeys.size() - 1;
+    final CasCopier[] copiers = new CasCopier[nbrCopies];
+    final int[] firstNewFs = new int[nbrCopies];
+    final List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>(nbrCopies);
+    if (scratchTypeSystem != cas.getTypeSystem()) {
+      scratchCases.clear();
+      scratchTypeSystem = cas.getTypeSystem();
+    }
+    try {
+      // copy the CAS before any delegate changes it
+      for (int i = 0; i < nbrCopies; i++) {
+        final CAS scratchCas = getScratchCas(i);
+        copiers[i] = new CasCopier(cas, scratchCas);
+        Iterator<CAS> viewIterator = cas.getViewIterator();
+        while (viewIterator.hasNext()) {
+          copiers[i].copyCasView(viewIterator.next(), true);
+        }
+        firstNewFs[i] = ((CASImpl) scratchCas).getHeap().getNextId();
+      }
+      
+      for (int i = 0; i < nbrCopies; i++) {
+        final String aeKey = aeKeys.get(i + 1);
+        final CAS branchCas = getCorrespondingView(getScratchCas(i), cas);
+        FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+          public Void call() throws Exception {
+            process(aeKey, branchCas);
+            return null;
+          }});
+        tasks.add(task);
+        try {
+          executor.execute(task);
+        } catch (RejectedExecutionException e) {
+          task.run();
+        }
+      }
+      
+      Exception[] failures = new Exception[aeKeys.size()];
+      try {
+        process(aeKeys.get(0), cas);
+      } catch (Exception e) {
+        failures[0] = e;
+      }
+      for (int i = 0; i < nbrCopies; i++) {
+        failures[i + 1] = waitFor(tasks.get(i));
+      }
+      
+      for (int i = 0; i < aeKeys.size(); i++) {
+        if (failures[i] != null) {
+          if (!flow.continueOnFailure(aeKeys.get(i), failures[i])) {
+            throw failures[i];
+          }
+        } else if (i > 0) {
+          merge(copiers[i - 1], getScratchCas(i - 1), firstNewFs[i - 1], cas);
+        }
+      }
+    } finally {
+      // no delegate may still be using a scratch CAS when it is reset
+      for (FutureTask<Void> task : tasks) {
+        waitFor(task);
+      }
+      for (int i = 0; i < nbrCopies; i++) {
+        getScratchCas(i).reset();
+      }
+    }
+  }
+  
+  private void process(String aeKey, CAS cas) throws AnalysisEngineProcessException {
+    DelegateStage stage = (stages == null) ? null : stages.get(aeKey);
+    AnalysisEngine ae = (stage == null) ? analysisEngines.get(aeKey) : stage.enter();
+    try {
+      CasIterator casIter = ae.processAndOutputNewCASes(cas);
+      while (casIter.hasNext()) {
+        casIter.next().release();
+      }
+    } finally {
+      if (stage != null) {
+        stage.exit(ae);
+      }
+    }
+    cas.setCurrentComponentInfo(null);
+  }
+  
+  /**
+   * @param task a submitted task
+   * @return the exception thrown by the task, or null
+   */
+  private static Exception waitFor(FutureTask<Void> task) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          task.get();
+          return null;
+        } catch (InterruptedException e) {
+          // the delegate must finish before its scratch CAS is touched again
+          interrupted = true;
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof Exception) {
+            return (Exception) cause;
+          }
+          if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          return new AnalysisEngineProcessException(cause);
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+  
+  /**
+   * Copies the FSs added to the indexes of the views of the scratch CAS back into the CAS, 
+   * indexing them in the same named views.  References to FSs which were copied into the 
+   * scratch CAS are mapped back to the original FSs.
+   * 
+   * @param copier the copier which filled the scratch CAS from the CAS
+   * @param scratchCas the scratch CAS, after processing
+   * @param firstNewFs the first FS created after the scratch CAS was filled
+   * @param cas the CAS to merge into
+   */
+  private void merge(CasCopier copier, CAS scratchCas, int firstNewFs, CAS cas) {
+    final CasCopier reverseCopier = copier.createReverseCopier();
+
+    // first create the views added by the delegate, with their sofa data,
+    // since copying a FS may refer to a new view
+    Iterator<CAS> viewIterator = scratchCas.getViewIterator();
+    while (viewIterator.hasNext()) {
+      CAS scratchView = viewIterator.next();
+      String viewName = scratchView.getViewName();
+      try {
+        cas.getView(viewName);
+      } catch (CASRuntimeException e) {
+        CAS view = cas.createView(viewName);
+        if (scratchView.getSofaDataString() != null) {
+          view.setSofaDataString(scratchView.getSofaDataString(), scratchView.getSofaMimeType());
+        } else if (scratchView.getSofaDataURI() != null) {
+          view.setSofaDataURI(scratchView.getSofaDataURI(), scratchView.getSofaMimeType());
+        } else if (scratchView.getSofaDataArray() != null) {
+          view.setSofaDataArray(reverseCopier.copyFs(scratchView.getSofaDataArray()), 
+              scratchView.getSofaMimeType());
+        }
+      }
+    }
+    
+    viewIterator = scratchCas.getViewIterator();
+    while (viewIterator.hasNext()) {
+      CAS scratchView = viewIterator.next();
+      CASImpl view = (CASImpl) cas.getView(scratchView.getViewName()).getLowLevelCAS();
+      final IntVector copies = new IntVector();
+      LowLevelIterator it = ((FSIndexRepositoryImpl) scratchView.getIndexRepository())
+          .ll_getAllIndexedFS(scratchCas.getTypeSystem().getTopType());
+      while (it.isValid()) {
+        final int fs = it.ll_get();
+        it.moveToNext();
+        if (fs >= firstNewFs) {
+          FeatureStructure copy = reverseCopier.copyFs(scratchView.getLowLevelCAS().ll_getFSForRef(fs));
+          copies.add(view.ll_getFSRef(copy));
+        }
+      }
+      // a DocumentAnnotation created by the delegate is indexed by the copier
+      final int docAnnot = view.ll_getDocumentAnnotation();
+      final int docAnnotPosition = (docAnnot == 0) ? -1 : copies.position(docAnnot);
+      if (docAnnotPosition >= 0) {
+        copies.remove(docAnnotPosition);
+      }
+      view.ll_getIndexRepository().ll_addAll(copies.toArrayCopy());
+    }
+  }
+  
+  private CAS getScratchCas(int i) throws ResourceInitializationException {
+    while (scratchCases.size() <= i) {
+      scratchCases.add(CasCreationUtils.createCas(casManager.getCasDefinition(), null, scratchTypeSystem));
+    }
+    return scratchCases.get(i);
+  }
+  
+  /**
+   * @param scratchCas a scratch CAS
+   * @param cas a view of the CAS being processed, or its base CAS
+   * @return the same named view of the scratch CAS, or its base CAS
+   */
+  private static CAS getCorrespondingView(CAS scratchCas, CAS cas) {
+    String viewName = cas.getViewName();
+    return (viewName == null) 
+        ? ((CASImpl) scratchCas).getBaseCAS() 
+        : scratchCas.getView(viewName);
+  }
+}
@@ -101,6 +101,11 @@ public class AggregateAnalysisEngine_impl extends AnalysisEngineImplBase impleme
    */
   private ASB mASB;
 
+  /**
+   * Whether this aggregate is a pipeline, see {@link AnalysisEngine#PARAM_PIPELINED}.
+   */
+  private boolean mPipelined;
+
   /**
    * @see org.apache.uima.resource.Resource#initialize(ResourceSpecifier, Map)
    */
@@ -189,6 +194,8 @@ public class AggregateAnalysisEngine_impl extends AnalysisEngineImplBase impleme
       // so that delegate AEs will share it
       aAdditionalParams.put(Resource.PARAM_RESOURCE_MANAGER, getResourceManager());
 
+      mPipelined = Boolean.TRUE.equals(aAdditionalParams.get(PARAM_PIPELINED));
+
       initializeAggregateAnalysisEngine(mDescription, aAdditionalParams);
 
       // Initialize ResultSpec based on output capabilities
@@ -247,6 +254,16 @@ public class AggregateAnalysisEngine_impl extends AnalysisEngineImplBase impleme
     return capabilityArray;
   }
 
+  /**
+   * A pipeline takes several CASes at once, so asynchronous requests need not wait for each other.
+   * 
+   * @see org.apache.uima.analysis_engine.impl.AnalysisEngineImplBase#isConcurrentProcessingSupported()
+   */
+  @Override
+  protected boolean isConcurrentProcessingSupported() {
+    return mPipelined;
+  }
+
   /**
    * @see org.apache.uima.resource.Resource#destroy()
    */
@@ -411,6 +428,10 @@ public class AggregateAnalysisEngine_impl extends AnalysisEngineImplBase impleme
     // System.out.println("remapping sofa names");
     asbParams.put(Resource.PARAM_AGGREGATE_SOFA_MAPPINGS, aAnalysisEngineDescription
             .getSofaMappings());
+    
+    // and the number of instances of the delegates
+    asbParams.put(ASB.PARAM_AGGREGATE_DELEGATE_SCALEOUTS, aAnalysisEngineDescription
+            .getDelegateScaleouts());
 
     // Get FlowController specifier from the aggregate descriptor. If none, use
     // default FixedFlow specifier.
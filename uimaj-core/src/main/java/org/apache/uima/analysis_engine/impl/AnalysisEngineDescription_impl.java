@@ -45,6 +45,7 @@ import org.apache.uima.analysis_engine.metadata.CapabilityLanguageFlow;
 import org.apache.uima.analysis_engine.metadata.FixedFlow;
 import org.apache.uima.analysis_engine.metadata.FlowConstraints;
 import org.apache.uima.analysis_engine.metadata.FlowControllerDeclaration;
+import org.apache.uima.analysis_engine.metadata.DelegateScaleout;
 import org.apache.uima.analysis_engine.metadata.SofaMapping;
 import org.apache.uima.analysis_engine.metadata.impl.AnalysisEngineMetaData_impl;
 import org.apache.uima.cas.CAS;
@@ -124,6 +125,8 @@ public class AnalysisEngineDescription_impl extends ResourceCreationSpecifier_im
 
   private SofaMapping[] mSofaMappings;
 
+  private DelegateScaleout[] mDelegateScaleouts;
+
   static final long serialVersionUID = -8103625125291855592L;
 
   /**
@@ -265,6 +268,24 @@ public class AnalysisEngineDescription_impl extends ResourceCreationSpecifier_im
     mSofaMappings = aSofaMappings;
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.analysis_engine.AnalysisEngineDescription#getDelegateScaleouts()
+   */
+  public DelegateScaleout[] getDelegateScaleouts() {
+    return mDelegateScaleouts;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.analysis_engine.AnalysisEngineDescription#setDelegateScaleouts(org.apache.uima.analysis_engine.metadata.DelegateScaleout[])
+   */
+  public void setDelegateScaleouts(DelegateScaleout[] aDelegateScaleouts) {
+    mDelegateScaleouts = aDelegateScaleouts;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -336,6 +357,19 @@ public class AnalysisEngineDescription_impl extends ResourceCreationSpecifier_im
         }
       }
     }
+    
+    //Keys in delegate scaleouts must be defined, with at least one instance
+    DelegateScaleout[] scaleouts = getDelegateScaleouts();
+    if (scaleouts != null) {
+      for (int i = 0; i < scaleouts.length; i++) {
+        if (!getDelegateAnalysisEngineSpecifiersWithImports().containsKey(scaleouts[i].getComponentKey()) ||
+            scaleouts[i].getNumberOfInstances() < 1) {
+          throw new ResourceInitializationException(ResourceInitializationException.INVALID_DELEGATE_SCALEOUT,
+                  new Object[]{getAnalysisEngineMetaData().getName(), scaleouts[i].getComponentKey(), 
+                               Integer.valueOf(scaleouts[i].getNumberOfInstances()), getSourceUrlString()});
+        }
+      }
+    }
   }
 
   /**
@@ -977,5 +1011,6 @@ public class AnalysisEngineDescription_impl extends ResourceCreationSpecifier_im
               new PropertyXmlInfo("metaData", null),
               new PropertyXmlInfo("externalResourceDependencies"),
               new PropertyXmlInfo("resourceManagerConfiguration", null),
-              new PropertyXmlInfo("sofaMappings") });
+              new PropertyXmlInfo("sofaMappings"),
+              new PropertyXmlInfo("delegateScaleouts") });
 }
\ No newline at end of file
@@ -23,12 +23,20 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.UimaContextAdmin;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineManagement;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.analysis_engine.AsyncCasIterator;
 import org.apache.uima.analysis_engine.CasIterator;
 import org.apache.uima.analysis_engine.JCasIterator;
 import org.apache.uima.analysis_engine.ResultNotSupportedException;
@@ -113,6 +121,112 @@ public abstract class AnalysisEngineImplBase extends ConfigurableResource_ImplBa
     return null;
   }
 
+  /**
+   * Completed when this Analysis Engine is done with the CAS of the last asynchronous request; the
+   * next request is queued behind it.
+   */
+  private final AtomicReference<CompletableFuture<?>> mLastAsyncRequest = 
+      new AtomicReference<CompletableFuture<?>>(CompletableFuture.completedFuture(null));
+
+  /**
+   * @see org.apache.uima.analysis_engine.AnalysisEngine#processAsync(CAS, Executor)
+   */
+  public CompletableFuture<ProcessTrace> processAsync(final CAS aCAS, Executor aExecutor) {
+    final CompletableFuture<ProcessTrace> result = new CompletableFuture<ProcessTrace>();
+    runAfter(queueAsyncRequest(result), new Runnable() {
+      public void run() {
+        try {
+          result.complete(process(aCAS));
+        } catch (AnalysisEngineProcessException | RuntimeException e) {
+          result.completeExceptionally(e);
+        }
+      }
+    }, result, aExecutor);
+    return result;
+  }
+
+  /**
+   * @see org.apache.uima.analysis_engine.AnalysisEngine#processAndOutputNewCASesAsync(CAS, Executor)
+   */
+  public AsyncCasIterator processAndOutputNewCASesAsync(CAS aCAS, Executor aExecutor) {
+    final CompletableFuture<AnalysisEngine> engine = new CompletableFuture<AnalysisEngine>();
+    CompletableFuture<Void> done = new CompletableFuture<Void>();
+    queueAsyncRequest(done).whenComplete(new BiConsumer<Object, Throwable>() {
+      public void accept(Object aValue, Throwable aFailure) {
+        engine.complete(AnalysisEngineImplBase.this);
+      }
+    });
+    return new AsyncCasIteratorWrapper(engine, aCAS, aExecutor, done);
+  }
+
+  /**
+   * Queues an asynchronous request behind the previous one, unless this Analysis Engine accepts
+   * several CASes at once.
+   * 
+   * @param aRequest
+   *          completed when this Analysis Engine is done with the request's CAS
+   * @return completed when the request may start
+   */
+  private CompletableFuture<?> queueAsyncRequest(CompletableFuture<?> aRequest) {
+    if (isConcurrentProcessingSupported()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return mLastAsyncRequest.getAndSet(aRequest);
+  }
+
+  /**
+   * Tells whether the <code>process</code> methods of this Analysis Engine may be called by
+   * several threads at once. If not, asynchronous requests are queued and run one at a time.
+   * 
+   * @return false, unless overridden
+   */
+  protected boolean isConcurrentProcessingSupported() {
+    return false;
+  }
+
+  /**
+   * Runs a step of an asynchronous request on an executor, once a previous step has completed,
+   * whether normally or not.
+   * 
+   * @param aPrevious
+   *          the step to wait for
+   * @param aStep
+   *          the step to run; completes <code>aResult</code>
+   * @param aResult
+   *          completed exceptionally if the executor refuses the step, or if the step fails with
+   *          an Error
+   * @param aExecutor
+   *          the executor that runs the step. If <code>null</code>, the common pool is used.
+   * @return completed when the step has run, exceptionally in the cases above
+   */
+  static CompletableFuture<Void> runAfter(CompletableFuture<?> aPrevious, final Runnable aStep,
+          final CompletableFuture<?> aResult, Executor aExecutor) {
+    CompletableFuture<Void> step = aPrevious.handleAsync(new BiFunction<Object, Throwable, Void>() {
+      public Void apply(Object aValue, Throwable aFailure) {
+        aStep.run();
+        return null;
+      }
+    }, (aExecutor == null) ? ForkJoinPool.commonPool() : aExecutor);
+    step.whenComplete(new BiConsumer<Void, Throwable>() {
+      public void accept(Void aValue, Throwable aFailure) {
+        if (aFailure != null) {
+          aResult.completeExceptionally(unwrap(aFailure));
+        }
+      }
+    });
+    return step;
+  }
+
+  /**
+   * @param aFailure
+   *          an exception obtained from a future
+   * @return the exception the future was completed with
+   */
+  static Throwable unwrap(Throwable aFailure) {
+    return (aFailure instanceof CompletionException && aFailure.getCause() != null) 
+        ? aFailure.getCause() : aFailure;
+  }
+
   /**
    * resource bundle for log messages
    */
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.analysis_engine.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AsyncCasIterator;
+import org.apache.uima.analysis_engine.CasIterator;
+import org.apache.uima.cas.CAS;
+
+/**
+ * Implements an AsyncCasIterator by running the calls of the AnalysisEngine's blocking CasIterator
+ * on an executor, one after the other.
+ */
+public class AsyncCasIteratorWrapper implements AsyncCasIterator {
+
+  private final Executor mExecutor;
+
+  private final CompletableFuture<Void> mDone;
+
+  // completed when the last call has been carried out; the next one is run after it
+  private CompletableFuture<?> mLastCall;
+
+  // the fields below are used by the calls, which are run one after the other, but maybe on
+  // different threads
+
+  private volatile CasIterator mCasIterator;
+
+  private volatile Throwable mFailure;
+
+  /**
+   * Starts processing a CAS with <code>processAndOutputNewCASes</code>.
+   * 
+   * @param aEngine
+   *          completed with the AnalysisEngine once it may process the CAS. If it fails, so does
+   *          the first call to {@link #next()}.
+   * @param aCAS
+   *          the CAS to process
+   * @param aExecutor
+   *          runs the calls to the AnalysisEngine and its CasIterator. If <code>null</code>, the
+   *          common pool is used.
+   * @param aDone
+   *          completed when the AnalysisEngine is done with <code>aCAS</code>: when all the output
+   *          CASes have been obtained, or when the iterator was released or has failed
+   */
+  public AsyncCasIteratorWrapper(final CompletableFuture<? extends AnalysisEngine> aEngine,
+          final CAS aCAS, Executor aExecutor, CompletableFuture<Void> aDone) {
+    mExecutor = aExecutor;
+    mDone = aDone;
+    mLastCall = aEngine;
+    final CompletableFuture<Void> started = new CompletableFuture<Void>();
+    call(new Runnable() {
+      public void run() {
+        try {
+          mCasIterator = aEngine.join().processAndOutputNewCASes(aCAS);
+        } catch (Exception e) {
+          fail(AnalysisEngineImplBase.unwrap(e));
+        } finally {
+          started.complete(null);
+        }
+      }
+    }, started);
+  }
+
+  /**
+   * @see org.apache.uima.analysis_engine.AsyncCasIterator#next()
+   */
+  public CompletableFuture<CAS> next() {
+    final CompletableFuture<CAS> result = new CompletableFuture<CAS>();
+    return call(new Runnable() {
+      public void run() {
+        if (mFailure != null) {
+          result.completeExceptionally(mFailure);
+          return;
+        }
+        if (mDone.isDone()) {
+          result.complete(null);
+          return;
+        }
+        try {
+          if (mCasIterator.hasNext()) {
+            result.complete(mCasIterator.next());
+          } else {
+            mDone.complete(null);
+            result.complete(null);
+          }
+        } catch (Exception e) {
+          fail(e);
+          result.completeExceptionally(e);
+        }
+      }
+    }, result);
+  }
+
+  /**
+   * @see org.apache.uima.analysis_engine.AsyncCasIterator#release()
+   */
+  public CompletableFuture<Void> release() {
+    final CompletableFuture<Void> result = new CompletableFuture<Void>();
+    return call(new Runnable() {
+      public void run() {
+        try {
+          if (!mDone.isDone()) {
+            mCasIterator.release();
+          }
+        } finally {
+          mDone.complete(null);
+          result.complete(null);
+        }
+      }
+    }, result);
+  }
+
+  private void fail(Throwable aFailure) {
+    mFailure = aFailure;
+    mDone.complete(null);
+  }
+
+  /**
+   * Runs a call after the previous one.
+   * 
+   * @param aCall
+   *          the call; completes <code>aResult</code>
+   * @param aResult
+   *          the result of the call
+   * @return <code>aResult</code>
+   */
+  private synchronized <T> CompletableFuture<T> call(Runnable aCall, final CompletableFuture<T> aResult) {
+    CompletableFuture<?> previous = mLastCall;
+    mLastCall = aResult;
+    // only completed if the executor refuses the call, or the call fails with an Error
+    CompletableFuture<Void> refused = new CompletableFuture<Void>();
+    refused.whenComplete(new BiConsumer<Void, Throwable>() {
+      public void accept(Void aValue, Throwable aFailure) {
+        // the state of the iteration is unknown, so the following calls fail too
+        if (mFailure == null) {
+          fail(aFailure);
+        }
+        aResult.completeExceptionally(aFailure);
+      }
+    });
+    AnalysisEngineImplBase.runAfter(previous, aCall, refused, mExecutor);
+    return aResult;
+  }
+}
@@ -21,10 +21,15 @@ package org.apache.uima.analysis_engine.impl;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.analysis_engine.AsyncCasIterator;
 import org.apache.uima.analysis_engine.CasIterator;
 import org.apache.uima.analysis_engine.JCasIterator;
 import org.apache.uima.analysis_engine.ResultNotSupportedException;
@@ -131,6 +136,96 @@ public class MultiprocessingAnalysisEngine_impl extends AnalysisEngineImplBase i
     }       
     return ae;
   }
+
+  /**
+   * Checks out an AnalysisEngine without blocking a thread. Only waiting without a timeout is
+   * supported that way; with a timeout, the blocking check-out is made on the executor.
+   */
+  private CompletableFuture<AnalysisEngine> getAeFromPoolAsync(Executor aExecutor) {
+    if (mTimeout <= 0) {
+      return mPool.getAnalysisEngineAsync();
+    }
+    final CompletableFuture<AnalysisEngine> engine = new CompletableFuture<AnalysisEngine>();
+    runAfter(CompletableFuture.completedFuture(null), new Runnable() {
+      public void run() {
+        try {
+          engine.complete(getAeFromPool());
+        } catch (AnalysisEngineProcessException e) {
+          engine.completeExceptionally(e);
+        }
+      }
+    }, engine, aExecutor);
+    return engine;
+  }
+
+  /**
+   * Checks an AnalysisEngine obtained by {@link #getAeFromPoolAsync(Executor)} back in, once.
+   */
+  private void releaseAeFromPoolAsync(CompletableFuture<AnalysisEngine> aEngine, AtomicBoolean aReleased) {
+    if (aEngine.isDone() && !aEngine.isCompletedExceptionally() && aReleased.compareAndSet(false, true)) {
+      mPool.releaseAnalysisEngine(aEngine.join());
+    }
+  }
+
+  /**
+   * Waits for a free AnalysisEngine without blocking a thread, unless a timeout is set, then
+   * processes the CAS with it on the executor.
+   * 
+   * @see org.apache.uima.analysis_engine.AnalysisEngine#processAsync(CAS, Executor)
+   */
+  @Override
+  public CompletableFuture<ProcessTrace> processAsync(final CAS aCAS, Executor aExecutor) {
+    final CompletableFuture<ProcessTrace> result = new CompletableFuture<ProcessTrace>();
+    final CompletableFuture<AnalysisEngine> engine = getAeFromPoolAsync(aExecutor);
+    final AtomicBoolean released = new AtomicBoolean();
+    runAfter(engine, new Runnable() {
+      public void run() {
+        ProcessTrace trace = null;
+        Throwable failure = null;
+        try {
+          trace = engine.join().process(aCAS);
+        } catch (AnalysisEngineProcessException | RuntimeException e) {
+          failure = unwrap(e);
+        } finally {
+          releaseAeFromPoolAsync(engine, released);
+        }
+        if (failure == null) {
+          result.complete(trace);
+        } else {
+          result.completeExceptionally(failure);
+        }
+      }
+    }, result, aExecutor).whenComplete(new BiConsumer<Void, Throwable>() {
+      public void accept(Void aValue, Throwable aFailure) {
+        // in case the executor refused to run the step
+        releaseAeFromPoolAsync(engine, released);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Waits for a free AnalysisEngine without blocking a thread, unless a timeout is set, then
+   * runs its CasIterator on the executor.
+   * 
+   * @see org.apache.uima.analysis_engine.AnalysisEngine#processAndOutputNewCASesAsync(CAS, Executor)
+   */
+  @Override
+  public AsyncCasIterator processAndOutputNewCASesAsync(CAS aCAS, Executor aExecutor) {
+    final long startTime = System.currentTimeMillis();
+    final CompletableFuture<AnalysisEngine> engine = getAeFromPoolAsync(aExecutor);
+    final AtomicBoolean released = new AtomicBoolean();
+    CompletableFuture<Void> done = new CompletableFuture<Void>();
+    done.whenComplete(new BiConsumer<Void, Throwable>() {
+      public void accept(Void aValue, Throwable aFailure) {
+        if (!engine.isCompletedExceptionally()) {
+          releaseAeFromPoolAsync(engine, released);
+          getMBean().reportAnalysisTime(System.currentTimeMillis() - startTime);
+        }
+      }
+    });
+    return new AsyncCasIteratorWrapper(engine, aCAS, aExecutor, done);
+  }
   
   
   /***************************************************************
@@ -178,23 +273,48 @@ public class MultiprocessingAnalysisEngine_impl extends AnalysisEngineImplBase i
     // https://issues.apache.org/jira/browse/UIMA-5191
     final long startTime = System.currentTimeMillis();    
     final AnalysisEngine ae = getAeFromPool();
-    final CasIterator it_inner = ae.processAndOutputNewCASes(aCAS);
+    final CasIterator it_inner;
+    try {
+      it_inner = ae.processAndOutputNewCASes(aCAS);
+    } catch (AnalysisEngineProcessException | RuntimeException e) {
+      // a failed instance is returned to the pool, else the pool shrinks on each failure
+      mPool.releaseAnalysisEngine(ae);
+      throw e;
+    }
     final AnalysisEnginePool localMPool = mPool;
     CasIterator it_outer = new CasIterator() {
+      
+      private boolean released = false;
+      
+      private void releaseAe() {
+        if (!released) {
+          released = true;
+          localMPool.releaseAnalysisEngine(ae);
+          getMBean().reportAnalysisTime(System.currentTimeMillis() - startTime);
+        }
+      }
 
       @Override
       public boolean hasNext() throws AnalysisEngineProcessException {
-        boolean r = it_inner.hasNext();
+        boolean r;
+        try {
+          r = it_inner.hasNext();
+        } catch (AnalysisEngineProcessException | RuntimeException e) {
+          releaseAe();
+          throw e;
+        }
         if (!r) {
-          localMPool.releaseAnalysisEngine(ae);
-          getMBean().reportAnalysisTime(System.currentTimeMillis() - startTime);
+          releaseAe();
         }
         return r;      }
 
       @Override
       public CAS next() throws AnalysisEngineProcessException { return it_inner.next(); }
       @Override
-      public void release() { it_inner.release(); }
+      public void release() { 
+        it_inner.release();
+        releaseAe();
+      }
     };
     
     return it_outer;
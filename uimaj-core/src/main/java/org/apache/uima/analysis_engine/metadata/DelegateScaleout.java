@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.analysis_engine.metadata;
+
+import org.apache.uima.resource.metadata.MetaDataObject;
+
+/**
+ * The number of instances of a delegate of an aggregate Analysis Engine.
+ * 
+ * <p>
+ * When the aggregate is a pipeline (see
+ * {@link org.apache.uima.analysis_engine.AnalysisEngine#PARAM_PIPELINED}), each delegate
+ * normally processes one CAS at a time. A <code>DelegateScaleout</code> lets a slow delegate
+ * process several CASes at once, with that many instances, without replicating the other
+ * delegates. The instances share the UimaContext and the ResourceManager, so shared external
+ * resources are loaded once.
+ * 
+ * <p>
+ * It is ignored if the aggregate is not a pipeline, since then only one CAS at a time is in the
+ * aggregate.
+ */
+public interface DelegateScaleout extends MetaDataObject {
+  /**
+   * Gets the component key. This identifies the delegate which is scaled out.
+   * 
+   * @return the key
+   */
+  public String getComponentKey();
+
+  /**
+   * Sets the component key. This identifies the delegate which is scaled out.
+   * 
+   * @param aComponentKey
+   *          the key
+   */
+  public void setComponentKey(String aComponentKey);
+
+  /**
+   * Gets the number of instances of the delegate.
+   * 
+   * @return the number of instances, at least 1
+   */
+  public int getNumberOfInstances();
+
+  /**
+   * Sets the number of instances of the delegate.
+   * 
+   * @param aNumberOfInstances
+   *          the number of instances, at least 1
+   */
+  public void setNumberOfInstances(int aNumberOfInstances);
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.analysis_engine.metadata.impl;
+
+import org.apache.uima.analysis_engine.metadata.DelegateScaleout;
+import org.apache.uima.resource.metadata.impl.MetaDataObject_impl;
+import org.apache.uima.resource.metadata.impl.PropertyXmlInfo;
+import org.apache.uima.resource.metadata.impl.XmlizationInfo;
+
+/**
+ * Implementation of {@link DelegateScaleout}.
+ */
+public class DelegateScaleout_impl extends MetaDataObject_impl implements DelegateScaleout {
+  
+  private static final long serialVersionUID = 4519633742651237154L;
+
+  private String mComponentKey;
+
+  private int mNumberOfInstances = 1;
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.analysis_engine.metadata.DelegateScaleout#getComponentKey()
+   */
+  public String getComponentKey() {
+    return mComponentKey;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.analysis_engine.metadata.DelegateScaleout#setComponentKey(java.lang.String)
+   */
+  public void setComponentKey(String aComponentKey) {
+    mComponentKey = aComponentKey;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.analysis_engine.metadata.DelegateScaleout#getNumberOfInstances()
+   */
+  public int getNumberOfInstances() {
+    return mNumberOfInstances;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.analysis_engine.metadata.DelegateScaleout#setNumberOfInstances(int)
+   */
+  public void setNumberOfInstances(int aNumberOfInstances) {
+    mNumberOfInstances = aNumberOfInstances;
+  }
+
+  protected XmlizationInfo getXmlizationInfo() {
+    return XMLIZATION_INFO;
+  }
+
+  static final private XmlizationInfo XMLIZATION_INFO = new XmlizationInfo("delegateScaleout",
+          new PropertyXmlInfo[] { new PropertyXmlInfo("componentKey"),
+              new PropertyXmlInfo("numberOfInstances") });
+}
@@ -49,6 +49,11 @@ import org.apache.uima.util.UimaTimer;
  * method, which must create an {@link AnalysisEngineServiceStub} object that can communicate with the
  * remote service. The stub must be passed to the {@link #setStub(AnalysisEngineServiceStub)} method of
  * this class.
+ * <p>
+ * The stubs make one blocking call at a time. The asynchronous process methods, see
+ * {@link AnalysisEngine#processAsync(CAS, java.util.concurrent.Executor)}, queue the requests made
+ * while a call is in progress without holding a thread, so only one executor thread per service is
+ * busy waiting for replies.
  * 
  * 
  */
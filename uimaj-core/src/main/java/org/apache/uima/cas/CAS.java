@@ -1084,4 +1084,39 @@ public interface CAS extends AbstractCas {
    */
   void protectIndexes(Runnable runnable);
 
+  /**
+   * Freeze this CAS (all of its views), making its indexes read-only until the next reset.
+   * <p>
+   * Freezing sets up, on the calling thread, all of the information the indexes otherwise create
+   * lazily on first use.  After this, any number of threads may concurrently get indexes, create and
+   * use iterators (including subiterators), and read feature values, without any locking.
+   * <p>
+   * While frozen, adding to or removing from the indexes, including the implicit removing and 
+   * adding back done when a feature used as an index key is set, throws a CASRuntimeException. 
+   * Other kinds of updates (creating new FSs, setting features not used as keys) are not checked,
+   * and must not be done while other threads are reading.
+   * <p>
+   * The CAS must be made visible to the other threads after this method returns, in some way 
+   * that insures memory visibility, for example by handing it off via a java.util.concurrent queue or
+   * executor.
+   * <p>
+   * Resetting the CAS unfreezes it.  Calling this method on an already frozen CAS does nothing.
+   * <p>
+   * The default implementation, for CAS implementations other than the built-in one, throws an
+   * UnsupportedOperationException, since freezing needs access to the index internals.
+   * 
+   * @throws UnsupportedOperationException if this CAS implementation does not support freezing
+   */
+  default void freeze() {
+    throw new UnsupportedOperationException("freeze() is not supported by " + getClass().getName());
+  }
+
+  /**
+   * @return true if this CAS is frozen; the default implementation returns false
+   * @see #freeze()
+   */
+  default boolean isFrozen() {
+    return false;
+  }
+
 }
@@ -222,6 +222,9 @@ public class CASRuntimeException extends UIMARuntimeException {
   /** Multiply nested classloaders not supported.  Original base loader: {0}, current nested loader: {1}, trying to switch to loader: {2}.*/
   public static final String SWITCH_CLASS_LOADER_NESTED = "SWITCH_CLASS_LOADER_NESTED";
   
+  /** Illegal attempt to update the indexes of a frozen CAS; it may only be read until it is reset. */
+  public static final String CAS_FROZEN = "CAS_FROZEN";
+  
 	public CASRuntimeException() {
 		super();
 	}
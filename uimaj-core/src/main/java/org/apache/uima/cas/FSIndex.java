@@ -19,6 +19,11 @@
 
 package org.apache.uima.cas;
 
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * Feature structure index access interface.
  * 
@@ -180,4 +185,33 @@ public interface FSIndex<T extends FeatureStructure> extends Iterable<T> {
    */
   FSIndex<T> withSnapshotIterators();
 
+  /**
+   * A Spliterator over the index, which for the built-in implementation can be split into position ranges
+   * for parallel processing.  It is ORDERED except for bag indexes.
+   * <p>
+   * The spliterator works over a snapshot of the index, except when the CAS is frozen 
+   * (see {@link CAS#freeze()}) and the index holds only one type, where it uses the index directly.
+   * The default implementation wraps {@link #iterator()} and does not split efficiently.
+   * 
+   * @return a Spliterator over the Feature Structures in this index 
+   */
+  @Override
+  default Spliterator<T> spliterator() {
+    int characteristics = Spliterator.NONNULL;
+    int kind = getIndexingStrategy();
+    if (kind != BAG_INDEX && kind != DEFAULT_BAG_INDEX) {
+      characteristics |= Spliterator.ORDERED;
+    }
+    return Spliterators.spliteratorUnknownSize(iterator(), characteristics);
+  }
+
+  /**
+   * @return a sequential stream over the Feature Structures in this index; 
+   *   use <code>stream().parallel()</code> for a parallel one, which is safe if the CAS is frozen
+   *   (see {@link CAS#freeze()}).
+   */
+  default Stream<T> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
 }
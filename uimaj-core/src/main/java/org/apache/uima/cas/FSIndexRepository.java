@@ -19,6 +19,7 @@
 
 package org.apache.uima.cas;
 
+import java.util.Collection;
 import java.util.Iterator;
 
 import org.apache.uima.cas.impl.LowLevelIndex;
@@ -100,6 +101,25 @@ public interface FSIndexRepository {
    */
   void addFS(FeatureStructure fs);
 
+  /**
+   * Add a collection of feature structures to all appropriate indexes in the repository. The
+   * effect is the same as calling {@link #addFS(FeatureStructure) addFS()} on each element, but
+   * the batch is grouped by type and merged into each index in one operation, which is much
+   * cheaper than individual adds for large batches (for instance, when an annotator adds all of
+   * its results at the end of its process method).  The default implementation just calls
+   * <code>addFS()</code> on each element.
+   * 
+   * @param fss
+   *          The FSs to be added.
+   * @exception NullPointerException
+   *              If <code>fss</code>, or one of its elements, is <code>null</code>.
+   */
+  default void addAll(Collection<? extends FeatureStructure> fss) {
+    for (FeatureStructure fs : fss) {
+      addFS(fs);
+    }
+  }
+
   /**
    * Remove a feature structure from all indexes in the repository.
    * 
@@ -22,6 +22,10 @@ package org.apache.uima.cas;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Iterator over feature structures.
@@ -136,4 +140,21 @@ public interface FSIterator<T extends FeatureStructure> extends Iterator<T> {
    */
   FSIterator<T> copy();
 
+  /**
+   * @return a Spliterator over the Feature Structures from the current position to the end,
+   *   advancing this iterator.  It does not split efficiently; to process a whole index in parallel,
+   *   use {@link FSIndex#stream()} instead.
+   */
+  default Spliterator<T> spliterator() {
+    return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+  }
+
+  /**
+   * @return a sequential stream over the Feature Structures from the current position to the end,
+   *   advancing this iterator
+   */
+  default Stream<T> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
 }
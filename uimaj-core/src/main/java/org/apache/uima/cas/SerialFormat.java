@@ -96,6 +96,11 @@ public enum SerialFormat {
    *   used to reinitialize the CAS
    */
   COMPRESSED_TSI("bcas"),
+  
+  /**
+   * JSON-serialized CAS, written and read by the uimaj-json module, which must be on the classpath
+   */
+  JSON("json"),
   ;
   
   private String defaultFileExtension;
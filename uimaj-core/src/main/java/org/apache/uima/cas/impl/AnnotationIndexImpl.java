@@ -19,8 +19,13 @@
 
 package org.apache.uima.cas.impl;
 
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
 import org.apache.uima.cas.FSIndex;
 import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
@@ -104,6 +109,26 @@ public class AnnotationIndexImpl <T extends AnnotationFS> implements AnnotationI
     return (FSIterator<T>) this.index.iterator();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.cas.FSIndex#spliterator()
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+    return this.index.spliterator();
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.cas.FSIndex#stream()
+   */
+  @Override
+  public Stream<T> stream() {
+    return this.index.stream();
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -194,5 +219,63 @@ public class AnnotationIndexImpl <T extends AnnotationFS> implements AnnotationI
   public FSIndex<T> withSnapshotIterators() {
     return new AnnotationIndexImpl<T>(index.withSnapshotIterators());
   }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.cas.text.AnnotationIndex#coveredBy(int, int)
+   */
+  @Override
+  public List<T> coveredBy(int begin, int end) {
+    return getIntervalIndex().coveredBy(begin, end);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.cas.text.AnnotationIndex#covering(int, int)
+   */
+  @Override
+  public List<T> covering(int begin, int end) {
+    return getIntervalIndex().covering(begin, end);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.cas.text.AnnotationIndex#overlapping(int, int)
+   */
+  @Override
+  public List<T> overlapping(int begin, int end) {
+    return getIntervalIndex().overlapping(begin, end);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.cas.text.AnnotationIndex#nearestPreceding(int)
+   */
+  @Override
+  public T nearestPreceding(int position) {
+    return getIntervalIndex().nearestPreceding(position);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.cas.text.AnnotationIndex#exportColumns(Feature[], Object[])
+   */
+  @Override
+  public int exportColumns(Feature[] features, Object[] columns) {
+    final int[] featureCodes = new int[features.length];
+    for (int i = 0; i < features.length; i++) {
+      featureCodes[i] = ((FeatureImpl) features[i]).getCode();
+    }
+    return ((LowLevelIndex) this.index).ll_exportColumns(featureCodes, columns);
+  }
+
+  private AnnotationIntervalIndex getIntervalIndex() {
+    return ((FSIndexRepositoryImpl.IndexImpl<T>) this.index).getIntervalIndex();
+  }
   
 }
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.internal.util.Int2IntArrayMapFixedSize;
+
+/**
+ * A read-only interval index over the annotations of an annotation index (a type and its subtypes),
+ * used for the coveredBy, covering, overlapping and nearestPreceding queries of {@link AnnotationIndexImpl}.
+ * 
+ * The annotations are held in index order (begin ascending, then end descending, ...) as parallel arrays
+ * of addresses, begins and ends.  The arrays are viewed as an implicit balanced binary search tree:
+ * the root of the range [lo, hi) is at (lo + hi) / 2; each node records the maximum and minimum end
+ * in its subtree.  A query limits the positions by binary search on the begins, and then
+ * walks the tree skipping subtrees whose max/min end can't satisfy the end condition.
+ * A query returning k annotations takes O(log n + k log n) time, and returns them in index order.
+ * 
+ * A second array holds the positions sorted by end, for nearestPreceding.
+ * 
+ * Instances are built when first needed, and are reused until the index is updated
+ * (detected using the same index update counts as used for flattened indexes) or the CAS is reset.
+ */
+class AnnotationIntervalIndex {
+
+  private final CASImpl cas;
+  
+  private final int[] fsAddrs;
+  
+  private final int[] begins;
+  
+  private final int[] ends;
+  
+  /** max of the ends in the subtree rooted at this position */
+  private final int[] maxEnds;
+
+  /** min of the ends in the subtree rooted at this position */
+  private final int[] minEnds;
+  
+  /** positions ordered by end, then by position */
+  private final int[] byEnd;
+  
+  /** index update counts of the type and subtypes when this was built */
+  final Int2IntArrayMapFixedSize updateCounts;
+  
+  /** the number of CAS resets when this was built */
+  final int casResets;
+
+  /**
+   * @param cas the CAS
+   * @param it an iterator over the annotation index, positioned at the start
+   * @param size the number of annotations in the index
+   * @param updateCounts the index update counts, captured before iterating
+   */
+  AnnotationIntervalIndex(CASImpl cas, LowLevelIterator it, int size, Int2IntArrayMapFixedSize updateCounts) {
+    this.cas = cas;
+    this.updateCounts = updateCounts;
+    this.casResets = cas.getCasResets();
+    fsAddrs = new int[size];
+    begins = new int[size];
+    ends = new int[size];
+    int i = 0;
+    for (; it.isValid(); it.moveToNext()) {
+      final int fsAddr = it.ll_get();
+      fsAddrs[i] = fsAddr;
+      begins[i] = cas.ll_getAnnotBegin(fsAddr);
+      ends[i] = cas.ll_getAnnotEnd(fsAddr);
+      i++;
+    }
+    maxEnds = new int[size];
+    minEnds = new int[size];
+    build(0, size);
+    
+    final long[] endKeys = new long[size];
+    for (i = 0; i < size; i++) {
+      endKeys[i] = (((long) ends[i]) << 32) | i;
+    }
+    Arrays.sort(endKeys);
+    byEnd = new int[size];
+    for (i = 0; i < size; i++) {
+      byEnd[i] = (int) endKeys[i];
+    }
+  }
+  
+  private void build(int lo, int hi) {
+    if (lo >= hi) {
+      return;
+    }
+    final int mid = (lo + hi) >>> 1;
+    build(lo, mid);
+    build(mid + 1, hi);
+    int max = ends[mid];
+    int min = max;
+    if (lo < mid) {
+      final int left = (lo + mid) >>> 1;
+      max = Math.max(max, maxEnds[left]);
+      min = Math.min(min, minEnds[left]);
+    }
+    if (mid + 1 < hi) {
+      final int right = (mid + 1 + hi) >>> 1;
+      max = Math.max(max, maxEnds[right]);
+      min = Math.min(min, minEnds[right]);
+    }
+    maxEnds[mid] = max;
+    minEnds[mid] = min;
+  }
+  
+  int size() {
+    return fsAddrs.length;
+  }
+  
+  /**
+   * @return the first position whose begin is &gt;= begin
+   */
+  private int lowerBound(int begin) {
+    int lo = 0;
+    int hi = begins.length;
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (begins[mid] < begin) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+  
+  /**
+   * @return the first position whose begin is &gt; begin
+   */
+  private int upperBound(int begin) {
+    return (begin == Integer.MAX_VALUE) ? begins.length : lowerBound(begin + 1);
+  }
+  
+  /**
+   * @return annotations with begin &lt;= b.begin and b.end &lt;= end
+   */
+  <T extends AnnotationFS> List<T> coveredBy(int begin, int end) {
+    final List<T> result = new ArrayList<T>();
+    collectEndAtMost(0, fsAddrs.length, lowerBound(begin), upperBound(end), end, result);
+    return result;
+  }
+  
+  /**
+   * @return annotations with b.begin &lt;= begin and end &lt;= b.end
+   */
+  <T extends AnnotationFS> List<T> covering(int begin, int end) {
+    final List<T> result = new ArrayList<T>();
+    collectEndAtLeast(0, fsAddrs.length, upperBound(begin), end, result);
+    return result;
+  }
+  
+  /**
+   * @return annotations with b.begin &lt; end and begin &lt; b.end
+   */
+  <T extends AnnotationFS> List<T> overlapping(int begin, int end) {
+    final List<T> result = new ArrayList<T>();
+    if (begin < Integer.MAX_VALUE) {
+      collectEndAtLeast(0, fsAddrs.length, lowerBound(end), begin + 1, result);
+    }
+    return result;
+  }
+  
+  /**
+   * @return the annotation with the largest end &lt;= position, the last in index order of those 
+   *   with that end, or null
+   */
+  <T extends AnnotationFS> T nearestPreceding(int position) {
+    int lo = 0;
+    int hi = byEnd.length;
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (ends[byEnd[mid]] <= position) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return (lo == 0) ? null : cas.<T>ll_getFSForRef(fsAddrs[byEnd[lo - 1]]);
+  }
+  
+  /**
+   * In order walk of the positions in [lo, hi) which are &lt; to, collecting those with b.end &gt;= end
+   */
+  private <T extends AnnotationFS> void collectEndAtLeast(int lo, int hi, int to, int end, List<T> result) {
+    if (lo >= hi || lo >= to) {
+      return;
+    }
+    final int mid = (lo + hi) >>> 1;
+    if (maxEnds[mid] < end) {
+      return;
+    }
+    collectEndAtLeast(lo, mid, to, end, result);
+    if (mid < to) {
+      if (ends[mid] >= end) {
+        result.add(cas.<T>ll_getFSForRef(fsAddrs[mid]));
+      }
+      collectEndAtLeast(mid + 1, hi, to, end, result);
+    }
+  }
+
+  /**
+   * In order walk of the positions in [lo, hi) which are within [from, to), collecting those with b.end &lt;= end
+   */
+  private <T extends AnnotationFS> void collectEndAtMost(int lo, int hi, int from, int to, int end, List<T> result) {
+    if (lo >= hi || lo >= to || hi <= from) {
+      return;
+    }
+    final int mid = (lo + hi) >>> 1;
+    if (minEnds[mid] > end) {
+      return;
+    }
+    collectEndAtMost(lo, mid, from, to, end, result);
+    if (mid >= from && mid < to && ends[mid] <= end) {
+      result.add(cas.<T>ll_getFSForRef(fsAddrs[mid]));
+    }
+    collectEndAtMost(mid + 1, hi, from, to, end, result);
+  }
+}
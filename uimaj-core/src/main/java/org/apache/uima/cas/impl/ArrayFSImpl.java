@@ -70,7 +70,7 @@ public class ArrayFSImpl extends CommonArrayFSImpl implements ArrayFS {
     for (int i = 0; i < length; i++) {
       // cas.getHeap().heap[destOffset] =
       // ((FeatureStructureImpl)src[srcOffset]).getAddress();
-      this.casImpl.getHeap().heap[destOffset] = this.getCASImpl().ll_getFSRef(src[srcOffset]);
+      this.casImpl.getHeap().setHeapValue(this.getCASImpl().ll_getFSRef(src[srcOffset]), destOffset);
       ++destOffset;
       ++srcOffset;
     }
@@ -88,7 +88,7 @@ public class ArrayFSImpl extends CommonArrayFSImpl implements ArrayFS {
     srcOffset += this.casImpl.getArrayStartAddress(this.addr);
     for (int i = 0; i < length; i++) {
       FeatureStructure fs = null;
-      final int address = this.casImpl.getHeap().heap[srcOffset];
+      final int address = this.casImpl.getHeap().getHeapValue(srcOffset);
       if (address != LowLevelCAS.NULL_FS_REF) {
         fs = this.casImpl.createFS(address);
       }
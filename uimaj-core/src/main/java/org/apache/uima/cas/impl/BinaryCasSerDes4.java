@@ -50,7 +50,6 @@ import static org.apache.uima.cas.impl.BinaryCasSerDes4.SlotKind.Slot_TypeCode;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
@@ -387,7 +386,7 @@ public class BinaryCasSerDes4 {
     final private ByteArrayOutputStream[] baosZipSources = new ByteArrayOutputStream[NBR_SLOT_KIND_ZIP_STREAMS];  // lazily created, indexed by SlotKind.i
     final private DataOutputStream[] dosZipSources = new DataOutputStream[NBR_SLOT_KIND_ZIP_STREAMS];      // lazily created, indexed by SlotKind.i
 
-    final private int[] heap;           // main heap
+    final private Heap heap;            // main heap
     private int heapStart;
     final private int heapEnd;
     final private StringHeap stringHeapObj;
@@ -450,7 +449,7 @@ public class BinaryCasSerDes4 {
       isDelta = (mark != null);
       doMeasurement = (sm != null);
       
-      heap = cas.getHeap().heap;
+      heap = cas.getHeap();
       heapEnd = cas.getHeap().getCellsUsed();
       heapStart = isDelta ? mark.getNextFSId() : 0;
       
@@ -692,7 +691,7 @@ public class BinaryCasSerDes4 {
        ***************************/
 
       for (int iHeap = heapStart; iHeap < heapEnd; iHeap += incrToNextFs(heap, iHeap, typeInfo)) {
-        int tCode = heap[iHeap];  // get type code      
+        int tCode = heap.getHeapValue(iHeap);  // get type code      
         typeInfo = getTypeInfo(tCode);
         iPrevHeap = typeInfo.iPrevHeap;
         
@@ -808,8 +807,8 @@ public class BinaryCasSerDes4 {
       case Slot_HeapRef: case Slot_Int: case Slot_Short:
         {
           int prev = (iPrevHeap == 0) ? 0 :
-                     (heap[iPrevHeap + 1] == 0) ? 0 :
-                      heap[iPrevHeap + 2]; 
+                     (heap.getHeapValue(iPrevHeap + 1) == 0) ? 0 :
+                      heap.getHeapValue(iPrevHeap + 2); 
           for (int i = iHeap + 2; i < endi; i++) {
             prev = writeIntOrHeapRef(arrayElementKind.i, i, prev);
           }
@@ -817,12 +816,12 @@ public class BinaryCasSerDes4 {
         break;
       case Slot_Float: 
         for (int i = iHeap + 2; i < endi; i++) {
-          writeFloat(heap[i]);
+          writeFloat(heap.getHeapValue(i));
         }
         break;
       case Slot_StrRef:
         for (int i = iHeap + 2; i < endi; i++) {
-          writeString(stringHeapObj.getStringForCode(heap[i]));
+          writeString(stringHeapObj.getStringForCode(heap.getHeapValue(i)));
         }
         break;
         
@@ -831,13 +830,13 @@ public class BinaryCasSerDes4 {
     }
     
     private int writeIntOrHeapRef(int kind, int index, int prev) throws IOException {
-      final int v = heap[index];
+      final int v = heap.getHeapValue(index);
       writeDiff(kind, v, prev);
       return v;
     }
     
     private long writeLongFromHeapIndex(int index, long prev) throws IOException {
-      final long v = longHeapObj.getHeapValue(heap[index]);      
+      final long v = longHeapObj.getHeapValue(heap.getHeapValue(index));      
       writeLong(v, prev); 
       return v;
     }
@@ -850,20 +849,20 @@ public class BinaryCasSerDes4 {
       SlotKind refKind = typeInfo.getSlotKind(2);
       switch (refKind) {
       case Slot_BooleanRef: case Slot_ByteRef:
-        writeFromByteArray(refKind, heap[iHeap + 2], length);
+        writeFromByteArray(refKind, heap.getHeapValue(iHeap + 2), length);
         if (doMeasurement) {
           sm.statDetails[byte_i].incr(1);
           sm.origAuxByteArrayRefs += 4;
         }
         break; 
       case Slot_ShortRef:
-        writeFromShortArray(heap[iHeap + 2], length);
+        writeFromShortArray(heap.getHeapValue(iHeap + 2), length);
         if (doMeasurement) {
           sm.origAuxShortArrayRefs += 4;
         }
         break; 
       case Slot_LongRef: case Slot_DoubleRef:
-        writeFromLongArray(refKind, heap[iHeap + 2], length);
+        writeFromLongArray(refKind, heap.getHeapValue(iHeap + 2), length);
         if (doMeasurement) {
           sm.origAuxLongArrayRefs += 4;
         }
@@ -881,22 +880,22 @@ public class BinaryCasSerDes4 {
         serializeDiffWithPrevTypeSlot(kind, iHeap, offset);
         break;
       case Slot_Float:
-        writeFloat(heap[iHeap + offset]);
+        writeFloat(heap.getHeapValue(iHeap + offset));
         break;
       case Slot_Boolean: case Slot_Byte:
-        byte_dos.write(heap[iHeap + offset]);
+        byte_dos.write(heap.getHeapValue(iHeap + offset));
         break;
       case Slot_StrRef: 
-        writeString(stringHeapObj.getStringForCode(heap[iHeap + offset]));
+        writeString(stringHeapObj.getStringForCode(heap.getHeapValue(iHeap + offset)));
         break;
       case Slot_LongRef: 
         writeLongFromHeapIndex(iHeap + offset, 
                   (iPrevHeap == 0) ? 
                     0L : 
-                    longHeapObj.getHeapValue(heap[iPrevHeap + offset]));
+                    longHeapObj.getHeapValue(heap.getHeapValue(iPrevHeap + offset)));
         break;
       case Slot_DoubleRef: 
-        writeDouble(longHeapObj.getHeapValue(heap[iHeap + offset]));
+        writeDouble(longHeapObj.getHeapValue(heap.getHeapValue(iHeap + offset)));
         break;
       default: 
         throw new RuntimeException("internal error");
@@ -904,14 +903,14 @@ public class BinaryCasSerDes4 {
     }
     
     private int serializeArrayLength(int iHeap) throws IOException {
-      final int length = heap[iHeap + 1];
+      final int length = heap.getHeapValue(iHeap + 1);
       writeVnumber(arrayLength_i, length);
       return length;
     }
     
     private void serializeDiffWithPrevTypeSlot(SlotKind kind, int iHeap, int offset) throws IOException {
-      int prev = (iPrevHeap == 0) ? 0 : heap[iPrevHeap + offset];
-      writeDiff(kind.i, heap[iHeap + offset], prev);
+      int prev = (iPrevHeap == 0) ? 0 : heap.getHeapValue(iPrevHeap + offset);
+      writeDiff(kind.i, heap.getHeapValue(iHeap + offset), prev);
     }
     
     /**
@@ -1205,15 +1204,15 @@ public class BinaryCasSerDes4 {
     }
 
     private void writeFromByteArray(SlotKind kind, int startPos, int length) throws IOException {
-      byte_dos.write(byteHeapObj.heap, startPos, length);
+      byteHeapObj.write(byte_dos, startPos, length);
     }
 
     private void writeFromLongArray(SlotKind kind, int startPos, int length) throws IOException {
-      final long[] h = longHeapObj.heap;
+      final LongHeap h = longHeapObj;
       final int endPos = startPos + length;
       long prev = 0;
       for (int i = startPos; i < endPos; i++) {
-        final long e = h[i];
+        final long e = h.getHeapValue(i);
         if (kind == Slot_DoubleRef) {
           writeDouble(e);
         } else {
@@ -1224,11 +1223,11 @@ public class BinaryCasSerDes4 {
     }
     
     private void writeFromShortArray(int startPos, int length) throws IOException {
-      final short[] h = shortHeapObj.heap;
+      final ShortHeap h = shortHeapObj;
       final int endPos = startPos + length;
       int prev = 0;
       for (int i = startPos; i < endPos; i++) {
-        final short e = h[i];
+        final short e = h.getHeapValue(i);
         writeDiff(short_i, e, prev);
         prev = e;
       }
@@ -1294,7 +1293,7 @@ public class BinaryCasSerDes4 {
         
         for (int i = 0; i < modFSsLength; i++) {
           iHeap = modifiedFSs[i];     
-          final int tCode = heap[iHeap];
+          final int tCode = heap.getHeapValue(iHeap);
           typeInfo = getTypeInfo(tCode);
           
           // write out the address of the modified FS
@@ -1347,7 +1346,7 @@ public class BinaryCasSerDes4 {
       }
       
       private int countModifiedSlotsInAuxHeap(int[] modifiedAddrs, int indexInModAddrs, int length) {
-        return countModifiedSlots(heap[iHeap + 2], heap[iHeap + 1], modifiedAddrs, indexInModAddrs, length);
+        return countModifiedSlots(heap.getHeapValue(iHeap + 2), heap.getHeapValue(iHeap + 1), modifiedAddrs, indexInModAddrs, length);
       }
       
       private int countModifiedSlots(int firstAddr, int length, int[] modifiedAddrs, int indexInModAddrs, int modAddrsLength) {
@@ -1402,16 +1401,16 @@ public class BinaryCasSerDes4 {
             vPrevModLong = writeLongFromHeapIndex(nextMainHeapIndex, vPrevModLong); 
             break;
           case Slot_Byte: case Slot_Boolean:
-            byte_dos.write(heap[nextMainHeapIndex]);
+            byte_dos.write(heap.getHeapValue(nextMainHeapIndex));
             break;
           case Slot_Float:
-            writeFloat(heap[nextMainHeapIndex]);
+            writeFloat(heap.getHeapValue(nextMainHeapIndex));
             break;
           case Slot_StrRef:
-            writeString(stringHeapObj.getStringForCode(heap[nextMainHeapIndex]));
+            writeString(stringHeapObj.getStringForCode(heap.getHeapValue(nextMainHeapIndex)));
             break;
           case Slot_DoubleRef:
-            writeDouble(longHeapObj.getHeapValue(heap[nextMainHeapIndex]));
+            writeDouble(longHeapObj.getHeapValue(heap.getHeapValue(nextMainHeapIndex)));
             break;
           default:
             throw new RuntimeException();
@@ -1421,7 +1420,7 @@ public class BinaryCasSerDes4 {
       }
       
       private void writeAuxHeapMods() throws IOException {
-        final int auxHeapIndex = heap[iHeap + 2];
+        final int auxHeapIndex = heap.getHeapValue(iHeap + 2);
         int iPrevOffsetInAuxArray = 0;
         
         final SlotKind kind = typeInfo.getSlotKind(2);  // get kind of element
@@ -1496,7 +1495,7 @@ public class BinaryCasSerDes4 {
     final private DataInputStream[] dataInputs = new DataInputStream[NBR_SLOT_KIND_ZIP_STREAMS];
     private Inflater[] inflaters = new Inflater[NBR_SLOT_KIND_ZIP_STREAMS];
 
-    private int[] heap;           // main heap
+    private Heap heap;            // main heap
     private int heapStart;
     private int heapEnd;
     
@@ -1633,7 +1632,7 @@ public class BinaryCasSerDes4 {
       } 
       
       heapEnd = heapStart + deltaHeapSize; 
-      heap = heapObj.heap;
+      heap = heapObj;
 
       resetIprevious();
       
@@ -1644,7 +1643,7 @@ public class BinaryCasSerDes4 {
       if (CHANGE_FS_REFS_TO_SEQUENTIAL && (heapStart > 1)) {
         initFsStartIndexes(fsStartIndexes, heap, 1, heapStart, null);
       }
-      fixupsNeeded = new IntVector(Math.max(16, heap.length / 10));
+      fixupsNeeded = new IntVector(Math.max(16, heap.getHeapSize() / 10));
 
       /***************************
        * walk main heap
@@ -1655,7 +1654,8 @@ public class BinaryCasSerDes4 {
         if (CHANGE_FS_REFS_TO_SEQUENTIAL) {
           fsStartIndexes.addItemAddr(iHeap);
         }        
-        int tCode = heap[iHeap] = readVnumber(typeCode_dis); // get type code      
+        int tCode = readVnumber(typeCode_dis); // get type code
+        heap.setHeapValue(tCode, iHeap);
         typeInfo = getTypeInfo(tCode);
         iPrevHeap = typeInfo.iPrevHeap;
 
@@ -1677,7 +1677,7 @@ public class BinaryCasSerDes4 {
         final int end = fixupsNeeded.size();
         for (int i = 0; i < end; i++) {
           final int heapAddrToFix = fixupsNeeded.get(i);
-          heap[heapAddrToFix] = fsStartIndexes.getItemAddr(heap[heapAddrToFix]);
+          heap.setHeapValue(fsStartIndexes.getItemAddr(heap.getHeapValue(heapAddrToFix)), heapAddrToFix);
         }        
       }
       
@@ -1701,14 +1701,14 @@ public class BinaryCasSerDes4 {
       SlotKind refKind = typeInfo.getSlotKind(2);
       switch (refKind) {
       case Slot_BooleanRef: case Slot_ByteRef:
-        heap[iHeap + 2] = readIntoByteArray(length);
+        heap.setHeapValue(readIntoByteArray(length), iHeap + 2);
         break; 
       case Slot_ShortRef:
-        heap[iHeap + 2] = readIntoShortArray(length);
+        heap.setHeapValue(readIntoShortArray(length), iHeap + 2);
         break; 
       case Slot_LongRef: 
       case Slot_DoubleRef:
-        heap[iHeap + 2] = readIntoLongArray(refKind, length);
+        heap.setHeapValue(readIntoLongArray(refKind, length), iHeap + 2);
         break;
         
       default:
@@ -1717,7 +1717,9 @@ public class BinaryCasSerDes4 {
     }
     
     private int readArrayLength(int iHeap) throws IOException {
-      return heap[iHeap + 1] = readVnumber(arrayLength_dis);
+      final int length = readVnumber(arrayLength_dis);
+      heap.setHeapValue(length, iHeap + 1);
+      return length;
     }
 
     private void readHeapStoredArray(int iHeap) throws IOException {
@@ -1733,10 +1735,11 @@ public class BinaryCasSerDes4 {
       case Slot_HeapRef: case Slot_Int: case Slot_Short:
         {
           int prev = (iPrevHeap == 0) ? 0 :
-                     (heap[iPrevHeap + 1] == 0) ? 0 :
-                      heap[iPrevHeap + 2]; 
+                     (heap.getHeapValue(iPrevHeap + 1) == 0) ? 0 :
+                      heap.getHeapValue(iPrevHeap + 2); 
           for (int i = iHeap + 2; i < endi; i++) {
-            final int v = heap[i] = readDiff(arrayElementKind, prev);
+            final int v = readDiff(arrayElementKind, prev);
+            heap.setHeapValue(v, i);
             prev = v;
             if (arrayElementKind == Slot_HeapRef) {
               fixupsNeeded.add(i);
@@ -1746,12 +1749,12 @@ public class BinaryCasSerDes4 {
         break;
       case Slot_Float: 
         for (int i = iHeap + 2; i < endi; i++) {
-          heap[i] = readFloat();
+          heap.setHeapValue(readFloat(), i);
         }
         break;
       case Slot_StrRef:
         for (int i = iHeap + 2; i < endi; i++) {
-          heap[i] = readString();
+          heap.setHeapValue(readString(), i);
         }
         break;
         
@@ -1767,10 +1770,10 @@ public class BinaryCasSerDes4 {
         readDiffWithPrevTypeSlot(kind, iHeap, offset);
         break;
       case Slot_Float:
-        heap[iHeap + offset] = readFloat();
+        heap.setHeapValue(readFloat(), iHeap + offset);
         break;
       case Slot_Boolean: case Slot_Byte:
-        heap[iHeap + offset] = byte_dis.readByte();
+        heap.setHeapValue(byte_dis.readByte(), iHeap + offset);
         break;
       case Slot_HeapRef:
         readDiffWithPrevTypeSlot(kind, iHeap, offset);
@@ -1779,17 +1782,17 @@ public class BinaryCasSerDes4 {
         }
         break;
       case Slot_StrRef: 
-        heap[iHeap + offset] = readString();
+        heap.setHeapValue(readString(), iHeap + offset);
         break;
       case Slot_LongRef: {
-        long v = readLong(kind, (iPrevHeap == 0) ? 0L : longHeapObj.getHeapValue(heap[iPrevHeap + offset]));
+        long v = readLong(kind, (iPrevHeap == 0) ? 0L : longHeapObj.getHeapValue(heap.getHeapValue(iPrevHeap + offset)));
         if (v == 0L) {
           if (longZeroIndex == -1) {
             longZeroIndex = longHeapObj.addLong(0L);
           }
-          heap[iHeap + offset] = longZeroIndex;
+          heap.setHeapValue(longZeroIndex, iHeap + offset);
         } else {
-          heap[iHeap + offset] = longHeapObj.addLong(v);
+          heap.setHeapValue(longHeapObj.addLong(v), iHeap + offset);
         }
         break;
       }
@@ -1799,14 +1802,14 @@ public class BinaryCasSerDes4 {
           if (longZeroIndex == -1) {
             longZeroIndex = longHeapObj.addLong(0L);
           }
-          heap[iHeap + offset] = longZeroIndex;
+          heap.setHeapValue(longZeroIndex, iHeap + offset);
         } else if (v == DBL_1) {
           if (double1Index == -1) {
             double1Index = longHeapObj.addLong(DBL_1);
           }
-          heap[iHeap + offset] = double1Index;
+          heap.setHeapValue(double1Index, iHeap + offset);
         } else {
-          heap[iHeap + offset] = longHeapObj.addLong(v);
+          heap.setHeapValue(longHeapObj.addLong(v), iHeap + offset);
         }
         break;
       }
@@ -1865,9 +1868,9 @@ public class BinaryCasSerDes4 {
         int slotIndex, 
         int bytesCompr,
         int bytesOrig) throws IOException {
-      byte[] b = new byte[bytesCompr + 1];
-      deserIn.readFully(b, 0, bytesCompr);  // this leaves 1 extra 0 byte at the end
-      // which may be required by Inflater with nowrap option - see Inflater javadoc
+      // read in place if memory mapped, else copied to a byte array, in either case
+      //   with 1 extra 0 byte at the end, which may be required by Inflater with nowrap option - see Inflater javadoc
+      final InputStream compressed = CommonSerDes.readCompressedSegment(deserIn, bytesCompr);
       
       // testing inflate speed
 //      long startTime = System.currentTimeMillis();
@@ -1889,9 +1892,8 @@ public class BinaryCasSerDes4 {
 //      dataInputs[slotIndex] = new DataInputStream(new ByteArrayInputStream(uncompressed));
       Inflater inflater = new Inflater(true);
       inflaters[slotIndex] = inflater;  // save to be able to call end() when done. 
-      ByteArrayInputStream baiStream = new ByteArrayInputStream(b);      
       int zipBufSize = Math.max(1024, bytesCompr);
-      InflaterInputStream iis = new InflaterInputStream(baiStream, inflater, zipBufSize);
+      InflaterInputStream iis = new InflaterInputStream(compressed, inflater, zipBufSize);
       dataInputs[slotIndex] = new DataInputStream(new BufferedInputStream(iis, zipBufSize));
     }
     
@@ -1926,35 +1928,37 @@ public class BinaryCasSerDes4 {
 
     private int readIntoByteArray(int length) throws IOException {
       int startPos = byteHeapObj.reserve(length);
-      byte_dis.readFully(byteHeapObj.heap, startPos, length);
+      byteHeapObj.readFully(byte_dis, startPos, length);
       return startPos;
     }
 
     private int readIntoShortArray(int length) throws IOException {
       final int startPos = shortHeapObj.reserve(length);
-      final short[] h = shortHeapObj.heap;
+      final ShortHeap h = shortHeapObj;
       final int endPos = startPos + length;
       short prev = 0;
       for (int i = startPos; i < endPos; i++) {
-        h[i] = prev = (short)(readDiff(short_dis, prev));
+        prev = (short)(readDiff(short_dis, prev));
+        h.setHeapValue(prev, i);
       }
       return startPos;   
     }
     
     private int readIntoLongArray(SlotKind kind, int length) throws IOException {
       final int startPos = longHeapObj.reserve(length);
-      final long[] h = longHeapObj.heap;
+      final LongHeap h = longHeapObj;
       final int endPos = startPos + length;
       long prev = 0;
       for (int i = startPos; i < endPos; i++) {
-        h[i] = prev = readLong(kind, prev);
+        prev = readLong(kind, prev);
+        h.setHeapValue(prev, i);
       }
       return startPos;   
     }
 
     private void readDiffWithPrevTypeSlot(SlotKind kind, int iHeap, int offset) throws IOException {
-      int prev = (iPrevHeap == 0) ? 0 : heap[iPrevHeap + offset];
-      heap[iHeap + offset] = readDiff(kind, prev);
+      int prev = (iPrevHeap == 0) ? 0 : heap.getHeapValue(iPrevHeap + offset);
+      heap.setHeapValue(readDiff(kind, prev), iHeap + offset);
     }
 
     private int readDiff(SlotKind kind, int prev) throws IOException {
@@ -2087,7 +2091,7 @@ public class BinaryCasSerDes4 {
           iHeap = readVnumber(fsIndexes_dis) + iPrevHeap;
           iPrevHeap = iHeap;
   
-          final int tCode = heap[iHeap];
+          final int tCode = heap.getHeapValue(iHeap);
           typeInfo = getTypeInfo(tCode);
           
           final int numberOfModsInThisFs = readVnumber(fsIndexes_dis); 
@@ -2115,7 +2119,7 @@ public class BinaryCasSerDes4 {
       private void readModifiedAuxHeap(int numberOfMods) throws IOException {
         int prevOffset = 0;
                
-        final int auxHeapIndex = heap[iHeap + 2];
+        final int auxHeapIndex = heap.getHeapValue(iHeap + 2);
         final SlotKind kind = typeInfo.getSlotKind(2);  // get kind of element
         final boolean isAuxByte = ((kind == Slot_BooleanRef) || (kind == Slot_ByteRef));
         final boolean isAuxShort = (kind == Slot_ShortRef);
@@ -2164,20 +2168,20 @@ public class BinaryCasSerDes4 {
               if (CHANGE_FS_REFS_TO_SEQUENTIAL) {
                 v = fsStartIndexes.getItemAddr(v);
               }
-              heap[iHeap + offsetInFs] = v;
+              heap.setHeapValue(v, iHeap + offsetInFs);
             }
             break;
           case Slot_Int: {
               final int v = readDiff(int_dis, vPrevModInt);
               vPrevModInt = v;
-              heap[iHeap + offsetInFs] = v;
+              heap.setHeapValue(v, iHeap + offsetInFs);
               maybeRemove(offsetInFs);
             }
             break;
           case Slot_Short: {
               final int v = readDiff(int_dis, vPrevModShort);
               vPrevModShort = (short)v;
-              heap[iHeap + offsetInFs] = v;
+              heap.setHeapValue(v, iHeap + offsetInFs);
             }
             break;
           case Slot_LongRef: case Slot_DoubleRef: {
@@ -2185,18 +2189,18 @@ public class BinaryCasSerDes4 {
               if (kind == Slot_LongRef) {
                 vPrevModLong = v;
               }
-              heap[iHeap + offsetInFs] = longHeapObj.addLong(v);
+              heap.setHeapValue(longHeapObj.addLong(v), iHeap + offsetInFs);
             }
             break;
           case Slot_Byte: case Slot_Boolean:
-            heap[iHeap + offsetInFs] = byte_dis.readByte();
+            heap.setHeapValue(byte_dis.readByte(), iHeap + offsetInFs);
             break;
           case Slot_Float:
-            heap[iHeap + offsetInFs] = readFloat();
+            heap.setHeapValue(readFloat(), iHeap + offsetInFs);
             maybeRemove(offsetInFs);
             break;
           case Slot_StrRef:
-            heap[iHeap + offsetInFs] = readString();
+            heap.setHeapValue(readString(), iHeap + offsetInFs);
             maybeRemove(offsetInFs);
             break;
          default:
@@ -2218,19 +2222,19 @@ public class BinaryCasSerDes4 {
    * methods common to serialization / deserialization etc.
    ********************************************************************/
   
-  private int incrToNextFs(int[] heap, int iHeap, TypeInfo typeInfo) {
+  private int incrToNextFs(Heap heap, int iHeap, TypeInfo typeInfo) {
     if (typeInfo.isHeapStoredArray) {
-      return 2 + heap[iHeap + 1];
+      return 2 + heap.getHeapValue(iHeap + 1);
     } else {
       return 1 + typeInfo.slotKinds.length;
     }
   }
 
   
-  private void initFsStartIndexes (final ComprItemRefs fsStartIndexes, final int[] heap, int heapStart, int heapEnd, int[] histo) {
+  private void initFsStartIndexes (final ComprItemRefs fsStartIndexes, final Heap heap, int heapStart, int heapEnd, int[] histo) {
     for (int iHeap = 1; iHeap < heapEnd;) {
       fsStartIndexes.addItemAddr(iHeap);
-      final int tCode = heap[iHeap];
+      final int tCode = heap.getHeapValue(iHeap);
       if ((null != histo) && (iHeap >= heapStart)) {
         histo[tCode] ++;
       }
@@ -2267,8 +2271,8 @@ public class BinaryCasSerDes4 {
       private CASImpl c2;
       private Heap c1HO;
       private Heap c2HO;
-      private int[] c1heap;
-      private int[] c2heap;
+      private Heap c1heap;
+      private Heap c2heap;
       private TypeInfo typeInfo;
       private int iHeap;
       
@@ -2282,8 +2286,8 @@ public class BinaryCasSerDes4 {
       if (endi != end2) {
         System.err.format("CASes have different heap cells used: %,d %,d%n", endi, end2);
       }
-      c1heap = c1HO.heap;
-      c2heap = c2HO.heap;
+      c1heap = c1HO;
+      c2heap = c2HO;
       
       final ComprItemRefs fsStartIndexes = new ComprItemRefs();
       initFsStartIndexes(fsStartIndexes, c1heap, 1, endi, null);
@@ -2304,9 +2308,9 @@ public class BinaryCasSerDes4 {
     }
 
     private boolean compareFss() {
-      int tCode = c1heap[iHeap];
+      int tCode = c1heap.getHeapValue(iHeap);
       typeInfo = getTypeInfo(tCode);
-      if (tCode != c2heap[iHeap]) {
+      if (tCode != c2heap.getHeapValue(iHeap)) {
         return mismatchFs();
       }
       if (typeInfo.isArray) {
@@ -2322,8 +2326,8 @@ public class BinaryCasSerDes4 {
     }
       
     private boolean compareFssArray() {
-      int len1 = c1heap[iHeap + 1];
-      int len2 = c2heap[iHeap + 1];
+      int len1 = c1heap.getHeapValue(iHeap + 1);
+      int len2 = c2heap.getHeapValue(iHeap + 1);
       if (len1 != len2) {
         return false;
       }
@@ -2331,30 +2335,30 @@ public class BinaryCasSerDes4 {
         SlotKind kind = typeInfo.getSlotKind(2);
         if (typeInfo.isHeapStoredArray) {
           if (kind == Slot_StrRef) {
-            if (! compareStrings(c1.getStringForCode(c1heap[iHeap + 2 + i]),
-                                 c2.getStringForCode(c2heap[iHeap + 2 + i]))) {
+            if (! compareStrings(c1.getStringForCode(c1heap.getHeapValue(iHeap + 2 + i)),
+                                 c2.getStringForCode(c2heap.getHeapValue(iHeap + 2 + i)))) {
               return mismatchFs();
             }
-          } else if (c1heap[iHeap + 2 + i] != c2heap[iHeap + 2 + i]) {
+          } else if (c1heap.getHeapValue(iHeap + 2 + i) != c2heap.getHeapValue(iHeap + 2 + i)) {
             return mismatchFs();
           }
         } else {  // not heap stored array
           switch (kind) {
           case Slot_BooleanRef: case Slot_ByteRef:
-            if (c1.getByteHeap().getHeapValue(c1heap[iHeap + 2] + i) !=
-                c2.getByteHeap().getHeapValue(c2heap[iHeap + 2] + i)) {
+            if (c1.getByteHeap().getHeapValue(c1heap.getHeapValue(iHeap + 2) + i) !=
+                c2.getByteHeap().getHeapValue(c2heap.getHeapValue(iHeap + 2) + i)) {
               return mismatchFs(); 
             }
             break;
           case Slot_ShortRef:
-            if (c1.getShortHeap().getHeapValue(c1heap[iHeap + 2] + i) !=
-                c2.getShortHeap().getHeapValue(c2heap[iHeap + 2] + i)) {
+            if (c1.getShortHeap().getHeapValue(c1heap.getHeapValue(iHeap + 2) + i) !=
+                c2.getShortHeap().getHeapValue(c2heap.getHeapValue(iHeap + 2) + i)) {
               return mismatchFs();
             }
             break;
           case Slot_LongRef: case Slot_DoubleRef: {
-            if (c1.getLongHeap().getHeapValue(c1heap[iHeap + 2] + i)  !=
-                c2.getLongHeap().getHeapValue(c2heap[iHeap + 2] + i)) {
+            if (c1.getLongHeap().getHeapValue(c1heap.getHeapValue(iHeap + 2) + i)  !=
+                c2.getLongHeap().getHeapValue(c2heap.getHeapValue(iHeap + 2) + i)) {
               return mismatchFs();
             }
             break;
@@ -2371,13 +2375,13 @@ public class BinaryCasSerDes4 {
       switch (kind) {
       case Slot_Int: case Slot_Short: case Slot_Boolean: case Slot_Byte: 
       case Slot_Float: case Slot_HeapRef:
-        return c1heap[iHeap + offset] == c2heap[iHeap + offset];
+        return c1heap.getHeapValue(iHeap + offset) == c2heap.getHeapValue(iHeap + offset);
       case Slot_StrRef:
-        return compareStrings(c1.getStringForCode(c1heap[iHeap + offset]),
-                              c2.getStringForCode(c2heap[iHeap + offset]));
+        return compareStrings(c1.getStringForCode(c1heap.getHeapValue(iHeap + offset)),
+                              c2.getStringForCode(c2heap.getHeapValue(iHeap + offset)));
       case Slot_LongRef: case Slot_DoubleRef:
-        return c1.getLongHeap().getHeapValue(c1heap[iHeap + offset]) ==
-               c2.getLongHeap().getHeapValue(c2heap[iHeap + offset]);
+        return c1.getLongHeap().getHeapValue(c1heap.getHeapValue(iHeap + offset)) ==
+               c2.getLongHeap().getHeapValue(c2heap.getHeapValue(iHeap + offset));
       default: throw new RuntimeException("internal error");      
       }
     }
@@ -2397,7 +2401,7 @@ public class BinaryCasSerDes4 {
     
     private StringBuilder dumpHeapFs(CASImpl cas) {
       StringBuilder sb = new StringBuilder();
-      typeInfo = getTypeInfo(cas.getHeap().heap[iHeap]);
+      typeInfo = getTypeInfo(cas.getHeap().getHeapValue(iHeap));
       sb.append(typeInfo);
   
       if (typeInfo.isHeapStoredArray) {
@@ -2416,8 +2420,8 @@ public class BinaryCasSerDes4 {
     
     private StringBuilder dumpHeapStoredArray(CASImpl cas) {
       StringBuilder sb = new StringBuilder();
-      int[] heap = cas.getHeap().heap;
-      final int length = heap[iHeap + 1];
+      Heap heap = cas.getHeap();
+      final int length = heap.getHeapValue(iHeap + 1);
       sb.append("Array Length: ").append(length).append('[');
       SlotKind arrayElementKind = typeInfo.slotKinds[1];
       switch (arrayElementKind) {
@@ -2427,7 +2431,7 @@ public class BinaryCasSerDes4 {
           if (i > iHeap + 2) {
             sb.append(", ");
           }
-          sb.append(heap[i]);
+          sb.append(heap.getHeapValue(i));
         }
         break;   
       case Slot_StrRef:
@@ -2436,7 +2440,7 @@ public class BinaryCasSerDes4 {
           if (i > iHeap + 2) {
             sb.append(", ");
           }
-          sb.append(sh.getStringForCode(heap[i]));        
+          sb.append(sh.getStringForCode(heap.getHeapValue(i)));        
         }
         break;
       default: throw new RuntimeException("internal error");
@@ -2447,8 +2451,8 @@ public class BinaryCasSerDes4 {
   
     private StringBuilder dumpNonHeapStoredArray(CASImpl cas) {
       StringBuilder sb = new StringBuilder();
-      int[] heap = cas.getHeap().heap;
-      final int length = heap[iHeap + 1];
+      Heap heap = cas.getHeap();
+      final int length = heap.getHeapValue(iHeap + 1);
       sb.append("Array Length: ").append(length).append('[');
       SlotKind arrayElementKind = typeInfo.slotKinds[1];
       
@@ -2458,13 +2462,13 @@ public class BinaryCasSerDes4 {
         }
         switch (arrayElementKind) {
         case Slot_BooleanRef: case Slot_ByteRef:
-          sb.append(cas.getByteHeap().getHeapValue(heap[iHeap + 2 + i]));
+          sb.append(cas.getByteHeap().getHeapValue(heap.getHeapValue(iHeap + 2 + i)));
           break;
         case Slot_ShortRef:
-          sb.append(cas.getShortHeap().getHeapValue(heap[iHeap + 2 + i]));
+          sb.append(cas.getShortHeap().getHeapValue(heap.getHeapValue(iHeap + 2 + i)));
           break;
         case Slot_LongRef: case Slot_DoubleRef: {
-          long v = cas.getLongHeap().getHeapValue(heap[iHeap + 2 + i]);
+          long v = cas.getLongHeap().getHeapValue(heap.getHeapValue(iHeap + 2 + i));
           if (arrayElementKind == Slot_DoubleRef) {
             sb.append(Double.longBitsToDouble(v));
           } else {
@@ -2481,29 +2485,29 @@ public class BinaryCasSerDes4 {
   
     private StringBuilder dumpByKind(CASImpl cas, int offset) {
       StringBuilder sb = new StringBuilder();
-      int[] heap = cas.getHeap().heap;
+      Heap heap = cas.getHeap();
       SlotKind kind = typeInfo.getSlotKind(offset);
       switch (kind) {
       case Slot_Int:
-        return sb.append(heap[iHeap + offset]);
+        return sb.append(heap.getHeapValue(iHeap + offset));
       case Slot_Short: 
-        return sb.append((short)heap[iHeap + offset]);
+        return sb.append((short)heap.getHeapValue(iHeap + offset));
       case Slot_Byte: 
-        return sb.append((byte)heap[iHeap + offset]);
+        return sb.append((byte)heap.getHeapValue(iHeap + offset));
       case Slot_Boolean:  
-        return sb.append(((heap[iHeap + offset]) == 0) ? false : true);
+        return sb.append(((heap.getHeapValue(iHeap + offset)) == 0) ? false : true);
       case Slot_Float: {
-        int v = heap[iHeap + offset];
+        int v = heap.getHeapValue(iHeap + offset);
         return sb.append(Float.intBitsToFloat(v)).append(' ').append(Integer.toHexString(v));
       }
       case Slot_HeapRef:
-        return sb.append("HeapRef[").append(heap[iHeap + offset]).append(']');
+        return sb.append("HeapRef[").append(heap.getHeapValue(iHeap + offset)).append(']');
       case Slot_StrRef:
-        return sb.append(cas.getStringForCode(heap[iHeap + offset]));
+        return sb.append(cas.getStringForCode(heap.getHeapValue(iHeap + offset)));
       case Slot_LongRef:
-        return sb.append(String.format("%,d", cas.getLongHeap().getHeapValue(heap[iHeap + offset])));
+        return sb.append(String.format("%,d", cas.getLongHeap().getHeapValue(heap.getHeapValue(iHeap + offset))));
       case Slot_DoubleRef: {
-        long v = cas.getLongHeap().getHeapValue(heap[iHeap + offset]);
+        long v = cas.getLongHeap().getHeapValue(heap.getHeapValue(iHeap + offset));
         return sb.append(Double.longBitsToDouble(v)).append(' ').append(Long.toHexString(v));
       }
       default: throw new RuntimeException("internal error");      
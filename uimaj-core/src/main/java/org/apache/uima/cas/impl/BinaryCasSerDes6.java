@@ -53,6 +53,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -63,11 +64,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
 
+import org.apache.uima.UIMARuntimeException;
 import org.apache.uima.cas.AbstractCas;
 import org.apache.uima.cas.CASRuntimeException;
 import org.apache.uima.cas.impl.CommonSerDes.Header;
@@ -142,6 +150,7 @@ import org.apache.uima.util.impl.SerializationMeasures;
  *   collection of like kinds of data (to make the zipping more effective)
  *   There can be up to ~20 of these collections, such as
  *      control info, float-exponents, string chars
+ *   The Zip step can be replaced by a faster LZ4 codec, or skipped, see CompressCodec
  * Deserialization:
  *   Read all bytes, 
  *   create separate ByteArrayInputStreams for each segment
@@ -213,6 +222,12 @@ public class BinaryCasSerDes6 {
   private static final int VERSION = 1;  
   
   private static final long DBL_1 = Double.doubleToLongBits(1D);
+  
+  /**
+   * With an executor, streams smaller than this are still (de)compressed in the calling thread;
+   * the hand-off would cost more than it saves
+   */
+  private static final int MIN_PARALLEL_ZIP_SIZE = 1 << 16;
 
   /**
    * Compression alternatives
@@ -240,6 +255,35 @@ public class BinaryCasSerDes6 {
       this.strat = strat;
     }
   }
+  
+  /**
+   * The codec applied to each of the slot kind streams, after their delta / variable length encoding.
+   * It is recorded in the header, so deserialization picks it up automatically.
+   *   - Deflate: java.util.zip, tuned by the CompressLevel and CompressStrat; the most compact
+   *   - Lz4:     a pure Java LZ4 block codec; much faster, but less compact
+   *   - None:    the streams are written as is; still much smaller than the plain binary form
+   *              due to the encoding, and the fastest
+   * CompressLevel and CompressStrat are ignored for the Lz4 and None codecs.
+   */
+  public enum CompressCodec {
+    Deflate(0),
+    Lz4(    1),
+    None(   2),
+    ;
+    final public int id;  // in the header
+    CompressCodec(int id) {
+      this.id = id;
+    }
+    
+    static CompressCodec fromId(int id) {
+      for (CompressCodec c : values()) {
+        if (c.id == id) {
+          return c;
+        }
+      }
+      throw new RuntimeException(String.format("Unknown compression codec: %d in input source passed to BinaryCasSerDes6 for deserialization", id));
+    }
+  }
   /**
    * Info reused for 
    *   1) multiple serializations of same cas to multiple targets (a speedup), or
@@ -308,6 +352,10 @@ public class BinaryCasSerDes6 {
   private TypeSystemImpl ts;
   final private CompressLevel compressLevel;
   final private CompressStrat compressStrategy;  
+  final private CompressCodec compressCodec;
+  private Executor executor;  // null: no concurrent (de)compression
+  private boolean isSharedDictionary;  // serializing only; for deserializing, this is in the header
+  private ReusableBinaryCasSerDes6.Buffers buffers;  // null unless used via ReusableBinaryCasSerDes6
   
   /**
    * Things that are used by common routines among serialization and deserialization
@@ -319,7 +367,7 @@ public class BinaryCasSerDes6 {
    *  Things for both serialization and Deserialization
    *****************************************************/
   final private CASImpl cas;  // cas being serialized or deserialized into
-  private int[] heap;           // main heap, can't be final because grow replaces it
+  private Heap heap;            // main heap, can't be final because the compare switches it between CASes
   final private StringHeap stringHeapObj;
   final private LongHeap longHeapObj;
   final private ShortHeap shortHeapObj;
@@ -423,10 +471,15 @@ public class BinaryCasSerDes6 {
 
   final private DataInputStream[] dataInputs = new DataInputStream[NBR_SLOT_KIND_ZIP_STREAMS];
   final private Inflater[] inflaters = new Inflater[NBR_SLOT_KIND_ZIP_STREAMS];
+  private CompressCodec readCodec;
 
   private IntVector fixupsNeeded;  // for deserialization, the "fixups" for relative heap refs needed  
   private int stringTableOffset;
   
+  // for the shared dictionary: the string code just before its first string, and its size (0 if not used)
+  private int sharedDictionaryBase;
+  private int sharedDictionarySize;
+  
   /**
    * These indexes remember sharable common values in aux heaps
    * Values must be in aux heap, but not part of arrays there
@@ -485,7 +538,31 @@ public class BinaryCasSerDes6 {
       boolean doMeasurements,
       CompressLevel compressLevel, 
       CompressStrat compressStrategy) throws ResourceInitializationException {
-    this(aCas, mark, tgtTs, false, false, rfs, doMeasurements, compressLevel, compressStrategy);
+    this(aCas, mark, tgtTs, false, false, rfs, doMeasurements, compressLevel, compressStrategy, CompressCodec.Deflate);
+  }
+
+  /**
+   * Like the above, with a choice of the codec used to compress the streams
+   * @param aCas -
+   * @param mark -
+   * @param tgtTs -
+   * @param rfs -
+   * @param doMeasurements -
+   * @param compressLevel used only by the Deflate codec
+   * @param compressStrategy used only by the Deflate codec
+   * @param compressCodec the codec for serializing; deserializing uses the one recorded in the header
+   * @throws ResourceInitializationException if the target type system is incompatible with the source type system
+   */
+  public BinaryCasSerDes6(
+      AbstractCas aCas,
+      MarkerImpl mark,
+      TypeSystemImpl tgtTs,
+      ReuseInfo rfs,
+      boolean doMeasurements,
+      CompressLevel compressLevel, 
+      CompressStrat compressStrategy,
+      CompressCodec compressCodec) throws ResourceInitializationException {
+    this(aCas, mark, tgtTs, false, false, rfs, doMeasurements, compressLevel, compressStrategy, compressCodec);
   }
    
   private BinaryCasSerDes6(
@@ -497,7 +574,8 @@ public class BinaryCasSerDes6 {
       ReuseInfo rfs,
       boolean doMeasurements,
       CompressLevel compressLevel, 
-      CompressStrat compressStrategy) throws ResourceInitializationException {
+      CompressStrat compressStrategy,
+      CompressCodec compressCodec) throws ResourceInitializationException {
     cas = ((CASImpl) ((aCas instanceof JCas) ? ((JCas)aCas).getCas(): aCas)).getBaseCAS();
     
     this.ts = cas.getTypeSystemImpl();
@@ -516,7 +594,7 @@ public class BinaryCasSerDes6 {
     isTsIncluded = storeTS;
     isTsiIncluded = storeTSI;
     
-    heap = cas.getHeap().heap;
+    heap = cas.getHeap();
     heapEnd = cas.getHeap().getCellsUsed();
     heapStart = isSerializingDelta ? mark.getNextFSId() : 0;
     
@@ -530,6 +608,7 @@ public class BinaryCasSerDes6 {
 
     this.compressLevel = compressLevel;
     this.compressStrategy = compressStrategy;
+    this.compressCodec = compressCodec;
     reuseInfoProvided = (rfs != null);
     if (reuseInfoProvided) {
       foundFSs = rfs.foundFSs;
@@ -562,7 +641,7 @@ public class BinaryCasSerDes6 {
     isTsIncluded = f6.isTsIncluded;
     isTsiIncluded = f6.isTsiIncluded;
     
-    heap = cas.getHeap().heap;
+    heap = cas.getHeap();
     heapEnd = cas.getHeap().getCellsUsed();
     heapStart = isSerializingDelta ? mark.getNextFSId() : 0;
     
@@ -576,6 +655,9 @@ public class BinaryCasSerDes6 {
 
     this.compressLevel = f6.compressLevel;
     this.compressStrategy = f6.compressStrategy;
+    this.compressCodec = f6.compressCodec;
+    this.executor = f6.executor;
+    this.buffers = f6.buffers;
     reuseInfoProvided = f6.reuseInfoProvided;
     foundFSs = f6.foundFSs;
     foundFSsArray = f6.foundFSsArray;
@@ -589,7 +671,7 @@ public class BinaryCasSerDes6 {
    * @throws ResourceInitializationException never thrown 
    */
   public BinaryCasSerDes6(AbstractCas cas) throws ResourceInitializationException {
-    this(cas, null, null, false, false, null, false, CompressLevel.Default, CompressStrat.Default);
+    this(cas, null, null, false, false, null, false, CompressLevel.Default, CompressStrat.Default, CompressCodec.Deflate);
   }
   
   /**
@@ -599,7 +681,7 @@ public class BinaryCasSerDes6 {
    * @throws ResourceInitializationException if the target type system is incompatible with the source type system
    */
   public BinaryCasSerDes6(AbstractCas cas, TypeSystemImpl tgtTs) throws ResourceInitializationException {
-    this(cas, null, tgtTs, false, false, null, false, CompressLevel.Default, CompressStrat.Default);
+    this(cas, null, tgtTs, false, false, null, false, CompressLevel.Default, CompressStrat.Default, CompressCodec.Deflate);
   }
 
   /**
@@ -611,7 +693,7 @@ public class BinaryCasSerDes6 {
    * @throws ResourceInitializationException if the target type system is incompatible with the source type system
    */
   public BinaryCasSerDes6(AbstractCas cas, MarkerImpl mark, TypeSystemImpl tgtTs, ReuseInfo rfs) throws ResourceInitializationException {
-    this(cas, mark, tgtTs, false, false, rfs, false, CompressLevel.Default, CompressStrat.Default);
+    this(cas, mark, tgtTs, false, false, rfs, false, CompressLevel.Default, CompressStrat.Default, CompressCodec.Deflate);
   }
   
   /**
@@ -624,7 +706,7 @@ public class BinaryCasSerDes6 {
    * @throws ResourceInitializationException if the target type system is incompatible with the source type system
    */
   public BinaryCasSerDes6(AbstractCas cas, MarkerImpl mark, TypeSystemImpl tgtTs, ReuseInfo rfs, boolean doMeasurements) throws ResourceInitializationException {
-    this(cas, mark, tgtTs, false, false, rfs, doMeasurements, CompressLevel.Default, CompressStrat.Default);
+    this(cas, mark, tgtTs, false, false, rfs, doMeasurements, CompressLevel.Default, CompressStrat.Default, CompressCodec.Deflate);
   }
 
   /**
@@ -634,7 +716,7 @@ public class BinaryCasSerDes6 {
    * @throws ResourceInitializationException never thrown
    */
   public BinaryCasSerDes6(AbstractCas cas, ReuseInfo rfs) throws ResourceInitializationException {
-    this(cas, null, null, false, false, rfs, false, CompressLevel.Default, CompressStrat.Default);
+    this(cas, null, null, false, false, rfs, false, CompressLevel.Default, CompressStrat.Default, CompressCodec.Deflate);
   }
 
   /**
@@ -646,7 +728,55 @@ public class BinaryCasSerDes6 {
    * @throws ResourceInitializationException never thrown
    */
   public BinaryCasSerDes6(AbstractCas cas, ReuseInfo rfs, boolean storeTS, boolean storeTSI) throws ResourceInitializationException {
-    this(cas, null, null, storeTS, storeTSI, rfs, false, CompressLevel.Default, CompressStrat.Default);
+    this(cas, null, null, storeTS, storeTSI, rfs, false, CompressLevel.Default, CompressStrat.Default, CompressCodec.Deflate);
+  }
+  
+  /**
+   * Compress (when serializing) and decompress (when deserializing) the slot kind streams concurrently,
+   * instead of one after the other. The serialized form is the same either way.
+   * 
+   * When deserializing, the streams are decompressed fully before being decoded, 
+   * so more memory is used temporarily.
+   * 
+   * @param executor runs the (de)compression of the larger streams, 
+   *                 or null (the default) to do all of it in the calling thread
+   */
+  public void setExecutor(Executor executor) {
+    this.executor = executor;
+  }
+  
+  /**
+   * Reference the strings of the shared dictionary of the CAS's {@link StringInternTable} by their
+   * position, instead of serializing them. The deserializing side must have a CAS with a 
+   * StringInternTable having the same dictionary; this is checked.
+   * 
+   * The serialized form records this, so deserialization picks it up automatically.
+   * Deserializing adds all the dictionary strings to the string heap of the CAS, whether
+   * used or not; these are references to the shared instances, not copies.
+   * 
+   * @param isSharedDictionary true to reference the shared dictionary strings when serializing
+   */
+  public void setSharedDictionary(boolean isSharedDictionary) {
+    this.isSharedDictionary = isSharedDictionary;
+  }
+  
+  /**
+   * @return the dictionary strings in the intern table of the CAS
+   */
+  private StringInternTable getSharedDictionaryTable() {
+    final StringInternTable t = stringHeapObj.getInternTable();
+    if (t == null || t.dictionary().length == 0) {
+      throw new UnsupportedOperationException("Binary form 6 with a shared dictionary requires a CAS " +
+          "using a StringInternTable which has a dictionary");
+    }
+    return t;
+  }
+  
+  /**
+   * @param buffers per thread buffers to use instead of allocating new ones
+   */
+  void setBuffers(ReusableBinaryCasSerDes6.Buffers buffers) {
+    this.buffers = buffers;
   }
 
   /*********************************************************************************************
@@ -691,10 +821,14 @@ public class BinaryCasSerDes6 {
       sm.totalTime = System.currentTimeMillis();
     }
 
+    final StringInternTable sharedDictionaryTable = isSharedDictionary ? getSharedDictionaryTable() : null;
+
     CommonSerDes.createHeader()
     .form6()
     .delta(isSerializingDelta)
     .seqVer(0)
+    .codec(compressCodec.id)
+    .sharedDictionary(isSharedDictionary)
     .typeSystemIncluded(isTsIncluded)
     .typeSystemIndexDefIncluded(isTsiIncluded)
     .write(serializedOut);
@@ -704,6 +838,9 @@ public class BinaryCasSerDes6 {
     }
  
     os = new OptimizeStrings(doMeasurements);
+    if (isSharedDictionary) {
+      os.setPreassignedStrings(sharedDictionaryTable.dictionary());
+    }
  
     /******************************************************************
      * Find all FSs to be serialized via the indexes
@@ -757,6 +894,11 @@ public class BinaryCasSerDes6 {
     os.optimize();
     writeStringInfo();
     
+    if (isSharedDictionary) {
+      writeVnumber(control_dos, sharedDictionaryTable.dictionary().length);
+      control_dos.writeInt(sharedDictionaryTable.getDictionaryHash());
+    }
+    
     /***************************
      * Prepare to walk main heap
      ***************************/
@@ -799,7 +941,7 @@ public class BinaryCasSerDes6 {
       if (isDelta && iHeap < mark.nextFSId) {
         continue;
       }
-      final int tCode = heap[iHeap];  // get type code
+      final int tCode = heap.getHeapValue(iHeap);  // get type code
       final int mappedTypeCode = isTypeMapping ? typeMapper.mapTypeCodeSrc2Tgt(tCode) : tCode;
       if (TRACE_SER) {
         System.out.format("Ser: %,d adr: %,8d tCode: %,3d %13s tgtTypeCode: %,3d %n", 
@@ -873,7 +1015,7 @@ public class BinaryCasSerDes6 {
     case Slot_HeapRef: case Slot_Int:
       {
         int prev = (iPrevHeap == 0) ? 0 : 
-                   (heap[iPrevHeap + 1] == 0) ? 0 : // prev length is 0
+                   (heap.getHeapValue(iPrevHeap + 1) == 0) ? 0 : // prev length is 0
                    getPrevIntValue(iHeap, 2);
 //                    heap[iPrevHeap + 2];  // use prev array 1st element
         final int startIheap = iHeap + 2;
@@ -888,15 +1030,15 @@ public class BinaryCasSerDes6 {
       break;
     case Slot_Float: 
       for (int i = iHeap + 2; i < endi; i++) {
-        writeFloat(heap[i]);
+        writeFloat(heap.getHeapValue(i));
       }
       break;
     case Slot_StrRef:
       for (int i = iHeap + 2; i < endi; i++) {
         if (TRACE_STR_ARRAY) {
-          System.out.format("Trace Str Array Ser: addr: %,d string=%s%n", i, stringHeapObj.getStringForCode(heap[i]));
+          System.out.format("Trace Str Array Ser: addr: %,d string=%s%n", i, stringHeapObj.getStringForCode(heap.getHeapValue(i)));
         }
-        writeString(stringHeapObj.getStringForCode(heap[i]));
+        writeString(stringHeapObj.getStringForCode(heap.getHeapValue(i)));
       }
       break;
       
@@ -905,12 +1047,12 @@ public class BinaryCasSerDes6 {
   }
   
   private int writeIntOrHeapRef(int kind, int index, int prev) throws IOException {
-    final int v = heap[index];
+    final int v = heap.getHeapValue(index);
     return writeDiff(kind, v, prev);
   }
   
   private long writeLongFromHeapIndex(int index, long prev) throws IOException {
-    final long v = longHeapObj.getHeapValue(heap[index]);      
+    final long v = longHeapObj.getHeapValue(heap.getHeapValue(index));      
     writeLong(v, prev); 
     return v;
   }
@@ -923,20 +1065,20 @@ public class BinaryCasSerDes6 {
     SlotKind refKind = typeInfo.getSlotKind(2);
     switch (refKind) {
     case Slot_BooleanRef: case Slot_ByteRef:
-      writeFromByteArray(refKind, heap[iHeap + 2], length);
+      writeFromByteArray(refKind, heap.getHeapValue(iHeap + 2), length);
       if (doMeasurements) {
         sm.statDetails[byte_i].incr(1);
         sm.origAuxByteArrayRefs += 4;
       }
       break; 
     case Slot_ShortRef:
-      writeFromShortArray(heap[iHeap + 2], length);
+      writeFromShortArray(heap.getHeapValue(iHeap + 2), length);
       if (doMeasurements) {
         sm.origAuxShortArrayRefs += 4;
       }
       break; 
     case Slot_LongRef: case Slot_DoubleRef:
-      writeFromLongArray(refKind, heap[iHeap + 2], length);
+      writeFromLongArray(refKind, heap.getHeapValue(iHeap + 2), length);
       if (doMeasurements) {
         sm.origAuxLongArrayRefs += 4;
       }
@@ -954,22 +1096,22 @@ public class BinaryCasSerDes6 {
       serializeDiffWithPrevTypeSlot(kind, iHeap, offset);
       break;
     case Slot_Float:
-      writeFloat(heap[iHeap + offset]);
+      writeFloat(heap.getHeapValue(iHeap + offset));
       break;
     case Slot_Boolean: case Slot_Byte:
-      byte_dos.write(heap[iHeap + offset]);
+      byte_dos.write(heap.getHeapValue(iHeap + offset));
       break;
     case Slot_StrRef: 
-      writeString(stringHeapObj.getStringForCode(heap[iHeap + offset]));
+      writeString(stringHeapObj.getStringForCode(heap.getHeapValue(iHeap + offset)));
       break;
     case Slot_LongRef: 
       writeLongFromHeapIndex(iHeap + offset, 
                 (iPrevHeap == 0) ? 
                   0L : 
-                  longHeapObj.getHeapValue(heap[iPrevHeap + offset]));
+                  longHeapObj.getHeapValue(heap.getHeapValue(iPrevHeap + offset)));
       break;
     case Slot_DoubleRef: 
-      writeDouble(longHeapObj.getHeapValue(heap[iHeap + offset]));
+      writeDouble(longHeapObj.getHeapValue(heap.getHeapValue(iHeap + offset)));
       break;
     default: 
       throw new RuntimeException("internal error");
@@ -977,7 +1119,7 @@ public class BinaryCasSerDes6 {
   }
   
   private int serializeArrayLength(int iHeap) throws IOException {
-    final int length = heap[iHeap + 1];
+    final int length = heap.getHeapValue(iHeap + 1);
     writeVnumber(arrayLength_i, length);
     return length;
   }
@@ -986,7 +1128,7 @@ public class BinaryCasSerDes6 {
     final int prev = (iPrevHeap == 0) ? 0 : 
 //      heap[iPrevHeap + offset];
       getPrevIntValue(iHeap, offset);
-    final int newValue = heap[iHeap + offset];
+    final int newValue = heap.getHeapValue(iHeap + offset);
     final int maybeConverted = writeDiff(kind.ordinal(), newValue, prev);
     if (isUpdatePrevOK) {
       updatePrevIntValue(iHeap, offset, maybeConverted);
@@ -1005,9 +1147,9 @@ public class BinaryCasSerDes6 {
   }
   
   private int[] initPrevIntValue(final int iHeap) {
-    final int[] featCache = prevHeapInstanceWithIntValues[heap[iHeap]];
+    final int[] featCache = prevHeapInstanceWithIntValues[heap.getHeapValue(iHeap)];
     if (null == featCache) {
-      return prevHeapInstanceWithIntValues[heap[iHeap]] = new int[typeInfo.slotKinds.length];
+      return prevHeapInstanceWithIntValues[heap.getHeapValue(iHeap)] = new int[typeInfo.slotKinds.length];
     }
     return featCache;
   }
@@ -1019,7 +1161,7 @@ public class BinaryCasSerDes6 {
    * @return the previous int value for use in difference calculations
    */
   private int getPrevIntValue(final int iHeap, final int offset) {
-    final int[] featCache = prevHeapInstanceWithIntValues[heap[iHeap]];
+    final int[] featCache = prevHeapInstanceWithIntValues[heap.getHeapValue(iHeap)];
     if (null == featCache) {
       return 0;
     }
@@ -1028,7 +1170,7 @@ public class BinaryCasSerDes6 {
   
   /**
    * Method:
-   *   write with deflation into a single byte array stream
+   *   write with deflation (or the other codec) into a single byte array stream
    *     skip if not worth deflating
    *     skip the Slot_Control stream
    *     record in the Slot_Control stream, for each deflated stream:
@@ -1044,42 +1186,177 @@ public class BinaryCasSerDes6 {
    * @throws IOException passthru
    */
   private void collectAndZip() throws IOException {
-    ByteArrayOutputStream baosZipped = new ByteArrayOutputStream(4096);
-    Deflater deflater = new Deflater(compressLevel.lvl, true);
-    deflater.setStrategy(compressStrategy.strat);
+    ByteArrayOutputStream baosZipped = (buffers == null) ? new ByteArrayOutputStream(4096) : buffers.zipped();
     int nbrEntries = 0;
     
     List<Integer> idxAndLen = new ArrayList<Integer>();
 
-    for (int i = 0; i < baosZipSources.length; i++) {
-      ByteArrayOutputStream baos = baosZipSources[i];
-      if (baos != null) {
-        nbrEntries ++;
-        dosZipSources[i].close();
-        long startTime = System.currentTimeMillis();
-        int zipBufSize = Math.max(1024, baos.size() / 100);
-        deflater.reset();
-        DeflaterOutputStream cds = new DeflaterOutputStream(baosZipped, deflater, zipBufSize);       
-        baos.writeTo(cds);
-        cds.close();
-        idxAndLen.add(i);
-        if (doMeasurements) {
-          idxAndLen.add((int)(sm.statDetails[i].afterZip = deflater.getBytesWritten()));            
-          idxAndLen.add((int)(sm.statDetails[i].beforeZip = deflater.getBytesRead()));
-          sm.statDetails[i].zipTime = System.currentTimeMillis() - startTime;
-        } else {
-          idxAndLen.add((int)deflater.getBytesWritten());            
-          idxAndLen.add((int)deflater.getBytesRead());
+    if (executor == null || compressCodec == CompressCodec.None) {
+      Deflater deflater = (compressCodec != CompressCodec.Deflate) 
+                            ? null 
+                            : (buffers == null) ? newDeflater() : buffers.deflater();
+      for (int i = 0; i < baosZipSources.length; i++) {
+        ByteArrayOutputStream baos = baosZipSources[i];
+        if (baos != null) {
+          nbrEntries ++;
+          dosZipSources[i].close();
+          idxAndLen.add(i);
+          idxAndLen.add(zip(i, baos, baosZipped, deflater));            
+          idxAndLen.add(baos.size());
+        } 
+      }
+      if (deflater != null && buffers == null) {
+        deflater.end();
+      }
+    } else {
+      // each stream compressed into its own buffer, the larger ones on the executor;
+      //   then appended in slot order, same as above
+      List<FutureTask<ByteArrayOutputStream>> zipTasks = new ArrayList<FutureTask<ByteArrayOutputStream>>();
+      List<FutureTask<ByteArrayOutputStream>> localTasks = new ArrayList<FutureTask<ByteArrayOutputStream>>();
+      for (int i = 0; i < baosZipSources.length; i++) {
+        final ByteArrayOutputStream baos = baosZipSources[i];
+        if (baos != null) {
+          nbrEntries ++;
+          dosZipSources[i].close();
+          final int slotIndex = i;
+          FutureTask<ByteArrayOutputStream> task = new FutureTask<ByteArrayOutputStream>(new Callable<ByteArrayOutputStream>() {
+            public ByteArrayOutputStream call() throws IOException {
+              ByteArrayOutputStream zipped = new ByteArrayOutputStream(Math.max(1024, baos.size() / 4));
+              Deflater deflater = (compressCodec == CompressCodec.Deflate) ? newDeflater() : null;
+              try {
+                zip(slotIndex, baos, zipped, deflater);
+              } finally {
+                if (deflater != null) {
+                  deflater.end();
+                }
+              }
+              return zipped;
+            }
+          });
+          zipTasks.add(task);
+          if (baos.size() >= MIN_PARALLEL_ZIP_SIZE) {
+            executor.execute(task);
+          } else {
+            localTasks.add(task);
+          }
+          idxAndLen.add(i);
+          idxAndLen.add(0);  // compressed size, filled in below
+          idxAndLen.add(baos.size());
         }
-      } 
+      }
+      for (FutureTask<ByteArrayOutputStream> task : localTasks) {
+        task.run();
+      }
+      List<ByteArrayOutputStream> zippeds = getAll(zipTasks);
+      for (int i = 0; i < zippeds.size(); i++) {
+        idxAndLen.set(i * 3 + 1, zippeds.get(i).size());
+      }
+      serializedOut.writeInt(nbrEntries);
+      writeIdxAndLen(idxAndLen);
+      for (ByteArrayOutputStream zipped : zippeds) {
+        zipped.writeTo(serializedOut);
+      }
+      return;
     }
     serializedOut.writeInt(nbrEntries);                     // write number of entries
+    writeIdxAndLen(idxAndLen);
+    baosZipped.writeTo(serializedOut);                      // write Compressed info
+  }
+  
+  private void writeIdxAndLen(List<Integer> idxAndLen) throws IOException {
     for (int i = 0; i < idxAndLen.size();) {
       serializedOut.write(idxAndLen.get(i++));
       serializedOut.writeInt(idxAndLen.get(i++));
       serializedOut.writeInt(idxAndLen.get(i++));
     }
-    baosZipped.writeTo(serializedOut);                      // write Compressed info
+  }
+  
+  private Deflater newDeflater() {
+    Deflater deflater = new Deflater(compressLevel.lvl, true);
+    deflater.setStrategy(compressStrategy.strat);
+    return deflater;
+  }
+  
+  /**
+   * Compress one slot kind stream with the codec, appending it to zipped
+   * @param i the slot kind index
+   * @param baos the stream's uncompressed bytes
+   * @param zipped where to append the compressed bytes
+   * @param deflater for the Deflate codec, else null
+   * @return the number of compressed bytes
+   * @throws IOException passthru
+   */
+  private int zip(int i, ByteArrayOutputStream baos, ByteArrayOutputStream zipped, Deflater deflater) throws IOException {
+    long startTime = System.currentTimeMillis();
+    final int bytesOrig = baos.size();
+    final int bytesCompr;
+    switch (compressCodec) {
+    case Deflate:
+      int zipBufSize = Math.max(1024, bytesOrig / 100);
+      deflater.reset();
+      DeflaterOutputStream cds = new DeflaterOutputStream(zipped, deflater, zipBufSize);       
+      baos.writeTo(cds);
+      cds.close();
+      bytesCompr = (int) deflater.getBytesWritten();
+      break;
+    case Lz4:
+      byte[] lz4Buf = new byte[Lz4Codec.maxCompressedLength(bytesOrig)];
+      bytesCompr = Lz4Codec.compress(baos.toByteArray(), bytesOrig, lz4Buf);
+      zipped.write(lz4Buf, 0, bytesCompr);
+      break;
+    default:  // None
+      baos.writeTo(zipped);
+      bytesCompr = bytesOrig;
+    }
+    if (doMeasurements) {
+      sm.statDetails[i].afterZip = bytesCompr;
+      sm.statDetails[i].beforeZip = bytesOrig;
+      sm.statDetails[i].zipTime = System.currentTimeMillis() - startTime;
+    }
+    return bytesCompr;
+  }
+  
+  /**
+   * Wait for all the tasks to finish, and return their results, in order
+   * @param tasks the tasks, all of which have been run or handed to the executor
+   * @return the results
+   * @throws IOException the first IOException thrown by a task
+   */
+  private static <T> List<T> getAll(List<FutureTask<T>> tasks) throws IOException {
+    List<T> results = new ArrayList<T>(tasks.size());
+    Throwable failure = null;
+    boolean interrupted = false;
+    for (FutureTask<T> task : tasks) {
+      while (true) {
+        try {
+          results.add(task.get());
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;  // keep waiting: the tasks use buffers owned by this instance
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+          break;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    if (failure != null) {
+      throw new UIMARuntimeException(failure);
+    }
+    return results;
   }  
  
   private void writeLong(long v, long prev) throws IOException {
@@ -1352,15 +1629,15 @@ public class BinaryCasSerDes6 {
     }    
   }
   private void writeFromByteArray(SlotKind kind, int startPos, int length) throws IOException {
-    byte_dos.write(byteHeapObj.heap, startPos, length);
+    byteHeapObj.write(byte_dos, startPos, length);
   }
 
   private void writeFromLongArray(SlotKind kind, int startPos, int length) throws IOException {
-    final long[] h = longHeapObj.heap;
+    final LongHeap h = longHeapObj;
     final int endPos = startPos + length;
     long prev = 0;
     for (int i = startPos; i < endPos; i++) {
-      final long e = h[i];
+      final long e = h.getHeapValue(i);
       if (kind == Slot_DoubleRef) {
         writeDouble(e);
       } else {
@@ -1371,11 +1648,11 @@ public class BinaryCasSerDes6 {
   }
   
   private void writeFromShortArray(int startPos, int length) throws IOException {
-    final short[] h = shortHeapObj.heap;
+    final ShortHeap h = shortHeapObj;
     final int endPos = startPos + length;
     int prev = 0;
     for (int i = startPos; i < endPos; i++) {
-      final short e = h[i];
+      final short e = h.getHeapValue(i);
       writeDiff(short_i, e, prev);
       prev = e;
     }
@@ -1439,7 +1716,7 @@ public class BinaryCasSerDes6 {
 //          System.out.format("  skipping heap addr %,d%n", iHeap);
           continue;        
         }
-        final int tCode = heap[iHeap];
+        final int tCode = heap.getHeapValue(iHeap);
         final TypeInfo typeInfo = ts.getTypeInfo(tCode);
 //        System.out.format("  maybe adding string ");
         addStringFromFS(typeInfo, iHeap, tCode);
@@ -1464,7 +1741,7 @@ public class BinaryCasSerDes6 {
         iHeap = modifiedFSs[i];
         final boolean skipping = ((iHeap >= splitPoint) && !foundFSs.get(iHeap)) ||
                                  ((iHeap < splitPoint) && !foundFSsBelowMark.get(iHeap));
-        final int tCode = heap[iHeap];
+        final int tCode = heap.getHeapValue(iHeap);
         typeInfo = ts.getTypeInfo(tCode);
         
         // write out the address of the modified FS
@@ -1534,7 +1811,7 @@ public class BinaryCasSerDes6 {
      * @return for a particular array, the number of modified slots (>= 1)
      */
     private int countModifiedSlotsInAuxHeap(int[] modifiedAddrs, int indexInModAddrs, int length) {
-      return countModifiedSlots(heap[iHeap + 2], heap[iHeap + 1], modifiedAddrs, indexInModAddrs, length);
+      return countModifiedSlots(heap.getHeapValue(iHeap + 2), heap.getHeapValue(iHeap + 1), modifiedAddrs, indexInModAddrs, length);
     }
     
     private int countModifiedSlots(int firstAddr, int length, int[] modifiedAddrs, int indexInModAddrs, int modAddrsLength) {
@@ -1598,16 +1875,16 @@ public class BinaryCasSerDes6 {
           vPrevModLong = writeLongFromHeapIndex(nextMainHeapIndex, vPrevModLong); 
           break;
         case Slot_Byte: case Slot_Boolean:
-          byte_dos.write(heap[nextMainHeapIndex]);
+          byte_dos.write(heap.getHeapValue(nextMainHeapIndex));
           break;
         case Slot_Float:
-          writeFloat(heap[nextMainHeapIndex]);
+          writeFloat(heap.getHeapValue(nextMainHeapIndex));
           break;
         case Slot_StrRef:
-          writeString(stringHeapObj.getStringForCode(heap[nextMainHeapIndex]));
+          writeString(stringHeapObj.getStringForCode(heap.getHeapValue(nextMainHeapIndex)));
           break;
         case Slot_DoubleRef:
-          writeDouble(longHeapObj.getHeapValue(heap[nextMainHeapIndex]));
+          writeDouble(longHeapObj.getHeapValue(heap.getHeapValue(nextMainHeapIndex)));
           break;
         default:
           throw new RuntimeException();
@@ -1617,7 +1894,7 @@ public class BinaryCasSerDes6 {
     }
     
     private void writeAuxHeapMods(final boolean skipping) throws IOException {
-      final int auxHeapIndex = heap[iHeap + 2];
+      final int auxHeapIndex = heap.getHeapValue(iHeap + 2);
       int iPrevOffsetInAuxArray = 0;
       
       final SlotKind kind = typeInfo.getSlotKind(2);  // get kind of element
@@ -1730,7 +2007,32 @@ public class BinaryCasSerDes6 {
   
   
   public void deserializeAfterVersion(DataInputStream istream, boolean isDelta, AllowPreexistingFS allowPreexistingFS) throws IOException {
+    deserializeAfterVersion(istream, isDelta, allowPreexistingFS, CompressCodec.Deflate);
+  }
+  
+  /**
+   * @param istream positioned just after the header
+   * @param isDelta from the header
+   * @param allowPreexistingFS -
+   * @param codec the codec recorded in the header
+   * @throws IOException passthru
+   */
+  public void deserializeAfterVersion(DataInputStream istream, boolean isDelta, AllowPreexistingFS allowPreexistingFS, CompressCodec codec) throws IOException {
+    deserializeAfterVersion(istream, isDelta, allowPreexistingFS, codec, false);
+  }
+  
+  /**
+   * @param istream positioned just after the header
+   * @param isDelta from the header
+   * @param allowPreexistingFS -
+   * @param codec the codec recorded in the header
+   * @param isSharedDictionary from the header: true if the strings of a shared dictionary are referenced
+   * @throws IOException passthru
+   */
+  public void deserializeAfterVersion(DataInputStream istream, boolean isDelta, AllowPreexistingFS allowPreexistingFS, 
+      CompressCodec codec, boolean isSharedDictionary) throws IOException {
 
+    this.readCodec = codec;
     this.allowPreexistingFS = allowPreexistingFS;
     if (allowPreexistingFS == AllowPreexistingFS.ignore) {
       throw new UnsupportedOperationException("AllowPreexistingFS.ignore not an allowed setting");
@@ -1749,6 +2051,7 @@ public class BinaryCasSerDes6 {
       readCommonString[i] = DataIO.readUTFv(strChars_dis);
     }
     only1CommonString = lenCmnStrs == 1;
+    final String[] sharedDictionary = isSharedDictionary ? readSharedDictionaryInfo() : null;
     /***************************
      * Prepare to walk main heap
      ***************************/
@@ -1756,11 +2059,19 @@ public class BinaryCasSerDes6 {
     final Heap heapObj = cas.getHeap();
     
     heapStart = isReadingDelta ? heapObj.getNextId() : 0;
-    stringTableOffset = isReadingDelta ? (stringHeapObj.getSize() - 1) : 0;
+    if (isSharedDictionary) {
+      // the serialized form references these by the first slots, in dictionary order;
+      // they're added to the string heap only once, and reused by later delta deserializations
+      sharedDictionaryBase = stringHeapObj.addSharedDictionary(sharedDictionary);
+      sharedDictionarySize = sharedDictionary.length;
+    } else {
+      sharedDictionarySize = 0;
+    }
+    stringTableOffset = isReadingDelta ? (stringHeapObj.getSize() - 1) : sharedDictionarySize;
     
     if (!isReadingDelta) {
       heapObj.reinitSizeOnly(1);
-      heap = heapObj.heap;
+      heap = heapObj;
     }
     
     Arrays.fill(iPrevHeapArray, 0);
@@ -1838,13 +2149,11 @@ public class BinaryCasSerDes6 {
       } else if (typeInfo.isArray) {
         if (storeIt) {
           heapObj.add(3, srcTypeCode);
-          heap = heapObj.heap;
         }
         readNonHeapStoredArray(iHeap, storeIt);
       } else {
         if (storeIt) {
           cas.ll_createFS(srcTypeCode);
-          heap = heapObj.heap;
         }
         // is normal type with slots
         if (isTypeMapping && storeIt) {
@@ -1875,7 +2184,7 @@ public class BinaryCasSerDes6 {
     final int end = fixupsNeeded.size();
     for (int i = 0; i < end; i++) {
       final int heapAddrToFix = fixupsNeeded.get(i);
-      heap[heapAddrToFix] = fsStartIndexes.getSrcAddrFromTgtSeq(heap[heapAddrToFix]);
+      heap.setHeapValue(fsStartIndexes.getSrcAddrFromTgtSeq(heap.getHeapValue(heapAddrToFix)), heapAddrToFix);
     }        
     
     readIndexedFeatureStructures();
@@ -1892,7 +2201,7 @@ public class BinaryCasSerDes6 {
 
     final int length = readArrayLength();
     if (storeIt) {
-      heap[iHeap + 1] = length;
+      heap.setHeapValue(length, iHeap + 1);
     }
     if (length == 0) {
       return;
@@ -1902,19 +2211,19 @@ public class BinaryCasSerDes6 {
     case Slot_BooleanRef: case Slot_ByteRef:
       final int byteRef =  readIntoByteArray(length, storeIt);
       if (storeIt) {
-        heap[iHeap + 2] = byteRef;
+        heap.setHeapValue(byteRef, iHeap + 2);
       }
       break; 
     case Slot_ShortRef:
       final int shortRef = readIntoShortArray(length, storeIt);
       if (storeIt) {
-        heap[iHeap + 2] = shortRef;
+        heap.setHeapValue(shortRef, iHeap + 2);
       }
       break; 
     case Slot_LongRef: case Slot_DoubleRef:
       final int longDblRef = readIntoLongArray(refKind, length, storeIt);
       if (storeIt) {
-        heap[iHeap + 2] = longDblRef;
+        heap.setHeapValue(longDblRef, iHeap + 2);
       }
       break; 
     default:
@@ -1930,8 +2239,7 @@ public class BinaryCasSerDes6 {
     final int length = readArrayLength();
     if (storeIt) {
       heapObj.add(2 + length, srcTypeCode);
-      heap = heapObj.heap;
-      heap[iHeap + 1] = length;
+      heap.setHeapValue(length, iHeap + 1);
     }
     // output values
     // special case 0 and 1st value
@@ -1944,7 +2252,7 @@ public class BinaryCasSerDes6 {
     case Slot_HeapRef: case Slot_Int:
       {
         int prev = (iPrevHeap == 0) ? 0 : 
-                   (heap[iPrevHeap + 1] == 0) ? 0 : // prev array length = 0
+                   (heap.getHeapValue(iPrevHeap + 1) == 0) ? 0 : // prev array length = 0
 //                    heap[iPrevHeap + 2]; // prev array 0th element
                     getPrevIntValue(iHeap, 2);
         final int startIheap = iHeap + 2;
@@ -1955,7 +2263,7 @@ public class BinaryCasSerDes6 {
             updatePrevIntValue(iHeap, 2, v);
           }
           if (storeIt) {
-            heap[i] = v;
+            heap.setHeapValue(v, i);
             if (arrayElementKind == Slot_HeapRef) {
               fixupsNeeded.add(i);
 //              System.out.format("debug adding to fixup, slot = %,d heapValue = %,d array%n", i, v);
@@ -1968,7 +2276,7 @@ public class BinaryCasSerDes6 {
       for (int i = iHeap + 2; i < endi; i++) {
         final int floatRef = readFloat();
         if (storeIt) {
-          heap[i] = floatRef;
+          heap.setHeapValue(floatRef, i);
         }
       }
       break;
@@ -1979,7 +2287,7 @@ public class BinaryCasSerDes6 {
           System.out.format("Trace String Array Des addr: %,d storeIt=%s, string=%s%n", i, storeIt ? "Y" : "N", stringHeapObj.getStringForCode(strRef));
         }
         if (storeIt) {
-          heap[i] = strRef; 
+          heap.setHeapValue(strRef, i); 
         }
       }
       break;
@@ -2006,13 +2314,13 @@ public class BinaryCasSerDes6 {
     case Slot_Float:
       final int floatAsInt = readFloat();
       if (storeIt) {
-        heap[iHeap + offset] = floatAsInt;
+        heap.setHeapValue(floatAsInt, iHeap + offset);
       }
       break;
     case Slot_Boolean: case Slot_Byte:
       final byte vByte = byte_dis.readByte();
       if (storeIt) {
-        heap[iHeap + offset] = vByte;
+        heap.setHeapValue(vByte, iHeap + offset);
       }
       break;
     case Slot_HeapRef:
@@ -2025,21 +2333,21 @@ public class BinaryCasSerDes6 {
     case Slot_StrRef: 
       final int vStrRef = readString(storeIt);
       if (storeIt) {
-        heap[iHeap + offset] = vStrRef;
+        heap.setHeapValue(vStrRef, iHeap + offset);
       }
       break;
     case Slot_LongRef: {
-      long v = readLongOrDouble(kind, (!storeIt || (iPrevHeap == 0)) ? 0L : longHeapObj.getHeapValue(heap[iPrevHeap + offset]));
+      long v = readLongOrDouble(kind, (!storeIt || (iPrevHeap == 0)) ? 0L : longHeapObj.getHeapValue(heap.getHeapValue(iPrevHeap + offset)));
       if (v == 0L) {
         if (longZeroIndex == -1) {
           longZeroIndex = longHeapObj.addLong(0L);
         }
         if (storeIt) {
-          heap[iHeap + offset] = longZeroIndex;
+          heap.setHeapValue(longZeroIndex, iHeap + offset);
         }
       } else {
         if (storeIt) {
-          heap[iHeap + offset] = longHeapObj.addLong(v);
+          heap.setHeapValue(longHeapObj.addLong(v), iHeap + offset);
         }
       }
       break;
@@ -2051,18 +2359,18 @@ public class BinaryCasSerDes6 {
           longZeroIndex = longHeapObj.addLong(0L);
         }
         if (storeIt) {
-          heap[iHeap + offset] = longZeroIndex;
+          heap.setHeapValue(longZeroIndex, iHeap + offset);
         }
       } else if (v == DBL_1) {
         if (double1Index == -1) {
           double1Index = longHeapObj.addLong(DBL_1);
         }
         if (storeIt) {
-          heap[iHeap + offset] = double1Index;
+          heap.setHeapValue(double1Index, iHeap + offset);
         }
       } else {
         if (storeIt) {
-          heap[iHeap + offset] = longHeapObj.addLong(v);
+          heap.setHeapValue(longHeapObj.addLong(v), iHeap + offset);
         }
       }
       break;
@@ -2139,7 +2447,7 @@ public class BinaryCasSerDes6 {
   private int readIntoByteArray(int length, boolean storeIt) throws IOException { 
     if (storeIt) {
       final int startPos = byteHeapObj.reserve(length);
-      byte_dis.readFully(byteHeapObj.heap, startPos, length);
+      byteHeapObj.readFully(byte_dis, startPos, length);
       return startPos;
     } else {
       skipBytes(byte_dis, length);
@@ -2150,11 +2458,12 @@ public class BinaryCasSerDes6 {
   private int readIntoShortArray(int length, boolean storeIt) throws IOException {
     if (storeIt) {
       final int startPos = shortHeapObj.reserve(length);
-      final short[] h = shortHeapObj.heap;
+      final ShortHeap h = shortHeapObj;
       final int endPos = startPos + length;
       short prev = 0;
       for (int i = startPos; i < endPos; i++) {
-        h[i] = prev = (short)(readDiff(short_dis, prev));
+        prev = (short)(readDiff(short_dis, prev));
+        h.setHeapValue(prev, i);
       }
       return startPos;
     } else {
@@ -2166,11 +2475,12 @@ public class BinaryCasSerDes6 {
   private int readIntoLongArray(SlotKind kind, int length, boolean storeIt) throws IOException {
     if (storeIt) {
       final int startPos = longHeapObj.reserve(length);
-      final long[] h = longHeapObj.heap;
+      final LongHeap h = longHeapObj;
       final int endPos = startPos + length;
       long prev = 0;
       for (int i = startPos; i < endPos; i++) {
-        h[i] = prev = readLongOrDouble(kind, prev);
+        prev = readLongOrDouble(kind, prev);
+        h.setHeapValue(prev, i);
       }
       return startPos;
     } else {
@@ -2193,7 +2503,8 @@ public class BinaryCasSerDes6 {
       int prev = (iPrevHeap == 0) ? 0 : 
 //        heap[iPrevHeap + offset];
         getPrevIntValue(iHeap, offset);
-      heap[iHeap + offset] = v = readDiff(kind, prev);
+      v = readDiff(kind, prev);
+      heap.setHeapValue(v, iHeap + offset);
     } else {
       v = readDiff(kind, 0);
     }
@@ -2327,7 +2638,10 @@ public class BinaryCasSerDes6 {
         if (TRACE_STR_ARRAY) {
           System.out.format("Trace String Array Des ref to offset %,d%n", length);
         }
-        return stringTableOffset - length;
+        final int slot = -length;
+        return (slot <= sharedDictionarySize) 
+            ? sharedDictionaryBase + slot 
+            : stringTableOffset + slot - sharedDictionarySize;
       } else {
         return 0;
       }
@@ -2424,7 +2738,7 @@ public class BinaryCasSerDes6 {
           //   due to type system merging
           throw new RuntimeException("never happen");
         }
-        final int tCode = heap[iHeap];
+        final int tCode = heap.getHeapValue(iHeap);
         typeInfo = ts.getTypeInfo(tCode);
         if (isTypeMapping) {
           tgtF2srcF = typeMapper.getTgtFeatOffsets2Src(tCode);
@@ -2463,7 +2777,7 @@ public class BinaryCasSerDes6 {
      */
     private void readModifiedAuxHeap(int numberOfMods) throws IOException {
       int prevOffset = 0;      
-      final int auxHeapIndex = heap[iHeap + 2];
+      final int auxHeapIndex = heap.getHeapValue(iHeap + 2);
       final SlotKind kind = typeInfo.getSlotKind(2);  // get kind of element
       final boolean isAuxByte = ((kind == Slot_BooleanRef) || (kind == Slot_ByteRef));
       final boolean isAuxShort = (kind == Slot_ShortRef);
@@ -2517,42 +2831,42 @@ public class BinaryCasSerDes6 {
             prevModHeapRefTgtSeq = tgtSeq;
             final int v = fsStartIndexes.getSrcAddrFromTgtSeq(tgtSeq);
             // can never be 0 - because is delta and tgt ts is always a subset of src one
-            heap[iHeap + srcOffsetInFs] = v;
+            heap.setHeapValue(v, iHeap + srcOffsetInFs);
           }
           break;
         case Slot_Int: {
             final int v = readDiff(int_dis, vPrevModInt);
             vPrevModInt = v;
-            heap[iHeap + srcOffsetInFs] = v;
+            heap.setHeapValue(v, iHeap + srcOffsetInFs);
             maybeRemove(srcOffsetInFs);
           }
           break;
         case Slot_Short: {
             final int v = readDiff(int_dis, vPrevModShort);
             vPrevModShort = (short)v;
-            heap[iHeap + srcOffsetInFs] = v;
+            heap.setHeapValue(v, iHeap + srcOffsetInFs);
           }
           break;
         case Slot_LongRef: {
             final long v = readLongOrDouble(kind, vPrevModLong);
             vPrevModLong = v;
-            heap[iHeap + srcOffsetInFs] = longHeapObj.addLong(v);
+            heap.setHeapValue(longHeapObj.addLong(v), iHeap + srcOffsetInFs);
           }
           break;
         case Slot_DoubleRef: {
             final long v = readDouble();
-            heap[iHeap + srcOffsetInFs] = longHeapObj.addLong(v);
+            heap.setHeapValue(longHeapObj.addLong(v), iHeap + srcOffsetInFs);
           }
           break;
         case Slot_Byte: case Slot_Boolean:
-          heap[iHeap + srcOffsetInFs] = byte_dis.readByte();
+          heap.setHeapValue(byte_dis.readByte(), iHeap + srcOffsetInFs);
           break;
         case Slot_Float:
-          heap[iHeap + srcOffsetInFs] = readFloat();
+          heap.setHeapValue(readFloat(), iHeap + srcOffsetInFs);
           maybeRemove(srcOffsetInFs);
           break;
         case Slot_StrRef:
-          heap[iHeap + srcOffsetInFs] = readString(true);
+          heap.setHeapValue(readString(true), iHeap + srcOffsetInFs);
           maybeRemove(srcOffsetInFs);
           break;
        default:
@@ -2576,9 +2890,9 @@ public class BinaryCasSerDes6 {
    ********************************************************************/
   
   
-  private static int incrToNextFs(int[] heap, int iHeap, TypeInfo typeInfo) {
+  private static int incrToNextFs(Heap heap, int iHeap, TypeInfo typeInfo) {
     if (typeInfo.isHeapStoredArray) {
-      return 2 + heap[iHeap + 1];
+      return 2 + heap.getHeapValue(iHeap + 1);
     } else {
       return 1 + typeInfo.slotKinds.length;
     }
@@ -2649,7 +2963,7 @@ public class BinaryCasSerDes6 {
       }
     }
     
-    heap = cas.getHeap().heap;   // referred to in processFsxPart
+    heap = cas.getHeap();   // referred to in processFsxPart
     for (int vi = 0; vi < nbrViews; vi++) {
       fi = processFsxPart(fsIndexes, fi, true, isWrite);    // added FSs
       if (isWrite && isSerializingDelta) {
@@ -2710,7 +3024,7 @@ public class BinaryCasSerDes6 {
     for (int i = 0; i < ia.length; i++) {
       final int fsAddr = ia[i];
       if (isWrite) {
-        if (isTypeMapping && (0 == typeMapper.mapTypeCodeSrc2Tgt(heap[fsAddr]))) {
+        if (isTypeMapping && (0 == typeMapper.mapTypeCodeSrc2Tgt(heap.getHeapValue(fsAddr)))) {
           continue;
         }
         final int tgtV = fsStartIndexes.getTgtSeqFromSrcAddr(fsAddr);
@@ -2763,7 +3077,7 @@ public class BinaryCasSerDes6 {
   }
   
   private boolean isInstanceInTgtTs(int fsAddr) {
-    return !isTypeMapping || (0 != typeMapper.mapTypeCodeSrc2Tgt(heap[fsAddr]));
+    return !isTypeMapping || (0 != typeMapper.mapTypeCodeSrc2Tgt(heap.getHeapValue(fsAddr)));
   }
   
   private void processRefedFSs() {
@@ -2777,15 +3091,15 @@ public class BinaryCasSerDes6 {
    * Enqueue all FSs reachable from features of the given FS.
    */
   private void enqueueFeatures(int addr) {
-    final int tCode = heap[addr];
+    final int tCode = heap.getHeapValue(addr);
     final TypeInfo typeInfo = ts.getTypeInfo(tCode);
     final SlotKind[] kinds = typeInfo.slotKinds;
     
     if (typeInfo.isHeapStoredArray && (Slot_HeapRef == kinds[1])) {
       // fs array, add elements
-      final int length = heap[addr + 1];
+      final int length = heap.getHeapValue(addr + 1);
       for (int i = 0; i < length; i++) {
-        enqueueFS(heap[addr + 2 + i]);
+        enqueueFS(heap.getHeapValue(addr + 2 + i));
       }
       return;
     }
@@ -2806,13 +3120,13 @@ public class BinaryCasSerDes6 {
           throw new RuntimeException(); // never happen because for serialization, target is never a superset of features of src
         }
         if (kinds[featOffsetInSrc - 1] == Slot_HeapRef) {
-          enqueueFS(heap[addr + featOffsetInSrc]);
+          enqueueFS(heap.getHeapValue(addr + featOffsetInSrc));
         }
       }
     } else {
       for (int i = 1; i < typeInfo.slotKinds.length + 1; i++) {
         if (kinds[i - 1] == Slot_HeapRef) {
-          enqueueFS(heap[addr + i]);
+          enqueueFS(heap.getHeapValue(addr + i));
         }
       }
     }
@@ -2841,7 +3155,7 @@ public class BinaryCasSerDes6 {
       // however, some created FSs above the line may not be "reachable" and 
       // therefore, skipped. 
       final int iTgtHeap = nextTgtHeap;
-      final int tCode = heap[iSrcHeap];
+      final int tCode = heap.getHeapValue(iSrcHeap);
       final int tgtTypeCode = isTypeMapping ? typeMapper.mapTypeCodeSrc2Tgt(tCode) : tCode;
       final boolean isIncludedType = (tgtTypeCode != 0);
       
@@ -2890,10 +3204,10 @@ public class BinaryCasSerDes6 {
   private void addStringFromFS(TypeInfo srcTypeInfo, int iSrcHeap, int tCode) {
     final int markStringHeap = (isDelta) ? mark.getNextStringHeapAddr() : 0;
     if (srcTypeInfo.isHeapStoredArray && (srcTypeInfo.slotKinds[1] == Slot_StrRef)) {
-      for (int i = 0; i < heap[iSrcHeap + 1]; i++) {
+      for (int i = 0; i < heap.getHeapValue(iSrcHeap + 1); i++) {
         // this bit of strange logic depends on the fact that all new and updated strings
         // are "added" at the end of the string heap in the current impl
-        final int strHeapIndex = heap[iSrcHeap + 2 + i];
+        final int strHeapIndex = heap.getHeapValue(iSrcHeap + 2 + i);
         if (strHeapIndex >= markStringHeap) {
           os.add(stringHeapObj.getStringForCode(strHeapIndex));
 //          System.out.format("addStringFromFS:  %s%n", stringHeapObj.getStringForCode(strHeapIndex));
@@ -2909,7 +3223,7 @@ public class BinaryCasSerDes6 {
         int srcOffset = strOffsets[i];  // offset to slot having str ref
         // add only those strings in slots that are in target
         if (!isTypeMapping || fSrcInTgt[srcOffset - 1]) {  //to convert to 0 based indexing
-          final int strHeapIndex = heap[iSrcHeap + srcOffset];
+          final int strHeapIndex = heap.getHeapValue(iSrcHeap + srcOffset);
           // this bit of strange logic depends on the fact that all new and updated strings
           // are "added" at the end of the string heap in the current impl
           if (strHeapIndex >= markStringHeap) {
@@ -2949,8 +3263,8 @@ public class BinaryCasSerDes6 {
       final private TypeSystemImpl ts2;
       final private Heap c1HO;
       final private Heap c2HO;
-      final private int[] c1heap;
-      final private int[] c2heap;
+      final private Heap c1heap;
+      final private Heap c2heap;
       
       private TypeInfo typeInfo;
       private int c1heapIndex;
@@ -2968,10 +3282,10 @@ public class BinaryCasSerDes6 {
       c2HO = c2.getHeap();
       // note: heap global var used in some subroutines
       //   may have changed since setup of this instance
-      c1heap = c1HO.heap;
-      c2heap = c2HO.heap;
-      addr2seq1 = new Int2IntRBT(Math.max(1000, c1heap.length/100));
-      addr2seq2 = new Int2IntRBT(Math.max(1000, c2heap.length/100));
+      c1heap = c1HO;
+      c2heap = c2HO;
+      addr2seq1 = new Int2IntRBT(Math.max(1000, c1heap.getHeapSize()/100));
+      addr2seq2 = new Int2IntRBT(Math.max(1000, c2heap.getHeapSize()/100));
     }
       
     public boolean compareCASes() {
@@ -3032,8 +3346,8 @@ public class BinaryCasSerDes6 {
         c1heapIndex = c1FoundFSs[i1];
         c2heapIndex = c2FoundFSs[i2];
         if (isTypeMapping) {
-          final int tCode1_2 = typeMapper.mapTypeCodeSrc2Tgt(c1heap[c1heapIndex]);
-          final int tCode2_1 = typeMapper.mapTypeCodeTgt2Src(c2heap[c2heapIndex]);
+          final int tCode1_2 = typeMapper.mapTypeCodeSrc2Tgt(c1heap.getHeapValue(c1heapIndex));
+          final int tCode2_1 = typeMapper.mapTypeCodeTgt2Src(c2heap.getHeapValue(c2heapIndex));
           if ((tCode1_2 != 0) && (tCode2_1 != 0)) {
             if (!compareFss()) {
               return false;
@@ -3071,14 +3385,14 @@ public class BinaryCasSerDes6 {
       if (isTypeMapping) {
         while (i1 < c1FoundFSs.length) {
           c1heapIndex = c1FoundFSs[i1];
-          if (typeMapper.mapTypeCodeSrc2Tgt(c1heap[c1heapIndex]) != 0) {
+          if (typeMapper.mapTypeCodeSrc2Tgt(c1heap.getHeapValue(c1heapIndex)) != 0) {
             return false;  // have more FSs in c1 than in c2
           }
           i1++;
         }
         while (i2 < c2FoundFSs.length) {
           c2heapIndex = c2FoundFSs[i2];
-          if (typeMapper.mapTypeCodeTgt2Src(c2heap[c2heapIndex]) != 0) {
+          if (typeMapper.mapTypeCodeTgt2Src(c2heap.getHeapValue(c2heapIndex)) != 0) {
             return false;  // have more FSs in c2 than in c1
           }
           i2++;
@@ -3088,9 +3402,9 @@ public class BinaryCasSerDes6 {
     }
 
     private boolean compareFss() {
-      int tCode = c1heap[c1heapIndex];
+      int tCode = c1heap.getHeapValue(c1heapIndex);
       typeInfo = ts1.getTypeInfo(tCode);
-      final int tCodeTgt = c2heap[c2heapIndex];
+      final int tCodeTgt = c2heap.getHeapValue(c2heapIndex);
       int tCodeTgtInSrc = isTypeMapping ? typeMapper.mapTypeCodeTgt2Src(tCodeTgt) : tCodeTgt; 
       if (tCode != tCodeTgtInSrc) {  
         return mismatchFs();   // types mismatch
@@ -3118,8 +3432,8 @@ public class BinaryCasSerDes6 {
     }
       
     private boolean compareFssArray() {
-      int len1 = c1heap[c1heapIndex + 1];
-      int len2 = c2heap[c2heapIndex + 1];
+      int len1 = c1heap.getHeapValue(c1heapIndex + 1);
+      int len2 = c2heap.getHeapValue(c2heapIndex + 1);
       if (len1 != len2) {
         return mismatchFs();
       }
@@ -3127,13 +3441,13 @@ public class BinaryCasSerDes6 {
         SlotKind kind = typeInfo.getSlotKind(2);
         if (typeInfo.isHeapStoredArray) {
           if (kind == Slot_StrRef) {
-            if (! compareStrings(c1.getStringForCode(c1heap[c1heapIndex + 2 + i]),
-                                 c2.getStringForCode(c2heap[c2heapIndex + 2 + i]))) {
+            if (! compareStrings(c1.getStringForCode(c1heap.getHeapValue(c1heapIndex + 2 + i)),
+                                 c2.getStringForCode(c2heap.getHeapValue(c2heapIndex + 2 + i)))) {
               return mismatchFs();
             }
           } else if (kind == Slot_HeapRef) {
-            final int c1ref = c1heap[c1heapIndex + 2 + i];
-            final int c2ref = c2heap[c2heapIndex + 2 + i];
+            final int c1ref = c1heap.getHeapValue(c1heapIndex + 2 + i);
+            final int c2ref = c2heap.getHeapValue(c2heapIndex + 2 + i);
             if (!isInstanceInTgtTs(c1ref)) {
               // source ref is for type not in target.  Target value should be 0
               return (c2ref == 0);
@@ -3143,26 +3457,26 @@ public class BinaryCasSerDes6 {
                 (addr2seq1.getMostlyClose(c1ref) != addr2seq2.getMostlyClose(c2ref))) {
               return mismatchFs();
             }
-          } else if (c1heap[c1heapIndex + 2 + i] != c2heap[c2heapIndex + 2 + i]) {
+          } else if (c1heap.getHeapValue(c1heapIndex + 2 + i) != c2heap.getHeapValue(c2heapIndex + 2 + i)) {
             return mismatchFs();
           }
         } else {  // not heap stored array
           switch (kind) {
           case Slot_BooleanRef: case Slot_ByteRef:
-            if (c1.getByteHeap().getHeapValue(c1heap[c1heapIndex + 2] + i) !=
-                c2.getByteHeap().getHeapValue(c2heap[c2heapIndex + 2] + i)) {
+            if (c1.getByteHeap().getHeapValue(c1heap.getHeapValue(c1heapIndex + 2) + i) !=
+                c2.getByteHeap().getHeapValue(c2heap.getHeapValue(c2heapIndex + 2) + i)) {
               return mismatchFs(); 
             }
             break;
           case Slot_ShortRef:
-            if (c1.getShortHeap().getHeapValue(c1heap[c1heapIndex + 2] + i) !=
-                c2.getShortHeap().getHeapValue(c2heap[c2heapIndex + 2] + i)) {
+            if (c1.getShortHeap().getHeapValue(c1heap.getHeapValue(c1heapIndex + 2) + i) !=
+                c2.getShortHeap().getHeapValue(c2heap.getHeapValue(c2heapIndex + 2) + i)) {
               return mismatchFs();
             }
             break;
           case Slot_LongRef: case Slot_DoubleRef: {
-            if (c1.getLongHeap().getHeapValue(c1heap[c1heapIndex + 2] + i)  !=
-                c2.getLongHeap().getHeapValue(c2heap[c2heapIndex + 2] + i)) {
+            if (c1.getLongHeap().getHeapValue(c1heap.getHeapValue(c1heapIndex + 2) + i)  !=
+                c2.getLongHeap().getHeapValue(c2heap.getHeapValue(c2heapIndex + 2) + i)) {
               return mismatchFs();
             }
             break;
@@ -3179,10 +3493,10 @@ public class BinaryCasSerDes6 {
       switch (kind) {
       case Slot_Int: case Slot_Short: case Slot_Boolean: case Slot_Byte: 
       case Slot_Float: 
-        return c1heap[c1heapIndex + offsetSrc] == c2heap[c2heapIndex + offsetTgt];
+        return c1heap.getHeapValue(c1heapIndex + offsetSrc) == c2heap.getHeapValue(c2heapIndex + offsetTgt);
       case Slot_HeapRef: {
-        final int c1ref = c1heap[c1heapIndex + offsetSrc];
-        final int c2ref = c2heap[c2heapIndex + offsetTgt];
+        final int c1ref = c1heap.getHeapValue(c1heapIndex + offsetSrc);
+        final int c2ref = c2heap.getHeapValue(c2heapIndex + offsetTgt);
         return diagnoseMiscompareHeapRef(c1ref, c2ref, offsetSrc);
 //        if (!isInstanceInTgtTs(c1ref)) {
 //          // source ref is for type not in target.  Target value should be 0
@@ -3193,11 +3507,11 @@ public class BinaryCasSerDes6 {
 //                (addr2seq1.get(c1ref) == addr2seq2.get(c2ref)));
       }
       case Slot_StrRef:
-        return compareStrings(c1.getStringForCode(c1heap[c1heapIndex + offsetSrc]),
-                              c2.getStringForCode(c2heap[c2heapIndex + offsetTgt]));
+        return compareStrings(c1.getStringForCode(c1heap.getHeapValue(c1heapIndex + offsetSrc)),
+                              c2.getStringForCode(c2heap.getHeapValue(c2heapIndex + offsetTgt)));
       case Slot_LongRef: case Slot_DoubleRef:
-        return c1.getLongHeap().getHeapValue(c1heap[c1heapIndex + offsetSrc]) ==
-               c2.getLongHeap().getHeapValue(c2heap[c2heapIndex + offsetTgt]);
+        return c1.getLongHeap().getHeapValue(c1heap.getHeapValue(c1heapIndex + offsetSrc)) ==
+               c2.getLongHeap().getHeapValue(c2heap.getHeapValue(c2heapIndex + offsetTgt));
       default: throw new RuntimeException("internal error");      
       }
     }
@@ -3214,7 +3528,7 @@ public class BinaryCasSerDes6 {
         return true;
       }
       if (c1ref == 0) {
-        final int prevC1Ref = c1heap[c1heapIndex + offsetSrc];
+        final int prevC1Ref = c1heap.getHeapValue(c1heapIndex + offsetSrc);
         if (prevC1Ref != 0){
           System.err.format("HeapRef original c1Ref = %,d but instance not in target ts, so set to 0", prevC1Ref);
           return false;
@@ -3309,7 +3623,7 @@ public class BinaryCasSerDes6 {
 
     private StringBuilder dumpHeapFs(CASImpl cas, final int iHeap, final TypeSystemImpl ts) {
       StringBuilder sb = new StringBuilder();
-      typeInfo = ts.getTypeInfo(cas.getHeap().heap[iHeap]);
+      typeInfo = ts.getTypeInfo(cas.getHeap().getHeapValue(iHeap));
       sb.append("Heap Addr: ").append(iHeap).append(' ');
       sb.append(typeInfo).append(' ');
   
@@ -3329,8 +3643,8 @@ public class BinaryCasSerDes6 {
     
     private StringBuilder dumpHeapStoredArray(CASImpl cas, final int iHeap) {
       StringBuilder sb = new StringBuilder();
-      int[] heap = cas.getHeap().heap;
-      final int length = heap[iHeap + 1];
+      Heap heap = cas.getHeap();
+      final int length = heap.getHeapValue(iHeap + 1);
       sb.append("Array Length: ").append(length).append('[');
       SlotKind arrayElementKind = typeInfo.slotKinds[1];
       switch (arrayElementKind) {
@@ -3340,7 +3654,7 @@ public class BinaryCasSerDes6 {
           if (i > iHeap + 2) {
             sb.append(", ");
           }
-          sb.append(heap[i]);
+          sb.append(heap.getHeapValue(i));
         }
         break;   
       case Slot_StrRef:
@@ -3349,7 +3663,7 @@ public class BinaryCasSerDes6 {
           if (i > iHeap + 2) {
             sb.append(", ");
           }
-          sb.append(sh.getStringForCode(heap[i]));        
+          sb.append(sh.getStringForCode(heap.getHeapValue(i)));        
         }
         break;
       default: throw new RuntimeException("internal error");
@@ -3360,8 +3674,8 @@ public class BinaryCasSerDes6 {
   
     private StringBuilder dumpNonHeapStoredArray(CASImpl cas, final int iHeap) {
       StringBuilder sb = new StringBuilder();
-      int[] heap = cas.getHeap().heap;
-      final int length = heap[iHeap + 1];
+      Heap heap = cas.getHeap();
+      final int length = heap.getHeapValue(iHeap + 1);
       sb.append("Array Length: ").append(length).append('[');
       SlotKind arrayElementKind = typeInfo.slotKinds[1];
       
@@ -3371,13 +3685,13 @@ public class BinaryCasSerDes6 {
         }
         switch (arrayElementKind) {
         case Slot_BooleanRef: case Slot_ByteRef:
-          sb.append(cas.getByteHeap().getHeapValue(heap[iHeap + 2 + i]));
+          sb.append(cas.getByteHeap().getHeapValue(heap.getHeapValue(iHeap + 2 + i)));
           break;
         case Slot_ShortRef:
-          sb.append(cas.getShortHeap().getHeapValue(heap[iHeap + 2 + i]));
+          sb.append(cas.getShortHeap().getHeapValue(heap.getHeapValue(iHeap + 2 + i)));
           break;
         case Slot_LongRef: case Slot_DoubleRef: {
-          long v = cas.getLongHeap().getHeapValue(heap[iHeap + 2 + i]);
+          long v = cas.getLongHeap().getHeapValue(heap.getHeapValue(iHeap + 2 + i));
           if (arrayElementKind == Slot_DoubleRef) {
             sb.append(Double.longBitsToDouble(v));
           } else {
@@ -3394,29 +3708,29 @@ public class BinaryCasSerDes6 {
   
     private StringBuilder dumpByKind(CASImpl cas, int offset, final int iHeap) {
       StringBuilder sb = new StringBuilder();
-      int[] heap = cas.getHeap().heap;
+      Heap heap = cas.getHeap();
       SlotKind kind = typeInfo.getSlotKind(offset);
       switch (kind) {
       case Slot_Int:
-        return sb.append(heap[iHeap + offset]);
+        return sb.append(heap.getHeapValue(iHeap + offset));
       case Slot_Short: 
-        return sb.append((short)heap[iHeap + offset]);
+        return sb.append((short)heap.getHeapValue(iHeap + offset));
       case Slot_Byte: 
-        return sb.append((byte)heap[iHeap + offset]);
+        return sb.append((byte)heap.getHeapValue(iHeap + offset));
       case Slot_Boolean:  
-        return sb.append(((heap[iHeap + offset]) == 0) ? false : true);
+        return sb.append(((heap.getHeapValue(iHeap + offset)) == 0) ? false : true);
       case Slot_Float: {
-        int v = heap[iHeap + offset];
+        int v = heap.getHeapValue(iHeap + offset);
         return sb.append(Float.intBitsToFloat(v)).append(' ').append(Integer.toHexString(v));
       }
       case Slot_HeapRef:
-        return sb.append("HeapRef[").append(heap[iHeap + offset]).append(']');
+        return sb.append("HeapRef[").append(heap.getHeapValue(iHeap + offset)).append(']');
       case Slot_StrRef:
-        return sb.append(cas.getStringForCode(heap[iHeap + offset]));
+        return sb.append(cas.getStringForCode(heap.getHeapValue(iHeap + offset)));
       case Slot_LongRef:
-        return sb.append(String.format("%,d", cas.getLongHeap().getHeapValue(heap[iHeap + offset])));
+        return sb.append(String.format("%,d", cas.getLongHeap().getHeapValue(heap.getHeapValue(iHeap + offset))));
       case Slot_DoubleRef: {
-        long v = cas.getLongHeap().getHeapValue(heap[iHeap + offset]);
+        long v = cas.getLongHeap().getHeapValue(heap.getHeapValue(iHeap + offset));
         return sb.append(Double.longBitsToDouble(v)).append(' ').append(Long.toHexString(v));
       }
       default: throw new RuntimeException("internal error");      
@@ -3534,7 +3848,7 @@ public class BinaryCasSerDes6 {
   private DataOutputStream setupOutputStream(int i) {
     // set up output stream
     int size = estimatedZipSize[i];
-    baosZipSources[i] = new ByteArrayOutputStream(size);
+    baosZipSources[i] = (buffers == null) ? new ByteArrayOutputStream(size) : buffers.zipSource(i, size);
     return dosZipSources[i] = new DataOutputStream(baosZipSources[i]); 
   }
 
@@ -3547,11 +3861,15 @@ public class BinaryCasSerDes6 {
     for (int i = 0; i < nbrEntries; i++) {
       idxAndLen.add(deserIn.readUnsignedByte());  // slot ordinal number
       idxAndLen.add(deserIn.readInt());           // compressed size, bytes
-      idxAndLen.add(deserIn.readInt());           // decompressed size, bytes (not currently used)
+      idxAndLen.add(deserIn.readInt());           // decompressed size, bytes (used by the Lz4 codec)
     }
     
-    for (int i = 0; i < idxAndLen.size();) {
-      setupReadStream(idxAndLen.get(i++), idxAndLen.get(i++), idxAndLen.get(i++));
+    if (executor == null || readCodec == CompressCodec.None) {
+      for (int i = 0; i < idxAndLen.size();) {
+        setupReadStream(idxAndLen.get(i++), idxAndLen.get(i++), idxAndLen.get(i++));
+      }
+    } else {
+      setupReadStreamsParallel(idxAndLen);
     }
 
     arrayLength_dis = dataInputs[arrayLength_i];
@@ -3579,9 +3897,19 @@ public class BinaryCasSerDes6 {
       int slotIndex, 
       int bytesCompr,
       int bytesOrig) throws IOException {
-    byte[] b = new byte[bytesCompr + 1];
-    deserIn.readFully(b, 0, bytesCompr);  // this leaves 1 extra 0 byte at the end
-    // which may be required by Inflater with nowrap option - see Inflater javadoc
+    if (readCodec == CompressCodec.None) {
+      dataInputs[slotIndex] = new DataInputStream(CommonSerDes.readSegment(deserIn, bytesCompr));
+      return;
+    }
+    if (readCodec == CompressCodec.Lz4) {
+      final byte[] compressedBytes = new byte[bytesCompr];
+      deserIn.readFully(compressedBytes);
+      dataInputs[slotIndex] = new DataInputStream(new ByteArrayInputStream(unzip(compressedBytes, bytesCompr, bytesOrig)));
+      return;
+    }
+    // read in place if memory mapped, else copied to a byte array, in either case
+    //   with 1 extra 0 byte at the end, which may be required by Inflater with nowrap option - see Inflater javadoc
+    final InputStream compressed = CommonSerDes.readCompressedSegment(deserIn, bytesCompr);
     
     // testing inflate speed
 //      long startTime = System.currentTimeMillis();
@@ -3601,17 +3929,89 @@ public class BinaryCasSerDes6 {
 //          SlotKind.values()[slotIndex], System.currentTimeMillis() - startTime); 
 //      
 //      dataInputs[slotIndex] = new DataInputStream(new ByteArrayInputStream(uncompressed));
-    Inflater inflater = new Inflater(true);
-    inflaters[slotIndex] = inflater;  // save to be able to call end() when done. 
-    ByteArrayInputStream baiStream = new ByteArrayInputStream(b);      
+    final Inflater inflater;
+    if (buffers == null) {
+      inflater = new Inflater(true);
+      inflaters[slotIndex] = inflater;  // save to be able to call end() when done. 
+    } else {
+      inflater = buffers.inflater(slotIndex);  // kept for reuse
+    }
     int zipBufSize = Math.max(1 << 10, bytesCompr); // 32768 == 1<< 15.  Tuned by trials on 2015 intel i7
      // caches: L1 = 128KB    L2 = 1M     L3 = 6M
      // increasing the max causes cache dumping on this machine, and things slow down
-    InflaterInputStream iis = new InflaterInputStream(baiStream, inflater, zipBufSize);
+    InflaterInputStream iis = new InflaterInputStream(compressed, inflater, zipBufSize);
     // increasing the following buffer stream buffer size also seems to slow things down
     dataInputs[slotIndex] = new DataInputStream(new BufferedInputStream(iis, zipBufSize * 1 ));
   }
   
+  /**
+   * Read all the compressed streams, then decompress them fully, the larger ones concurrently on the executor
+   * @param idxAndLen for each stream: the slot index, the compressed and the decompressed sizes
+   * @throws IOException passthru
+   */
+  private void setupReadStreamsParallel(IntVector idxAndLen) throws IOException {
+    List<FutureTask<byte[]>> unzipTasks = new ArrayList<FutureTask<byte[]>>();
+    List<FutureTask<byte[]>> localTasks = new ArrayList<FutureTask<byte[]>>();
+    for (int i = 0; i < idxAndLen.size(); i += 3) {
+      final int bytesCompr = idxAndLen.get(i + 1);
+      final int bytesOrig = idxAndLen.get(i + 2);
+      // 1 extra 0 byte at the end, which may be required by Inflater with nowrap option - see Inflater javadoc
+      final byte[] compressedBytes = new byte[bytesCompr + 1];
+      deserIn.readFully(compressedBytes, 0, bytesCompr);
+      FutureTask<byte[]> task = new FutureTask<byte[]>(new Callable<byte[]>() {
+        public byte[] call() throws IOException {
+          return unzip(compressedBytes, bytesCompr, bytesOrig);
+        }
+      });
+      unzipTasks.add(task);
+      if (bytesOrig >= MIN_PARALLEL_ZIP_SIZE) {
+        executor.execute(task);
+      } else {
+        localTasks.add(task);
+      }
+    }
+    for (FutureTask<byte[]> task : localTasks) {
+      task.run();
+    }
+    List<byte[]> uncompresseds = getAll(unzipTasks);
+    for (int i = 0; i < uncompresseds.size(); i++) {
+      dataInputs[idxAndLen.get(i * 3)] = new DataInputStream(new ByteArrayInputStream(uncompresseds.get(i)));
+    }
+  }
+  
+  /**
+   * Decompress a whole stream (Deflate or Lz4)
+   * @param compressedBytes the compressed bytes; for Deflate, followed by 1 extra byte
+   * @param bytesCompr the number of compressed bytes
+   * @param bytesOrig the number of decompressed bytes
+   * @return the decompressed bytes
+   * @throws IOException if the data is malformed
+   */
+  private byte[] unzip(byte[] compressedBytes, int bytesCompr, int bytesOrig) throws IOException {
+    final byte[] uncompressed = new byte[bytesOrig];
+    if (readCodec == CompressCodec.Lz4) {
+      Lz4Codec.decompress(compressedBytes, 0, bytesCompr, uncompressed, bytesOrig);
+      return uncompressed;
+    }
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressedBytes, 0, bytesCompr + 1);
+      int n = 0;
+      while (n < bytesOrig) {
+        int k = inflater.inflate(uncompressed, n, bytesOrig - n);
+        if (k == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+          throw new EOFException("Unexpected end of compressed stream");
+        }
+        n += k;
+      }
+    } catch (DataFormatException e) {
+      throw new ZipException(e.getMessage());
+    } finally {
+      inflater.end();
+    }
+    return uncompressed;
+  }
+  
   private void closeDataInputs() {
     for (DataInputStream is : dataInputs) {
       if (null != is){
@@ -3629,6 +4029,20 @@ public class BinaryCasSerDes6 {
     }
   }
   
+  /**
+   * @return the dictionary of the receiving CAS, after checking it is the one used for serializing
+   */
+  private String[] readSharedDictionaryInfo() throws IOException {
+    final int size = readVnumber(control_dis);
+    final int hash = control_dis.readInt();
+    final StringInternTable t = getSharedDictionaryTable();
+    if (size != t.dictionary().length || hash != t.getDictionaryHash()) {
+      throw new RuntimeException(String.format("The shared string dictionary of the CAS being deserialized into " +
+          "(%,d strings) is not the one used to serialize (%,d strings)", t.dictionary().length, size));
+    }
+    return t.dictionary();
+  }
+  
   private Header readHeader(InputStream istream) throws IOException {
     deserIn = CommonSerDes.maybeWrapToDataInputStream(istream);
     Header h = CommonSerDes.readHeader(deserIn);
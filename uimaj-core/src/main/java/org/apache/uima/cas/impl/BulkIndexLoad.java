@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.uima.UIMARuntimeException;
+import org.apache.uima.internal.util.IntVector;
+
+/**
+ * Collects the FSs to be bulk inserted into each leaf index, for one or more views, so that
+ * the inserts can be done in one pass after the (serial) checks and bookkeeping of
+ * FSIndexRepositoryImpl.ll_addAll.
+ * 
+ * Each leaf index is an independent structure, only reading the (shared, unchanging during the
+ * load) CAS heaps, so the inserts for different leaf indexes may run concurrently. 
+ * This is done on the common fork-join pool if requested and the load is large enough
+ * to be worth it; it is used when rebuilding the indexes of deserialized CASes, 
+ * see {@link FSIndexRepositoryImpl#PARALLEL_INDEX_REBUILD}.
+ */
+class BulkIndexLoad {
+  
+  /**
+   * Below this many inserts in total, the thread hand-offs cost more than they save
+   */
+  private static final int MIN_PARALLEL_LOAD = 10000;
+
+  // identity, because some leaf index kinds don't support hashCode
+  private final Map<FSLeafIndexImpl<?>, IntVector> inserts = new IdentityHashMap<FSLeafIndexImpl<?>, IntVector>();
+  
+  private final boolean isParallel;
+  
+  private int totalSize = 0;
+  
+  BulkIndexLoad(boolean isParallel) {
+    this.isParallel = isParallel;
+  }
+  
+  void add(FSLeafIndexImpl<?> leafIndex, int[] fsRefs, int length) {
+    IntVector v = inserts.get(leafIndex);
+    if (v == null) {
+      v = new IntVector(length);
+      inserts.put(leafIndex, v);
+    }
+    v.add(fsRefs, 0, length);
+    totalSize += length;
+  }
+  
+  /**
+   * Do the inserts, and wait for them to finish.
+   */
+  void run() {
+    if (!isParallel || inserts.size() < 2 || totalSize < MIN_PARALLEL_LOAD) {
+      for (Map.Entry<FSLeafIndexImpl<?>, IntVector> e : inserts.entrySet()) {
+        e.getKey().bulkInsert(e.getValue().getArray(), 0, e.getValue().size());
+      }
+      inserts.clear();
+      return;
+    }
+    
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(inserts.size());
+    for (Map.Entry<FSLeafIndexImpl<?>, IntVector> e : inserts.entrySet()) {
+      final FSLeafIndexImpl<?> leafIndex = e.getKey();
+      final IntVector v = e.getValue();
+      tasks.add(new Callable<Void>() {
+        public Void call() {
+          leafIndex.bulkInsert(v.getArray(), 0, v.size());
+          return null;
+        }
+      });
+    }
+    inserts.clear();
+    
+    try {
+      // invokeAll waits for all, so a failure in one doesn't leave others running
+      for (Future<Void> f : ForkJoinPool.commonPool().invokeAll(tasks)) {
+        f.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UIMARuntimeException(e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new UIMARuntimeException(cause);
+    }
+  }
+}
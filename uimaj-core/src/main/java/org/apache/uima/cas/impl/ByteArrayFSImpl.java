@@ -67,21 +67,28 @@ public class ByteArrayFSImpl extends CommonAuxArrayFSImpl implements ByteArrayFS
    * @see org.apache.uima.cas.ArrayFS#copyFromArray(FeatureStructure[], int, int, int)
    */
   public void copyFromArray(byte[] src, int srcOffset, int destOffset, int length) {
-    copyFromJavaArray(src, srcOffset, this.casImpl.getByteHeap().heap, destOffset, length);
+    this.casImpl.checkArrayBounds(this.addr, destOffset, length);
+    final int startOffset = casImpl.getHeap().getHeapValue(casImpl.getArrayStartAddress(this.addr));
+    this.casImpl.getByteHeap().copyFromArray(src, srcOffset, startOffset + destOffset, length);
   }
 
   /**
    * @see org.apache.uima.cas.ArrayFS#copyToArray(int, FeatureStructure[], int, int)
    */
   public void copyToArray(int srcOffset, byte[] dest, int destOffset, int length) {
-    copyToJavaArray(this.casImpl.getByteHeap().heap, srcOffset, dest, destOffset, length);
+    this.casImpl.checkArrayBounds(this.addr, srcOffset, length);
+    final int startOffset = casImpl.getHeap().getHeapValue(casImpl.getArrayStartAddress(this.addr));
+    this.casImpl.getByteHeap().copyToArray(startOffset + srcOffset, dest, destOffset, length);
   }
 
   /**
    * @see org.apache.uima.cas.ArrayFS#toArray()
    */
   public byte[] toArray() {
-    return (byte[]) toArray(this.casImpl.getByteHeap().heap);
+    final int size = size();
+    byte[] outArray = new byte[size];
+    copyToArray(0, outArray, 0, size);
+    return outArray;
   }
 
   /**
@@ -89,10 +96,10 @@ public class ByteArrayFSImpl extends CommonAuxArrayFSImpl implements ByteArrayFS
    */
   public void copyToArray(int srcOffset, String[] dest, int destOffset, int length) {
     casImpl.checkArrayBounds(addr, srcOffset, length);
-    final int startOffset = srcOffset + casImpl.getHeap().heap[casImpl.getArrayStartAddress(addr)];
-    final byte[] heap = this.casImpl.getByteHeap().heap;
+    final int startOffset = srcOffset + casImpl.getHeap().getHeapValue(casImpl.getArrayStartAddress(addr));
+    final ByteHeap heap = this.casImpl.getByteHeap();
     for (int i = 0; i < length; i++) {
-      dest[i + destOffset] = Byte.toString(heap[i + startOffset]);
+      dest[i + destOffset] = Byte.toString(heap.getHeapValue(i + startOffset));
     }
   }
 
@@ -101,10 +108,10 @@ public class ByteArrayFSImpl extends CommonAuxArrayFSImpl implements ByteArrayFS
    */
   public void copyFromArray(String[] src, int srcOffset, int destOffset, int length) {
     this.casImpl.checkArrayBounds(this.addr, destOffset, length);
-    final int startOffset = destOffset + casImpl.getHeap().heap[casImpl.getArrayStartAddress(this.addr)];
-    byte[] heap = this.casImpl.getByteHeap().heap;
+    final int startOffset = destOffset + casImpl.getHeap().getHeapValue(casImpl.getArrayStartAddress(this.addr));
+    final ByteHeap heap = this.casImpl.getByteHeap();
     for (int i = 0; i < length; i++) {
-      heap[i + startOffset] = Byte.parseByte(src[i + srcOffset]);
+      heap.setHeapValue(Byte.parseByte(src[i + srcOffset]), i + startOffset);
     }
   }
 }
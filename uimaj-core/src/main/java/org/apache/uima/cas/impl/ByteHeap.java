@@ -19,71 +19,175 @@
 
 package org.apache.uima.cas.impl;
 
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Arrays;
 
 /**
  * Encapsulate 8 bit storage for the CAS.
  */
-final class ByteHeap extends CommonAuxHeap {
+final class ByteHeap extends NumericAuxHeap {
 
-  byte[] heap;
+  private byte[][] pages; // null if the storage is off heap
 
   ByteHeap() {
-    super(DEFAULT_HEAP_BASE_SIZE, DEFAULT_HEAP_MULT_LIMIT);
+    super(DEFAULT_HEAP_BASE_SIZE);
   }
 
-  ByteHeap(int heapBaseSize, int heapMultLimit) {
-    super(heapBaseSize, heapMultLimit);
+  ByteHeap(int heapBaseSize) {
+    super(heapBaseSize);
   }
 
-  final void initMemory() {
-    this.heap = new byte[this.heapBaseSize];
+  final void newPageSlots(int nbrSlots) {
+    this.pages = isOffHeap() ? null : new byte[nbrSlots][];
   }
-  
-  final void initMemory(int size) {
-    this.heap = new byte[size];
+
+  final void ensurePageSlots(int nbrSlots) {
+    if (nbrSlots > pages.length) {
+      pages = Arrays.copyOf(pages, Math.max(nbrSlots, pages.length * 2));
+    }
   }
 
-  final int getCapacity() {
-    return this.heap.length;
+  final void newPage(int pageIndex, int size) {
+    pages[pageIndex] = new byte[size];
   }
 
-  void growHeapIfNeeded() {
-    if (heap.length >= heapPos)
-      return;
+  final void growLastPage(int newSize) {
+    pages[nbrPages - 1] = Arrays.copyOf(pages[nbrPages - 1], newSize);
+  }
+
+  final void dropPages(int from, int to) {
+    Arrays.fill(pages, from, to, null);
+  }
 
-    byte[] new_array = new byte[computeNewArraySize(heap.length, heapPos, GROWTH_FACTOR,
-            heapMultLimit)];
-    System.arraycopy(heap, 0, new_array, 0, heap.length);
-    heap = new_array;
+  final int lastPageCapacity() {
+    return pages[nbrPages - 1].length;
   }
 
-  void resetToZeros() {
-    Arrays.fill(this.heap, 0, this.heapPos, (byte) NULL);
+  final void zeroPage(int pageIndex, int length) {
+    Arrays.fill(pages[pageIndex], 0, length, (byte) NULL);
+  }
+
+  final int bytesPerCell() {
+    return 1;
   }
 
   // Getters
   byte getHeapValue(int offset) {
-    return this.heap[offset];
+    return (null == pages) 
+        ? offHeapPages[offset >>> PAGE_SHIFT].get((offset & PAGE_MASK)) 
+        : pages[offset >>> PAGE_SHIFT][offset & PAGE_MASK];
   }
 
   // setters
   void setHeapValue(byte val, int pos) {
-    heap[pos] = val;
+    if (null == pages) {
+      offHeapPages[pos >>> PAGE_SHIFT].put((pos & PAGE_MASK), val);
+    } else {
+      pages[pos >>> PAGE_SHIFT][pos & PAGE_MASK] = val;
+    }
   }
 
   int addByte(byte val) {
     int pos = reserve(1);
-    heap[pos] = val;
+    setHeapValue(val, pos);
     return pos;
   }
 
+  void copyToArray(int srcPos, byte[] dest, int destPos, int length) {
+    if (null == pages) {
+      for (int i = 0; i < length; i++) {
+        dest[destPos + i] = getHeapValue(srcPos + i);
+      }
+      return;
+    }
+    while (length > 0) {
+      final int posInPage = srcPos & PAGE_MASK;
+      final int n = Math.min(length, PAGE_SIZE - posInPage);
+      System.arraycopy(pages[srcPos >>> PAGE_SHIFT], posInPage, dest, destPos, n);
+      srcPos += n;
+      destPos += n;
+      length -= n;
+    }
+  }
+
+  void copyFromArray(byte[] src, int srcPos, int destPos, int length) {
+    if (null == pages) {
+      for (int i = 0; i < length; i++) {
+        setHeapValue(src[srcPos + i], destPos + i);
+      }
+      return;
+    }
+    while (length > 0) {
+      final int posInPage = destPos & PAGE_MASK;
+      final int n = Math.min(length, PAGE_SIZE - posInPage);
+      System.arraycopy(src, srcPos, pages[destPos >>> PAGE_SHIFT], posInPage, n);
+      srcPos += n;
+      destPos += n;
+      length -= n;
+    }
+  }
+
+  /**
+   * Write length bytes starting at pos to an output stream
+   * @param os the stream to write to
+   * @param pos the first cell to write
+   * @param length the number of cells to write
+   * @throws IOException passed thru
+   */
+  void write(OutputStream os, int pos, int length) throws IOException {
+    if (null != pages) {
+      while (length > 0) {
+        final int posInPage = pos & PAGE_MASK;
+        final int n = Math.min(length, PAGE_SIZE - posInPage);
+        os.write(pages[pos >>> PAGE_SHIFT], posInPage, n);
+        pos += n;
+        length -= n;
+      }
+      return;
+    }
+    final byte[] buf = new byte[Math.min(length, PAGE_SIZE)];
+    while (length > 0) {
+      final int n = Math.min(length, buf.length);
+      copyToArray(pos, buf, 0, n);
+      os.write(buf, 0, n);
+      pos += n;
+      length -= n;
+    }
+  }
+
+  /**
+   * Read length bytes into the cells starting at pos
+   * @param in the input to read from
+   * @param pos the first cell to fill in
+   * @param length the number of cells to read
+   * @throws IOException passed thru
+   */
+  void readFully(DataInput in, int pos, int length) throws IOException {
+    if (null != pages) {
+      while (length > 0) {
+        final int posInPage = pos & PAGE_MASK;
+        final int n = Math.min(length, PAGE_SIZE - posInPage);
+        in.readFully(pages[pos >>> PAGE_SHIFT], posInPage, n);
+        pos += n;
+        length -= n;
+      }
+      return;
+    }
+    final byte[] buf = new byte[Math.min(length, PAGE_SIZE)];
+    while (length > 0) {
+      final int n = Math.min(length, buf.length);
+      in.readFully(buf, 0, n);
+      copyFromArray(buf, 0, pos, n);
+      pos += n;
+      length -= n;
+    }
+  }
+
   protected void reinit(byte[] byteHeap) {
     int argLength = byteHeap.length;
-    if (argLength > heap.length)
-      heap = new byte[argLength];
-
-    System.arraycopy(byteHeap, 0, heap, 0, argLength);
-    this.heapPos = argLength;
+    reinitSizeOnly(argLength);
+    copyFromArray(byteHeap, 0, 0, argLength);
   }
 }
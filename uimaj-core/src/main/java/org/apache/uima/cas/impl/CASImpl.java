@@ -22,6 +22,7 @@ package org.apache.uima.cas.impl;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -87,6 +88,7 @@ import org.apache.uima.cas.admin.CASMgr;
 import org.apache.uima.cas.admin.FSIndexComparator;
 import org.apache.uima.cas.admin.FSIndexRepositoryMgr;
 import org.apache.uima.cas.admin.TypeSystemMgr;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressCodec;
 import org.apache.uima.cas.impl.CommonSerDes.Header;
 import org.apache.uima.cas.impl.CommonSerDes.Reading;
 import org.apache.uima.cas.impl.FSsTobeAddedback.FSsTobeAddedbackSingle;
@@ -291,6 +293,9 @@ public class CASImpl extends AbstractCas_ImplBase implements CAS, CASMgr, LowLev
     // often, the framework disables this before calling users code
     private boolean flushEnabled = true;
 
+    // If the indexes are read-only; set by freeze(), cleared by reset
+    private boolean isFrozen = false;
+
     // controls whether Java cover objects for CAS objects,
     // including JCas objects,
     // are cached and reused.
@@ -955,7 +960,9 @@ public StringArrayFS createStringArrayFS(int length) {
           arrayStart = getArrayStartAddress(fs.getAddress());
           buf = ByteBuffer.allocate(arraySize * 4);
           IntBuffer intbuf = buf.asIntBuffer();
-          intbuf.put(this.getHeap().heap, arrayStart, arraySize);
+          for (int i = arrayStart; i < arrayStart + arraySize; i++) {
+            intbuf.put(this.getHeap().getHeapValue(i));
+          }
           ByteArrayInputStream bis = new ByteArrayInputStream(buf.array());
           return bis;
         } else if (type.getName().equals(CAS.TYPE_NAME_FLOAT_ARRAY)) {
@@ -964,40 +971,44 @@ public StringArrayFS createStringArrayFS(int length) {
           FloatBuffer floatbuf = buf.asFloatBuffer();
           float[] floatArray = new float[arraySize];
           for (int i = arrayStart; i < arrayStart + arraySize; i++) {
-            floatArray[i - arrayStart] = Float.intBitsToFloat(this.getHeap().heap[i]);
+            floatArray[i - arrayStart] = Float.intBitsToFloat(this.getHeap().getHeapValue(i));
           }
           floatbuf.put(floatArray);
           ByteArrayInputStream bis = new ByteArrayInputStream(buf.array());
           return bis;
         } else if (type.getName().equals(CAS.TYPE_NAME_BOOLEAN_ARRAY)
             || type.getName().equals(CAS.TYPE_NAME_BYTE_ARRAY)) {
-          arrayStart = this.getHeap().heap[getArrayStartAddress(fs.getAddress())];
+          arrayStart = this.getHeap().getHeapValue(getArrayStartAddress(fs.getAddress()));
           buf = ByteBuffer.allocate(arraySize);
-          buf.put(this.getByteHeap().heap, arrayStart, arraySize);
+          this.getByteHeap().copyToArray(arrayStart, buf.array(), 0, arraySize);
           ByteArrayInputStream bis = new ByteArrayInputStream(buf.array());
           return bis;
         } else if (type.getName().equals(CAS.TYPE_NAME_SHORT_ARRAY)) {
-          arrayStart = this.getHeap().heap[getArrayStartAddress(fs.getAddress())];
+          arrayStart = this.getHeap().getHeapValue(getArrayStartAddress(fs.getAddress()));
           buf = ByteBuffer.allocate(arraySize * 2);
           ShortBuffer shortbuf = buf.asShortBuffer();
-          shortbuf.put(this.getShortHeap().heap, arrayStart, arraySize);
+          short[] shortArray = new short[arraySize];
+          this.getShortHeap().copyToArray(arrayStart, shortArray, 0, arraySize);
+          shortbuf.put(shortArray);
 
           ByteArrayInputStream bis = new ByteArrayInputStream(buf.array());
           return bis;
         } else if (type.getName().equals(CAS.TYPE_NAME_LONG_ARRAY)) {
-          arrayStart = this.getHeap().heap[getArrayStartAddress(fs.getAddress())];
+          arrayStart = this.getHeap().getHeapValue(getArrayStartAddress(fs.getAddress()));
           buf = ByteBuffer.allocate(arraySize * 8);
           LongBuffer longbuf = buf.asLongBuffer();
-          longbuf.put(this.getLongHeap().heap, arrayStart, arraySize);
+          long[] longArray = new long[arraySize];
+          this.getLongHeap().copyToArray(arrayStart, longArray, 0, arraySize);
+          longbuf.put(longArray);
           ByteArrayInputStream bis = new ByteArrayInputStream(buf.array());
           return bis;
         } else if (type.getName().equals(CAS.TYPE_NAME_DOUBLE_ARRAY)) {
-          arrayStart = this.getHeap().heap[getArrayStartAddress(fs.getAddress())];
+          arrayStart = this.getHeap().getHeapValue(getArrayStartAddress(fs.getAddress()));
           buf = ByteBuffer.allocate(arraySize * 8);
           DoubleBuffer doublebuf = buf.asDoubleBuffer();
           double[] doubleArray = new double[arraySize];
           for (int i = arrayStart; i < arrayStart + arraySize; i++) {
-            doubleArray[i - arrayStart] = Double.longBitsToDouble(this.getLongHeap().heap[i]);
+            doubleArray[i - arrayStart] = Double.longBitsToDouble(this.getLongHeap().getHeapValue(i));
           }
           doublebuf.put(doubleArray);
           ByteArrayInputStream bis = new ByteArrayInputStream(buf.array());
@@ -1144,6 +1155,7 @@ public void reset() {
 
   public void resetNoQuestions() {
     svd.casResets.incrementAndGet();
+    svd.isFrozen = false;
     if (trace) {
       System.out.println("CAS Reset in thread " + Thread.currentThread().getName() +
           " for CasId = " + getCasId() + ", new reset count = " + svd.casResets.get());
@@ -1577,7 +1589,7 @@ public CAS getCAS() {
                                     ? new BinaryCasSerDes6(f6, ts_for_decoding)
                                     : new BinaryCasSerDes6(this, ts_for_decoding);          
          
-          bcsd.deserializeAfterVersion(dis, delta, AllowPreexistingFS.allow);
+          bcsd.deserializeAfterVersion(dis, delta, AllowPreexistingFS.allow, CompressCodec.fromId(h.getCodec()), h.isSharedDictionary());
           return h.typeSystemIndexDefIncluded 
                    ? SerialFormat.COMPRESSED_FILTERED_TSI
                    : h.typeSystemIncluded 
@@ -1602,9 +1614,7 @@ public CAS getCAS() {
       }
             
       // add new heap slots
-      for (int i = startPos; i < fsheapsz+startPos; i++) {
-        this.getHeap().heap[i] = r.readInt();
-      }
+      this.getHeap().readFully(r, startPos, fsheapsz);
       
       // string heap
       int stringheapsz = r.readInt();
@@ -1612,9 +1622,7 @@ public CAS getCAS() {
       final StringHeapDeserializationHelper shdh = new StringHeapDeserializationHelper();
       
       shdh.charHeap = new char[stringheapsz];
-      for (int i = 0; i < stringheapsz; i++) {
-        shdh.charHeap[i] = (char) r.readShort();
-      }
+      r.readChars(shdh.charHeap, 0, stringheapsz);
       shdh.charHeapPos = stringheapsz;
 
       // word alignment
@@ -1671,7 +1679,7 @@ public CAS getCAS() {
           for (int i = 0; i < fsmodssz; i++) {
             final int heapAddrBeingModified = r.readInt();
             maybeAddBackAndRemoveFs(heapAddrBeingModified, bds);       
-            this.getHeap().heap[heapAddrBeingModified] = r.readInt();
+            this.getHeap().setHeapValue(r.readInt(), heapAddrBeingModified);
           }
           bds.tobeAddedback.addback(bds.lastRemovedFsAddr);
           bds.fssAddrArray = null;  // free storage
@@ -1684,9 +1692,7 @@ public CAS getCAS() {
       // indexed FSs
       int fsindexsz = r.readInt();
       int[] fsindexes = new int[fsindexsz];
-      for (int i = 0; i < fsindexsz; i++) {
-        fsindexes[i] = r.readInt();
-      }
+      r.readInts(fsindexes, 0, fsindexsz);
 
       // build the index
       if (delta) {
@@ -1699,9 +1705,8 @@ public CAS getCAS() {
       int heapsz = r.readInt();
 
       if (!delta) {
-        this.getByteHeap().heap = new byte[Math.max(16, heapsz)]; // must be > 0
-        dis.readFully(this.getByteHeap().heap, 0, heapsz);
-        this.getByteHeap().heapPos = heapsz;
+        this.getByteHeap().reinitSizeOnly(heapsz);
+        this.getByteHeap().readFully(dis, 0, heapsz);
       }  else {
         for (int i=0; i < heapsz; i++) {
       	  this.getByteHeap().addByte(dis.readByte());
@@ -1715,11 +1720,8 @@ public CAS getCAS() {
       heapsz = r.readInt();
       
       if (!delta) {
-        this.getShortHeap().heap = new short[Math.max(16, heapsz)]; // must be > 0
-        for (int i = 0; i < heapsz; i++) {
-          this.getShortHeap().heap[i] = r.readShort();
-        }
-        this.getShortHeap().heapPos = heapsz;
+        this.getShortHeap().reinitSizeOnly(heapsz);
+        this.getShortHeap().readFully(r, 0, heapsz);
       } else {
       	for (int i = 0; i < heapsz; i++) {
       	  this.getShortHeap().addShort(r.readShort());
@@ -1734,11 +1736,8 @@ public CAS getCAS() {
       heapsz = r.readInt();
       
       if (!delta) {
-        this.getLongHeap().heap = new long[Math.max(16, heapsz)]; // must be > 0
-        for (int i = 0; i < heapsz; i++) {
-          this.getLongHeap().heap[i] = r.readLong();
-        }
-        this.getLongHeap().heapPos = heapsz;
+        this.getLongHeap().reinitSizeOnly(heapsz);
+        this.getLongHeap().readFully(r, 0, heapsz);
       } else {
       	for (int i = 0; i < heapsz; i++) {
       	  this.getLongHeap().addLong(r.readLong());
@@ -1754,7 +1753,7 @@ public CAS getCAS() {
       	    heapAddrs[i] = r.readInt();
       	  }
       	  for (int i = 0; i < heapsz; i++) {
-      	    this.getByteHeap().heap[heapAddrs[i]] = dis.readByte();
+      	    this.getByteHeap().setHeapValue(dis.readByte(), heapAddrs[i]);
       	  }
       	}
       	// word alignment
@@ -1769,7 +1768,7 @@ public CAS getCAS() {
             heapAddrs[i] = r.readInt();
           }
           for (int i = 0; i < heapsz; i++) {
-            this.getShortHeap().heap[heapAddrs[i]] = r.readShort();
+            this.getShortHeap().setHeapValue(r.readShort(), heapAddrs[i]);
        	  }
       	}
       	
@@ -1786,7 +1785,7 @@ public CAS getCAS() {
             heapAddrs[i] = r.readInt();
           }
           for (int i = 0; i < heapsz; i++) {
-            this.getLongHeap().heap[heapAddrs[i]] = r.readLong();
+            this.getLongHeap().setHeapValue(r.readLong(), heapAddrs[i]);
           }
         }
       } // of delta - modified processing
@@ -1962,20 +1961,25 @@ public CAS getCAS() {
     // viewCount to 1.
     this.svd.viewCount = numViews; // total number of views
     
+    // the index inserts for all views are collected, and done together (perhaps in parallel)
+    final BulkIndexLoad load = new BulkIndexLoad(FSIndexRepositoryImpl.IS_PARALLEL_INDEX_REBUILD);
+    final List<CASImpl> loadedViews = new ArrayList<CASImpl>(numViews);
     for (int viewNbr = 1; viewNbr <= numViews; viewNbr++) {
       CAS view = (viewNbr == 1) ? getInitialView() : getView(viewNbr);
       if (view != null) {
         FSIndexRepositoryImpl loopIndexRep = (FSIndexRepositoryImpl) getSofaIndexRepository(viewNbr);
         loopLen = fsIndex[loopStart];
-        for (int i = loopStart + 1; i < loopStart + 1 + loopLen; i++) {
-          loopIndexRep.addFS(fsIndex[i]);
-        }
+        loopIndexRep.ll_addAll(fsIndex, loopStart + 1, loopStart + 1 + loopLen, load);
         loopStart += loopLen + 1;
-          ((CASImpl) view).updateDocumentAnnotation();
+        loadedViews.add((CASImpl) view);
       } else {
         loopStart += 1;
       }
     }
+    load.run();
+    for (CASImpl view : loadedViews) {
+      view.updateDocumentAnnotation();  // uses the indexes
+    }
   }
   
   /**
@@ -2018,6 +2022,26 @@ public CAS getCAS() {
     
     this.svd.viewCount = numViews; // total number of views
 
+    // add FSs to indexes, for all views, done together (perhaps in parallel)
+    //   before doing any removes
+    final BulkIndexLoad load = new BulkIndexLoad(FSIndexRepositoryImpl.IS_PARALLEL_INDEX_REBUILD);
+    final int viewsStart = loopStart;
+    for (int viewNbr = 1; viewNbr <= numViews; viewNbr++) {
+      CAS view = (viewNbr == 1) ? getInitialView() : getView(viewNbr);
+      if (view != null) {
+        FSIndexRepositoryImpl loopIndexRep = (FSIndexRepositoryImpl) getSofaIndexRepository(viewNbr);
+        loopLen = fsIndex[loopStart];
+        loopIndexRep.ll_addAll(fsIndex, loopStart + 1, loopStart + 1 + loopLen, load);
+        loopStart += loopLen + 1;  // skip adds
+        loopStart += fsIndex[loopStart] + 1;  // skip removes
+        loopStart += fsIndex[loopStart] + 1;  // skip reindexes
+      } else {
+        loopStart += 1;
+      }
+    }
+    load.run();
+    
+    loopStart = viewsStart;
     for (int viewNbr = 1; viewNbr <= numViews; viewNbr++) {
       CAS view = (viewNbr == 1) ? getInitialView() : getView(viewNbr);
       if (view != null) {
@@ -2027,11 +2051,7 @@ public CAS getCAS() {
         FSIndexRepositoryImpl loopIndexRep = (FSIndexRepositoryImpl) getSofaIndexRepository(viewNbr);
         loopLen = fsIndex[loopStart];
         
-        // add FSs to index
-        
-        for (int i = loopStart + 1; i < loopStart + 1 + loopLen; i++) {
-          loopIndexRep.addFS(fsIndex[i]);
-        }
+        // adds done above
         
         // remove FSs from indexes
         
@@ -2169,7 +2189,7 @@ public CAS getCAS() {
   void createStringTableFromArray(String[] stringTable) {
     // why a new heap instead of reseting the old one???
     // this.stringHeap = new StringHeap();
-    this.getStringHeap().reset();
+    this.getStringHeap().reinitSizeOnly(CommonAuxHeap.FIRST_CELL_REF);  // keeps the allocated pages
     for (int i = 1; i < stringTable.length; i++) {
       this.getStringHeap().addString(stringTable[i]);
     }
@@ -2204,7 +2224,7 @@ public CAS getCAS() {
 
   @Override
 public int ll_getArraySize(int arrayFsRef) {
-    return this.getHeap().heap[arrayFsRef + arrayLengthFeatOffset];
+    return this.getHeap().getHeapValue(arrayFsRef + arrayLengthFeatOffset);
   }
 
   /**
@@ -2230,7 +2250,7 @@ public int ll_getArraySize(int arrayFsRef) {
    */
   public int getArrayValue(int addr, int index) {
     checkArrayBounds(addr, index);
-    return this.getHeap().heap[addr + arrayContentOffset + index];
+    return this.getHeap().getHeapValue(addr + arrayContentOffset + index);
   }
 
   /**
@@ -2247,19 +2267,19 @@ public int ll_getArraySize(int arrayFsRef) {
   void setArrayValue(final int addr, final int index, final int value)
       throws ArrayIndexOutOfBoundsException {
     // Get the length of this array.
-    final int arraySize = this.getHeap().heap[addr + arrayLengthFeatOffset];
+    final int arraySize = this.getHeap().getHeapValue(addr + arrayLengthFeatOffset);
     // Check for boundary violation.
     if ((index < 0) || (index >= arraySize)) {
       throw new ArrayIndexOutOfBoundsException();
     }
-    this.getHeap().heap[addr + arrayContentOffset + index] = value;
+    this.getHeap().setHeapValue(value, addr + arrayContentOffset + index);
     if (this.svd.trackingMark != null) {
     	this.logFSUpdate(addr, addr+arrayContentOffset+index, ModifiedHeap.FSHEAP, 1);
     }
   }
 
   void setArrayValueFromString(final int addr, final int index, final String value) {
-    int arrayType = this.getHeap().heap[addr];
+    int arrayType = this.getHeap().getHeapValue(addr);
 
     if (arrayType == TypeSystemImpl.intArrayTypeCode) {
       setArrayValue(addr, index, Integer.parseInt(value));
@@ -2298,7 +2318,7 @@ public int ll_getArraySize(int arrayFsRef) {
    */
   void copyToArray(int addr, int sourceOffset, int[] dest, int destOffset, int length) {
     // Get the length of this array.
-    final int arraySize = this.getHeap().heap[addr + arrayLengthFeatOffset];
+    final int arraySize = this.getHeap().getHeapValue(addr + arrayLengthFeatOffset);
     // Check boundary conditions for source array. We can rely on Java to
     // complain about boundary violations for the destination array.
     if ((sourceOffset < 0) || ((length + sourceOffset) > arraySize)) {
@@ -2306,7 +2326,7 @@ public int ll_getArraySize(int arrayFsRef) {
     }
     // Compute the offset into the heap where the array starts.
     final int offset = addr + arrayContentOffset;
-    System.arraycopy(this.getHeap().heap, offset + sourceOffset, dest, destOffset, length);
+    this.getHeap().copyToArray(offset + sourceOffset, dest, destOffset, length);
   }
 
   /**
@@ -2325,7 +2345,7 @@ public int ll_getArraySize(int arrayFsRef) {
    */
   void copyFromArray(int[] src, int srcOffset, int addr, int destOffset, int length) {
     // Get the length of this array.
-    final int arraySize = this.getHeap().heap[addr + arrayLengthFeatOffset];
+    final int arraySize = this.getHeap().getHeapValue(addr + arrayLengthFeatOffset);
     // Check boundary conditions for destination array. We can rely on Java
     // to
     // complain about boundary violations for the source array.
@@ -2334,7 +2354,7 @@ public int ll_getArraySize(int arrayFsRef) {
     }
     // Compute the offset into the heap where the array starts.
     final int offset = addr + arrayContentOffset;
-    System.arraycopy(src, srcOffset, this.getHeap().heap, offset + destOffset, length);
+    this.getHeap().copyFromArray(src, srcOffset, offset + destOffset, length);
     if (this.svd.trackingMark != null) {
     	this.logFSUpdate(addr, offset + destOffset, ModifiedHeap.FSHEAP, length);
     }
@@ -2383,7 +2403,7 @@ public int ll_getArraySize(int arrayFsRef) {
    * @return The value at the address.
    */
   public int getHeapValue(int addr) {
-    return this.getHeap().heap[addr];
+    return this.getHeap().getHeapValue(addr);
   }
 
   /**
@@ -2444,7 +2464,7 @@ public int ll_getArraySize(int arrayFsRef) {
    *                    appropriate for the type at the address.
    */
   void setFeatureValueNotJournaled(int addr, int feat, int val) {
-    this.getHeap().heap[(addr + this.svd.casMetadata.featureOffset[feat])] = val;
+    this.getHeap().setHeapValue(val, addr + this.svd.casMetadata.featureOffset[feat]);
     if (traceFSs) {
       traceFSfeat(ll_getFSForRef(addr), (FeatureImpl) getTypeSystemImpl().ll_getFeatureForCode(feat), val);
     }
@@ -2469,7 +2489,7 @@ public int ll_getArraySize(int arrayFsRef) {
 //  }
 
   public int getFeatureValue(int addr, int feat) {
-    return this.getHeap().heap[(addr + this.svd.casMetadata.featureOffset[feat])];
+    return this.getHeap().getHeapValue(addr + this.svd.casMetadata.featureOffset[feat]);
   }
 
   public String getStringValue(int addr, int feat) {
@@ -2481,7 +2501,7 @@ public int ll_getArraySize(int arrayFsRef) {
   }
 
   public float getFloatValue(int addr) {
-    return Float.intBitsToFloat(this.getHeap().heap[addr]);
+    return Float.intBitsToFloat(this.getHeap().getHeapValue(addr));
   }
 
   // byte
@@ -2829,6 +2849,42 @@ public int ll_getArraySize(int arrayFsRef) {
     return this.svd.stringHeap;
   }
 
+  /**
+   * Keep all the values of the CAS outside of the Java heap: the main heap (feature structures,
+   * int and float values), the string heap, and the byte, short and long heaps. 
+   * 
+   * This must be called on a new CAS, before anything is stored in it.
+   * @param mappedFileDir the directory for the temporary files mapping the storage, 
+   *                      or null to use direct ByteBuffers
+   * @see org.apache.uima.UIMAFramework#CAS_HEAPS_OFF_HEAP
+   * @see org.apache.uima.UIMAFramework#CAS_HEAPS_MAPPED_FILE_DIRECTORY
+   */
+  public void setHeapsOffHeap(File mappedFileDir) {
+    this.svd.heap.setOffHeap(mappedFileDir);
+    this.svd.stringHeap.setOffHeap(mappedFileDir);
+    this.svd.byteHeap.setOffHeap(mappedFileDir);
+    this.svd.shortHeap.setOffHeap(mappedFileDir);
+    this.svd.longHeap.setOffHeap(mappedFileDir);
+  }
+
+  /**
+   * Store the shared instances of string values from the given table, instead of the CAS's own copies.
+   * The table is normally shared by all the CASes of a CasPool or CasManager.
+   * 
+   * @param table the intern table to use for strings added from now on, or null to stop interning
+   * @see org.apache.uima.UIMAFramework#CAS_STRING_INTERNING
+   */
+  public void setStringInternTable(StringInternTable table) {
+    this.svd.stringHeap.setInternTable(table);
+  }
+
+  /**
+   * @return the string intern table used by this CAS, or null
+   */
+  public StringInternTable getStringInternTable() {
+    return this.svd.stringHeap.getInternTable();
+  }
+
   public int getFeatureOffset(int feat) {
     if ((feat < 1) || (feat >= this.svd.casMetadata.featureOffset.length)) {
       return -1;
@@ -3422,7 +3478,7 @@ public LowLevelIndexRepository ll_getIndexRepository() {
   }
 
   final void checkFsRef(int fsRef) {
-    if ((fsRef <= NULL_FS_REF) || (fsRef >= this.getHeap().heap.length)) {
+    if ((fsRef <= NULL_FS_REF) || (fsRef >= this.getHeap().getHeapSize())) {
       LowLevelException e = new LowLevelException(LowLevelException.INVALID_FS_REF);
       e.addArgument(Integer.toString(fsRef));
       throw e;
@@ -3577,7 +3633,7 @@ public final int ll_createFS(int typeCode, boolean doCheck) {
   @Override
 public int ll_createArray(int typeCode, int arrayLength) {
     final int addr = this.getHeap().add(arrayContentOffset + arrayLength, typeCode);
-    this.getHeap().heap[(addr + arrayLengthFeatOffset)] = arrayLength;
+    this.getHeap().setHeapValue(arrayLength, addr + arrayLengthFeatOffset);
     svd.cache_not_in_index = addr;
     if (traceFSs) {
       traceFSCreate((FeatureStructureImpl) ll_getFSForRef(addr));
@@ -3587,7 +3643,7 @@ public int ll_createArray(int typeCode, int arrayLength) {
 
   public int ll_createAuxArray(int typeCode, int arrayLength) {
     final int addr = this.getHeap().add(arrayContentOffset + 1, typeCode);
-    this.getHeap().heap[(addr + arrayLengthFeatOffset)] = arrayLength;
+    this.getHeap().setHeapValue(arrayLength, addr + arrayLengthFeatOffset);
     svd.cache_not_in_index = addr;
     if (traceFSs) {
       traceFSCreate((FeatureStructureImpl) ll_getFSForRef(addr));
@@ -3598,35 +3654,134 @@ public int ll_createArray(int typeCode, int arrayLength) {
   @Override
 public int ll_createByteArray(int arrayLength) {
     final int addr = ll_createAuxArray(TypeSystemImpl.byteArrayTypeCode, arrayLength);
-    this.getHeap().heap[addr + arrayContentOffset] = this.getByteHeap().reserve(arrayLength);
+    this.getHeap().setHeapValue(this.getByteHeap().reserve(arrayLength), addr + arrayContentOffset);
     return addr;
   }
 
   @Override
 public int ll_createBooleanArray(int arrayLength) {
     final int addr = ll_createAuxArray(TypeSystemImpl.booleanArrayTypeCode, arrayLength);
-    this.getHeap().heap[addr + arrayContentOffset] = this.getByteHeap().reserve(arrayLength);
+    this.getHeap().setHeapValue(this.getByteHeap().reserve(arrayLength), addr + arrayContentOffset);
     return addr;
   }
 
   @Override
 public int ll_createShortArray(int arrayLength) {
     final int addr = ll_createAuxArray(TypeSystemImpl.shortArrayTypeCode, arrayLength);
-    this.getHeap().heap[addr + arrayContentOffset] = this.getShortHeap().reserve(arrayLength);
+    this.getHeap().setHeapValue(this.getShortHeap().reserve(arrayLength), addr + arrayContentOffset);
     return addr;
   }
 
   @Override
 public int ll_createLongArray(int arrayLength) {
     final int addr = ll_createAuxArray(TypeSystemImpl.longArrayTypeCode, arrayLength);
-    this.getHeap().heap[addr + arrayContentOffset] = this.getLongHeap().reserve(arrayLength);
+    this.getHeap().setHeapValue(this.getLongHeap().reserve(arrayLength), addr + arrayContentOffset);
     return addr;
   }
 
   @Override
 public int ll_createDoubleArray(int arrayLength) {
     final int addr = ll_createAuxArray(TypeSystemImpl.doubleArrayTypeCode, arrayLength);
-    this.getHeap().heap[addr + arrayContentOffset] = this.getLongHeap().reserve(arrayLength);
+    this.getHeap().setHeapValue(this.getLongHeap().reserve(arrayLength), addr + arrayContentOffset);
+    return addr;
+  }
+
+  /**
+   * Create a new FS in this CAS as a copy of an FS in another CAS (or another view of this CAS)
+   * having the identical type system. Used by the CasCopier.
+   * 
+   * The heap cells of the source FS are copied in one block. Values kept outside of the main
+   * heap are then copied into this CAS's heaps: the strings of the string slots, the values of
+   * the long and double slots, and the contents of string, boolean, byte, short, long and double arrays.
+   * 
+   * Reference valued slots and the elements of FS arrays still hold the addresses of the
+   * source CAS; the caller must relocate them.
+   * 
+   * @param srcCas the CAS holding the source FS; must have the same type system as this CAS
+   * @param srcAddr the source FS
+   * @param stringOffsets the offsets of the string valued slots of the type of the source FS, ignored for arrays
+   * @param longOffsets the offsets of the long and double valued slots of the type of the source FS, ignored for arrays
+   * @return the address of the new FS in this CAS
+   */
+  public int ll_copyFsFrom(CASImpl srcCas, int srcAddr, int[] stringOffsets, int[] longOffsets) {
+    final int typeCode = srcCas.getHeap().getHeapValue(srcAddr);
+    final StringHeap srcStrings = srcCas.getStringHeap();
+    switch (ll_getTypeClass(typeCode)) {
+    case TYPE_CLASS_BOOLEANARRAY:
+    case TYPE_CLASS_BYTEARRAY: {
+      final int length = srcCas.ll_getArraySize(srcAddr);
+      final int addr = (typeCode == TypeSystemImpl.byteArrayTypeCode) 
+          ? ll_createByteArray(length) 
+          : ll_createBooleanArray(length);
+      final byte[] values = new byte[length];
+      srcCas.getByteHeap().copyToArray(srcCas.getHeap().getHeapValue(srcAddr + arrayContentOffset), values, 0, length);
+      this.getByteHeap().copyFromArray(values, 0, this.getHeap().getHeapValue(addr + arrayContentOffset), length);
+      return addr;
+    }
+    case TYPE_CLASS_SHORTARRAY: {
+      final int length = srcCas.ll_getArraySize(srcAddr);
+      final int addr = ll_createShortArray(length);
+      final short[] values = new short[length];
+      srcCas.getShortHeap().copyToArray(srcCas.getHeap().getHeapValue(srcAddr + arrayContentOffset), values, 0, length);
+      this.getShortHeap().copyFromArray(values, 0, this.getHeap().getHeapValue(addr + arrayContentOffset), length);
+      return addr;
+    }
+    case TYPE_CLASS_LONGARRAY:
+    case TYPE_CLASS_DOUBLEARRAY: {
+      final int length = srcCas.ll_getArraySize(srcAddr);
+      final int addr = (typeCode == TypeSystemImpl.longArrayTypeCode) 
+          ? ll_createLongArray(length) 
+          : ll_createDoubleArray(length);
+      final long[] values = new long[length];
+      srcCas.getLongHeap().copyToArray(srcCas.getHeap().getHeapValue(srcAddr + arrayContentOffset), values, 0, length);
+      this.getLongHeap().copyFromArray(values, 0, this.getHeap().getHeapValue(addr + arrayContentOffset), length);
+      return addr;
+    }
+    case TYPE_CLASS_INTARRAY:
+    case TYPE_CLASS_FLOATARRAY:
+    case TYPE_CLASS_FSARRAY: 
+    case TYPE_CLASS_STRINGARRAY: {
+      final int length = srcCas.ll_getArraySize(srcAddr);
+      final int addr = copyHeapCells(srcCas, srcAddr, arrayContentOffset + length);
+      if (typeCode == TypeSystemImpl.stringArrayTypeCode) {
+        final Heap heap = this.getHeap();
+        for (int i = addr + arrayContentOffset, end = i + length; i < end; i++) {
+          if (heap.getHeapValue(i) != 0) {
+            heap.setHeapValue(this.getStringHeap().addString(srcStrings.getStringForCode(heap.getHeapValue(i))), i);
+          }
+        }
+      }
+      return addr;
+    }
+    default: {
+      final int addr = copyHeapCells(srcCas, srcAddr, this.svd.casMetadata.fsSpaceReq[typeCode]);
+      final Heap heap = this.getHeap();
+      for (int offset : stringOffsets) {
+        if (heap.getHeapValue(addr + offset) != 0) {
+          heap.setHeapValue(this.getStringHeap().addString(srcStrings.getStringForCode(heap.getHeapValue(addr + offset))), addr + offset);
+        }
+      }
+      for (int offset : longOffsets) {
+        if (heap.getHeapValue(addr + offset) != 0) {
+          heap.setHeapValue(this.getLongHeap().addLong(srcCas.getLongHeap().getHeapValue(heap.getHeapValue(addr + offset))), addr + offset);
+        }
+      }
+      return addr;
+    }
+    }
+  }
+
+  private int copyHeapCells(CASImpl srcCas, int srcAddr, int length) {
+    final Heap srcHeap = srcCas.getHeap();
+    final Heap heap = this.getHeap();
+    final int addr = heap.add(length, srcHeap.getHeapValue(srcAddr));
+    for (int i = 1; i < length; i++) {
+      heap.setHeapValue(srcHeap.getHeapValue(srcAddr + i), addr + i);
+    }
+    svd.cache_not_in_index = addr;
+    if (traceFSs) {
+      traceFSCreate((FeatureStructureImpl) ll_getFSForRef(addr));
+    }
     return addr;
   }
 
@@ -3701,7 +3856,7 @@ public final int ll_getFSRef(FeatureStructure fsImpl) {
         // Do nothing. Code below will expand array as needed.
       }
       if (fs == null) {
-        fs = (T) this.svd.localFsGenerators[getHeap().heap[fsRef]].createFS(fsRef, this);
+        fs = (T) this.svd.localFsGenerators[getHeap().getHeapValue(fsRef)].createFS(fsRef, this);
         // fs =
         // this.svd.casMetadata.fsClassRegistry.createFSusingGenerator(fsRef,
         // this);
@@ -3719,18 +3874,18 @@ public final int ll_getFSRef(FeatureStructure fsImpl) {
       return fs;
     }
 
-    return (T) this.svd.localFsGenerators[getHeap().heap[fsRef]].createFS(fsRef, this);
+    return (T) this.svd.localFsGenerators[getHeap().getHeapValue(fsRef)].createFS(fsRef, this);
     // return this.svd.casMetadata.fsClassRegistry.createFSusingGenerator(fsRef,
     // this);
   }
 
   @Override
 public final int ll_getIntValue(int fsRef, int featureCode) {
-    return this.getHeap().heap[(fsRef + this.svd.casMetadata.featureOffset[featureCode])];
+    return this.getHeap().getHeapValue(fsRef + this.svd.casMetadata.featureOffset[featureCode]);
   }
 
   public final int ll_getIntValueFeatOffset(int fsRef, int featureOffset) {
-    return this.getHeap().heap[fsRef + featureOffset];
+    return this.getHeap().getHeapValue(fsRef + featureOffset);
   }
 
   @Override
@@ -3805,6 +3960,11 @@ public final int ll_getRefValue(int fsRef, int featureCode, boolean doTypeChecks
     return ll_getIntValue(fsRef, featureCode);
   }
   
+  @Override
+  public FSCursor ll_createCursor(int typeCode, int[] featureCodes) {
+    return new FSCursor(this, typeCode, featureCodes);
+  }
+  
   public int ll_getAnnotBegin(int fsRef) {
     return ll_getIntValueFeatOffset(fsRef, svd.annotFeatOffset_begin);
   }
@@ -4149,25 +4309,25 @@ public final void ll_setRefValue(int fsRef, int featureCode, int value, boolean
   @Override
 public final int ll_getIntArrayValue(int fsRef, int position) {
     final int pos = getArrayStartAddress(fsRef) + position;
-    return this.getHeap().heap[pos];
+    return this.getHeap().getHeapValue(pos);
   }
 
   @Override
 public final float ll_getFloatArrayValue(int fsRef, int position) {
     final int pos = getArrayStartAddress(fsRef) + position;
-    return int2float(this.getHeap().heap[pos]);
+    return int2float(this.getHeap().getHeapValue(pos));
   }
 
   @Override
 public final String ll_getStringArrayValue(int fsRef, int position) {
     final int pos = getArrayStartAddress(fsRef) + position;
-    return getStringForCode(this.getHeap().heap[pos]);
+    return getStringForCode(this.getHeap().getHeapValue(pos));
   }
 
   @Override
 public final int ll_getRefArrayValue(int fsRef, int position) {
     final int pos = getArrayStartAddress(fsRef) + position;
-    return this.getHeap().heap[pos];
+    return this.getHeap().getHeapValue(pos);
   }
 
   // private final void checkTypeSubsumptionAt(int fsRef, int typeCode) {
@@ -4209,14 +4369,14 @@ public final int ll_getRefArrayValue(int fsRef, int position) {
   private final void checkNonArrayConditions(int fsRef, int typeCode, int featureCode) {
     checkFsRef(fsRef);
     // It is now safe to do this.
-    final int domTypeCode = this.getHeap().heap[fsRef];
+    final int domTypeCode = this.getHeap().getHeapValue(fsRef);
     checkLowLevelParams(fsRef, domTypeCode, typeCode, featureCode);
     checkFsRef(fsRef + this.svd.casMetadata.featureOffset[featureCode]);
   }
 
   private final void checkFsRefConditions(int fsRef, int featureCode) {
     checkFsRef(fsRef);
-    final int domTypeCode = this.getHeap().heap[fsRef];
+    final int domTypeCode = this.getHeap().getHeapValue(fsRef);
     checkLowLevelParams(fsRef, domTypeCode, featureCode);
     checkFsRan(featureCode);
     checkFsRef(fsRef + this.svd.casMetadata.featureOffset[featureCode]);
@@ -4308,7 +4468,7 @@ public void ll_setRefArrayValue(int fsRef, int position, int value, boolean doTy
   @Override
 public void ll_setIntArrayValue(int fsRef, int position, int value) {
     final int pos = getArrayStartAddress(fsRef) + position;
-    this.getHeap().heap[pos] = value;
+    this.getHeap().setHeapValue(value, pos);
     if (this.svd.trackingMark != null) {
     	this.logFSUpdate(fsRef, pos, ModifiedHeap.FSHEAP, 1);
     }
@@ -4317,7 +4477,7 @@ public void ll_setIntArrayValue(int fsRef, int position, int value) {
   @Override
 public void ll_setFloatArrayValue(int fsRef, int position, float value) {
     final int pos = getArrayStartAddress(fsRef) + position;
-    this.getHeap().heap[pos] = float2int(value);
+    this.getHeap().setHeapValue(float2int(value), pos);
     if (this.svd.trackingMark != null) {
     	this.logFSUpdate(fsRef, pos,ModifiedHeap.FSHEAP, 1);
     }
@@ -4327,7 +4487,7 @@ public void ll_setFloatArrayValue(int fsRef, int position, float value) {
 public void ll_setStringArrayValue(int fsRef, int position, String value) {
     final int pos = getArrayStartAddress(fsRef) + position;
     final int stringCode = (value == null) ? NULL : addString(value);
-    this.getHeap().heap[pos] = stringCode;
+    this.getHeap().setHeapValue(stringCode, pos);
     if (this.svd.trackingMark != null) {
     	this.logFSUpdate(fsRef, pos, ModifiedHeap.FSHEAP, 1);
     }
@@ -4336,7 +4496,7 @@ public void ll_setStringArrayValue(int fsRef, int position, String value) {
   @Override
 public void ll_setRefArrayValue(int fsRef, int position, int value) {
     final int pos = getArrayStartAddress(fsRef) + position;
-    this.getHeap().heap[pos] = value;
+    this.getHeap().setHeapValue(value, pos);
     if (this.svd.trackingMark != null) {
     	this.logFSUpdate(fsRef, pos, ModifiedHeap.FSHEAP, 1);
     }
@@ -4344,7 +4504,7 @@ public void ll_setRefArrayValue(int fsRef, int position, int value) {
 
   @Override
 public int ll_getFSRefType(int fsRef) {
-    return this.getHeap().heap[fsRef];
+    return this.getHeap().getHeapValue(fsRef);
   }
 
   @Override
@@ -4363,7 +4523,7 @@ public LowLevelCAS getLowLevelCAS() {
 
   @Override
 public int size() {
-    return this.getHeap().heap.length * 6;
+    return this.getHeap().getHeapSize() * 6;
   }
 
   /*
@@ -4558,13 +4718,13 @@ public short ll_getShortValue(int fsRef, int featureCode, boolean doTypeChecks)
 
   @Override
 public long ll_getLongValue(int fsRef, int featureCode) {
-    final int offset = this.getHeap().heap[fsRef + this.svd.casMetadata.featureOffset[featureCode]];
+    final int offset = this.getHeap().getHeapValue(fsRef + this.svd.casMetadata.featureOffset[featureCode]);
     long val = this.getLongHeap().getHeapValue(offset);
     return (val);
   }
 
   public long ll_getLongValueFeatOffset(int fsRef, int featureOffset) {
-    final int offset = this.getHeap().heap[fsRef + featureOffset];
+    final int offset = this.getHeap().getHeapValue(fsRef + featureOffset);
     long val = this.getLongHeap().getHeapValue(offset);
     return (val);
   }
@@ -4579,13 +4739,13 @@ public long ll_getLongValue(int fsRef, int featureCode, boolean doTypeChecks) {
 
   @Override
 public double ll_getDoubleValue(int fsRef, int featureCode) {
-    final int offset = this.getHeap().heap[fsRef + this.svd.casMetadata.featureOffset[featureCode]];
+    final int offset = this.getHeap().getHeapValue(fsRef + this.svd.casMetadata.featureOffset[featureCode]);
     long val = this.getLongHeap().getHeapValue(offset);
     return Double.longBitsToDouble(val);
   }
   
   public double ll_getDoubleValueFeatOffset(int fsRef, int featureOffset) {
-    final int offset = this.getHeap().heap[fsRef + featureOffset];
+    final int offset = this.getHeap().getHeapValue(fsRef + featureOffset);
     long val = this.getLongHeap().getHeapValue(offset);
     return Double.longBitsToDouble(val);
   }
@@ -4669,7 +4829,7 @@ public void ll_setDoubleValue(int fsRef, int featureCode, double value, boolean
 
   @Override
 public byte ll_getByteArrayValue(int fsRef, int position) {
-    final int pos = this.getHeap().heap[getArrayStartAddress(fsRef)];
+    final int pos = this.getHeap().getHeapValue(getArrayStartAddress(fsRef));
     return this.getByteHeap().getHeapValue(pos + position);
   }
 
@@ -4683,7 +4843,7 @@ public byte ll_getByteArrayValue(int fsRef, int position, boolean doTypeChecks)
 
   @Override
 public boolean ll_getBooleanArrayValue(int fsRef, int position) {
-    final int pos = this.getHeap().heap[getArrayStartAddress(fsRef)];
+    final int pos = this.getHeap().getHeapValue(getArrayStartAddress(fsRef));
     return CASImpl.TRUE == this.getByteHeap().getHeapValue(pos + position);
   }
 
@@ -4697,7 +4857,7 @@ public boolean ll_getBooleanArrayValue(int fsRef, int position, boolean doTypeCh
 
   @Override
 public short ll_getShortArrayValue(int fsRef, int position) {
-    final int pos = this.getHeap().heap[getArrayStartAddress(fsRef)];
+    final int pos = this.getHeap().getHeapValue(getArrayStartAddress(fsRef));
     return this.getShortHeap().getHeapValue(pos + position);
   }
 
@@ -4711,7 +4871,7 @@ public short ll_getShortArrayValue(int fsRef, int position, boolean doTypeChecks
 
   @Override
 public long ll_getLongArrayValue(int fsRef, int position) {
-    final int pos = this.getHeap().heap[getArrayStartAddress(fsRef)];
+    final int pos = this.getHeap().getHeapValue(getArrayStartAddress(fsRef));
     return this.getLongHeap().getHeapValue(pos + position);
   }
 
@@ -4725,7 +4885,7 @@ public long ll_getLongArrayValue(int fsRef, int position, boolean doTypeChecks)
 
   @Override
 public double ll_getDoubleArrayValue(int fsRef, int position) {
-    final int pos = this.getHeap().heap[getArrayStartAddress(fsRef)];
+    final int pos = this.getHeap().getHeapValue(getArrayStartAddress(fsRef));
     long val = this.getLongHeap().getHeapValue(pos + position);
     return Double.longBitsToDouble(val);
   }
@@ -4740,7 +4900,7 @@ public double ll_getDoubleArrayValue(int fsRef, int position, boolean doTypeChec
 
   @Override
 public void ll_setByteArrayValue(int fsRef, int position, byte value) {
-    final int offset = this.getHeap().heap[getArrayStartAddress(fsRef)];
+    final int offset = this.getHeap().getHeapValue(getArrayStartAddress(fsRef));
     this.getByteHeap().setHeapValue(value, offset + position);
     if (this.svd.trackingMark != null) {
     	this.logFSUpdate(fsRef, offset+position, ModifiedHeap.BYTEHEAP, 1);
@@ -4759,7 +4919,7 @@ public void ll_setByteArrayValue(int fsRef, int position, byte value, boolean do
   @Override
 public void ll_setBooleanArrayValue(int fsRef, int position, boolean b) {
     byte value = (byte) (b ? CASImpl.TRUE : CASImpl.FALSE);
-    final int offset = this.getHeap().heap[getArrayStartAddress(fsRef)];
+    final int offset = this.getHeap().getHeapValue(getArrayStartAddress(fsRef));
     this.getByteHeap().setHeapValue(value, offset + position);
     if (this.svd.trackingMark != null) {
       this.logFSUpdate(fsRef, offset+position, ModifiedHeap.BYTEHEAP, 1);
@@ -4776,7 +4936,7 @@ public void ll_setBooleanArrayValue(int fsRef, int position, boolean value, bool
 
   @Override
 public void ll_setShortArrayValue(int fsRef, int position, short value) {
-    final int offset = this.getHeap().heap[getArrayStartAddress(fsRef)];
+    final int offset = this.getHeap().getHeapValue(getArrayStartAddress(fsRef));
     this.getShortHeap().setHeapValue(value, offset + position);
     if (this.svd.trackingMark != null) {
       this.logFSUpdate(fsRef, offset+position, ModifiedHeap.SHORTHEAP, 1);
@@ -4793,7 +4953,7 @@ public void ll_setShortArrayValue(int fsRef, int position, short value, boolean
 
   @Override
 public void ll_setLongArrayValue(int fsRef, int position, long value) {
-    final int offset = this.getHeap().heap[getArrayStartAddress(fsRef)];
+    final int offset = this.getHeap().getHeapValue(getArrayStartAddress(fsRef));
     this.getLongHeap().setHeapValue(value, offset + position);
     if (this.svd.trackingMark != null) {
       this.logFSUpdate(fsRef, offset+position, ModifiedHeap.LONGHEAP, 1);
@@ -4810,7 +4970,7 @@ public void ll_setLongArrayValue(int fsRef, int position, long value, boolean do
 
   @Override
 public void ll_setDoubleArrayValue(int fsRef, int position, double d) {
-    final int offset = this.getHeap().heap[getArrayStartAddress(fsRef)];
+    final int offset = this.getHeap().getHeapValue(getArrayStartAddress(fsRef));
     long value = Double.doubleToLongBits(d);
     this.getLongHeap().setHeapValue(value, offset + position);
     if (this.svd.trackingMark != null) {
@@ -5416,6 +5576,47 @@ public Iterator<CAS> getViewIterator(String localViewNamePrefix) {
       addbackModifiedFSs((FSsTobeAddedback) addbacks);
     }
   }
+
+  /**
+   * Creates all the views, the JCas for each if the JCas is in use, and 
+   * all the lazily set up index information, so that nothing is created 
+   * by readers of the frozen CAS.
+   * @see org.apache.uima.cas.CAS#freeze()
+   */
+  @Override
+  public void freeze() {
+    if (svd.isFrozen) {
+      return;
+    }
+    final CASImpl baseCas = svd.baseCAS;
+    baseCas.indexRepository.setupAllIteratorCaches();
+    final int numViews = baseCas.getBaseSofaCount();
+    final List<CASImpl> views = new ArrayList<CASImpl>(numViews);
+    boolean isJCasUsed = null != baseCas.jcas;
+    for (int view = 1; view <= numViews; view++) {
+      final CASImpl tcas = (CASImpl) ((view == 1) ? baseCas.getInitialView() : baseCas.getView(view));
+      if (tcas != null) {
+        tcas.indexRepository.setupAllIteratorCaches();
+        isJCasUsed |= null != tcas.jcas;
+        views.add(tcas);
+      }
+    }
+    if (isJCasUsed) {
+      try {
+        for (CASImpl tcas : views) {
+          tcas.getJCas();
+        }
+      } catch (CASException e) {
+        throw new UIMARuntimeException(e);
+      }
+    }
+    svd.isFrozen = true;
+  }
+
+  @Override
+  public boolean isFrozen() {
+    return svd.isFrozen;
+  }
   
 
   /**
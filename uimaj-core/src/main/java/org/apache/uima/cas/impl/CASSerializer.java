@@ -127,7 +127,7 @@ public class CASSerializer implements Serializable {
     this.fsIndex = cas.getIndexedFSs();
     final int heapSize = cas.getHeap().getCellsUsed();
     this.heapArray = new int[heapSize];
-    System.arraycopy(cas.getHeap().heap, 0, this.heapArray, 0, heapSize);
+    cas.getHeap().copyToArray(0, this.heapArray, 0, heapSize);
     if (addMetaData) {
       // some details about current main-heap specifications
       // not required to deserialize
@@ -140,15 +140,15 @@ public class CASSerializer implements Serializable {
 
     final int byteHeapSize = cas.getByteHeap().getSize();
     this.byteHeapArray = new byte[byteHeapSize];
-    System.arraycopy(cas.getByteHeap().heap, 0, this.byteHeapArray, 0, byteHeapSize);
+    cas.getByteHeap().copyToArray(0, this.byteHeapArray, 0, byteHeapSize);
 
     final int shortHeapSize = cas.getShortHeap().getSize();
     this.shortHeapArray = new short[shortHeapSize];
-    System.arraycopy(cas.getShortHeap().heap, 0, this.shortHeapArray, 0, shortHeapSize);
+    cas.getShortHeap().copyToArray(0, this.shortHeapArray, 0, shortHeapSize);
 
     final int longHeapSize = cas.getLongHeap().getSize();
     this.longHeapArray = new long[longHeapSize];
-    System.arraycopy(cas.getLongHeap().heap, 0, this.longHeapArray, 0, longHeapSize);
+    cas.getLongHeap().copyToArray(0, this.longHeapArray, 0, longHeapSize);
   }
     
   private void outputStringHeap(DataOutputStream dos, CASImpl cas, StringHeapDeserializationHelper shdh) throws IOException {
@@ -260,7 +260,7 @@ public class CASSerializer implements Serializable {
       final int heapSize = cas.getHeap().getCellsUsed();
       dos.writeInt(heapSize);
       for (int i = 0; i < heapSize; i++) {
-        dos.writeInt(cas.getHeap().heap[i]);
+        dos.writeInt(cas.getHeap().getHeapValue(i));
       }
 
       // output the strings
@@ -327,9 +327,7 @@ public class CASSerializer implements Serializable {
       // 8bit heap
       int byteheapsz = cas.getByteHeap().getSize();
       dos.writeInt(byteheapsz);
-      for (int i = 0; i < cas.getByteHeap().getSize(); i++) {
-        dos.writeByte(cas.getByteHeap().heap[i]);
-      }
+      cas.getByteHeap().write(dos, 0, byteheapsz);
 
       // word alignment
       int align = (4 - (byteheapsz % 4)) % 4;
@@ -341,7 +339,7 @@ public class CASSerializer implements Serializable {
       int shortheapsz = cas.getShortHeap().getSize();
       dos.writeInt(shortheapsz);
       for (int i = 0; i < cas.getShortHeap().getSize(); i++) {
-        dos.writeShort(cas.getShortHeap().heap[i]);
+        dos.writeShort(cas.getShortHeap().getHeapValue(i));
       }
 
       // word alignment
@@ -353,7 +351,7 @@ public class CASSerializer implements Serializable {
       int longheapsz = cas.getLongHeap().getSize();
       dos.writeInt(longheapsz);
       for (int i = 0; i < cas.getLongHeap().getSize(); i++) {
-        dos.writeLong(cas.getLongHeap().heap[i]);
+        dos.writeLong(cas.getLongHeap().getHeapValue(i));
       }
     } catch (IOException e) {
       CASRuntimeException exception = new CASRuntimeException(
@@ -428,7 +426,7 @@ public class CASSerializer implements Serializable {
       
       dos.writeInt(heapSize);
       for (int i = mark.nextFSId; i < cas.getHeap().getCellsUsed(); i++) {
-        dos.writeInt(cas.getHeap().heap[i]);
+        dos.writeInt(cas.getHeap().getHeapValue(i));
       }
 
       // output the new strings
@@ -503,9 +501,7 @@ public class CASSerializer implements Serializable {
       // 8bit heap new
       int byteheapsz = cas.getByteHeap().getSize() - mark.nextByteHeapAddr;
       dos.writeInt(byteheapsz);
-      for (int i = mark.nextByteHeapAddr; i < cas.getByteHeap().getSize(); i++) {
-        dos.writeByte(cas.getByteHeap().heap[i]);
-      }
+      cas.getByteHeap().write(dos, mark.nextByteHeapAddr, byteheapsz);
 
       // word alignment
       int align = (4 - (byteheapsz % 4)) % 4;
@@ -517,7 +513,7 @@ public class CASSerializer implements Serializable {
       int shortheapsz = cas.getShortHeap().getSize() - mark.nextShortHeapAddr;
       dos.writeInt(shortheapsz);
       for (int i = mark.nextShortHeapAddr; i < cas.getShortHeap().getSize(); i++) {
-        dos.writeShort(cas.getShortHeap().heap[i]);
+        dos.writeShort(cas.getShortHeap().getHeapValue(i));
       }
 
       // word alignment
@@ -529,7 +525,7 @@ public class CASSerializer implements Serializable {
       int longheapsz = cas.getLongHeap().getSize() - mark.nextLongHeapAddr;
       dos.writeInt(longheapsz);
       for (int i = mark.nextLongHeapAddr; i < cas.getLongHeap().getSize(); i++) {
-        dos.writeLong(cas.getLongHeap().heap[i]);
+        dos.writeLong(cas.getLongHeap().getHeapValue(i));
       }
       
       // 8 bit heap modified cells
@@ -20,7 +20,16 @@
 package org.apache.uima.cas.impl;
 
 /**
- * Encapsulate 8, 16, and 64 bit storage for the CAS.
+ * Encapsulate 8, 16, 64 bit and String storage for the CAS.
+ * 
+ * The storage is segmented into pages of PAGE_SIZE cells; a cell is found at
+ *   page = cell &gt;&gt;&gt; PAGE_SHIFT, index within the page = cell &amp; PAGE_MASK.
+ * Only the last page may be smaller: it grows like an ordinary array (doubling), up to PAGE_SIZE;
+ * beyond that, growing adds pages, so at most one page of existing values is ever copied.  
+ * The initial capacity (the base size) is allocated exactly, as whole pages plus a smaller last page.
+ * 
+ * The pages are Java arrays, managed by the subclasses for their array type.  The numeric
+ * heaps can store them differently, see {@link NumericAuxHeap}.
  */
 abstract class CommonAuxHeap {
   
@@ -32,10 +41,6 @@ abstract class CommonAuxHeap {
   // cannot be 0 because it grows by multiplying growth_factor
   protected static final int DEFAULT_HEAP_BASE_SIZE = 16;
 
-  // Jira: https://issues.apache.org/jira/browse/UIMA-2385, 
-  // https://issues.apache.org/jira/browse/UIMA-4279
-  protected static final int DEFAULT_HEAP_MULT_LIMIT = 1024 * 1024 * 16; 
-
   protected static final int MIN_HEAP_BASE_SIZE = 16;
 
   protected static final int GROWTH_FACTOR = 2;
@@ -45,32 +50,149 @@ abstract class CommonAuxHeap {
   // start pos
   protected static final int FIRST_CELL_REF = 1;
 
-  protected final int heapBaseSize;
+  protected static final int PAGE_SHIFT = 16;
 
-  protected final int heapMultLimit;
+  protected static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+  protected static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  // initial number of slots for pages; the slots array is grown as needed
+  protected static final int INITIAL_PAGE_SLOTS = 4;
+
+  // the initial capacity; the heap is never shrunk below this.  May be more than one page
+  protected final int heapBaseSize;
 
   protected int heapPos = FIRST_CELL_REF;
   
   private final int[] shrinkableCount = new int[1];
 
+  // the number of allocated pages.  Only the last page may be smaller than PAGE_SIZE
+  protected int nbrPages = 0;
+
+  // the most pages used by any reset since the last release of trailing pages 
+  private int maxPagesUsed = 0;
+
   CommonAuxHeap() {
-    this(DEFAULT_HEAP_BASE_SIZE, DEFAULT_HEAP_MULT_LIMIT);
+    this(DEFAULT_HEAP_BASE_SIZE);
   }
 
-  CommonAuxHeap(int heapBaseSize, int heapMultLimit) {
+  CommonAuxHeap(int heapBaseSize) {
     super();
     this.heapBaseSize = Math.max(heapBaseSize, MIN_HEAP_BASE_SIZE);
-    this.heapMultLimit = Math.max(heapMultLimit, DEFAULT_HEAP_MULT_LIMIT);
     initMemory();
   }
 
-  abstract void initMemory();
-  
-  abstract void initMemory(int size);
+  /*
+   * Operations on the Java array pages, implemented by the subclasses for their array type
+   */
+
+  /**
+   * Drop all pages, and make a new array of page slots, or none if off heap
+   * @param nbrSlots the number of slots
+   */
+  abstract void newPageSlots(int nbrSlots);
+
+  /**
+   * @param nbrSlots the number of page slots needed; if there are fewer, grow the slots array
+   */
+  abstract void ensurePageSlots(int nbrSlots);
+
+  /**
+   * @param pageIndex the page slot to fill in with a new, zeroed page
+   * @param size the number of cells in the page
+   */
+  abstract void newPage(int pageIndex, int size);
+
+  /**
+   * Grow the last page, keeping its values
+   * @param newSize the new number of cells
+   */
+  abstract void growLastPage(int newSize);
+
+  /**
+   * @param from the first page to drop
+   * @param to one past the last page to drop
+   */
+  abstract void dropPages(int from, int to);
 
-  abstract void resetToZeros();
+  /**
+   * @return the number of cells in the last page
+   */
+  abstract int lastPageCapacity();
 
-  abstract void growHeapIfNeeded();
+  /**
+   * @param pageIndex the page
+   * @param length the number of cells, from the start of the page, to set to 0
+   */
+  abstract void zeroPage(int pageIndex, int length);
+
+  /*
+   * The storage operations used by the paging logic; by default, on the Java array pages
+   */
+
+  /**
+   * @return true if the last page grows like an array; false if all pages are PAGE_SIZE
+   */
+  boolean hasGrowableLastPage() {
+    return true;
+  }
+
+  /**
+   * Drop all pages, and allocate the pages for capacity cells; the last one may be smaller than PAGE_SIZE
+   * @param capacity the number of cells
+   */
+  void allocatePages(int capacity) {
+    final int n = pagesFor(capacity);
+    newPageSlots(Math.max(INITIAL_PAGE_SLOTS, n));
+    for (int i = 0; i < n; i++) {
+      newPage(i, Math.min(PAGE_SIZE, capacity - (i << PAGE_SHIFT)));
+    }
+    nbrPages = n;
+  }
+
+  /**
+   * Add full size pages, up to pagesNeeded
+   * @param pagesNeeded the number of pages needed
+   */
+  void addPages(int pagesNeeded) {
+    ensurePageSlots(pagesNeeded);
+    while (nbrPages < pagesNeeded) {
+      newPage(nbrPages++, PAGE_SIZE);
+    }
+  }
+
+  /**
+   * @param from the first page to free
+   * @param to one past the last page to free
+   */
+  void freePages(int from, int to) {
+    dropPages(from, to);
+  }
+
+  /**
+   * @param pageIndex the page
+   * @param length the number of cells, from the start of the page, to set to 0
+   */
+  void zeroCells(int pageIndex, int length) {
+    zeroPage(pageIndex, length);
+  }
+
+  /**
+   * Allocate from scratch, with the base size capacity (no pages, if off heap)
+   */
+  final void initMemory() {
+    initMemory(this.heapBaseSize);
+  }
+  
+  /**
+   * Allocate from scratch
+   * @param capacity the number of cells to allocate
+   */
+  final void initMemory(int capacity) {
+    allocatePages(capacity);
+    shrinkableCount[0] = 0;
+    maxPagesUsed = 0;
+  }
 
   void reset() {
     this.reset(false);
@@ -79,15 +201,20 @@ abstract class CommonAuxHeap {
   /**
    * Logic for shrinking:
    * 
+   *   While there's just the first page, shrink it like an ordinary array:
+   *   
    *   Based on a short history of the capacity needed to hold the larger of the previous 2 sizes
    *     (Note: can be overridden by calling reset() multiple times in a row)
    *   Never shrink below initialSize
    *   
-   *   Shrink in exact reverse sequence of growth - using the subtraction method 
-   *   and then (for small enough sizes) the dividing method
+   *   Shrink in exact reverse sequence of growth - using the dividing method 
    *   
    *   Shrink by one jump if that is large enough to hold the larger of the prev 2 sizes
-
+   *   
+   *   With more pages (or only full size pages), trailing pages are released using the same delay: 
+   *   only after more than 20 consecutive resets found trailing pages unused, 
+   *   all the pages beyond the most used by any of those resets are released.
+   *
    * @param doFullReset true means reallocate from scratch
    */
   void reset(boolean doFullReset) {
@@ -95,22 +222,103 @@ abstract class CommonAuxHeap {
       if (debugLogShrink) System.out.format("Debug shrink CommonAux full reset from %,d to %,d for %s%n",
           getCapacity(), heapBaseSize, this.getClass().getSimpleName());
       this.initMemory();
+    } else if (nbrPages > 1 || !hasGrowableLastPage()) {
+      resetToZeros();
+      // on heap, the pages holding the base size capacity are never released
+      final int pagesUsed = Math.max(pagesFor(this.heapPos), hasGrowableLastPage() ? pagesFor(heapBaseSize) : 0);
+      if (pagesUsed < nbrPages) {
+        maxPagesUsed = Math.max(maxPagesUsed, pagesUsed);
+        if (++shrinkableCount[0] > 20) {
+          if (debugLogShrink) System.out.format("Debug shrink CommonAux from %,d to %,d pages for %s%n",
+              nbrPages, maxPagesUsed, this.getClass().getSimpleName());
+          releasePages(maxPagesUsed);
+        }
+      } else {
+        shrinkableCount[0] = 0;
+        maxPagesUsed = 0;
+      }
     } else {
       final int curCapacity = getCapacity();
       final int curSize = getSize();
       int newSize = computeShrunkArraySize(
-          curCapacity, curSize, GROWTH_FACTOR, heapMultLimit, heapBaseSize, shrinkableCount);
-      if (newSize == getCapacity()) { // means didn't shrink
+          curCapacity, curSize, GROWTH_FACTOR, PAGE_SIZE, heapBaseSize, shrinkableCount);
+      if (newSize == curCapacity) { // means didn't shrink
         resetToZeros();
       } else {
         if (debugLogShrink) System.out.format("Debug shrink CommonAux from %,d to %,d for %s%n",
             curCapacity, newSize, this.getClass().getSimpleName());
-        initMemory(newSize);
+        newPage(0, newSize);
       }
     }
     this.heapPos = FIRST_CELL_REF;
   }
 
+  /**
+   * Release the trailing pages
+   * @param pagesToKeep the number of leading pages to keep
+   */
+  private void releasePages(int pagesToKeep) {
+    freePages(pagesToKeep, nbrPages);
+    nbrPages = pagesToKeep;
+    shrinkableCount[0] = 0;
+    maxPagesUsed = 0;
+  }
+
+  /**
+   * @param nbrCells a number of cells, starting at cell 0
+   * @return the number of pages needed to hold them
+   */
+  static int pagesFor(int nbrCells) {
+    return (nbrCells <= 0) ? 0 : ((nbrCells - 1) >>> PAGE_SHIFT) + 1;
+  }
+
+  /**
+   * Make the capacity at least the heapPos.
+   * The last page grows like an array, up to PAGE_SIZE; then full size pages are added.
+   */
+  final void growHeapIfNeeded() {
+    if (heapPos <= getCapacity()) {
+      return;
+    }
+    
+    if (hasGrowableLastPage() && nbrPages > 0) {
+      final int lastPageCapacity = lastPageCapacity();
+      if (lastPageCapacity < PAGE_SIZE) {
+        final int neededInLastPage = Math.min(heapPos - ((nbrPages - 1) << PAGE_SHIFT), PAGE_SIZE);
+        growLastPage(Math.min(PAGE_SIZE,
+            computeNewArraySize(lastPageCapacity, neededInLastPage, GROWTH_FACTOR, PAGE_SIZE)));
+        if (heapPos <= getCapacity()) {
+          return;
+        }
+      }
+    }
+    
+    addPages(pagesFor(this.heapPos));
+  }
+
+  /**
+   * Set the used part (up to heapPos) of the pages to zeros
+   */
+  final void resetToZeros() {
+    int toZero = this.heapPos;
+    for (int i = 0; i < nbrPages && toZero > 0; i++) {
+      zeroCells(i, Math.min(toZero, PAGE_SIZE));
+      toZero -= PAGE_SIZE;
+    }
+  }
+
+  /**
+   * Replace the contents with size cells, all set to 0.
+   * The already allocated pages are reused.
+   * The caller is expected to then fill these in. 
+   * @param size the number of cells, including the unused cell 0
+   */
+  void reinitSizeOnly(int size) {
+    resetToZeros();
+    this.heapPos = size;
+    growHeapIfNeeded();
+  }
+
   int reserve(int numCells) {
     int cellRef = this.heapPos;
     this.heapPos += numCells;
@@ -196,6 +404,13 @@ abstract class CommonAuxHeap {
     return this.heapPos;
   }
   
-  abstract int getCapacity();
+  final int getCapacity() {
+    if (nbrPages == 0) {
+      return 0;
+    }
+    return hasGrowableLastPage() 
+        ? (((nbrPages - 1) << PAGE_SHIFT) + lastPageCapacity()) 
+        : (nbrPages << PAGE_SHIFT);
+  }
 
 }
@@ -19,14 +19,20 @@
 
 package org.apache.uima.cas.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.apache.uima.UIMARuntimeException;
+import org.apache.uima.internal.util.ByteBufferDataInputStream;
 
 /**
  * Common de/serialization 
@@ -66,6 +72,11 @@ public class CommonSerDes {
    *         
    *   Second word:
    *     - bit in 0x01 position: on means form6, off = form 4 
+   *     - bit in 0x02 position: form 6 only: on means strings in the shared dictionary of the
+   *               CAS's StringInternTable are referenced, not serialized
+   *     - byte in 0xFF 00 position: form 6 only: the codec used for the compressed streams
+   *               0 = Deflate (the only one before this byte was used), 1 = LZ4, 2 = none  
+   *               (see BinaryCasSerDes6.CompressCodec)
    *********************************************/
   
   public static class Header {
@@ -76,6 +87,8 @@ public class CommonSerDes {
     boolean typeSystemIncluded;  // for form 6, TS only
     boolean typeSystemIndexDefIncluded;
     byte seqVersionNbr;
+    byte codec;   // form 6 only
+    boolean sharedDictionary;  // form 6 only
     boolean isV3;
     boolean swap;
     int v;      // for error messages
@@ -91,6 +104,8 @@ public class CommonSerDes {
     public Header typeSystemIncluded(boolean f) {typeSystemIncluded = f; return this; }
     public Header typeSystemIndexDefIncluded(boolean f) {typeSystemIndexDefIncluded = f; return this; }
     public Header seqVer(int v2) { assert (v2 >= 0 && v2 < 256); seqVersionNbr = (byte)v2; return this; }
+    public Header codec(int v2) { assert (v2 >= 0 && v2 < 256); codec = (byte)v2; return this; }
+    public Header sharedDictionary(boolean f) {sharedDictionary = f; return this; }
     public Header v3() {isV3 = true; return this; }
     
     
@@ -116,7 +131,7 @@ public class CommonSerDes {
       dos.writeInt(v);
       
       if (isCompressed) {
-        dos.writeInt(form6 ? 1 : 0);
+        dos.writeInt(form6 ? (1 | (sharedDictionary ? 2 : 0) | (codec << 8)) : 0);
       }
       
     }
@@ -143,6 +158,12 @@ public class CommonSerDes {
     public byte getSeqVersionNbr() {
       return seqVersionNbr;
     }
+    public int getCodec() {
+      return codec;
+    }
+    public boolean isSharedDictionary() {
+      return sharedDictionary;
+    }
     public boolean isV3() {
       return isV3;
     }
@@ -202,7 +223,9 @@ public class CommonSerDes {
     if (h.isCompressed) {
       v = r.readInt();
       h.form4 = v == 0;
-      h.form6 = v == 1;
+      h.form6 = (v & 0xFFFF00FD) == 1;
+      h.sharedDictionary = h.form6 && (v & 2) != 0;
+      h.codec = (byte) ((v & 0xFF00) >> 8);
     } 
     
     return h;
@@ -222,17 +245,116 @@ public class CommonSerDes {
     return new DataInputStream(os);
   }
 
+  /**
+   * The next length bytes of the input, read in place if the input is memory mapped, 
+   * otherwise copied into an array.
+   * @param dis the input
+   * @param length the number of bytes
+   * @return a stream of the bytes
+   * @throws IOException passthru
+   */
+  static InputStream readSegment(DataInput dis, int length) throws IOException {
+    if (dis instanceof ByteBufferDataInputStream) {
+      return ((ByteBufferDataInputStream) dis).readSlice(length);
+    }
+    byte[] b = new byte[length];
+    dis.readFully(b);
+    return new ByteArrayInputStream(b);
+  }
+
+  /**
+   * For the compressed forms: the next bytesCompr bytes of a compressed segment, as input for an
+   * Inflater (with nowrap), followed by the extra 0 byte which that may require (see the Inflater javadoc).
+   * If the input is memory mapped, the bytes are read in place; otherwise, they're copied into an array.
+   * @param dis the input
+   * @param bytesCompr the length of the compressed segment
+   * @return a stream of the segment's bytes plus a 0 byte
+   * @throws IOException passthru
+   */
+  static InputStream readCompressedSegment(DataInput dis, int bytesCompr) throws IOException {
+    if (dis instanceof ByteBufferDataInputStream) {
+      return new SequenceInputStream(
+          ((ByteBufferDataInputStream) dis).readSlice(bytesCompr), 
+          new ByteArrayInputStream(new byte[1]));
+    }
+    byte[] b = new byte[bytesCompr + 1];
+    dis.readFully(b, 0, bytesCompr);  // this leaves 1 extra 0 byte at the end
+    return new ByteArrayInputStream(b);
+  }
+
   /** 
    * byte swapping reads of integer forms
+   * 
+   * The array forms read in bulk, from an IntBuffer (etc.) view, if the input is memory mapped
    */
  
   public static class Reading {
     final DataInputStream dis;
     final boolean swap;
+    // not null if the input is a memory mapped (or other) ByteBuffer
+    final ByteBuffer bb;
     
     Reading(DataInputStream dis, boolean swap) {
       this.dis = dis;
       this.swap = swap;
+      this.bb = (dis instanceof ByteBufferDataInputStream) 
+                  ? ((ByteBufferDataInputStream) dis).getByteBuffer()
+                  : null;
+    }
+    
+    /**
+     * @param nbrBytes the number of bytes to be read in bulk
+     * @return a view of the next nbrBytes of bb, in the input's byte order; bb is advanced past them
+     * @throws EOFException if there aren't that many bytes left
+     */
+    private ByteBuffer nextBytes(int nbrBytes) throws EOFException {
+      if (bb.remaining() < nbrBytes) {
+        throw new EOFException();
+      }
+      final ByteBuffer view = bb.slice().order(swap ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+      bb.position(bb.position() + nbrBytes);
+      return view;
+    }
+    
+    void readInts(int[] a, int offset, int length) throws IOException {
+      if (bb != null) {
+        nextBytes(length << 2).asIntBuffer().get(a, offset, length);
+        return;
+      }
+      for (int i = offset; i < offset + length; i++) {
+        a[i] = readInt();
+      }
+    }
+    
+    void readShorts(short[] a, int offset, int length) throws IOException {
+      if (bb != null) {
+        nextBytes(length << 1).asShortBuffer().get(a, offset, length);
+        return;
+      }
+      for (int i = offset; i < offset + length; i++) {
+        a[i] = readShort();
+      }
+    }
+    
+    // chars are written as shorts
+    void readChars(char[] a, int offset, int length) throws IOException {
+      if (bb != null) {
+        nextBytes(length << 1).asCharBuffer().get(a, offset, length);
+        return;
+      }
+      for (int i = offset; i < offset + length; i++) {
+        a[i] = (char) readShort();
+      }
+    }
+
+    void readLongs(long[] a, int offset, int length) throws IOException {
+      if (bb != null) {
+        nextBytes(length << 3).asLongBuffer().get(a, offset, length);
+        return;
+      }
+      for (int i = offset; i < offset + length; i++) {
+        a[i] = readLong();
+      }
     }
     
     long readLong() throws IOException {
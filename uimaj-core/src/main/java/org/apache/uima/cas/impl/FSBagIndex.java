@@ -92,6 +92,17 @@ public class FSBagIndex<T extends FeatureStructure> extends FSLeafIndexImpl<T> {
     }
   }
 
+  @Override
+  void bulkInsert(int[] fss, int start, int end) {
+    if (USE_POSITIVE_INT_SET) {
+      for (int i = start; i < end; i++) {
+        indexP.add(fss[i]);
+      }
+    } else {
+      index.add(fss, start, end);  // one array copy, no ordering to maintain
+    }
+  }
+
   /**
    * 
    * @param ele the element to find
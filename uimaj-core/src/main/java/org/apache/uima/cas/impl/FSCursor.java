@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.lang.reflect.Array;
+
+import org.apache.uima.internal.util.IntVector;
+
+/**
+ * A reusable, mutable handle over feature structures of one type (and its subtypes), for 
+ * reading and writing a chosen set of their features, without creating any Java objects.
+ * 
+ * The type, the features and their ranges are checked once, when the cursor is created (see 
+ * {@link LowLevelCAS#ll_createCursor(int, int[])}). After that, {@link #moveTo(int)} only checks
+ * the type of the FS it is moved to, and the getters read the main heap (and for long, double
+ * and string values, the aux heap) directly. 
+ * 
+ * The features are referred to by their position (the column) in the array of feature codes the 
+ * cursor was created with. Each getter and setter checks the column's range kind (one compare);
+ * string features with allowed value sets are accessed as strings, and all non-primitive ones 
+ * as references.
+ * 
+ * The setters go through the same paths as the low-level CAS setters, so index corruption 
+ * checking and delta CAS journaling apply to them.
+ * 
+ * A cursor belongs to a CAS, and like the CAS, is not thread safe; use one per thread.
+ */
+public final class FSCursor {
+  
+  // range kind for non-primitive features; 0 is never a type code
+  private static final int REF = 0;
+  
+  private final CASImpl cas;
+  
+  private final Heap heap;
+  
+  private final StringHeap stringHeap;
+  
+  private final LongHeap longHeap;
+  
+  private final int typeCode;
+  
+  private final int[] featureCodes;
+  
+  private final int[] offsets;
+  
+  // the primitive range type code, stringTypeCode also for string subtypes, or REF
+  private final int[] kinds;
+
+  // indexed by type code: true for the cursor's type and its subtypes
+  private final boolean[] isValidType;
+  
+  private int addr;
+  
+  FSCursor(CASImpl cas, int typeCode, int[] featureCodes) {
+    this.cas = cas.getBaseCAS();
+    this.heap = this.cas.getHeap();
+    this.stringHeap = this.cas.getStringHeap();
+    this.longHeap = this.cas.getLongHeap();
+    final TypeSystemImpl ts = this.cas.getTypeSystemImpl();
+    if (!ts.isType(typeCode)) {
+      LowLevelException e = new LowLevelException(LowLevelException.INVALID_TYPE_ARGUMENT);
+      e.addArgument(Integer.toString(typeCode));
+      throw e;
+    }
+    this.typeCode = typeCode;
+    this.featureCodes = featureCodes.clone();
+    offsets = new int[featureCodes.length];
+    kinds = new int[featureCodes.length];
+    for (int i = 0; i < featureCodes.length; i++) {
+      final int featCode = featureCodes[i];
+      if (!ts.isFeature(featCode)) {
+        LowLevelException e = new LowLevelException(LowLevelException.INVALID_FEATURE_CODE);
+        e.addArgument(Integer.toString(featCode));
+        throw e;
+      }
+      if (!ts.isApprop(typeCode, featCode)) {
+        LowLevelException e = new LowLevelException(LowLevelException.FEAT_DOM_ERROR);
+        e.addArgument(Integer.toString(typeCode));
+        e.addArgument(ts.ll_getTypeForCode(typeCode).getName());
+        e.addArgument(Integer.toString(featCode));
+        e.addArgument(ts.ll_getFeatureForCode(featCode).getName());
+        throw e;
+      }
+      offsets[i] = this.cas.getFeatureOffset(featCode);
+      final int range = ts.range(featCode);
+      kinds[i] = ts.subsumes(TypeSystemImpl.stringTypeCode, range) 
+                   ? TypeSystemImpl.stringTypeCode 
+                   : this.cas.ll_isRefType(range) ? REF : range;
+    }
+    isValidType = new boolean[ts.getTypeArraySize()];
+    for (int t = 1; t < isValidType.length; t++) {
+      isValidType[t] = ts.subsumes(typeCode, t);
+    }
+  }
+  
+  /**
+   * @param fsRef the FS to access from now on; its type must be the cursor's type or a subtype
+   * @return this cursor
+   */
+  public FSCursor moveTo(int fsRef) {
+    if (fsRef <= LowLevelCAS.NULL_FS_REF || fsRef >= heap.getHeapSize()) {
+      LowLevelException e = new LowLevelException(LowLevelException.INVALID_FS_REF);
+      e.addArgument(Integer.toString(fsRef));
+      throw e;
+    }
+    final int t = heap.getHeapValue(fsRef);
+    if (t <= 0 || t >= isValidType.length || !isValidType[t]) {
+      final TypeSystemImpl ts = cas.getTypeSystemImpl();
+      LowLevelException e = new LowLevelException(LowLevelException.ACCESS_TYPE_ERROR);
+      e.addArgument(Integer.toString(fsRef));
+      e.addArgument(Integer.toString(typeCode));
+      e.addArgument(ts.ll_getTypeForCode(typeCode).getName());
+      e.addArgument(ts.isType(t) ? ts.ll_getTypeForCode(t).getName() : Integer.toString(t));
+      throw e;
+    }
+    addr = fsRef;
+    return this;
+  }
+  
+  /**
+   * @return the FS the cursor is at, or 0 if it hasn't been moved yet
+   */
+  public int getAddress() {
+    return addr;
+  }
+  
+  /**
+   * @return the number of features (columns) of this cursor
+   */
+  public int getNumberOfFeatures() {
+    return featureCodes.length;
+  }
+  
+  public int getInt(int col) {
+    return slot(col, TypeSystemImpl.intTypeCode);
+  }
+  
+  public float getFloat(int col) {
+    return CASImpl.int2float(slot(col, TypeSystemImpl.floatTypeCode));
+  }
+  
+  public boolean getBoolean(int col) {
+    return CASImpl.TRUE == slot(col, TypeSystemImpl.booleanTypeCode);
+  }
+  
+  public byte getByte(int col) {
+    return (byte) slot(col, TypeSystemImpl.byteTypeCode);
+  }
+  
+  public short getShort(int col) {
+    return (short) slot(col, TypeSystemImpl.shortTypeCode);
+  }
+  
+  public long getLong(int col) {
+    return longHeap.getHeapValue(slot(col, TypeSystemImpl.longTypeCode));
+  }
+  
+  public double getDouble(int col) {
+    return Double.longBitsToDouble(longHeap.getHeapValue(slot(col, TypeSystemImpl.doubleTypeCode)));
+  }
+  
+  public String getString(int col) {
+    return stringHeap.getStringForCode(slot(col, TypeSystemImpl.stringTypeCode));
+  }
+  
+  /**
+   * @param col the column
+   * @return the referenced FS, or 0 for null
+   */
+  public int getRef(int col) {
+    return slot(col, REF);
+  }
+  
+  public void setInt(int col, int v) {
+    cas.setFeatureValue(addr, feature(col, TypeSystemImpl.intTypeCode), v);
+  }
+  
+  public void setFloat(int col, float v) {
+    cas.setFeatureValue(addr, feature(col, TypeSystemImpl.floatTypeCode), CASImpl.float2int(v));
+  }
+  
+  public void setBoolean(int col, boolean v) {
+    cas.setFeatureValue(addr, feature(col, TypeSystemImpl.booleanTypeCode), v ? CASImpl.TRUE : CASImpl.FALSE);
+  }
+  
+  public void setByte(int col, byte v) {
+    cas.setFeatureValue(addr, feature(col, TypeSystemImpl.byteTypeCode), (int) v);
+  }
+  
+  public void setShort(int col, short v) {
+    cas.setFeatureValue(addr, feature(col, TypeSystemImpl.shortTypeCode), (int) v);
+  }
+  
+  public void setLong(int col, long v) {
+    cas.ll_setLongValue(addr, feature(col, TypeSystemImpl.longTypeCode), v);
+  }
+  
+  public void setDouble(int col, double v) {
+    cas.ll_setDoubleValue(addr, feature(col, TypeSystemImpl.doubleTypeCode), v);
+  }
+  
+  /**
+   * @param col the column
+   * @param v the value; for string subtypes, it must be one of the allowed values
+   */
+  public void setString(int col, String v) {
+    cas.ll_setStringValue(addr, feature(col, TypeSystemImpl.stringTypeCode), v);
+  }
+  
+  /**
+   * @param col the column
+   * @param fsRef the FS to reference, or 0 for null; its type is not checked
+   */
+  public void setRef(int col, int fsRef) {
+    cas.ll_setRefValue(addr, feature(col, REF), fsRef);
+  }
+  
+  /**
+   * Copy the values of the cursor's features of all the FSs of an iterator, in order, 
+   * into columns: one array per feature, at the same position as the feature.
+   * 
+   * Each column must be an array of the feature's range: int[], float[], boolean[], byte[], 
+   * short[], long[], double[] or String[], or int[] for references. A double[] may be used 
+   * for float features.
+   * 
+   * @param it the iterator, positioned at the first FS to export
+   * @param size the expected number of FSs left in the iterator, used as the initial capacity
+   * @param columns the arrays to fill, starting at index 0; each must be at least as long as 
+   *          the number of FSs the iterator returns
+   * @return the number of FSs exported
+   */
+  int exportColumns(LowLevelIterator it, int size, Object[] columns) {
+    if (columns.length != featureCodes.length) {
+      throw new IllegalArgumentException(String.format("%d columns passed for %d features", 
+          columns.length, featureCodes.length));
+    }
+    // collect the FSs first, so the columns are checked against the actual count 
+    // before anything is written
+    final IntVector fsRefsVector = new IntVector(size);
+    for (; it.isValid(); it.moveToNext()) {
+      fsRefsVector.add(it.ll_get());
+    }
+    final int n = fsRefsVector.size();
+    for (int col = 0; col < columns.length; col++) {
+      checkColumn(col, columns[col], n);
+    }
+    final int[] fsRefs = fsRefsVector.getArray();
+    
+    for (int col = 0; col < columns.length; col++) {
+      final int offset = offsets[col];
+      final Object column = columns[col];
+      switch (kinds[col]) {
+      case TypeSystemImpl.floatTypeCode:
+        if (column instanceof double[]) {
+          final double[] c = (double[]) column;
+          for (int i = 0; i < n; i++) {
+            c[i] = CASImpl.int2float(heap.getHeapValue(fsRefs[i] + offset));
+          }
+        } else {
+          final float[] c = (float[]) column;
+          for (int i = 0; i < n; i++) {
+            c[i] = CASImpl.int2float(heap.getHeapValue(fsRefs[i] + offset));
+          }
+        }
+        break;
+      case TypeSystemImpl.booleanTypeCode: {
+        final boolean[] c = (boolean[]) column;
+        for (int i = 0; i < n; i++) {
+          c[i] = CASImpl.TRUE == heap.getHeapValue(fsRefs[i] + offset);
+        }
+        break;
+      }
+      case TypeSystemImpl.byteTypeCode: {
+        final byte[] c = (byte[]) column;
+        for (int i = 0; i < n; i++) {
+          c[i] = (byte) heap.getHeapValue(fsRefs[i] + offset);
+        }
+        break;
+      }
+      case TypeSystemImpl.shortTypeCode: {
+        final short[] c = (short[]) column;
+        for (int i = 0; i < n; i++) {
+          c[i] = (short) heap.getHeapValue(fsRefs[i] + offset);
+        }
+        break;
+      }
+      case TypeSystemImpl.longTypeCode: {
+        final long[] c = (long[]) column;
+        for (int i = 0; i < n; i++) {
+          c[i] = longHeap.getHeapValue(heap.getHeapValue(fsRefs[i] + offset));
+        }
+        break;
+      }
+      case TypeSystemImpl.doubleTypeCode: {
+        final double[] c = (double[]) column;
+        for (int i = 0; i < n; i++) {
+          c[i] = Double.longBitsToDouble(longHeap.getHeapValue(heap.getHeapValue(fsRefs[i] + offset)));
+        }
+        break;
+      }
+      case TypeSystemImpl.stringTypeCode: {
+        final String[] c = (String[]) column;
+        for (int i = 0; i < n; i++) {
+          c[i] = stringHeap.getStringForCode(heap.getHeapValue(fsRefs[i] + offset));
+        }
+        break;
+      }
+      default: {  // int and references
+        final int[] c = (int[]) column;
+        for (int i = 0; i < n; i++) {
+          c[i] = heap.getHeapValue(fsRefs[i] + offset);
+        }
+      }
+      }
+    }
+    return n;
+  }
+  
+  private void checkColumn(int col, Object column, int size) {
+    final Class<?> expected;
+    switch (kinds[col]) {
+    case TypeSystemImpl.floatTypeCode:   
+      expected = (column instanceof double[]) ? double[].class : float[].class; 
+      break;
+    case TypeSystemImpl.booleanTypeCode: expected = boolean[].class; break;
+    case TypeSystemImpl.byteTypeCode:    expected = byte[].class;    break;
+    case TypeSystemImpl.shortTypeCode:   expected = short[].class;   break;
+    case TypeSystemImpl.longTypeCode:    expected = long[].class;    break;
+    case TypeSystemImpl.doubleTypeCode:  expected = double[].class;  break;
+    case TypeSystemImpl.stringTypeCode:  expected = String[].class;  break;
+    default:                             expected = int[].class;
+    }
+    final String featName = cas.getTypeSystemImpl().ll_getFeatureForCode(featureCodes[col]).getName();
+    if (column == null || column.getClass() != expected) {
+      throw new IllegalArgumentException(String.format("The column for feature %s must be a %s, but is a %s",
+          featName, expected.getSimpleName(), (column == null) ? "null" : column.getClass().getSimpleName()));
+    }
+    if (Array.getLength(column) < size) {
+      throw new IllegalArgumentException(String.format("The column for feature %s has length %d, less than the %d FSs to export", 
+          featName, Array.getLength(column), size));
+    }
+  }
+  
+  private int slot(int col, int kind) {
+    if (kinds[col] != kind) {
+      throwRangeError(col, kind);
+    }
+    return heap.getHeapValue(addr + offsets[col]);
+  }
+  
+  private int feature(int col, int kind) {
+    if (kinds[col] != kind) {
+      throwRangeError(col, kind);
+    }
+    return featureCodes[col];
+  }
+  
+  private void throwRangeError(int col, int kind) {
+    final TypeSystemImpl ts = cas.getTypeSystemImpl();
+    final int featCode = featureCodes[col];
+    if (kind == REF) {
+      LowLevelException e = new LowLevelException(LowLevelException.FS_RAN_TYPE_ERROR);
+      e.addArgument(Integer.toString(featCode));
+      e.addArgument(ts.ll_getFeatureForCode(featCode).getName());
+      e.addArgument(ts.ll_getTypeForCode(ts.range(featCode)).getName());
+      throw e;
+    }
+    LowLevelException e = new LowLevelException(LowLevelException.FEAT_RAN_ERROR);
+    e.addArgument(Integer.toString(featCode));
+    e.addArgument(ts.ll_getFeatureForCode(featCode).getName());
+    e.addArgument(Integer.toString(kind));
+    e.addArgument(ts.ll_getTypeForCode(kind).getName());
+    throw e;
+  }
+}
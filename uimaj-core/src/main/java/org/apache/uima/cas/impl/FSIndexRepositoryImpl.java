@@ -22,6 +22,7 @@ package org.apache.uima.cas.impl;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
@@ -30,7 +31,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
 import java.util.Vector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.uima.UIMARuntimeException;
 import org.apache.uima.cas.CAS;
@@ -104,6 +108,14 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
  
   private static final boolean IS_DISABLE_ENHANCED_WRONG_INDEX_CHECK = Misc.getNoValueSystemProperty(DISABLE_ENHANCED_WRONG_INDEX);
 
+  /**
+   * Define this JVM property to rebuild the indexes of deserialized CASes concurrently, one task per
+   * leaf index (of all views), on the common fork-join pool.  
+   */
+  public static final String PARALLEL_INDEX_REBUILD = "uima.parallel_index_rebuild";
+  
+  static final boolean IS_PARALLEL_INDEX_REBUILD = Misc.getNoValueSystemProperty(PARALLEL_INDEX_REBUILD);
+
   /**
    * Kinds of extra functions for iterators
    */
@@ -232,6 +244,11 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
      */
     int[] sortedTypeCodes;
     
+    /**
+     * For the annotation index, the interval index used for coveredBy etc. queries, set up lazily
+     */
+    private volatile AnnotationIntervalIndex intervalIndex = null;
+    
     @Override
     public String toString() {
       StringBuilder sb = new StringBuilder("IndexIteratorCachePair, index=");
@@ -331,7 +348,8 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
         this.cachedSubFsLeafIndexes = tempSubIndexCache; 
         if (this.fsLeafIndex.getIndexingStrategy() == FSIndex.SORTED_INDEX) {
           Arrays.sort(sortedTypeCodes);
-          this.flatIndex = FSIndexFlat.enabled ? new FSIndexFlat<>(this) : null; // must follow cachedSubFsLeafIndexes setup
+          // must follow cachedSubFsLeafIndexes setup; a single type needs no merging, so no flattening
+          this.flatIndex = (FSIndexFlat.enabled && len > 1) ? new FSIndexFlat<>(this) : null;
         }
         // assign to "volatile" at end, after all initialization is complete
         this.isIteratorCacheSetup = true;
@@ -410,19 +428,19 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
        
     /**
      * Flat array filled, ordered
-     * @param flatArray the array to fill
+     * @param flatArray the array to fill with the Feature Structure addresses
      */
-    public void fillFlatArray(FeatureStructure[] flatArray) {
+    void fillFlatArray(int[] flatArray) {
       LowLevelIterator it = (LowLevelIterator) createPointerIterator(this);
       int i = 0;
       while (it.isValid()) {
         if (i >= flatArray.length) {
           throw new ConcurrentModificationException();
         }
-        flatArray[i++] = cas.createFS(it.ll_get());
+        flatArray[i++] = it.ll_get();
         if (DEBUG) {
           int tc1 = fsLeafIndex.getTypeCode();
-          int tc2 = ((TypeImpl)(flatArray[i-1].getType())).getCode();
+          int tc2 = cas.getTypeCode(flatArray[i-1]);
           if (!subsumes(tc1, tc2)) {
             throw new RuntimeException(String.format("FillFlatArray for element %,d produced a non-subtype, tc1 = %d, tc2 = %d%n"
                 + "iicp = %s%nfs = %s%n",
@@ -458,7 +476,14 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
     }
     
     boolean isUpdateFreeSinceLastCounterReset() {
-      final Int2IntArrayMapFixedSize typeCode2updateCount = this.flatIndex.indexUpdateCountsResetValues;
+      return isUpdateFree(this.flatIndex.indexUpdateCountsResetValues);
+    }
+    
+    /**
+     * @param typeCode2updateCount the update counts of the type and subtypes captured earlier
+     * @return true if none of the types had an index update since the counts were captured
+     */
+    boolean isUpdateFree(Int2IntArrayMapFixedSize typeCode2updateCount) {
       final int[] localSortedTypeCodes = sortedTypeCodes;
       for (int i = 0; i < localSortedTypeCodes.length; i++) {
         if (typeCode2updateCount.getAtIndex(i) != detectIllegalIndexUpdates[localSortedTypeCodes[i]]) {
@@ -468,9 +493,33 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
       return true;
     }
         
-    boolean isUpdateFreeSinceLastCounterReset(final int typeCode) {
-      return this.flatIndex.indexUpdateCountsResetValues.get(typeCode, sortedTypeCodes) == 
-          detectIllegalIndexUpdates[typeCode];
+    boolean isUpdateFree(Int2IntArrayMapFixedSize typeCode2updateCount, final int typeCode) {
+      return typeCode2updateCount.get(typeCode, sortedTypeCodes) == detectIllegalIndexUpdates[typeCode];
+    }
+    
+    /**
+     * For read-only CASes, this may be called on multiple threads; 
+     * if two threads both build an interval index, one is discarded. 
+     * @return the interval index over this (annotation) index, built if there is none which is up to date
+     */
+    AnnotationIntervalIndex getIntervalIndex() {
+      createIndexIteratorCache();  // does nothing if already created
+      AnnotationIntervalIndex localIntervalIndex = this.intervalIndex;
+      if (localIntervalIndex == null || 
+          localIntervalIndex.casResets != cas.getCasResets() ||
+          !isUpdateFree(localIntervalIndex.updateCounts)) {
+        localIntervalIndex = new AnnotationIntervalIndex(
+            cas, (LowLevelIterator) createPointerIterator(this), size(), createIndexUpdateCountsAtReset());
+        this.intervalIndex = localIntervalIndex;
+      }
+      return localIntervalIndex;
+    }
+    
+    /**
+     * @return an iterator over this index which isn't over a flattened version 
+     */
+    FSIteratorImplBase<T> createNonFlatIterator() {
+      return new FSIteratorWrapper<T>(createPointerIterator(this), cas);
     }
       
     boolean subsumes(int superType, int subType) {
@@ -1687,7 +1736,8 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
      */
    @Override
    public FSIterator<T> iterator(FeatureStructure fs) {
-      if (this.iicp.flatIndex != null) {
+      // snapshot iterators don't fail on updates, so can't use flattened versions
+      if (this.iicp.flatIndex != null && !is_with_snapshot_iterators) {
         FSIteratorFlat<T> flatIterator = this.iicp.flatIndex.iterator(fs);
         if (flatIterator != null) {
           if (DEBUG) {
@@ -1731,6 +1781,53 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
       return this.iicp.size();
     }
 
+    /**
+     * If the CAS is frozen and only one sorted leaf index has entries, 
+     * split over that leaf's array; otherwise, over a snapshot of the FS addresses.
+     * @see org.apache.uima.cas.FSIndex#spliterator()
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+      final CASImpl localCas = FSIndexRepositoryImpl.this.cas;
+      final int indexKind = this.iicp.fsLeafIndex.getIndexingStrategy();
+      final int characteristics = 
+          (is_unordered || indexKind == FSIndex.BAG_INDEX || indexKind == FSIndex.DEFAULT_BAG_INDEX) ? 
+              0 : Spliterator.ORDERED;
+      this.iicp.createIndexIteratorCache();
+      
+      if (localCas.isFrozen() && !is_with_snapshot_iterators && indexKind == FSIndex.SORTED_INDEX) {
+        FSLeafIndexImpl<? extends T> nonEmptyLeaf = null;
+        int nbrNonEmpty = 0;
+        for (FSLeafIndexImpl<? extends T> leafIndex : this.iicp.cachedSubFsLeafIndexes) {
+          if (leafIndex.size() > 0) {
+            nonEmptyLeaf = leafIndex;
+            nbrNonEmpty ++;
+          }
+        }
+        if (nbrNonEmpty == 1 && nonEmptyLeaf instanceof FSIntArrayIndex) {
+          final IntVector v = ((FSIntArrayIndex<? extends T>) nonEmptyLeaf).getVector();
+          return new FSIndexSpliterator<T>(localCas, v.getArray(), 0, v.size(), characteristics);
+        }
+      }
+      
+      final int[] fsAddrs = new int[this.iicp.size()];
+      int i = 0;
+      for (LowLevelIterator it = ll_iterator(); it.isValid(); it.moveToNext()) {
+        fsAddrs[i++] = it.ll_get();
+      }
+      return new FSIndexSpliterator<T>(localCas, fsAddrs, 0, i, characteristics);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.uima.cas.FSIndex#stream()
+     */
+    @Override
+    public Stream<T> stream() {
+      return StreamSupport.stream(spliterator(), false);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -1757,6 +1854,11 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
       return new LLUnambiguousIteratorImpl(this.ll_iterator(), this.iicp.fsLeafIndex.lowLevelCAS);
     }
 
+    public int ll_exportColumns(int[] featureCodes, Object[] columns) {
+      final FSCursor cursor = this.iicp.getCASImpl().ll_createCursor(this.iicp.fsLeafIndex.getTypeCode(), featureCodes);
+      return cursor.exportColumns(ll_iterator(), size(), columns);
+    }
+
     /**
      * @see org.apache.uima.cas.FSIndex#withSnapshotIterators()
      */
@@ -1768,6 +1870,10 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
     FSIndexRepositoryImpl getFsRepositoryImpl() {
       return iicp.getCASImpl().indexRepository;
     }
+    
+    AnnotationIntervalIndex getIntervalIndex() {
+      return iicp.getIntervalIndex();
+    }
   }  // end of class IndexImpl
   
    
@@ -2261,6 +2367,30 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
 //    }
   }
 
+  private void checkNotFrozen() {
+    if (this.cas.isFrozen()) {
+      throw new CASRuntimeException(CASRuntimeException.CAS_FROZEN);
+    }
+  }
+
+  /**
+   * Set up all the information used by iterators which is otherwise created lazily, 
+   * so that afterwards any number of threads can create and use iterators 
+   * without synchronization.  Called when the CAS is frozen.
+   */
+  void setupAllIteratorCaches() {
+    getDefaultTypeOrder();
+    getAnnotationFsComparator();
+    getAnnotationIntComparator();
+    for (ArrayList<IndexIteratorCachePair<? extends FeatureStructure>> iicps : this.indexArray) {
+      if (null != iicps) {
+        for (IndexIteratorCachePair<? extends FeatureStructure> iicp : iicps) {
+          iicp.createIndexIteratorCache();
+        }
+      }
+    }
+  }
+
   /**
    * @see org.apache.uima.cas.admin.FSIndexRepositoryMgr#commit()
    */
@@ -2547,6 +2677,7 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
    * @param type -
    */
   public void removeAllExcludingSubtypes(Type type) {
+    checkNotFrozen();
     final int typeCode = ((TypeImpl) type).getCode();
     incrementIllegalIndexUpdateDetector(typeCode);
     // get a list of all indexes defined over this type
@@ -2774,31 +2905,15 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
   }
   
   private void ll_addFS_common(int fsRef, boolean isAddback, int count) {
+    checkNotFrozen();
     cas.maybeClearCacheNotInIndex(fsRef);
     // Determine type of FS.
     final int typeCode = this.cas.getTypeCode(fsRef);
 
     // https://issues.apache.org/jira/browse/UIMA-4099
     // skip test for wrong view if addback, etc.
-    if (!isAddback && (!IS_DISABLE_ENHANCED_WRONG_INDEX_CHECK) && sii.tsi.isAnnotationBaseOrSubtype(typeCode)) {
-      final int sofaAddr = cas.getSofaFeat(fsRef);
-      if (sofaAddr == 0) {
-        throw new CASRuntimeException(
-            CASRuntimeException.SOFAREF_NOT_SET, new String[] {
-                ((FeatureStructureImpl)(cas.ll_getFSForRef(fsRef))).toString()});            
-      }
-      if (!cas.isSofaView(sofaAddr)) {
-        AnnotationBaseImpl fs_abi = new AnnotationBaseImpl(fsRef, cas);
-        SofaFS annotSofaFS = cas.getSofa(sofaAddr);
-        SofaFS viewSofaFS  = cas.getSofa(cas.getSofaRef());
-        
-        CASRuntimeException e = new CASRuntimeException(
-            CASRuntimeException.ANNOTATION_IN_WRONG_INDEX, new String[] { 
-                fs_abi.toString(),
-                annotSofaFS.getSofaID(), 
-                viewSofaFS.getSofaID()});
-        throw e;
-      }
+    if (!isAddback) {
+      checkSofaOfAddedFs(fsRef, typeCode);
     }
    
     // indicate this type's indexes are being modified
@@ -2850,11 +2965,129 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
     }
   }
 
+  private void checkSofaOfAddedFs(int fsRef, int typeCode) {
+    if ((!IS_DISABLE_ENHANCED_WRONG_INDEX_CHECK) && sii.tsi.isAnnotationBaseOrSubtype(typeCode)) {
+      final int sofaAddr = cas.getSofaFeat(fsRef);
+      if (sofaAddr == 0) {
+        throw new CASRuntimeException(
+            CASRuntimeException.SOFAREF_NOT_SET, new String[] {
+                ((FeatureStructureImpl)(cas.ll_getFSForRef(fsRef))).toString()});            
+      }
+      if (!cas.isSofaView(sofaAddr)) {
+        AnnotationBaseImpl fs_abi = new AnnotationBaseImpl(fsRef, cas);
+        SofaFS annotSofaFS = cas.getSofa(sofaAddr);
+        SofaFS viewSofaFS  = cas.getSofa(cas.getSofaRef());
+        
+        CASRuntimeException e = new CASRuntimeException(
+            CASRuntimeException.ANNOTATION_IN_WRONG_INDEX, new String[] { 
+                fs_abi.toString(),
+                annotSofaFS.getSofaID(), 
+                viewSofaFS.getSofaID()});
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * @see org.apache.uima.cas.FSIndexRepository#addAll(java.util.Collection)
+   */
+  public void addAll(Collection<? extends FeatureStructure> fss) {
+    final int[] fsRefs = new int[fss.size()];
+    int i = 0;
+    for (FeatureStructure fs : fss) {
+      fsRefs[i++] = ((FeatureStructureImpl) fs).getAddress();
+    }
+    ll_addAll(fsRefs);
+  }
+
+  /**
+   * Groups the batch by type (keeping the batch order within a type), then for each type
+   * does the checks and bookkeeping of ll_addFS, but updates each index only once.
+   * @see org.apache.uima.cas.impl.LowLevelIndexRepository#ll_addAll(int[])
+   */
+  public void ll_addAll(int[] fsRefs) {
+    final BulkIndexLoad load = new BulkIndexLoad(false);
+    ll_addAll(fsRefs, 0, fsRefs.length, load);
+    load.run();
+  }
+  
+  /**
+   * Does the checks and bookkeeping for adding fsRefs[start..end) to the indexes, 
+   * leaving the index inserts in load, to be done (for perhaps many views) by load.run(). 
+   * @param fsRefs the FSs to add
+   * @param start the first position in fsRefs to add
+   * @param end one past the last position in fsRefs to add
+   * @param load where the inserts are collected
+   */
+  void ll_addAll(int[] fsRefs, int start, int end, BulkIndexLoad load) {
+    checkNotFrozen();
+    final int n = end - start;
+    if (n <= 0) {
+      return;
+    }
+    // key: type code in the high half, position in the batch in the low half
+    final long[] keys = new long[n];
+    for (int i = 0; i < n; i++) {
+      final int fsRef = fsRefs[start + i];
+      final int typeCode = this.cas.getTypeCode(fsRef);
+      checkSofaOfAddedFs(fsRef, typeCode);
+      cas.maybeClearCacheNotInIndex(fsRef);
+      keys[i] = (((long) typeCode) << 32) | i;
+    }
+    Arrays.sort(keys);
+    
+    final int[] sameType = new int[n];
+    int runStart = 0;
+    while (runStart < n) {
+      final int typeCode = (int) (keys[runStart] >>> 32);
+      int runEnd = runStart;
+      while (runEnd < n && (int) (keys[runEnd] >>> 32) == typeCode) {
+        sameType[runEnd - runStart] = fsRefs[start + (int) keys[runEnd]];
+        runEnd++;
+      }
+      addAllOfType(typeCode, sameType, runEnd - runStart, load);
+      runStart = runEnd;
+    }
+  }
+  
+  private void addAllOfType(int typeCode, int[] fsRefs, int length, BulkIndexLoad load) {
+    incrementIllegalIndexUpdateDetector(typeCode);
+    final ArrayList<IndexIteratorCachePair<? extends FeatureStructure>> indexes = this.indexArray[typeCode];
+    boolean noIndexOrOnlySetindexes = true;
+    for (IndexIteratorCachePair<? extends FeatureStructure> iicp : indexes) {
+      load.add(iicp.fsLeafIndex, fsRefs, length);
+      if (noIndexOrOnlySetindexes) {
+        noIndexOrOnlySetindexes = iicp.fsLeafIndex.getIndexingStrategy() == FSIndex.SET_INDEX;
+      }
+    }
+    if (this.cas.getCurrentMark() != null) {
+      for (int i = 0; i < length; i++) {
+        logIndexOperation(fsRefs[i], true);
+      }
+    }
+    
+    // same as ll_addFS_common: https://issues.apache.org/jira/browse/UIMA-4111
+    if (noIndexOrOnlySetindexes) {
+      final Type type = this.sii.tsi.ll_getTypeForCode(typeCode);
+      final String defIndexName = getAutoIndexNameForType(type);
+      final FSIndexComparator comparator = createComparator();
+      comparator.setType(type);
+      createIndexNoQuestionsAsked(comparator, defIndexName, FSIndex.DEFAULT_BAG_INDEX);
+      load.add(indexes.get(indexes.size() - 1).fsLeafIndex, fsRefs, length);
+    }
+
+    if (!this.isUsed[typeCode]) {
+      this.isUsed[typeCode] = true;
+      this.usedIndexes.add(typeCode);
+    }
+  }
+
   private static final String getAutoIndexNameForType(Type type) {
     return "_" + type.getName() + "_GeneratedIndex";
   }
 
   boolean ll_removeFS_ret(int fsRef) {
+    checkNotFrozen();
     final int typeCode = this.cas.ll_getFSRefType(fsRef);
     incrementIllegalIndexUpdateDetector(typeCode);
     final ArrayList<IndexIteratorCachePair<? extends FeatureStructure>> idxList = this.indexArray[typeCode];
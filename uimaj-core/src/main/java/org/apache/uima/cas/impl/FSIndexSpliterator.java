@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import org.apache.uima.cas.FeatureStructure;
+
+/**
+ * A Spliterator over a range of positions of an array of Feature Structure addresses,
+ * holding (a snapshot of) the contents of an index in iteration order.
+ * 
+ * Splitting halves the range of positions, so a parallel stream over an index 
+ * divides the work evenly.  The Java cover objects are made as the elements are reached.
+ *
+ * @param <T> the type of the Feature Structures
+ */
+class FSIndexSpliterator<T extends FeatureStructure> implements Spliterator<T> {
+  
+  private final CASImpl cas;
+  
+  private final int[] fsAddrs;
+  
+  private int pos;
+  
+  private final int end;
+  
+  private final int characteristics;
+  
+  /**
+   * @param cas the CAS holding the Feature Structures
+   * @param fsAddrs the addresses of the Feature Structures; not modified
+   * @param start the first position to return
+   * @param end one past the last position to return
+   * @param characteristics Spliterator.ORDERED or 0; the others are always set
+   */
+  FSIndexSpliterator(CASImpl cas, int[] fsAddrs, int start, int end, int characteristics) {
+    this.cas = cas;
+    this.fsAddrs = fsAddrs;
+    this.pos = start;
+    this.end = end;
+    this.characteristics = characteristics | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    if (pos < end) {
+      action.accept(cas.<T>ll_getFSForRef(fsAddrs[pos++]));
+      return true;
+    }
+    return false;
+  }
+  
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    final int[] localAddrs = fsAddrs;
+    final int localEnd = end;
+    for (int i = pos; i < localEnd; i++) {
+      action.accept(cas.<T>ll_getFSForRef(localAddrs[i]));
+    }
+    pos = localEnd;
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    final int mid = (pos + end) >>> 1;
+    if (mid <= pos) {
+      return null;
+    }
+    final Spliterator<T> prefix = new FSIndexSpliterator<T>(cas, fsAddrs, pos, mid, characteristics);
+    pos = mid;
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    return end - pos;
+  }
+
+  @Override
+  public int characteristics() {
+    return characteristics;
+  }
+
+}
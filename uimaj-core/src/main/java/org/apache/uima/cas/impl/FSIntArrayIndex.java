@@ -19,6 +19,8 @@
 
 package org.apache.uima.cas.impl;
 
+import java.util.Arrays;
+
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.admin.FSIndexComparator;
@@ -160,6 +162,125 @@ public class FSIntArrayIndex<T extends FeatureStructure> extends FSLeafIndexImpl
     }
   }
 
+  /**
+   * Sorts the batch once, then merges it with the part of the index at and after the batch's
+   * first element, so each existing element is moved at most once (instead of once per insert).
+   * The resulting order is the same as inserting one at a time: by the index's compare, then
+   * by address (see binarySearchExact).
+   */
+  @Override
+  void bulkInsert(int[] fss, int start, int end) {
+    if (end - start < 2) {
+      if (end > start) {
+        insert(fss[start]);
+      }
+      return;
+    }
+    final int[] batch = Arrays.copyOfRange(fss, start, end);
+    sortBatch(batch);
+    int batchLength = batch.length;
+    if (!FSIndexRepositoryImpl.IS_ALLOW_DUP_ADD_2_INDEXES) {
+      // drop duplicates within the batch; now adjacent because ordered by address within equal keys
+      int k = 1;
+      for (int i = 1; i < batchLength; i++) {
+        if (batch[i] != batch[k - 1]) {
+          batch[k++] = batch[i];
+        }
+      }
+      batchLength = k;
+    }
+    
+    final int size = this.indexIntVector.size();
+    // existing elements before the batch's first one stay where they are
+    int pos = (size == 0) ? 0 : findExact(batch[0]);
+    if (pos < 0) {
+      pos = -(pos + 1);
+    }
+    final int tailLength = size - pos;
+    final int[] tail = Arrays.copyOfRange(this.indexIntVector.getArray(), pos, size);
+    this.indexIntVector.ensure_size(size + batchLength);  // may reallocate
+    final int[] a = this.indexIntVector.getArray();
+    
+    int i = 0;
+    int j = 0;
+    int k = pos;
+    while (i < tailLength && j < batchLength) {
+      final int c = compareWithAddress(tail[i], batch[j]);
+      if (c < 0) {
+        a[k++] = tail[i++];
+      } else if (c > 0) {
+        a[k++] = batch[j++];
+      } else {
+        // already exactly in the index
+        a[k++] = tail[i++];
+        if (FSIndexRepositoryImpl.IS_ALLOW_DUP_ADD_2_INDEXES) {
+          a[k++] = batch[j];
+        }
+        j++;
+      }
+    }
+    System.arraycopy(tail, i, a, k, tailLength - i);
+    k += tailLength - i;
+    System.arraycopy(batch, j, a, k, batchLength - j);
+    k += batchLength - j;
+    
+    if (k < size + batchLength) {
+      // some were skipped as already present; shrink the size, keeping the contents
+      this.indexIntVector.removeAllElements();
+      this.indexIntVector.ensure_size(k);
+    }
+  }
+  
+  private int compareWithAddress(int fs1, int fs2) {
+    final int c = compare(fs1, fs2);
+    return (c != 0) ? c : Integer.compare(fs1, fs2);
+  }
+  
+  /**
+   * Merge sort by compareWithAddress, skipped if the batch is already in order
+   * (the usual case, e.g. annotations created front to back).
+   */
+  private void sortBatch(int[] batch) {
+    boolean isSorted = true;
+    for (int i = 1; i < batch.length; i++) {
+      if (compareWithAddress(batch[i - 1], batch[i]) > 0) {
+        isSorted = false;
+        break;
+      }
+    }
+    if (!isSorted) {
+      mergeSort(batch.clone(), batch, 0, batch.length);
+    }
+  }
+  
+  // sorts src[start..end) into dest; both arrays start with the same contents
+  private void mergeSort(int[] src, int[] dest, int start, int end) {
+    final int length = end - start;
+    if (length < 8) {
+      // insertion sort
+      for (int i = start + 1; i < end; i++) {
+        final int v = dest[i];
+        int j = i - 1;
+        while (j >= start && compareWithAddress(dest[j], v) > 0) {
+          dest[j + 1] = dest[j];
+          j--;
+        }
+        dest[j + 1] = v;
+      }
+      return;
+    }
+    final int mid = (start + end) >>> 1;
+    mergeSort(dest, src, start, mid);
+    mergeSort(dest, src, mid, end);
+    for (int i = start, p = start, q = mid; i < end; i++) {
+      if (q >= end || (p < mid && compareWithAddress(src[p], src[q]) <= 0)) {
+        dest[i] = src[p++];
+      } else {
+        dest[i] = src[q++];
+      }
+    }
+  }
+
   // public IntIteratorStl iterator() {
   // return new IntVectorIterator();
   // }
@@ -20,6 +20,10 @@
 package org.apache.uima.cas.impl;
 
 import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.FeatureStructure;
@@ -76,6 +80,24 @@ public abstract class FSIteratorImplBase<T extends FeatureStructure> implements
   public void remove() {
     throw new UnsupportedOperationException();
   }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.cas.FSIterator#spliterator()
+   */
+  public Spliterator<T> spliterator() {
+    return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.cas.FSIterator#stream()
+   */
+  public Stream<T> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
   
   // methods to be overridden that can speed up this operation
   int getBegin() {
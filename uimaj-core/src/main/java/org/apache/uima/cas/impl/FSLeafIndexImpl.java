@@ -144,6 +144,19 @@ public abstract class FSLeafIndexImpl<T extends FeatureStructure> implements Com
   
   abstract boolean insert(int fs, int count);  // for bulk addback
 
+  /**
+   * Insert a batch of FSs, all of which belong in this index.
+   * This default inserts them one at a time; index kinds which can do better override it.
+   * @param fss the FS addresses; not modified
+   * @param start the first position in fss to insert
+   * @param end one past the last position in fss to insert
+   */
+  void bulkInsert(int[] fss, int start, int end) {
+    for (int i = start; i < end; i++) {
+      insert(fss[i]);
+    }
+  }
+
   /**
    * @param fs - the Feature Structure to be removed.
    * Only this exact Feature Structure is removed (this is a stronger test than, for example,
@@ -265,14 +278,14 @@ public abstract class FSLeafIndexImpl<T extends FeatureStructure> implements Com
    * @return 0 if equal, &lt; 0 if fs1 &lt; fs2, &gt; 0 if fs1 &gt; fs2
    */
   public int compare(int fs1, int fs2) {
-    final int[] heap = this.lowLevelCAS.getHeap().heap;
+    final Heap heap = this.lowLevelCAS.getHeap();
     final int[] localKeyType = this.keyType;
     final int[] localKeyOffset = this.keyOffset;
     final int[] localKeyComp = this.keyComp;
     final int localNumKeys = this.numKeys;
     for (int i = 0; i < localNumKeys; i++) {
-      final int val1 = heap[fs1 + localKeyOffset[i]];
-      final int val2 = heap[fs2 + localKeyOffset[i]];
+      final int val1 = heap.getHeapValue(fs1 + localKeyOffset[i]);
+      final int val2 = heap.getHeapValue(fs2 + localKeyOffset[i]);
       switch (localKeyType[i]) {
         case STRING_CODE: {
           // System.out.println("Comparing string codes " + val1 + " and "
@@ -530,6 +543,10 @@ public abstract class FSLeafIndexImpl<T extends FeatureStructure> implements Com
       return this.ll_iterator();
   }
 
+  public int ll_exportColumns(int[] featureCodes, Object[] columns) {
+    return lowLevelCAS.ll_createCursor(typeCode, featureCodes).exportColumns(ll_iterator(), size(), columns);
+  }
+
 //  @Override
 //  public FSIndex<T> withSnapshotIterators() {
 //    // should never be called
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import org.apache.uima.resource.ManagementObject;
+
+/**
+ * Implements the monitoring interface for flattened indexes, reading the JVM wide counts
+ * kept by {@link FSIndexFlat}.
+ */
+public class FlatIndexManagementImpl implements ManagementObject, FlatIndexManagementImplMBean {
+
+  public static final String MBEAN_NAME = "org.apache.uima:name=FlatIndexes";
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.cas.impl.FlatIndexManagementImplMBean#getFlatIteratorCount()
+   */
+  public long getFlatIteratorCount() {
+    return FSIndexFlat.numberFlatIterators.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.cas.impl.FlatIndexManagementImplMBean#getNonFlatIteratorCount()
+   */
+  public long getNonFlatIteratorCount() {
+    return FSIndexFlat.numberNonFlatIterators.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.cas.impl.FlatIndexManagementImplMBean#getFlattenedCount()
+   */
+  public long getFlattenedCount() {
+    return FSIndexFlat.numberFlattened.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.cas.impl.FlatIndexManagementImplMBean#getDiscardedCount()
+   */
+  public long getDiscardedCount() {
+    return FSIndexFlat.numberDiscardedDueToUpdates.get();
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.cas.impl.FlatIndexManagementImplMBean#getFlattenTimeMillis()
+   */
+  public long getFlattenTimeMillis() {
+    return FSIndexFlat.flattenTime.get() / 1000000;
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.cas.impl.FlatIndexManagementImplMBean#resetCounts()
+   */
+  public void resetCounts() {
+    FSIndexFlat.numberFlatIterators.set(0);
+    FSIndexFlat.numberNonFlatIterators.set(0);
+    FSIndexFlat.numberFlattened.set(0);
+    FSIndexFlat.numberDiscardedDueToUpdates.set(0);
+    FSIndexFlat.flattenTime.set(0);
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.resource.ManagementObject#getUniqueMBeanName()
+   */
+  public String getUniqueMBeanName() {
+    return MBEAN_NAME;
+  }
+}
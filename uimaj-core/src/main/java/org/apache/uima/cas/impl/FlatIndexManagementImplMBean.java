@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+/**
+ * JMX MBean interface for monitoring the use of flattened indexes (see {@link FSIndexFlat}).
+ * The counts are for all CASes in the JVM.
+ */
+public interface FlatIndexManagementImplMBean {
+  /**
+   * @return the number of iterators over sorted indexes with subtypes that were served by a flattened index
+   */
+  public long getFlatIteratorCount();
+
+  /**
+   * @return the number of iterators over sorted indexes with subtypes that were not, because there
+   *   was no valid flattened index
+   */
+  public long getNonFlatIteratorCount();
+
+  /**
+   * @return the number of flattened indexes built
+   */
+  public long getFlattenedCount();
+
+  /**
+   * @return the number of flattened indexes discarded because their index was updated
+   */
+  public long getDiscardedCount();
+
+  /**
+   * @return the total time spent building flattened indexes, in milliseconds
+   */
+  public long getFlattenTimeMillis();
+
+  /**
+   * Set all the counts to 0
+   */
+  public void resetCounts();
+}
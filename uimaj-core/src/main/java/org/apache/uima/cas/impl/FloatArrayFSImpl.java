@@ -73,10 +73,10 @@ public class FloatArrayFSImpl extends CommonArrayFSImpl implements FloatArrayFS
    */
   public void copyFromArray(float[] src, int srcOffset, int destOffset, int length) {
     casImpl.checkArrayBounds(addr, destOffset, length);
-    final int[] heap = this.casImpl.getHeap().heap;
+    final Heap heap = this.casImpl.getHeap();
     destOffset += this.casImpl.getArrayStartAddress(this.addr);
     for (int i = 0; i < length; i++) {
-      heap[i + destOffset] = CASImpl.float2int(src[i + srcOffset]);
+      heap.setHeapValue(CASImpl.float2int(src[i + srcOffset]), i + destOffset);
     }
   }
 
@@ -85,10 +85,10 @@ public class FloatArrayFSImpl extends CommonArrayFSImpl implements FloatArrayFS
    */
   public void copyToArray(int srcOffset, float[] dest, int destOffset, int length) {
     casImpl.checkArrayBounds(addr, srcOffset, length);
-    final int[] heap = this.casImpl.getHeap().heap;
+    final Heap heap = this.casImpl.getHeap();
     srcOffset += this.casImpl.getArrayStartAddress(this.addr);
     for (int i = 0; i < length; i++) {
-      dest[i + destOffset] = CASImpl.int2float(heap[i + srcOffset]);
+      dest[i + destOffset] = CASImpl.int2float(heap.getHeapValue(i + srcOffset));
     }
   }
 
@@ -107,10 +107,10 @@ public class FloatArrayFSImpl extends CommonArrayFSImpl implements FloatArrayFS
    */
   public void copyToArray(int srcOffset, String[] dest, int destOffset, int length) {
     casImpl.checkArrayBounds(addr, srcOffset, length);
-    final int[] heap = this.casImpl.getHeap().heap;
+    final Heap heap = this.casImpl.getHeap();
     srcOffset += this.casImpl.getArrayStartAddress(this.addr);
     for (int i = 0; i < length; i++) {
-      dest[i + destOffset] = Float.toString(CASImpl.int2float(heap[i + srcOffset]));
+      dest[i + destOffset] = Float.toString(CASImpl.int2float(heap.getHeapValue(i + srcOffset)));
     }
   }
 
@@ -119,10 +119,10 @@ public class FloatArrayFSImpl extends CommonArrayFSImpl implements FloatArrayFS
    */
   public void copyFromArray(String[] src, int srcOffset, int destOffset, int length) {
     casImpl.checkArrayBounds(addr, destOffset, length);
-    final int[] heap = casImpl.getHeap().heap;
+    final Heap heap = casImpl.getHeap();
     destOffset += casImpl.getArrayStartAddress(this.addr);
     for (int i = 0; i < length; i++) {
-      heap[i + destOffset] = CASImpl.float2int(Float.parseFloat(src[i + srcOffset]));
+      heap.setHeapValue(CASImpl.float2int(Float.parseFloat(src[i + srcOffset])), i + destOffset);
     }
   }
 }
@@ -19,9 +19,8 @@
 
 package org.apache.uima.cas.impl;
 
-import java.util.Arrays;
-
-import org.apache.uima.internal.util.IntArrayUtils;
+import java.io.File;
+import java.io.IOException;
 
 /**
  * A heap for CAS.
@@ -29,14 +28,14 @@ import org.apache.uima.internal.util.IntArrayUtils;
  * <p>
  * This class is agnostic about what you store on the heap. It only copies
  * values from integer arrays.
+ * 
+ * <p>
+ * The cells are kept in pages (see {@link CommonAuxHeap}), so growing the heap adds pages
+ * instead of copying the existing cells.  They are read and written with
+ * {@link #getHeapValue(int)} and {@link #setHeapValue(int, int)}.
  */
 public final class Heap {
 
-  private static final boolean debugLogShrink = false;
-//  static {
-//    debugLogShrink = System.getProperty("uima.debug.ihs") != null;
-//  }
-
   /**
    * Minimum size of the heap. Currently set to <code>1000</code>.
    */
@@ -47,24 +46,12 @@ public final class Heap {
    */
   public static final int DEFAULT_SIZE = 1024 * 512; // 2 MB pages
   
-  private static final int MULTIPLICATION_LIMIT = 1024 * 1024 * 16;  
-
   // Initial size of the heap. This is also the size the heap will be reset to
   // on a full reset.
   private int initialSize;
 
-  // The array that represents the actual heap is package private and
-  // can be directly addressed by the LowLevelCAS.
-  int[] heap;
-  
-  // Next free position on the heap.
-  private int pos;
-
-  // End of heap. In the current implementation, this is the same as
-  // this.heap.length at all times.
-  private int max;
-  
-  private final int[] shrinkableCount = new int[1];
+  // The paged storage of the cells; its size is the next free position on the heap.
+  private final IntHeap cells;
 
   // Serialization constants. There are holes in the numbering for historical
   // reasons. Keep the holes for compatibility.
@@ -102,20 +89,8 @@ public final class Heap {
       initialSize = MIN_SIZE;
     }
     this.initialSize = initialSize;
-    initHeap();
-  }
-
-  private final void initHeap() {
-    this.heap = new int[this.initialSize];
-    this.pos = 1; // 0 is not a valid address
-    this.max = this.heap.length;
+    this.cells = new IntHeap(initialSize);  // 0 is not a valid address
   }
-  
-  private final void initHeap(int size) {
-    this.heap = new int[size];
-    this.pos = 1; // 0 is not a valid address
-    this.max = this.heap.length;
-  }  
 
   void reinit(int[] md, int[] shortHeap) {
     if (md == null) {
@@ -124,15 +99,13 @@ public final class Heap {
     }
     // assert(md != null);
     // assert(shortHeap != null);
-    final int heapSize = md[SIZE_POS];
-    this.pos = md[TMPP_POS];
-    this.max = md[TMPM_POS];
+    final int pos = md[TMPP_POS];
     this.initialSize = md[PGSZ_POS];
 
-    // Copy the shortened version of the heap into a full version.
-    this.heap = new int[heapSize];
-    System.arraycopy(shortHeap, 0, this.heap, 0, shortHeap.length);
-
+    // Copy the shortened version of the heap into the pages.
+    this.cells.reinitSizeOnly(Math.max(pos, shortHeap.length));
+    this.cells.copyFromArray(shortHeap, 0, 0, shortHeap.length);
+    this.cells.heapPos = pos;
   }
 
   /**
@@ -142,52 +115,57 @@ public final class Heap {
    */
   private void reinitNoMetaData(int[] shortHeap) {
     this.initialSize = (shortHeap.length < MIN_SIZE) ? MIN_SIZE : shortHeap.length;
-    if (shortHeap.length >= this.initialSize) {
-      this.heap = shortHeap;
-    } else {
-      System.arraycopy(shortHeap, 0, this.heap, 0, shortHeap.length);
-    }
-    // Set position and max.
-    this.pos = shortHeap.length;
-//    this.max = this.initialSize;  // TODO fix me  
-    this.max = this.heap.length;   // heap could be repl by short heap
+    // Set position.
+    this.cells.reinitSizeOnly(shortHeap.length);
+    this.cells.copyFromArray(shortHeap, 0, 0, shortHeap.length);
   }
 
   /**
-   * Re-create the heap for the given size. Just use the size of the incoming
-   * heap, unless it's smaller than our minimum. It is expected that the caller
-   * will then fill in the new heap up to newSize.
+   * Re-create the heap for the given size. The already allocated pages are
+   * reused, set to 0. It is expected that the caller will then fill in the 
+   * new heap up to newSize.
    * 
    * @param newSize
    */
   void reinitSizeOnly(int newSize) {
     this.initialSize = (newSize < MIN_SIZE) ? MIN_SIZE : newSize;
-    this.heap = new int[this.initialSize];
-    // Set position and max.
-    this.pos = newSize;
-    this.max = this.initialSize;
+    // Set position.
+    this.cells.reinitSizeOnly(newSize);
   }
 
   /**
    * Return the number of cells used.
    */
   int getCellsUsed() {
-    return this.pos;
+    return this.cells.getSize();
   }
 
   /**
    * @return The overall size of the heap (in words) (including unused space).
    */
   int getHeapSize() {
-    return this.heap.length;
+    return this.cells.getCapacity();
+  }
+
+  /**
+   * Keep the cells outside of the Java heap.  Only allowed while the heap is empty.
+   * @param mappedFileDir the directory for the temporary files mapping the pages, 
+   *                      or null to use direct ByteBuffers
+   */
+  void setOffHeap(File mappedFileDir) {
+    this.cells.setOffHeap(mappedFileDir);
+  }
+
+  boolean isOffHeap() {
+    return this.cells.isOffHeap();
   }
 
   int[] getMetaData() {
     final int arSize = AVST_POS;
     int[] ar = new int[arSize];
-    ar[SIZE_POS] = this.heap.length;
-    ar[TMPP_POS] = this.pos;
-    ar[TMPM_POS] = this.max;
+    ar[SIZE_POS] = getHeapSize();
+    ar[TMPP_POS] = getCellsUsed();
+    ar[TMPM_POS] = getHeapSize();
     ar[PGSZ_POS] = this.initialSize;
     final int availablePagesSize = 0;
     ar[AVSZ_POS] = availablePagesSize;
@@ -195,13 +173,32 @@ public final class Heap {
     return ar;
   }
 
-  // Grow the heap.
-  private void grow() {
-    final int start = this.heap.length;
-    // This will grow the heap by doubling its size if it's smaller than
-    // MULTIPLICATION_LIMIT, and by MULTIPLICATION_LIMIT if it's larger.
-    this.heap = IntArrayUtils.ensure_size(this.heap, start + this.initialSize, 2, MULTIPLICATION_LIMIT);
-    this.max = this.heap.length;
+  /**
+   * @param addr the cell
+   * @return the value in the cell
+   */
+  int getHeapValue(int addr) {
+    return this.cells.getHeapValue(addr);
+  }
+
+  /**
+   * @param val the value to store
+   * @param addr the cell
+   */
+  void setHeapValue(int val, int addr) {
+    this.cells.setHeapValue(val, addr);
+  }
+
+  void copyToArray(int srcAddr, int[] dest, int destPos, int length) {
+    this.cells.copyToArray(srcAddr, dest, destPos, length);
+  }
+
+  void copyFromArray(int[] src, int srcPos, int destAddr, int length) {
+    this.cells.copyFromArray(src, srcPos, destAddr, length);
+  }
+
+  void readFully(CommonSerDes.Reading r, int addr, int length) throws IOException {
+    this.cells.readFully(r, addr, length);
   }
 
   /**
@@ -214,37 +211,12 @@ public final class Heap {
   /**
    * Reset the temporary heap.
    * 
-   * Logic for shrinking:
-   * 
-   *   Based on a short history of the sizes needed to hold the larger of the previous 2 sizes
-   *     (Note: can be overridden by calling reset() multiple times in a row)
-   *   Never shrink below initialSize
-   *   
-   *   Shrink in exact reverse sequence of growth - using the subtraction method 
-   *   and then (for small enough sizes) the dividing method
-   *   
-   *   Shrink 1/2 the distance to the size needed to hold the large of the prev 2 sizes
+   * The used cells are set to 0; trailing pages beyond the initial size are released
+   * when they have not been needed for a while, see {@link CommonAuxHeap}.
    */
   
   void reset(boolean doFullReset) {
-    if (doFullReset) {
-      if (debugLogShrink) System.out.format("Debug shrink Heap full reset from %,d%n", getHeapSize());
-      this.initHeap();
-    } else {
-      final int curCapacity = getHeapSize();
-      final int curSize = getCellsUsed();
-      // shrink based on max of prevSize and curSize
-      final int newCapacity = CommonAuxHeap.computeShrunkArraySize(
-            curCapacity, curSize, 2, MULTIPLICATION_LIMIT, initialSize, shrinkableCount);
-      if (newCapacity == curCapacity) {
-        Arrays.fill(this.heap, 0, this.pos, 0);
-      } else {
-        if (debugLogShrink) System.out.format("Debug shrink Heap from %,d to %,d%n",
-            curCapacity, newCapacity);
-        this.initHeap(newCapacity);
-      }
-      this.pos = 1;
-    }
+    this.cells.reset(doFullReset);
   }
 
   /**
@@ -256,12 +228,8 @@ public final class Heap {
    *         first element of the structure.
    */
   public int add(int[] fs) {
-    while ((this.pos + fs.length) >= this.max) {
-      grow();
-    }
-    System.arraycopy(fs, 0, this.heap, this.pos, fs.length);
-    final int pos1 = this.pos;
-    this.pos += fs.length;
+    final int pos1 = this.cells.reserve(fs.length);
+    this.cells.copyFromArray(fs, 0, pos1, fs.length);
     return pos1;
   }
 
@@ -277,24 +245,17 @@ public final class Heap {
    *         first element of the structure.
    */
   public int add(int len, int val) {
-    while ((this.pos + len) >= this.max) {
-      grow();
-    }
-    final int pos1 = this.pos;
-    this.pos += len;
-    this.heap[pos1] = val;
+    final int pos1 = this.cells.reserve(len);
+    this.cells.setHeapValue(val, pos1);
     return pos1;
   }
   
   public int getNextId() {
-	  return pos;
+	  return this.cells.getSize();
   }
   
   public void grow(int len) {
-  	while ((this.pos + len) >= this.max) {
-  	  grow();
-  	}
-    this.pos += len;
+    this.cells.reserve(len);
   }
 
   // used by JCas to default the size the JCasHashMap
@@ -74,7 +74,7 @@ public class IntArrayFSImpl extends CommonArrayFSImpl implements IntArrayFS {
   public void copyFromArray(int[] src, int srcOffset, int destOffset, int length) {
     casImpl.checkArrayBounds(addr, destOffset, length);
     destOffset += this.casImpl.getArrayStartAddress(this.addr);
-    System.arraycopy(src, srcOffset, this.casImpl.getHeap().heap, destOffset, length);
+    this.casImpl.getHeap().copyFromArray(src, srcOffset, destOffset, length);
   }
 
   /**
@@ -83,7 +83,7 @@ public class IntArrayFSImpl extends CommonArrayFSImpl implements IntArrayFS {
   public void copyToArray(int srcOffset, int[] dest, int destOffset, int length) {
     casImpl.checkArrayBounds(addr, srcOffset, length);
     srcOffset += this.casImpl.getArrayStartAddress(this.addr);
-    System.arraycopy(this.casImpl.getHeap().heap, srcOffset, dest, destOffset, length);
+    this.casImpl.getHeap().copyToArray(srcOffset, dest, destOffset, length);
   }
 
   /**
@@ -101,10 +101,10 @@ public class IntArrayFSImpl extends CommonArrayFSImpl implements IntArrayFS {
    */
   public void copyToArray(int srcOffset, String[] dest, int destOffset, int length) {
     casImpl.checkArrayBounds(addr, srcOffset, length);
-    final int[] heap = this.casImpl.getHeap().heap;
+    final Heap heap = this.casImpl.getHeap();
     srcOffset += this.casImpl.getArrayStartAddress(this.addr);
     for (int i = 0; i < length; i++) {
-      dest[i + destOffset] = Integer.toString(heap[i + srcOffset]);
+      dest[i + destOffset] = Integer.toString(heap.getHeapValue(i + srcOffset));
     }
   }
 
@@ -113,10 +113,10 @@ public class IntArrayFSImpl extends CommonArrayFSImpl implements IntArrayFS {
    */
   public void copyFromArray(String[] src, int srcOffset, int destOffset, int length) {
     casImpl.checkArrayBounds(addr, destOffset, length);
-    final int[] heap = casImpl.getHeap().heap;
+    final Heap heap = casImpl.getHeap();
     destOffset += casImpl.getArrayStartAddress(this.addr);
     for (int i = 0; i < length; i++) {
-      heap[i + destOffset] = Integer.parseInt(src[i + srcOffset]);
+      heap.setHeapValue(Integer.parseInt(src[i + srcOffset]), i + destOffset);
     }
   }
 }
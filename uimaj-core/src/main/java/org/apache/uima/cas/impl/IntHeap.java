@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Encapsulate 32 bit storage for a CAS: the cells of the main heap.
+ */
+final class IntHeap extends NumericAuxHeap {
+
+  private int[][] pages; // null if the storage is off heap
+
+  IntHeap(int heapBaseSize) {
+    super(heapBaseSize);
+  }
+
+  final void newPageSlots(int nbrSlots) {
+    this.pages = isOffHeap() ? null : new int[nbrSlots][];
+  }
+
+  final void ensurePageSlots(int nbrSlots) {
+    if (nbrSlots > pages.length) {
+      pages = Arrays.copyOf(pages, Math.max(nbrSlots, pages.length * 2));
+    }
+  }
+
+  final void newPage(int pageIndex, int size) {
+    pages[pageIndex] = new int[size];
+  }
+
+  final void growLastPage(int newSize) {
+    pages[nbrPages - 1] = Arrays.copyOf(pages[nbrPages - 1], newSize);
+  }
+
+  final void dropPages(int from, int to) {
+    Arrays.fill(pages, from, to, null);
+  }
+
+  final int lastPageCapacity() {
+    return pages[nbrPages - 1].length;
+  }
+
+  final void zeroPage(int pageIndex, int length) {
+    Arrays.fill(pages[pageIndex], 0, length, NULL);
+  }
+
+  final int bytesPerCell() {
+    return 4;
+  }
+
+  // Getters
+  int getHeapValue(int offset) {
+    return (null == pages) 
+        ? offHeapPages[offset >>> PAGE_SHIFT].getInt((offset & PAGE_MASK) << 2) 
+        : pages[offset >>> PAGE_SHIFT][offset & PAGE_MASK];
+  }
+
+  // setters
+  void setHeapValue(int val, int pos) {
+    if (null == pages) {
+      offHeapPages[pos >>> PAGE_SHIFT].putInt((pos & PAGE_MASK) << 2, val);
+    } else {
+      pages[pos >>> PAGE_SHIFT][pos & PAGE_MASK] = val;
+    }
+  }
+
+  void copyToArray(int srcPos, int[] dest, int destPos, int length) {
+    if (null == pages) {
+      for (int i = 0; i < length; i++) {
+        dest[destPos + i] = getHeapValue(srcPos + i);
+      }
+      return;
+    }
+    while (length > 0) {
+      final int posInPage = srcPos & PAGE_MASK;
+      final int n = Math.min(length, PAGE_SIZE - posInPage);
+      System.arraycopy(pages[srcPos >>> PAGE_SHIFT], posInPage, dest, destPos, n);
+      srcPos += n;
+      destPos += n;
+      length -= n;
+    }
+  }
+
+  void copyFromArray(int[] src, int srcPos, int destPos, int length) {
+    if (null == pages) {
+      for (int i = 0; i < length; i++) {
+        setHeapValue(src[srcPos + i], destPos + i);
+      }
+      return;
+    }
+    while (length > 0) {
+      final int posInPage = destPos & PAGE_MASK;
+      final int n = Math.min(length, PAGE_SIZE - posInPage);
+      System.arraycopy(src, srcPos, pages[destPos >>> PAGE_SHIFT], posInPage, n);
+      srcPos += n;
+      destPos += n;
+      length -= n;
+    }
+  }
+
+  /**
+   * Read length values into the cells starting at pos, a page at a time
+   * @param r the input to read from
+   * @param pos the first cell to fill in
+   * @param length the number of cells to read
+   * @throws IOException passed thru
+   */
+  void readFully(CommonSerDes.Reading r, int pos, int length) throws IOException {
+    if (null == pages) {
+      for (int i = 0; i < length; i++) {
+        setHeapValue(r.readInt(), pos + i);
+      }
+      return;
+    }
+    while (length > 0) {
+      final int posInPage = pos & PAGE_MASK;
+      final int n = Math.min(length, PAGE_SIZE - posInPage);
+      r.readInts(pages[pos >>> PAGE_SHIFT], posInPage, n);
+      pos += n;
+      length -= n;
+    }
+  }
+
+}
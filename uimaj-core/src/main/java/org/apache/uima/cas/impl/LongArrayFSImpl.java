@@ -85,7 +85,7 @@ public class LongArrayFSImpl extends CommonAuxArrayFSImpl implements LongArrayFS
       throw new ArrayIndexOutOfBoundsException();
     }
 
-    final int startoffset = casImpl.getHeap().heap[casImpl.getArrayStartAddress(this.addr)];
+    final int startoffset = casImpl.getHeap().getHeapValue(casImpl.getArrayStartAddress(this.addr));
     destOffset += startoffset;
     for (int i = 0; i < length; i++) {
       // cas.getHeap().heap[destOffset] = ((FeatureStructureImpl)src[srcOffset]).getAddress();
@@ -19,72 +19,141 @@
 
 package org.apache.uima.cas.impl;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
  * Encapsulate 64 bit storage for a CAS.
  */
-final class LongHeap extends CommonAuxHeap {
+final class LongHeap extends NumericAuxHeap {
 
-  long[] heap; // is never null after construction
+  private long[][] pages; // null if the storage is off heap
 
   LongHeap() {
-    super(DEFAULT_HEAP_BASE_SIZE, DEFAULT_HEAP_MULT_LIMIT);
+    super(DEFAULT_HEAP_BASE_SIZE);
   }
 
-  LongHeap(int heapBaseSize, int heapMultLimit) {
-    super(heapBaseSize, heapMultLimit);
+  LongHeap(int heapBaseSize) {
+    super(heapBaseSize);
   }
 
-  final void initMemory() {
-    this.heap = new long[this.heapBaseSize];
+  final void newPageSlots(int nbrSlots) {
+    this.pages = isOffHeap() ? null : new long[nbrSlots][];
   }
-  
-  final void initMemory(int size) {
-    this.heap = new long[size];
+
+  final void ensurePageSlots(int nbrSlots) {
+    if (nbrSlots > pages.length) {
+      pages = Arrays.copyOf(pages, Math.max(nbrSlots, pages.length * 2));
+    }
   }
 
-  final int getCapacity() {
-    return this.heap.length;
+  final void newPage(int pageIndex, int size) {
+    pages[pageIndex] = new long[size];
   }
-  
-  void growHeapIfNeeded() {
-    if (heap.length >= heapPos)
-      return;
 
-    long[] new_array = new long[computeNewArraySize(heap.length, heapPos, GROWTH_FACTOR,
-            heapMultLimit)];
-    System.arraycopy(heap, 0, new_array, 0, heap.length);
-    heap = new_array;
+  final void growLastPage(int newSize) {
+    pages[nbrPages - 1] = Arrays.copyOf(pages[nbrPages - 1], newSize);
   }
 
-  void resetToZeros() {
-    Arrays.fill(this.heap, 0, this.heapPos, NULL);
+  final void dropPages(int from, int to) {
+    Arrays.fill(pages, from, to, null);
+  }
+
+  final int lastPageCapacity() {
+    return pages[nbrPages - 1].length;
+  }
+
+  final void zeroPage(int pageIndex, int length) {
+    Arrays.fill(pages[pageIndex], 0, length, (long) NULL);
+  }
+
+  final int bytesPerCell() {
+    return 8;
   }
 
   // Getters
   long getHeapValue(int offset) {
-    return this.heap[offset];
+    return (null == pages) 
+        ? offHeapPages[offset >>> PAGE_SHIFT].getLong((offset & PAGE_MASK) << 3) 
+        : pages[offset >>> PAGE_SHIFT][offset & PAGE_MASK];
   }
 
   // setters
   void setHeapValue(long val, int pos) {
-    heap[pos] = val;
+    if (null == pages) {
+      offHeapPages[pos >>> PAGE_SHIFT].putLong((pos & PAGE_MASK) << 3, val);
+    } else {
+      pages[pos >>> PAGE_SHIFT][pos & PAGE_MASK] = val;
+    }
   }
 
   int addLong(long val) {
     int pos = reserve(1);
-    heap[pos] = val;
+    setHeapValue(val, pos);
     return pos;
   }
 
+  void copyToArray(int srcPos, long[] dest, int destPos, int length) {
+    if (null == pages) {
+      for (int i = 0; i < length; i++) {
+        dest[destPos + i] = getHeapValue(srcPos + i);
+      }
+      return;
+    }
+    while (length > 0) {
+      final int posInPage = srcPos & PAGE_MASK;
+      final int n = Math.min(length, PAGE_SIZE - posInPage);
+      System.arraycopy(pages[srcPos >>> PAGE_SHIFT], posInPage, dest, destPos, n);
+      srcPos += n;
+      destPos += n;
+      length -= n;
+    }
+  }
+
+  void copyFromArray(long[] src, int srcPos, int destPos, int length) {
+    if (null == pages) {
+      for (int i = 0; i < length; i++) {
+        setHeapValue(src[srcPos + i], destPos + i);
+      }
+      return;
+    }
+    while (length > 0) {
+      final int posInPage = destPos & PAGE_MASK;
+      final int n = Math.min(length, PAGE_SIZE - posInPage);
+      System.arraycopy(src, srcPos, pages[destPos >>> PAGE_SHIFT], posInPage, n);
+      srcPos += n;
+      destPos += n;
+      length -= n;
+    }
+  }
+
+  /**
+   * Read length values into the cells starting at pos, a page at a time
+   * @param r the input to read from
+   * @param pos the first cell to fill in
+   * @param length the number of cells to read
+   * @throws IOException passed thru
+   */
+  void readFully(CommonSerDes.Reading r, int pos, int length) throws IOException {
+    if (null == pages) {
+      for (int i = 0; i < length; i++) {
+        setHeapValue(r.readLong(), pos + i);
+      }
+      return;
+    }
+    while (length > 0) {
+      final int posInPage = pos & PAGE_MASK;
+      final int n = Math.min(length, PAGE_SIZE - posInPage);
+      r.readLongs(pages[pos >>> PAGE_SHIFT], posInPage, n);
+      pos += n;
+      length -= n;
+    }
+  }
+
   protected void reinit(long[] longHeap) {
     int argLength = longHeap.length;
-    if (argLength > heap.length)
-      heap = new long[argLength];
-
-    System.arraycopy(longHeap, 0, heap, 0, argLength);
-    this.heapPos = argLength;
+    reinitSizeOnly(argLength);
+    copyFromArray(longHeap, 0, 0, argLength);
   }
 
 }
@@ -820,5 +820,21 @@ public interface LowLevelCAS {
   CASImpl ll_getSofaCasView(int addr);
   
   int ll_getSofa();
+
+  /**
+   * Create a cursor, for reading and writing the given features of many FSs of a type without
+   * creating Java objects. The type and features are checked here, once, instead of on each access.
+   * 
+   * @param typeCode
+   *          The low-level code of the type (or a supertype) of the FSs to be accessed.
+   * @param featureCodes
+   *          The low-level codes of the features to access; a feature is accessed by its position
+   *          in this array.
+   * @return A new cursor, to be positioned with {@link FSCursor#moveTo(int)}.
+   * @exception LowLevelException
+   *              If the type or one of the features is invalid, or a feature is not defined for 
+   *              the type.
+   */
+  FSCursor ll_createCursor(int typeCode, int[] featureCodes);
 }
 
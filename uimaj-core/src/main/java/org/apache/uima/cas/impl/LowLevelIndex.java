@@ -59,4 +59,20 @@ public interface LowLevelIndex {
   int size();
 
   int ll_compare(int ref1, int ref2);
+
+  /**
+   * Copy some feature values of all the FSs in this index, in index order, into columns, 
+   * reading them directly from the CAS heaps (see {@link FSCursor}). 
+   * 
+   * @param featureCodes
+   *          The low-level codes of the features to export; they must be defined for the
+   *          type of this index.
+   * @param columns
+   *          One array per feature, at least {@link #size()} long, filled from index 0.
+   *          Each must be an array of the feature's range: int[], float[], boolean[], byte[], 
+   *          short[], long[], double[] or String[], or int[] (of FS references) for features 
+   *          whose range is not a primitive. A double[] may be used for float features.
+   * @return The number of FSs exported.
+   */
+  int ll_exportColumns(int[] featureCodes, Object[] columns);
 }
@@ -72,6 +72,16 @@ public interface LowLevelIndexRepository {
    */
   void ll_addFS(int fsRef, boolean doChecks);
 
+  /**
+   * Add a batch of FS references to all appropriate indexes in the repository. Equivalent to
+   * calling {@link #ll_addFS(int)} on each element, but each index is updated once per batch.
+   * 
+   * @param fsRefs
+   *          The FS references to be added to the repository. If any of these is not a valid FS
+   *          reference, the subsequent behavior of the system is undefined.
+   */
+  void ll_addAll(int[] fsRefs);
+
   /**
    * Remove a FS reference from all indexes in the repository. Note that this only removes the
    * reference from the index repository, it does not free memory on the heap.
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.io.IOException;
+
+/**
+ * A small pure Java implementation of the LZ4 block format, used as a fast alternative to 
+ * Deflate for the form 6 streams (see BinaryCasSerDes6.CompressCodec).
+ * 
+ * The output is a single LZ4 block (no frame, no checksum): a sequence of
+ *   token byte (4 bits literal length, 4 bits match length - 4),
+ *   extra literal length bytes (if 15), literals,
+ *   2 byte little endian offset, extra match length bytes (if 15).
+ * The last sequence has only literals.  
+ * 
+ * The decompressed length is not part of the block; it's kept by the caller (form 6 records it
+ * for each stream).
+ * 
+ * Compression is greedy, with a single hash table probe per position, and skips ahead faster
+ * over data where no matches are found - trading compression ratio for speed.
+ */
+final class Lz4Codec {
+  
+  private static final int MIN_MATCH = 4;
+  private static final int LAST_LITERALS = 5;    // the last 5 bytes are always literals
+  private static final int MF_LIMIT = 12;        // no match may start within the last 12 bytes
+  private static final int MAX_OFFSET = 65535;
+  private static final int HASH_LOG = 14;
+  private static final int SKIP_STRENGTH = 6;
+  private static final int RUN_MASK = 15;
+  
+  private Lz4Codec() {}
+  
+  /**
+   * @param length the number of bytes to compress
+   * @return the maximum size of the compressed form of length bytes
+   */
+  static int maxCompressedLength(int length) {
+    return length + (length / 255) + 16;
+  }
+  
+  /**
+   * @param src the bytes to compress
+   * @param srcLen the number of bytes of src to compress, starting at 0 
+   * @param dst where to put the compressed bytes, at least {@link #maxCompressedLength(int)} long
+   * @return the number of compressed bytes written to dst, starting at 0
+   */
+  static int compress(final byte[] src, final int srcLen, final byte[] dst) {
+    int dp = 0;
+    int anchor = 0;  // start of pending literals
+    if (srcLen >= MF_LIMIT + 1) {
+      final int[] hashTable = new int[1 << HASH_LOG];  // positions + 1, 0 means empty
+      final int matchLimit = srcLen - LAST_LITERALS;
+      final int mfLimit = srcLen - MF_LIMIT;
+      int sp = 0;
+      int searchMatchNb = 1 << SKIP_STRENGTH;
+      
+      while (sp < mfLimit) {
+        final int h = hash(readInt(src, sp));
+        final int ref = hashTable[h] - 1;
+        hashTable[h] = sp + 1;
+        if (ref < 0 || sp - ref > MAX_OFFSET || readInt(src, ref) != readInt(src, sp)) {
+          sp += searchMatchNb++ >>> SKIP_STRENGTH;
+          continue;
+        }
+        searchMatchNb = 1 << SKIP_STRENGTH;
+        
+        // extend the match backwards over pending literals, then forwards
+        int start = sp;
+        int mref = ref;
+        while (start > anchor && mref > 0 && src[start - 1] == src[mref - 1]) {
+          start--;
+          mref--;
+        }
+        int end = sp + MIN_MATCH;
+        int rEnd = ref + MIN_MATCH;
+        while (end < matchLimit && src[end] == src[rEnd]) {
+          end++;
+          rEnd++;
+        }
+        
+        dp = writeSequence(src, anchor, start - anchor, start - mref, end - start - MIN_MATCH, dst, dp);
+        anchor = sp = end;
+        if (sp < mfLimit) {
+          // so the position just before the next search can be matched against
+          hashTable[hash(readInt(src, sp - 2))] = sp - 2 + 1;
+        }
+      }
+    }
+    
+    // last literals
+    final int litLen = srcLen - anchor;
+    dp = writeLength(dst, dp, litLen);
+    System.arraycopy(src, anchor, dst, dp, litLen);
+    return dp + litLen;
+  }
+  
+  /**
+   * @param src the compressed bytes
+   * @param srcOff the offset of the first compressed byte
+   * @param srcLen the number of compressed bytes
+   * @param dst the array to decompress into, starting at 0
+   * @param dstLen the decompressed length
+   * @throws IOException if the compressed data is malformed, or doesn't decompress to exactly dstLen bytes
+   */
+  static void decompress(final byte[] src, final int srcOff, final int srcLen, final byte[] dst, final int dstLen) throws IOException {
+    final int srcEnd = srcOff + srcLen;
+    int sp = srcOff;
+    int dp = 0;
+    try {
+      while (true) {
+        if (sp >= srcEnd) {
+          throw malformed();
+        }
+        final int token = src[sp++] & 0xFF;
+        
+        // literals
+        int litLen = token >>> 4;
+        if (litLen == RUN_MASK) {
+          int b;
+          do {
+            b = src[sp++] & 0xFF;
+            litLen += b;
+          } while (b == 255);
+        }
+        if (litLen > srcEnd - sp || litLen > dstLen - dp) {
+          throw malformed();
+        }
+        System.arraycopy(src, sp, dst, dp, litLen);
+        sp += litLen;
+        dp += litLen;
+        if (sp == srcEnd) {
+          break;  // the last sequence has no match part
+        }
+        
+        // match
+        final int offset = (src[sp++] & 0xFF) | ((src[sp++] & 0xFF) << 8);
+        int matchLen = token & RUN_MASK;
+        if (matchLen == RUN_MASK) {
+          int b;
+          do {
+            b = src[sp++] & 0xFF;
+            matchLen += b;
+          } while (b == 255);
+        }
+        matchLen += MIN_MATCH;
+        int ref = dp - offset;
+        if (offset == 0 || ref < 0 || matchLen > dstLen - dp) {
+          throw malformed();
+        }
+        if (offset >= matchLen) {
+          System.arraycopy(dst, ref, dst, dp, matchLen);
+          dp += matchLen;
+        } else {
+          // overlapping copy, repeats the last offset bytes
+          final int mEnd = dp + matchLen;
+          while (dp < mEnd) {
+            dst[dp++] = dst[ref++];
+          }
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw malformed();
+    }
+    if (dp != dstLen) {
+      throw malformed();
+    }
+  }
+  
+  private static IOException malformed() {
+    return new IOException("Malformed LZ4 compressed data");
+  }
+  
+  private static int writeSequence(byte[] src, int litStart, int litLen, int offset, int matchLenMinus4, byte[] dst, int dp) {
+    final int tokenPos = dp;
+    dp = writeLength(dst, dp, litLen);
+    System.arraycopy(src, litStart, dst, dp, litLen);
+    dp += litLen;
+    dst[dp++] = (byte) offset;
+    dst[dp++] = (byte) (offset >>> 8);
+    if (matchLenMinus4 >= RUN_MASK) {
+      dst[tokenPos] |= RUN_MASK;
+      dp = writeExtraLength(dst, dp, matchLenMinus4 - RUN_MASK);
+    } else {
+      dst[tokenPos] |= matchLenMinus4;
+    }
+    return dp;
+  }
+  
+  /**
+   * writes a new token byte with the literal length in its high 4 bits, followed by any extra length bytes
+   */
+  private static int writeLength(byte[] dst, int dp, int litLen) {
+    if (litLen >= RUN_MASK) {
+      dst[dp++] = (byte) (RUN_MASK << 4);
+      return writeExtraLength(dst, dp, litLen - RUN_MASK);
+    }
+    dst[dp++] = (byte) (litLen << 4);
+    return dp;
+  }
+  
+  private static int writeExtraLength(byte[] dst, int dp, int len) {
+    while (len >= 255) {
+      dst[dp++] = (byte) 255;
+      len -= 255;
+    }
+    dst[dp++] = (byte) len;
+    return dp;
+  }
+  
+  private static int readInt(byte[] b, int i) {
+    return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | (b[i + 3] << 24);
+  }
+  
+  private static int hash(int v) {
+    return (v * -1640531535) >>> (32 - HASH_LOG);
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.apache.uima.UIMARuntimeException;
+
+/**
+ * Encapsulate 8, 16, 32 and 64 bit storage for the CAS.
+ * 
+ * Besides the Java array pages of {@link CommonAuxHeap}, these heaps can optionally (see
+ * {@link org.apache.uima.UIMAFramework#CAS_HEAPS_OFF_HEAP}) keep their values outside of
+ * the Java heap, in direct ByteBuffers, or in memory mapped temporary files (see
+ * {@link org.apache.uima.UIMAFramework#CAS_HEAPS_MAPPED_FILE_DIRECTORY}).  
+ * Off heap, all pages are PAGE_SIZE cells, and they are allocated as needed.
+ */
+abstract class NumericAuxHeap extends CommonAuxHeap {
+
+  /**
+   * The off heap storage; null if the values are kept in Java arrays.
+   * Only the first nbrPages entries are allocated.
+   */
+  protected ByteBuffer[] offHeapPages;
+
+  // the directory for the files mapping the off heap pages, or null to use direct ByteBuffers
+  private File mappedFileDir;
+
+  NumericAuxHeap(int heapBaseSize) {
+    super(heapBaseSize);
+  }
+
+  /**
+   * @return the number of bytes one cell takes in off heap storage
+   */
+  abstract int bytesPerCell();
+
+  final boolean isOffHeap() {
+    return null != this.offHeapPages;
+  }
+
+  /**
+   * Switch to keeping the values off of the Java heap, in direct ByteBuffers.
+   * Only allowed while the heap is empty (before anything has been stored in it).
+   */
+  final void setOffHeap() {
+    setOffHeap(null);
+  }
+
+  /**
+   * Switch to keeping the values off of the Java heap.
+   * Only allowed while the heap is empty (before anything has been stored in it).
+   * @param mappedFileDir the directory for the temporary files mapping the pages, 
+   *                      or null to use direct ByteBuffers
+   */
+  final void setOffHeap(File mappedFileDir) {
+    if (isOffHeap()) {
+      return;
+    }
+    if (this.heapPos != FIRST_CELL_REF) {
+      throw new IllegalStateException("The storage of a non-empty " + this.getClass().getSimpleName() + 
+          " can't be moved off heap");
+    }
+    this.mappedFileDir = mappedFileDir;
+    this.offHeapPages = new ByteBuffer[INITIAL_PAGE_SLOTS];
+    initMemory();  // releases the Java arrays
+  }
+
+  /**
+   * @param nbrBytes the size of the page
+   * @return a new page, all zeros
+   */
+  private ByteBuffer newOffHeapPage(int nbrBytes) {
+    if (null == mappedFileDir) {
+      return ByteBuffer.allocateDirect(nbrBytes);  // new direct buffers are zeroed
+    }
+    // A new file reads as zeros.  The mapping stays valid after the file is closed and deleted; 
+    // its pages are written back to the file system only under memory pressure.
+    try {
+      final File file = File.createTempFile("uimaCasPage", null, mappedFileDir);
+      try {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+          raf.setLength(nbrBytes);
+          return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, nbrBytes);
+        } finally {
+          raf.close();
+        }
+      } finally {
+        if (!file.delete()) {
+          file.deleteOnExit();  // some platforms can't delete a mapped file
+        }
+      }
+    } catch (IOException e) {
+      throw new UIMARuntimeException(e);
+    }
+  }
+
+  @Override
+  final boolean hasGrowableLastPage() {
+    return !isOffHeap();
+  }
+
+  @Override
+  final void allocatePages(int capacity) {
+    if (isOffHeap()) {
+      Arrays.fill(offHeapPages, null);  // off heap memory is freed when GC'd; pages are allocated as needed
+      newPageSlots(0);
+      nbrPages = 0;
+    } else {
+      super.allocatePages(capacity);
+    }
+  }
+
+  @Override
+  final void addPages(int pagesNeeded) {
+    if (isOffHeap()) {
+      if (pagesNeeded > offHeapPages.length) {
+        offHeapPages = Arrays.copyOf(offHeapPages, Math.max(pagesNeeded, offHeapPages.length * 2));
+      }
+      final int pageBytes = PAGE_SIZE * bytesPerCell();
+      while (nbrPages < pagesNeeded) {
+        offHeapPages[nbrPages++] = newOffHeapPage(pageBytes).order(ByteOrder.nativeOrder());
+      }
+    } else {
+      super.addPages(pagesNeeded);
+    }
+  }
+
+  @Override
+  final void freePages(int from, int to) {
+    if (isOffHeap()) {
+      Arrays.fill(offHeapPages, from, to, null);  // off heap memory is freed when GC'd
+    } else {
+      super.freePages(from, to);
+    }
+  }
+
+  @Override
+  final void zeroCells(int pageIndex, int length) {
+    if (isOffHeap()) {
+      final ByteBuffer page = offHeapPages[pageIndex];
+      final int nbrBytes = length * bytesPerCell();
+      int j = 0;
+      for (; j + 8 <= nbrBytes; j += 8) {
+        page.putLong(j, 0L);
+      }
+      for (; j < nbrBytes; j++) {
+        page.put(j, (byte) 0);
+      }
+    } else {
+      super.zeroCells(pageIndex, length);
+    }
+  }
+}
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import static org.apache.uima.cas.impl.SlotKinds.SlotKind.NBR_SLOT_KIND_ZIP_STREAMS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.uima.cas.AbstractCas;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressCodec;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressLevel;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressStrat;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.ReuseInfo;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+
+/**
+ * A thread-safe form 6 (BinaryCasSerDes6) serializer / deserializer for one pair of type systems, 
+ * for services which (de)serialize many CASes, often small ones, with the same type systems.
+ * 
+ * The type system pair is checked, and its type mapping computed, once, when this is created.
+ * Each thread using an instance gets its own set of buffers, reused from one call to the next:
+ * the slot kind output streams and the compressed output, which otherwise would be allocated 
+ * for each CAS.  Buffers which grew large for an unusually big CAS are dropped rather than kept.
+ * The Deflater and Inflaters, which hold native memory, are borrowed for each call from a pool
+ * kept by the instance, instead of being natively initialized for each CAS;
+ * {@link #close()} ends the pooled ones.
+ * 
+ * The target type system is only weakly referenced, like in {@link CasTypeSystemMapper}, so the
+ * cached instances don't keep it from being garbage collected; users of an instance keep it alive.
+ * 
+ * Serializing writes CASes having the source type system, filtered to the target type system 
+ * (null means the same as the source);
+ * deserializing reads CASes serialized with the target type system into CASes having the source type system.
+ * 
+ * Delta CAS (de)serialization is not supported here; use BinaryCasSerDes6 directly for that.
+ * 
+ * Instances are cached per (source, target) type system pair, with the default compression settings: 
+ * see {@link #get(TypeSystem, TypeSystem)}.
+ */
+public class ReusableBinaryCasSerDes6 {
+  
+  /**
+   * Per thread buffers bigger than this are not kept for the next use 
+   */
+  private static final int MAX_KEPT_BUFFER_SIZE = 1 << 20;
+  
+  /**
+   * At most this many idle Deflaters, and this many idle Inflaters, are pooled
+   */
+  private static final int MAX_IDLE_CODERS = 64;
+
+  /**
+   * The buffers used by one thread, and the Deflater / Inflaters borrowed for the current call
+   */
+  static class Buffers {
+    private final ByteArrayOutputStream[] zipSources = new ByteArrayOutputStream[NBR_SLOT_KIND_ZIP_STREAMS];
+    private ByteArrayOutputStream zipped;
+    private Deflater deflater;
+    private final Inflater[] inflaters = new Inflater[NBR_SLOT_KIND_ZIP_STREAMS];
+    private final ReusableBinaryCasSerDes6 pool;
+    
+    Buffers(ReusableBinaryCasSerDes6 pool) {
+      this.pool = pool;
+    }
+    
+    ByteArrayOutputStream zipSource(int i, int estimatedSize) {
+      ByteArrayOutputStream baos = zipSources[i];
+      if (baos == null) {
+        return zipSources[i] = new ByteArrayOutputStream(estimatedSize);
+      }
+      baos.reset();
+      return baos;
+    }
+    
+    ByteArrayOutputStream zipped() {
+      if (zipped == null) {
+        return zipped = new ByteArrayOutputStream(4096);
+      }
+      zipped.reset();
+      return zipped;
+    }
+    
+    Deflater deflater() {
+      if (deflater == null) {
+        deflater = pool.takeDeflater();
+      }
+      return deflater;
+    }
+    
+    Inflater inflater(int i) {
+      Inflater inflater = inflaters[i];
+      if (inflater == null) {
+        return inflaters[i] = pool.takeInflater();
+      }
+      inflater.reset();
+      return inflater;
+    }
+    
+    /**
+     * called after each use, to give back the Deflater / Inflaters, and to not keep very large buffers around
+     */
+    void release() {
+      if (deflater != null) {
+        pool.giveBack(deflater);
+        deflater = null;
+      }
+      for (int i = 0; i < inflaters.length; i++) {
+        if (inflaters[i] != null) {
+          pool.giveBack(inflaters[i]);
+          inflaters[i] = null;
+        }
+      }
+      for (int i = 0; i < zipSources.length; i++) {
+        if (zipSources[i] != null && zipSources[i].size() > MAX_KEPT_BUFFER_SIZE) {
+          zipSources[i] = null;
+        }
+      }
+      if (zipped != null && zipped.size() > MAX_KEPT_BUFFER_SIZE) {
+        zipped = null;
+      }
+    }
+  }
+  
+  private final TypeSystemImpl srcTs;
+  private final WeakReference<TypeSystemImpl> tgtTs;  // null if the same as srcTs
+  private final CompressLevel compressLevel;
+  private final CompressStrat compressStrategy;
+  private final CompressCodec compressCodec;
+  
+  private final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+    @Override
+    protected Buffers initialValue() {
+      return new Buffers(ReusableBinaryCasSerDes6.this);
+    }
+  };
+  
+  // the idle Deflaters and Inflaters, guarded by this
+  private final ArrayDeque<Deflater> idleDeflaters = new ArrayDeque<Deflater>();
+  private final ArrayDeque<Inflater> idleInflaters = new ArrayDeque<Inflater>();
+  private boolean closed = false;
+  
+  /**
+   * @param srcTs the type system of the CASes being serialized, or deserialized into
+   * @param tgtTs the type system to filter to when serializing, and of the serialized forms being deserialized;
+   *              null means the same as srcTs
+   * @return the (shared) instance for this pair of type systems, using the default compression settings
+   * @throws ResourceInitializationException if the type systems are incompatible
+   */
+  public static ReusableBinaryCasSerDes6 get(TypeSystem srcTs, TypeSystem tgtTs) throws ResourceInitializationException {
+    return ((TypeSystemImpl) srcTs).getReusableSerDes6((TypeSystemImpl) tgtTs);
+  }
+  
+  /**
+   * @param srcTs the type system of the CASes being serialized, or deserialized into
+   * @param tgtTs the type system to filter to when serializing, and of the serialized forms being deserialized;
+   *              null means the same as srcTs
+   * @param compressLevel - 
+   * @param compressStrategy -
+   * @param compressCodec -
+   * @throws ResourceInitializationException if the type systems are incompatible
+   */
+  public ReusableBinaryCasSerDes6(
+      TypeSystem srcTs, 
+      TypeSystem tgtTs, 
+      CompressLevel compressLevel, 
+      CompressStrat compressStrategy,
+      CompressCodec compressCodec) throws ResourceInitializationException {
+    this.srcTs = (TypeSystemImpl) srcTs;
+    this.tgtTs = (tgtTs == srcTs || tgtTs == null) ? null : new WeakReference<TypeSystemImpl>((TypeSystemImpl) tgtTs);
+    this.compressLevel = compressLevel;
+    this.compressStrategy = compressStrategy;
+    this.compressCodec = compressCodec;
+    this.srcTs.getTypeSystemMapper(getTgtTs());  // check and cache the mapping now
+  }
+  
+  /**
+   * Serialize a CAS, filtering to the target type system
+   * @param cas the CAS, whose type system must be the source type system
+   * @param out an OutputStream, a DataOutputStream, or a File
+   * @return information to be used on subsequent delta (de)serializations
+   * @throws IOException passthru
+   */
+  public ReuseInfo serialize(AbstractCas cas, Object out) throws IOException {
+    BinaryCasSerDes6 bcs = create(cas);
+    try {
+      bcs.serialize(out);
+    } finally {
+      buffers.get().release();
+    }
+    return bcs.getReuseInfo();
+  }
+  
+  /**
+   * Deserialize (not a delta) into a CAS, which is reset first
+   * @param cas the CAS, whose type system must be the source type system
+   * @param istream a form 6 serialization of a CAS having the target type system
+   * @throws IOException passthru
+   */
+  public void deserialize(AbstractCas cas, InputStream istream) throws IOException {
+    BinaryCasSerDes6 bcs = create(cas);
+    try {
+      bcs.deserialize(istream);
+    } finally {
+      buffers.get().release();
+    }
+  }
+  
+  /**
+   * End the pooled Deflater and Inflaters, releasing their native memory.
+   * Those in use by other threads are ended when they are given back.
+   * The instance can still be used afterwards, but then makes and ends a Deflater / Inflaters for each call. 
+   */
+  public synchronized void close() {
+    closed = true;
+    for (Deflater deflater : idleDeflaters) {
+      deflater.end();
+    }
+    idleDeflaters.clear();
+    for (Inflater inflater : idleInflaters) {
+      inflater.end();
+    }
+    idleInflaters.clear();
+  }
+  
+  synchronized Deflater takeDeflater() {
+    Deflater deflater = idleDeflaters.poll();
+    if (deflater == null) {
+      deflater = new Deflater(compressLevel.lvl, true);
+      deflater.setStrategy(compressStrategy.strat);
+    }
+    return deflater;  // reset before each use
+  }
+  
+  synchronized Inflater takeInflater() {
+    Inflater inflater = idleInflaters.poll();
+    if (inflater == null) {
+      return new Inflater(true);
+    }
+    inflater.reset();
+    return inflater;
+  }
+  
+  synchronized void giveBack(Deflater deflater) {
+    if (closed || idleDeflaters.size() >= MAX_IDLE_CODERS) {
+      deflater.end();
+    } else {
+      idleDeflaters.push(deflater);
+    }
+  }
+  
+  synchronized void giveBack(Inflater inflater) {
+    if (closed || idleInflaters.size() >= MAX_IDLE_CODERS) {
+      inflater.end();
+    } else {
+      idleInflaters.push(inflater);
+    }
+  }
+  
+  public TypeSystemImpl getSrcTs() {
+    return srcTs;
+  }
+
+  /**
+   * @return the target type system, or null if it's the same as the source
+   * @throws IllegalStateException if the target type system has been garbage collected
+   */
+  public TypeSystemImpl getTgtTs() {
+    if (tgtTs == null) {
+      return null;
+    }
+    TypeSystemImpl ts = tgtTs.get();
+    if (ts == null) {
+      throw new IllegalStateException("The target type system of this serializer is no longer in use");
+    }
+    return ts;
+  }
+
+  private BinaryCasSerDes6 create(AbstractCas aCas) {
+    CASImpl cas = (CASImpl) ((aCas instanceof JCas) ? ((JCas)aCas).getCas(): aCas);
+    if (cas.getTypeSystemImpl() != srcTs) {
+      throw new IllegalArgumentException("The CAS's type system is not the source type system of this serializer");
+    }
+    BinaryCasSerDes6 bcs;
+    try {
+      bcs = new BinaryCasSerDes6(cas, null, getTgtTs(), null, false, compressLevel, compressStrategy, compressCodec);
+    } catch (ResourceInitializationException e) {
+      // not thrown, the type systems were checked when this instance was made
+      throw new IllegalStateException(e);
+    }
+    bcs.setBuffers(buffers.get());
+    return bcs;
+  }
+}
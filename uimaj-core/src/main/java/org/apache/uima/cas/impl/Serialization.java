@@ -29,6 +29,9 @@ import org.apache.uima.cas.Marker;
 import org.apache.uima.cas.SerialFormat;
 import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.admin.CASMgr;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressCodec;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressLevel;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressStrat;
 import org.apache.uima.cas.impl.BinaryCasSerDes6.ReuseInfo;
 import org.apache.uima.resource.ResourceInitializationException;
 
@@ -267,6 +270,25 @@ public class Serialization {
     return bcs.getReuseInfo();
   }
   
+  /**
+   * Serialize in compressed binary with type filtering, using a particular codec for the compression step.
+   * The codec is recorded in the serialized form; the deserialize methods detect it.
+   * 
+   * @param cas the CAS to serialize
+   * @param out an OutputStream, a DataOutputStream, or a File
+   * @param tgtTypeSystem null or a target TypeSystem, which must be mergable with this CAS's type system
+   * @param codec the codec: Deflate (the default, most compact), Lz4 (faster), or None (fastest)
+   * @return information to be used on subsequent serializations (to save time) or deserializations (for receiving delta CASs), or reserializations (if sending delta CASs)
+   * @throws IOException if IO exception
+   * @throws ResourceInitializationException if target type system is incompatible with this CAS's type system
+   */  
+  public static ReuseInfo serializeWithCompression(CAS cas, Object out, TypeSystem tgtTypeSystem, CompressCodec codec) throws IOException, ResourceInitializationException {
+    BinaryCasSerDes6 bcs = new BinaryCasSerDes6(cas, null, (TypeSystemImpl) tgtTypeSystem, null, false, 
+        CompressLevel.Default, CompressStrat.Default, codec);
+    bcs.serialize(out);
+    return bcs.getReuseInfo();
+  }
+  
   /**
    * Delta Serialize in compressed form, with type filtering
    * This method can use type filtering to omit sending those types and/or features not present in the target type system.
@@ -66,21 +66,28 @@ public class ShortArrayFSImpl extends CommonAuxArrayFSImpl implements ShortArray
    * @see org.apache.uima.cas.ShortArrayFS#copyFromArray(short[], int, int, int)
    */
   public void copyFromArray(short[] src, int srcOffset, int destOffset, int length) {
-    copyFromJavaArray(src, srcOffset, casImpl.getShortHeap().heap, destOffset, length);
+    this.casImpl.checkArrayBounds(this.addr, destOffset, length);
+    final int startOffset = casImpl.getHeap().getHeapValue(casImpl.getArrayStartAddress(this.addr));
+    this.casImpl.getShortHeap().copyFromArray(src, srcOffset, startOffset + destOffset, length);
   }
 
   /**
    * @see org.apache.uima.cas.ShortArrayFS#copyToArray(int, short[], int, int)
    */
   public void copyToArray(int srcOffset, short[] dest, int destOffset, int length) {
-    copyToJavaArray(this.casImpl.getShortHeap().heap, srcOffset, dest, destOffset, length);
+    this.casImpl.checkArrayBounds(this.addr, srcOffset, length);
+    final int startOffset = casImpl.getHeap().getHeapValue(casImpl.getArrayStartAddress(this.addr));
+    this.casImpl.getShortHeap().copyToArray(startOffset + srcOffset, dest, destOffset, length);
   }
 
   /**
    * @see org.apache.uima.cas.ShortArrayFS#toArray()
    */
   public short[] toArray() {
-    return (short[]) toArray(this.casImpl.getShortHeap().heap);
+    final int size = size();
+    short[] outArray = new short[size];
+    copyToArray(0, outArray, 0, size);
+    return outArray;
   }
 
   /**
@@ -88,10 +95,10 @@ public class ShortArrayFSImpl extends CommonAuxArrayFSImpl implements ShortArray
    */
   public void copyToArray(int srcOffset, String[] dest, int destOffset, int length) {
     casImpl.checkArrayBounds(addr, srcOffset, length);
-    srcOffset += casImpl.getHeap().heap[casImpl.getArrayStartAddress(addr)];
-    final short[] heap = this.casImpl.getShortHeap().heap;
+    srcOffset += casImpl.getHeap().getHeapValue(casImpl.getArrayStartAddress(addr));
+    final ShortHeap heap = this.casImpl.getShortHeap();
     for (int i = 0; i < length; i++) {
-      dest[i + destOffset] = Short.toString(heap[i + srcOffset]);
+      dest[i + destOffset] = Short.toString(heap.getHeapValue(i + srcOffset));
     }
   }
 
@@ -19,71 +19,140 @@
 
 package org.apache.uima.cas.impl;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
  * Encapsulate 16 bit storage for a CAS.HEAP_CELL_SIZE
  */
-final class ShortHeap extends CommonAuxHeap {
+final class ShortHeap extends NumericAuxHeap {
 
-  short[] heap;
+  private short[][] pages; // null if the storage is off heap
 
   ShortHeap() {
-    super(DEFAULT_HEAP_BASE_SIZE, DEFAULT_HEAP_MULT_LIMIT);
+    super(DEFAULT_HEAP_BASE_SIZE);
   }
 
-  ShortHeap(int heapBaseSize, int heapMultLimit) {
-    super(heapBaseSize, heapMultLimit);
+  ShortHeap(int heapBaseSize) {
+    super(heapBaseSize);
   }
 
-  final void initMemory() {
-    this.heap = new short[this.heapBaseSize];
+  final void newPageSlots(int nbrSlots) {
+    this.pages = isOffHeap() ? null : new short[nbrSlots][];
   }
-  
-  final void initMemory(int size) {
-    this.heap = new short[size];
+
+  final void ensurePageSlots(int nbrSlots) {
+    if (nbrSlots > pages.length) {
+      pages = Arrays.copyOf(pages, Math.max(nbrSlots, pages.length * 2));
+    }
   }
 
-  final int getCapacity() {
-    return this.heap.length;
+  final void newPage(int pageIndex, int size) {
+    pages[pageIndex] = new short[size];
   }
 
-  void growHeapIfNeeded() {
-    if (heap.length >= heapPos)
-      return;
+  final void growLastPage(int newSize) {
+    pages[nbrPages - 1] = Arrays.copyOf(pages[nbrPages - 1], newSize);
+  }
+
+  final void dropPages(int from, int to) {
+    Arrays.fill(pages, from, to, null);
+  }
 
-    short[] new_array = new short[computeNewArraySize(heap.length, heapPos, GROWTH_FACTOR,
-            heapMultLimit)];
-    System.arraycopy(heap, 0, new_array, 0, heap.length);
-    heap = new_array;
+  final int lastPageCapacity() {
+    return pages[nbrPages - 1].length;
   }
 
-  void resetToZeros() {
-    Arrays.fill(this.heap, 0, this.heapPos, (short) NULL);
+  final void zeroPage(int pageIndex, int length) {
+    Arrays.fill(pages[pageIndex], 0, length, (short) NULL);
+  }
+
+  final int bytesPerCell() {
+    return 2;
   }
 
   // Getters
   short getHeapValue(int offset) {
-    return this.heap[offset];
+    return (null == pages) 
+        ? offHeapPages[offset >>> PAGE_SHIFT].getShort((offset & PAGE_MASK) << 1) 
+        : pages[offset >>> PAGE_SHIFT][offset & PAGE_MASK];
   }
 
   // setters
   void setHeapValue(short val, int pos) {
-    heap[pos] = val;
+    if (null == pages) {
+      offHeapPages[pos >>> PAGE_SHIFT].putShort((pos & PAGE_MASK) << 1, val);
+    } else {
+      pages[pos >>> PAGE_SHIFT][pos & PAGE_MASK] = val;
+    }
   }
 
   int addShort(short val) {
     int pos = reserve(1);
-    heap[pos] = val;
+    setHeapValue(val, pos);
     return pos;
   }
 
+  void copyToArray(int srcPos, short[] dest, int destPos, int length) {
+    if (null == pages) {
+      for (int i = 0; i < length; i++) {
+        dest[destPos + i] = getHeapValue(srcPos + i);
+      }
+      return;
+    }
+    while (length > 0) {
+      final int posInPage = srcPos & PAGE_MASK;
+      final int n = Math.min(length, PAGE_SIZE - posInPage);
+      System.arraycopy(pages[srcPos >>> PAGE_SHIFT], posInPage, dest, destPos, n);
+      srcPos += n;
+      destPos += n;
+      length -= n;
+    }
+  }
+
+  void copyFromArray(short[] src, int srcPos, int destPos, int length) {
+    if (null == pages) {
+      for (int i = 0; i < length; i++) {
+        setHeapValue(src[srcPos + i], destPos + i);
+      }
+      return;
+    }
+    while (length > 0) {
+      final int posInPage = destPos & PAGE_MASK;
+      final int n = Math.min(length, PAGE_SIZE - posInPage);
+      System.arraycopy(src, srcPos, pages[destPos >>> PAGE_SHIFT], posInPage, n);
+      srcPos += n;
+      destPos += n;
+      length -= n;
+    }
+  }
+
+  /**
+   * Read length values into the cells starting at pos, a page at a time
+   * @param r the input to read from
+   * @param pos the first cell to fill in
+   * @param length the number of cells to read
+   * @throws IOException passed thru
+   */
+  void readFully(CommonSerDes.Reading r, int pos, int length) throws IOException {
+    if (null == pages) {
+      for (int i = 0; i < length; i++) {
+        setHeapValue(r.readShort(), pos + i);
+      }
+      return;
+    }
+    while (length > 0) {
+      final int posInPage = pos & PAGE_MASK;
+      final int n = Math.min(length, PAGE_SIZE - posInPage);
+      r.readShorts(pages[pos >>> PAGE_SHIFT], posInPage, n);
+      pos += n;
+      length -= n;
+    }
+  }
+
   protected void reinit(short[] shortHeap) {
     int argLength = shortHeap.length;
-    if (argLength > heap.length)
-      heap = new short[argLength];
-
-    System.arraycopy(shortHeap, 0, heap, 0, argLength);
-    this.heapPos = argLength;
+    reinitSizeOnly(argLength);
+    copyFromArray(shortHeap, 0, 0, argLength);
   }
 }
@@ -88,7 +88,7 @@ public class StringArrayFSImpl extends CommonArrayFSImpl implements StringArrayF
     for (int i = 0; i < length; i++) {
       // cas.getHeap().heap[destOffset] =
       // ((FeatureStructureImpl)src[srcOffset]).getAddress();
-      this.casImpl.getHeap().heap[destOffset] = this.casImpl.addString(src[srcOffset]);
+      this.casImpl.getHeap().setHeapValue(this.casImpl.addString(src[srcOffset]), destOffset);
       ++destOffset;
       ++srcOffset;
     }
@@ -19,31 +19,199 @@
 
 package org.apache.uima.cas.impl;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
  * Encapsulate string storage for the CAS.
  * 
+ * The strings are kept in pages, like the other aux heaps; the string code is the cell number.
+ * Cell 0 is unused (it's the null string).
+ * 
+ * Off heap (see {@link org.apache.uima.UIMAFramework#CAS_HEAPS_OFF_HEAP}), the characters of
+ * the strings are appended to an off heap {@link ShortHeap}, and the string code's cell in an 
+ * off heap {@link IntHeap} holds the position of its first character; the string ends where the
+ * next one starts.  Getting a string value then makes a new String from the characters.
  */
-final class StringHeap {
+final class StringHeap extends CommonAuxHeap {
   
   private static final int leastStringCode = 1;
 
-  private List<String> stringList;
+  private String[][] pages; // null if the storage is off heap
+
+  // off heap: the position in offHeapChars of the first character of each string; otherwise null 
+  private IntHeap offHeapCharStarts;
+
+  // off heap: the characters of the strings, one after the other; otherwise null
+  private ShortHeap offHeapChars;
+  
+  // null or the table shared with other CASes, consulted for each string added
+  private StringInternTable internTable;
+  
+  // the string code just before the strings of the shared dictionary, 
+  // or -1 if they haven't been added since the last reset
+  private int sharedDictionaryBase = -1;
 
   StringHeap() {
-    super();
-    initMemory();
+    super(DEFAULT_HEAP_BASE_SIZE);
+  }
+
+  final void newPageSlots(int nbrSlots) {
+    this.pages = isOffHeap() ? null : new String[nbrSlots][];
+  }
+
+  final void ensurePageSlots(int nbrSlots) {
+    if (nbrSlots > pages.length) {
+      pages = Arrays.copyOf(pages, Math.max(nbrSlots, pages.length * 2));
+    }
+  }
+
+  final void newPage(int pageIndex, int size) {
+    pages[pageIndex] = new String[size];
+  }
+
+  final void growLastPage(int newSize) {
+    pages[nbrPages - 1] = Arrays.copyOf(pages[nbrPages - 1], newSize);
+  }
+
+  final void dropPages(int from, int to) {
+    Arrays.fill(pages, from, to, null);
+  }
+
+  final int lastPageCapacity() {
+    return pages[nbrPages - 1].length;
   }
 
-  // Initialize internal datastructures.  This used to be a lot more complicated when we had the
-  // character heap option.  
-  private final void initMemory() {
-    this.stringList = new ArrayList<String>();
-    this.stringList.add(null);
+  final void zeroPage(int pageIndex, int length) {
+    Arrays.fill(pages[pageIndex], 0, length, null);
+  }
+
+  final boolean isOffHeap() {
+    return null != this.offHeapChars;
+  }
+
+  /**
+   * Switch to keeping the strings off of the Java heap.
+   * Only allowed while the heap is empty (before any string has been added).
+   * @param mappedFileDir the directory for the temporary files mapping the pages, 
+   *                      or null to use direct ByteBuffers
+   */
+  final void setOffHeap(File mappedFileDir) {
+    if (isOffHeap()) {
+      return;
+    }
+    if (this.heapPos != FIRST_CELL_REF) {
+      throw new IllegalStateException("The storage of a non-empty StringHeap can't be moved off heap");
+    }
+    offHeapCharStarts = new IntHeap(DEFAULT_HEAP_BASE_SIZE);
+    offHeapCharStarts.setOffHeap(mappedFileDir);
+    offHeapChars = new ShortHeap(DEFAULT_HEAP_BASE_SIZE);
+    offHeapChars.setOffHeap(mappedFileDir);
+    initMemory();  // releases the Java arrays
+  }
+
+  /*
+   * Off heap, the pages are only counted; the cells are in offHeapCharStarts, 
+   * which allocates and releases its own pages.
+   */
+
+  @Override
+  final boolean hasGrowableLastPage() {
+    return !isOffHeap();
+  }
+
+  @Override
+  final void allocatePages(int capacity) {
+    if (isOffHeap()) {
+      newPageSlots(0);
+      nbrPages = 0;
+    } else {
+      super.allocatePages(capacity);
+    }
+  }
+
+  @Override
+  final void addPages(int pagesNeeded) {
+    if (isOffHeap()) {
+      nbrPages = Math.max(nbrPages, pagesNeeded);
+    } else {
+      super.addPages(pagesNeeded);
+    }
+  }
+
+  @Override
+  final void freePages(int from, int to) {
+    if (!isOffHeap()) {
+      super.freePages(from, to);
+    }
+  }
+
+  @Override
+  final void zeroCells(int pageIndex, int length) {
+    if (!isOffHeap()) {
+      super.zeroCells(pageIndex, length);
+    }
+  }
+
+  final void setInternTable(StringInternTable internTable) {
+    this.internTable = internTable;
+  }
+  
+  final StringInternTable getInternTable() {
+    return internTable;
+  }
+  
+  /**
+   * Add the strings of a shared dictionary, in order, unless that was already done since the last
+   * reset, so repeated (delta) deserializations reference the same slots.
+   * @param dictionary the dictionary of the intern table
+   * @return the string code just before the first dictionary string
+   */
+  final int addSharedDictionary(String[] dictionary) {
+    if (sharedDictionaryBase < 0) {
+      sharedDictionaryBase = heapPos - 1;
+      for (String s : dictionary) {
+        addString(s);
+      }
+    }
+    return sharedDictionaryBase;
+  }
+
+  @Override
+  void reset(boolean doFullReset) {
+    super.reset(doFullReset);
+    if (isOffHeap()) {
+      offHeapCharStarts.reset(doFullReset);
+      offHeapChars.reset(doFullReset);
+    }
+    sharedDictionaryBase = -1;
+  }
+
+  @Override
+  void reinitSizeOnly(int size) {
+    super.reinitSizeOnly(size);
+    if (isOffHeap()) {
+      offHeapCharStarts.reinitSizeOnly(size);
+      offHeapChars.reinitSizeOnly(FIRST_CELL_REF);
+    }
+    sharedDictionaryBase = -1;
+  }
+
+  private String get(int stringCode) {
+    if (isOffHeap()) {
+      final int start = offHeapCharStarts.getHeapValue(stringCode);
+      final int end = (stringCode + 1 < heapPos) 
+          ? offHeapCharStarts.getHeapValue(stringCode + 1) 
+          : offHeapChars.getSize();
+      final char[] chars = new char[end - start];
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = (char) offHeapChars.getHeapValue(start + i);
+      }
+      return new String(chars);
+    }
+    return pages[stringCode >>> PAGE_SHIFT][stringCode & PAGE_MASK];
   }
 
   /** Deserialize from a binary serialized CAS
@@ -52,7 +220,7 @@ final class StringHeap {
    */
   final void reinit(StringHeapDeserializationHelper shdh, boolean delta) {
   	if (!delta) {
-        initMemory();
+        reinitSizeOnly(FIRST_CELL_REF);  // keeps the allocated pages
   	}
     // Simply iterate over the ref heap and add one string after another.  The references come out
     // right because they are defined by the positions on the ref heap.
@@ -71,7 +239,7 @@ final class StringHeap {
       if (reuse == null) {
         reuseStrings.put(s, s);
       }
-      this.stringList.add(reuse != null ? reuse : s);  
+      addString(reuse != null ? reuse : s);  
     }
   }
 
@@ -86,13 +254,13 @@ final class StringHeap {
   StringHeapDeserializationHelper serialize(int startPos) {
     StringHeapDeserializationHelper shdh = new StringHeapDeserializationHelper();
 	// Ref heap is 3 times the size of the string list.
-	shdh.refHeap = new int[(this.stringList.size() - startPos + 1)
+	shdh.refHeap = new int[(this.heapPos - startPos + 1)
 			* StringHeapDeserializationHelper.REF_HEAP_CELL_SIZE];
 	shdh.refHeapPos = shdh.refHeap.length;
 	// Compute required size of character heap.
 	int charHeapSize = 0;   
-	for (int i = startPos; i < this.stringList.size(); i++) {
-		String s = this.stringList.get(i);
+	for (int i = startPos; i < this.heapPos; i++) {
+		String s = get(i);
 		if (s != null) {
 			charHeapSize += s.length();
 		}
@@ -103,8 +271,8 @@ final class StringHeap {
 	int charCount = 0;
 	// Now write out the actual data
 	int r = 1;
-	for (int i = startPos; i < this.stringList.size(); i++) {
-		String s = this.stringList.get(i);
+	for (int i = startPos; i < this.heapPos; i++) {
+		String s = get(i);
 		int refHeapOffset = r
 				* StringHeapDeserializationHelper.REF_HEAP_CELL_SIZE;
 		shdh.refHeap[refHeapOffset
@@ -121,22 +289,17 @@ final class StringHeap {
 	return shdh;
   }
 
-  // Reset the string heap (called on CAS reset).
-  final void reset() {
-    initMemory();
-  }
-
   // Get a string value
   String getStringForCode(int stringCode) {
     if (stringCode == LowLevelCAS.NULL_FS_REF) {
       return null;
     }
-    return this.stringList.get(stringCode);
+    return get(stringCode);
   }
 
   // Who uses this?
   int copyCharsToBuffer(int stringCode, char[] buffer, int start) {
-    final String str = this.stringList.get(stringCode);
+    final String str = get(stringCode);
     final int len = str.length();
     final int requestedMax = start + len;
     // Check that the buffer is long enough to copy the whole string. If it isn't long enough, we
@@ -157,8 +320,18 @@ final class StringHeap {
     if (s == null) {
       return LowLevelCAS.NULL_FS_REF;
     }
-    final int addr = this.stringList.size();
-    this.stringList.add(s);
+    final int addr = reserve(1);
+    if (isOffHeap()) {
+      // no String instances are kept, so there is nothing to intern
+      offHeapCharStarts.reserve(1);  // kept in step with this heap
+      final int start = offHeapChars.reserve(s.length());
+      for (int i = 0; i < s.length(); i++) {
+        offHeapChars.setHeapValue((short) s.charAt(i), start + i);
+      }
+      offHeapCharStarts.setHeapValue(start, addr);
+      return addr;
+    }
+    pages[addr >>> PAGE_SHIFT][addr & PAGE_MASK] = (internTable == null) ? s : internTable.intern(s);
     return addr;
   }
 
@@ -175,7 +348,7 @@ final class StringHeap {
 
 
   final int getCharArrayLength(int stringCode) {
-    return this.stringList.get(stringCode).length();
+    return get(stringCode).length();
   }
 
   final int getLeastStringCode() {
@@ -183,11 +356,8 @@ final class StringHeap {
   }
 
   final int getLargestStringCode() {
-    return this.stringList.size() - 1;
-  }
-  
-  final int getSize() {
-	  return this.stringList.size();
+    return this.heapPos - 1;
   }
   
+
 }
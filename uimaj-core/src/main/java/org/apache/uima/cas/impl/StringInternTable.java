@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A string intern table, shared by the CASes of a CasPool or CasManager, and safe to use from 
+ * multiple threads.
+ * 
+ * A CAS which has one (see {@link CASImpl#setStringInternTable(StringInternTable)}) stores the
+ * shared instance of each string value it is given, instead of its own copy. This saves space
+ * when the same labels (types of entities, part of speech tags, ontology ids, etc.) are set
+ * in many CASes, whether by annotators or by deserialization.
+ * 
+ * To avoid keeping arbitrary document content alive, only strings up to a maximum length are
+ * interned, and the table stops taking new strings when it reaches its maximum size; other
+ * strings are stored as is.
+ * 
+ * The table may be seeded with a dictionary: an ordered list of strings agreed upon in advance
+ * by the serializing and deserializing sides. These are always interned, and Binary form 6
+ * serialization can reference them by their position, instead of serializing them in each CAS
+ * (see {@link BinaryCasSerDes6#setSharedDictionary(boolean)}).
+ */
+public final class StringInternTable {
+  
+  public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+  
+  public static final int DEFAULT_MAX_STRING_LENGTH = 64;
+  
+  private static final String[] EMPTY_DICTIONARY = new String[0];
+  
+  private final ConcurrentHashMap<String, String> table;
+  
+  private final int maxSize;
+  
+  private final int maxStringLength;
+  
+  private final String[] dictionary;
+  
+  private final int dictionaryHash;
+
+  public StringInternTable() {
+    this(null, DEFAULT_MAX_SIZE, DEFAULT_MAX_STRING_LENGTH);
+  }
+
+  /**
+   * @param dictionary the ordered shared dictionary, or null
+   */
+  public StringInternTable(String[] dictionary) {
+    this(dictionary, DEFAULT_MAX_SIZE, DEFAULT_MAX_STRING_LENGTH);
+  }
+  
+  /**
+   * @param dictionary the ordered shared dictionary, or null. It must not contain nulls or duplicates.
+   * @param maxSize the number of strings, beyond the dictionary ones, after which no more are added
+   * @param maxStringLength strings longer than this are not interned, unless in the dictionary
+   */
+  public StringInternTable(String[] dictionary, int maxSize, int maxStringLength) {
+    this.dictionary = (dictionary == null) ? EMPTY_DICTIONARY : dictionary.clone();
+    this.maxSize = this.dictionary.length + maxSize;
+    this.maxStringLength = maxStringLength;
+    this.table = new ConcurrentHashMap<String, String>(Math.min(this.maxSize, 1024));
+    for (String s : this.dictionary) {
+      if (s == null) {
+        throw new IllegalArgumentException("A shared string dictionary can't contain null");
+      }
+      if (table.put(s, s) != null) {
+        throw new IllegalArgumentException(String.format("Duplicate string \"%s\" in the shared string dictionary", s));
+      }
+    }
+    this.dictionaryHash = Arrays.hashCode(this.dictionary);
+  }
+  
+  /**
+   * @param s the string to intern, may be null
+   * @return the shared instance equal to s, or s if it is not interned 
+   */
+  public String intern(String s) {
+    if (s == null) {
+      return null;
+    }
+    final boolean isShort = s.length() <= maxStringLength;
+    if (!isShort && dictionary.length == 0) {
+      return s;
+    }
+    final String r = table.get(s);
+    if (r != null || !isShort || table.size() >= maxSize) {
+      return (r == null) ? s : r;
+    }
+    final String prev = table.putIfAbsent(s, s);
+    return (prev == null) ? s : prev;
+  }
+  
+  /**
+   * @return the number of interned strings, including the dictionary
+   */
+  public int size() {
+    return table.size();
+  }
+  
+  /**
+   * @return a copy of the shared dictionary; empty if there is none
+   */
+  public String[] getDictionary() {
+    return dictionary.clone();
+  }
+
+  String[] dictionary() {
+    return dictionary;
+  }
+  
+  /**
+   * @return a hash of the shared dictionary, used to check that both the serializing and 
+   *         deserializing sides have the same one
+   */
+  int getDictionaryHash() {
+    return dictionaryHash;
+  }
+}
@@ -51,6 +51,9 @@ import org.apache.uima.cas.TypeNameSpace;
 import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.admin.CASAdminException;
 import org.apache.uima.cas.admin.TypeSystemMgr;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressCodec;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressLevel;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressStrat;
 import org.apache.uima.cas.impl.SlotKinds.SlotKind;
 import org.apache.uima.internal.util.IntVector;
 import org.apache.uima.internal.util.StringToIntMap;
@@ -1821,12 +1824,11 @@ public class TypeSystemImpl implements TypeSystemMgr, LowLevelTypeSystem {
     if ((null == tgtTs) || (this == tgtTs)) {
       return null;  // conventions for no type mapping
     }
-    CasTypeSystemMapper m = typeSystemMappers.get(tgtTs);
-    
-    if (null == m) {
-      m = new CasTypeSystemMapper(this, tgtTs);
-      typeSystemMappers.put(tgtTs, m);
+    if (typeSystemMappers.containsKey(tgtTs)) {
+      return typeSystemMappers.get(tgtTs);  // null if found earlier to be equal
     }
+    CasTypeSystemMapper m = new CasTypeSystemMapper(this, tgtTs);
+    typeSystemMappers.put(tgtTs, m);
     
     if (m.isEqual()) { // if the mapper is for this type system
       typeSystemMappers.put(tgtTs,  null);
@@ -1836,6 +1838,25 @@ public class TypeSystemImpl implements TypeSystemMgr, LowLevelTypeSystem {
     return m;
   }
   
+  /**
+   * Reusable form 6 serializers, with default compression settings; 
+   * key = target type system (null for none), same threading and lifetime as typeSystemMappers
+   */
+  private final Map<TypeSystemImpl, ReusableBinaryCasSerDes6> reusableSerDes6s = 
+      new WeakHashMap<TypeSystemImpl, ReusableBinaryCasSerDes6>();
+  
+  synchronized ReusableBinaryCasSerDes6 getReusableSerDes6(TypeSystemImpl tgtTs) throws ResourceInitializationException {
+    if (tgtTs == this) {
+      tgtTs = null;
+    }
+    ReusableBinaryCasSerDes6 r = reusableSerDes6s.get(tgtTs);
+    if (null == r) {
+      r = new ReusableBinaryCasSerDes6(this, tgtTs, CompressLevel.Default, CompressStrat.Default, CompressCodec.Deflate);
+      reusableSerDes6s.put(tgtTs, r);
+    }
+    return r;
+  }
+  
 //  /**
 //   * @param otherTs type system to compare to this one
 //   * @return true if one or more identically named features have differently named ranges
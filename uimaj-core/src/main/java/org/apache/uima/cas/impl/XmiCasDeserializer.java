@@ -1482,14 +1482,13 @@ public class XmiCasDeserializer {
       // add FSs to indexes
       //   These come from the add list
       // https://issues.apache.org/jira/browse/UIMA-4099
+      //   the inserts for all views are done together (perhaps in parallel)
+      final BulkIndexLoad load = new BulkIndexLoad(FSIndexRepositoryImpl.IS_PARALLEL_INDEX_REBUILD);
       for (Entry<FSIndexRepositoryImpl, PositiveIntSet> e : toBeAdded.entrySet()) {
-        FSIndexRepositoryImpl indexRep = e.getKey();
-        final PositiveIntSet todo = e.getValue();
-        final IntListIterator it = todo.iterator();
-        while (it.hasNext()) {
-          indexRep.addFS(it.next());
-        }
+        final int[] todo = e.getValue().toIntArray();
+        e.getKey().ll_addAll(todo, 0, todo.length, load);
       }
+      load.run();
       
       // remove FSs from indexes
       for (Entry<FSIndexRepositoryImpl, PositiveIntSet> e : toBeRemoved.entrySet()) {
@@ -41,7 +41,8 @@ import org.apache.uima.cas.impl.XmiSerializationSharedData.XmiArrayElement;
 import org.apache.uima.internal.util.XmlAttribute;
 import org.apache.uima.internal.util.XmlElementName;
 import org.apache.uima.internal.util.XmlElementNameAndContents;
-import org.apache.uima.util.XMLSerializer;
+import org.apache.uima.util.DirectXmlWriter;
+import org.apache.uima.util.IntAttributesImpl;
 import org.xml.sax.Attributes;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.ErrorHandler;
@@ -323,8 +324,10 @@ public class XmiCasSerializer {
           XmiSerializationSharedData aSharedData, Marker aMarker)
           throws SAXException {
     XmiCasSerializer xmiCasSerializer = new XmiCasSerializer(aTargetTypeSystem);
-    XMLSerializer sax2xml = new XMLSerializer(aStream, aPrettyPrint);
-    xmiCasSerializer.serialize(aCAS, sax2xml.getContentHandler(), null, aSharedData, aMarker);
+    // UTF-8 encoded straight into the stream, without a JAXP transformer.
+    //   For JAXP output, pass an XMLSerializer's content handler to a non-static serialize method
+    DirectXmlWriter xmlWriter = new DirectXmlWriter(aStream, aPrettyPrint);
+    xmiCasSerializer.serialize(aCAS, xmlWriter, null, aSharedData, aMarker);
   } 
   
   /***************************************************
@@ -489,7 +492,9 @@ public class XmiCasSerializer {
     
     private final AttributesImpl emptyAttrs = new AttributesImpl();
 
-    private final AttributesImpl workAttrs = new AttributesImpl();
+    // xmi:ids and integer values are added as ints, and only made into Strings if the 
+    // ContentHandler asks for them (a DirectXmlWriter doesn't)
+    private final IntAttributesImpl workAttrs = new IntAttributesImpl();
 
     // the number of children can't be easily computed, until serialization is attempted,
     // because the decision on whether to serialize arrays and lists "inline" or as separate
@@ -686,7 +691,7 @@ public class XmiCasSerializer {
      */
     void writeNullObject() throws SAXException {
       workAttrs.clear();
-      addIdAttribute(workAttrs, "0");
+      addIdAttribute(workAttrs, 0);
       XmlElementName elemName = uimaTypeName2XmiElementName("uima.cas.NULL");
       startElement(elemName, workAttrs, 0);
       endElement(elemName);
@@ -853,13 +858,14 @@ public class XmiCasSerializer {
      *         should be added as a child of the FS
      * @throws SAXException passthru
      */
-    private List<XmlElementNameAndContents> encodeFeatures(int addr, AttributesImpl attrs, boolean insideListNode)
+    private List<XmlElementNameAndContents> encodeFeatures(int addr, IntAttributesImpl attrs, boolean insideListNode)
             throws SAXException {
       List<XmlElementNameAndContents> childElements = new ArrayList<XmlElementNameAndContents>();
       int heapValue = cds.cas.getHeapValue(addr);
       int[] feats = cds.tsi.ll_getAppropriateFeatures(heapValue);
 
       String  attrValue;
+      int xmiId;  // for references, added as an int attribute if not 0
       // boolean isSofa = false;
       // if (sofaTypeCode == heapValue)
       // {
@@ -880,12 +886,19 @@ public class XmiCasSerializer {
         final int featAddr = addr + cds.cas.getFeatureOffset(featCode);
         final int featValRaw = cds.cas.getHeapValue(featAddr);
         final int featureValueClass = cds.classifyType(cds.tsi.range(featCode));
+        xmiId = 0;
         
         switch (featureValueClass) {
         
         case LowLevelCAS.TYPE_CLASS_BYTE:
+          addIntAttribute(attrs, featName, (byte) featValRaw);
+          continue;
         case LowLevelCAS.TYPE_CLASS_SHORT:
+          addIntAttribute(attrs, featName, (short) featValRaw);
+          continue;
         case LowLevelCAS.TYPE_CLASS_INT:
+          addIntAttribute(attrs, featName, featValRaw);
+          continue;
         case LowLevelCAS.TYPE_CLASS_LONG:
         case LowLevelCAS.TYPE_CLASS_FLOAT:
         case LowLevelCAS.TYPE_CLASS_DOUBLE: 
@@ -907,7 +920,8 @@ public class XmiCasSerializer {
         case LowLevelCAS.TYPE_CLASS_DOUBLEARRAY:
         case LowLevelCAS.TYPE_CLASS_FSARRAY: 
           if (cds.isStaticMultiRef(featCode)) {
-            attrValue = cds.getXmiId(featValRaw);
+            xmiId = cds.getXmiIdAsInt(featValRaw);
+            attrValue = null;
           } else {
             attrValue = arrayToString(featValRaw, featureValueClass);
           }
@@ -917,7 +931,8 @@ public class XmiCasSerializer {
           // than attributes.
         case LowLevelCAS.TYPE_CLASS_STRINGARRAY: 
           if (cds.isStaticMultiRef(featCode)) {
-            attrValue = cds.getXmiId(featValRaw);
+            xmiId = cds.getXmiIdAsInt(featValRaw);
+            attrValue = null;
           } else if (featValRaw != CASImpl.NULL && cds.cas.ll_getArraySize(featValRaw) == 0) {
             attrValue = "";  //https://issues.apache.org/jira/browse/UIMA-5558
           } else {
@@ -937,7 +952,8 @@ public class XmiCasSerializer {
 //            if (cds.isStaticMultRef(feats[i]) ||
 //                cds.embeddingNotAllowed.contains(featVal) ||
 //                insideListNode) {
-            attrValue = cds.getXmiId(featValRaw);
+            xmiId = cds.getXmiIdAsInt(featValRaw);
+            attrValue = null;
           } else {
             attrValue = listToString(featValRaw);
           }
@@ -947,7 +963,8 @@ public class XmiCasSerializer {
           // than attributes.
         case CasSerializerSupport.TYPE_CLASS_STRINGLIST: 
           if (insideListNode || cds.isStaticMultiRef(featCode)) {
-            attrValue = cds.getXmiId(featValRaw);
+            xmiId = cds.getXmiIdAsInt(featValRaw);
+            attrValue = null;
           } else {
             // it is not safe to use a space-separated attribute, which would
             // break for strings containing spaces. So use child elements instead.
@@ -968,12 +985,15 @@ public class XmiCasSerializer {
           break;
         
         default: // Anything that's not a primitive type, array, or list.
-            attrValue = cds.getXmiId(featValRaw);
+            xmiId = cds.getXmiIdAsInt(featValRaw);
+            attrValue = null;
             break;
           
         } // end of switch
         
-        if (attrValue != null && featName != null) {
+        if (xmiId != 0) {
+          addIntAttribute(attrs, featName, xmiId);
+        } else if (attrValue != null && featName != null) {
           addAttribute(attrs, featName, attrValue, "");
         }
       } // end of for loop over all features
@@ -1241,9 +1261,17 @@ public class XmiCasSerializer {
       //     but handles a missing localName correctly
     }
 
+    private void addIntAttribute(IntAttributesImpl attrs, String attrName, int attrValue) {
+      attrs.addAttribute("", attrName, attrName, "", attrValue);
+    }
+
     private void addIdAttribute(AttributesImpl attrs, String attrValue) {
       attrs.addAttribute(XMI_NS_URI, "id", ID_ATTR_NAME, CDATA_TYPE, attrValue);
     }
+
+    private void addIdAttribute(IntAttributesImpl attrs, int attrValue) {
+      attrs.addAttribute(XMI_NS_URI, "id", ID_ATTR_NAME, CDATA_TYPE, attrValue);
+    }
     
     private void addText(String text) throws SAXException {
       ch.characters(text.toCharArray(), 0, text.length());
@@ -1258,7 +1286,12 @@ public class XmiCasSerializer {
     @Override
     protected boolean writeFsStart(int addr, int typeCode /* ignored */) {
       workAttrs.clear();
-      addIdAttribute(workAttrs, cds.getXmiId(addr));
+      final int xmiId = cds.getXmiIdAsInt(addr);
+      if (xmiId == 0) {
+        addIdAttribute(workAttrs, (String) null);
+      } else {
+        addIdAttribute(workAttrs, xmiId);
+      }
       return false;  // ignored
     }
    
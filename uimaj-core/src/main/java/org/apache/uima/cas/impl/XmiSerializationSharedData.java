@@ -110,7 +110,13 @@ public class XmiSerializationSharedData {
    */
   Int2IntHashMap nonsharedfeatureIdToFSId = new Int2IntHashMap();
 
-  void addIdMapping(int fsAddr, int xmiId) {
+  /**
+   * Records the id a FS was serialized or deserialized with, so later (delta) serializations
+   * reuse it. Public for deserializers outside this package (e.g. JSON).
+   * @param fsAddr the FS address
+   * @param xmiId the id
+   */
+  public void addIdMapping(int fsAddr, int xmiId) {
     fsAddrToXmiIdMap.put(fsAddr, xmiId);
     xmiIdToFsAddrMap.put(xmiId, fsAddr);
     if (xmiId > maxXmiId)
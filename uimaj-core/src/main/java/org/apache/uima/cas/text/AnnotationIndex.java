@@ -19,8 +19,14 @@
 
 package org.apache.uima.cas.text;
 
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.FSIndex;
 import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.Feature;
 
 /**
  * An annotation index provides additional iterator functionality that applies only to instances of
@@ -53,6 +59,17 @@ import org.apache.uima.cas.FSIterator;
  * In the method descriptions below, the notation <code>a &lt; b</code>, where <code>a</code>
  * and <code>b</code> are annotations, should be taken to mean <code>a</code> comes before
  * <code>b</code> in the index, according to the above rules.</p>
+ * <p>
+ * The interval queries {@link #coveredBy(int, int)}, {@link #covering(int, int)}, 
+ * {@link #overlapping(int, int)} and {@link #nearestPreceding(int)} of the built-in annotation 
+ * indexes use an interval index, which is built from the whole annotation index the first time 
+ * one of them is called. It is kept until the index is updated or the CAS is reset; the next query 
+ * after that rebuilds it, which takes O(n log n) time for n annotations. Between updates, 
+ * nearestPreceding takes O(log n) time, and the other queries O(log n + k log n) time, 
+ * where k is the number of results, not O(log n + k).  So the interval queries suit
+ * many queries between index updates; when queries and updates alternate, a subiterator 
+ * may be faster. Other index implementations walk an iterator over the index from its start, 
+ * stopping once the begin offsets are past the span.</p>
  * 
  * @param <T> The top most Java cover class (usually a JCas Class) specified for the underlying index.
  */
@@ -234,4 +251,190 @@ public interface AnnotationIndex<T extends AnnotationFS> extends FSIndex<T> {
    * @return The annotation tree rooted at <code>annot</code>.
    */
    AnnotationTree<T> tree(T annot);
+
+  /*
+   * The next 4 queries are the interval queries described above.
+   * Unlike subiterators, the results are determined by the begin and end offsets only;
+   * type priorities don't matter.
+   */
+
+  /**
+   * Return the annotations <code>b</code> which lie within a span:
+   * <code>begin &lt;= b.getBegin()</code> and <code>b.getEnd() &lt;= end</code>.
+   * 
+   * @param begin the begin of the span
+   * @param end the end of the span
+   * @return the annotations covered by the span, in index order
+   */
+  default List<T> coveredBy(int begin, int end) {
+    List<T> result = new ArrayList<T>();
+    for (FSIterator<T> it = iterator(); it.isValid(); it.moveToNext()) {
+      T b = it.get();
+      if (b.getBegin() > end) {
+        break;
+      }
+      if (begin <= b.getBegin() && b.getEnd() <= end) {
+        result.add(b);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Return the annotations <code>b</code> which cover a span:
+   * <code>b.getBegin() &lt;= begin</code> and <code>end &lt;= b.getEnd()</code>.
+   * Use <code>covering(x, x)</code> for the annotations covering offset x. 
+   * 
+   * @param begin the begin of the span
+   * @param end the end of the span
+   * @return the annotations covering the span, in index order
+   */
+  default List<T> covering(int begin, int end) {
+    List<T> result = new ArrayList<T>();
+    for (FSIterator<T> it = iterator(); it.isValid(); it.moveToNext()) {
+      T b = it.get();
+      if (b.getBegin() > begin) {
+        break;
+      }
+      if (end <= b.getEnd()) {
+        result.add(b);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Return the annotations <code>b</code> which have at least one character in common with a span:
+   * <code>b.getBegin() &lt; end</code> and <code>begin &lt; b.getEnd()</code>.
+   * 
+   * @param begin the begin of the span
+   * @param end the end of the span
+   * @return the annotations overlapping the span, in index order
+   */
+  default List<T> overlapping(int begin, int end) {
+    List<T> result = new ArrayList<T>();
+    for (FSIterator<T> it = iterator(); it.isValid(); it.moveToNext()) {
+      T b = it.get();
+      if (b.getBegin() >= end) {
+        break;
+      }
+      if (begin < b.getEnd()) {
+        result.add(b);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Return the annotation which ends nearest before a position: the one with the largest
+   * <code>b.getEnd() &lt;= position</code>.  If several end there, the last one in index order is returned.
+   * 
+   * @param position the offset in the document
+   * @return the annotation ending nearest before the position, or null if there is none
+   */
+  default T nearestPreceding(int position) {
+    T nearest = null;
+    for (FSIterator<T> it = iterator(); it.isValid(); it.moveToNext()) {
+      T b = it.get();
+      if (b.getBegin() > position) {
+        break;
+      }
+      if (b.getEnd() <= position && (nearest == null || b.getEnd() >= nearest.getEnd())) {
+        nearest = b;
+      }
+    }
+    return nearest;
+  }
+
+  /**
+   * Copy some feature values of all the annotations in this index, in index order, into columns,
+   * without creating any feature structure objects. For example, to get the begin, end and a 
+   * string feature of all the tokens:
+   * <pre>
+   * int[] begins = new int[idx.size()], ends = new int[idx.size()];
+   * String[] pos = new String[idx.size()];
+   * idx.exportColumns(new Feature[] {beginFeat, endFeat, posFeat}, new Object[] {begins, ends, pos});
+   * </pre>
+   * 
+   * @param features the features to export; they must be defined for the type of this index
+   * @param columns one array per feature, at least {@link #size()} long, filled from index 0.
+   *          Each must be an array of the feature's range: int[], float[], boolean[], byte[], 
+   *          short[], long[], double[] or String[], or int[] (of FS references) for features 
+   *          whose range is not a primitive. A double[] may be used for float features.
+   *          The default implementation, used by index implementations other than the built-in one,
+   *          reads the values through the annotations' feature getters.
+   * @return the number of annotations exported
+   * @throws IllegalArgumentException if the number of columns differs from the number of features,
+   *           or a column is not an array of its feature's range or is shorter than {@link #size()};
+   *           nothing is written then
+   */
+  default int exportColumns(Feature[] features, Object[] columns) {
+    if (columns.length != features.length) {
+      throw new IllegalArgumentException(String.format("%d columns passed for %d features", 
+          columns.length, features.length));
+    }
+    final int size = size();
+    for (int col = 0; col < columns.length; col++) {
+      final Feature feat = features[col];
+      final Object column = columns[col];
+      final String rangeName = feat.getRange().getName();
+      final Class<?> expected;
+      if (!feat.getRange().isPrimitive() || CAS.TYPE_NAME_INTEGER.equals(rangeName)) {
+        expected = int[].class;
+      } else if (CAS.TYPE_NAME_FLOAT.equals(rangeName)) {
+        expected = (column instanceof double[]) ? double[].class : float[].class;
+      } else if (CAS.TYPE_NAME_BOOLEAN.equals(rangeName)) {
+        expected = boolean[].class;
+      } else if (CAS.TYPE_NAME_BYTE.equals(rangeName)) {
+        expected = byte[].class;
+      } else if (CAS.TYPE_NAME_SHORT.equals(rangeName)) {
+        expected = short[].class;
+      } else if (CAS.TYPE_NAME_LONG.equals(rangeName)) {
+        expected = long[].class;
+      } else if (CAS.TYPE_NAME_DOUBLE.equals(rangeName)) {
+        expected = double[].class;
+      } else {  // strings and string subtypes
+        expected = String[].class;
+      }
+      if (column == null || column.getClass() != expected) {
+        throw new IllegalArgumentException(String.format(
+            "The column for feature %s must be a %s, but is a %s", feat.getName(), expected.getSimpleName(), 
+            (column == null) ? "null" : column.getClass().getSimpleName()));
+      }
+      if (Array.getLength(column) < size) {
+        throw new IllegalArgumentException(String.format(
+            "The column for feature %s has length %d, less than the %d annotations to export", 
+            feat.getName(), Array.getLength(column), size));
+      }
+    }
+    
+    int n = 0;
+    for (FSIterator<T> it = iterator(); it.isValid() && n < size; it.moveToNext(), n++) {
+      final T fs = it.get();
+      for (int col = 0; col < columns.length; col++) {
+        final Feature feat = features[col];
+        final Object column = columns[col];
+        if (column instanceof int[]) {
+          ((int[]) column)[n] = feat.getRange().isPrimitive() ? fs.getIntValue(feat) 
+              : fs.getCAS().getLowLevelCAS().ll_getFSRef(fs.getFeatureValue(feat));
+        } else if (column instanceof float[]) {
+          ((float[]) column)[n] = fs.getFloatValue(feat);
+        } else if (column instanceof double[]) {
+          ((double[]) column)[n] = CAS.TYPE_NAME_FLOAT.equals(feat.getRange().getName()) 
+              ? fs.getFloatValue(feat) : fs.getDoubleValue(feat);
+        } else if (column instanceof boolean[]) {
+          ((boolean[]) column)[n] = fs.getBooleanValue(feat);
+        } else if (column instanceof byte[]) {
+          ((byte[]) column)[n] = fs.getByteValue(feat);
+        } else if (column instanceof short[]) {
+          ((short[]) column)[n] = fs.getShortValue(feat);
+        } else if (column instanceof long[]) {
+          ((long[]) column)[n] = fs.getLongValue(feat);
+        } else {
+          ((String[]) column)[n] = fs.getStringValue(feat);
+        }
+      }
+    }
+    return n;
+  }
 }
@@ -32,6 +32,7 @@ import org.apache.uima.analysis_engine.metadata.AnalysisEngineMetaData;
 import org.apache.uima.analysis_engine.metadata.CapabilityLanguageFlow;
 import org.apache.uima.analysis_engine.metadata.FixedFlow;
 import org.apache.uima.analysis_engine.metadata.FlowControllerDeclaration;
+import org.apache.uima.analysis_engine.metadata.DelegateScaleout;
 import org.apache.uima.analysis_engine.metadata.SofaMapping;
 import org.apache.uima.collection.CasConsumerDescription;
 import org.apache.uima.collection.CollectionReaderDescription;
@@ -399,6 +400,15 @@ public class ResourceSpecifierFactory_impl implements ResourceSpecifierFactory {
     return (SofaMapping) createObject(SofaMapping.class);
   }
 
+  /**
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.ResourceSpecifierFactory#createDelegateScaleout()
+   */
+  public DelegateScaleout createDelegateScaleout() {
+    return (DelegateScaleout) createObject(DelegateScaleout.class);
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -25,6 +25,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -96,8 +97,8 @@ public class AnalysisEnginePool {
    * Checks out an AnalysisEngine from the pool.
    * 
    * @return an AnalysisEngine for use by the client. Returns <code>null</code> if none are
-   *         available (in which case the client may wait on this object in order to be notified
-   *         when an instance becomes available).
+   *         available (in which case the client may use {@link #getAnalysisEngine(long)} to wait
+   *         for one).
    */
   public AnalysisEngine getAnalysisEngine() {
     return (AnalysisEngine) mPool.getResource();
@@ -121,14 +122,26 @@ public class AnalysisEnginePool {
    * @param aTimeout
    *          the time to wait in milliseconds. A value of &lt;=0 will wait forever.
    * 
-   * @return an AnalysisEngine for use by the client. Returns <code>null</code> if none are
-   *         available (in which case the client may wait on this object in order to be notified
-   *         when an instance becomes available).
+   * @return an AnalysisEngine for use by the client. Returns <code>null</code> if none became
+   *         available within the timeout period.
    */
   public AnalysisEngine getAnalysisEngine(long aTimeout) {
     return (AnalysisEngine) mPool.getResource(aTimeout);
   }
 
+  /**
+   * Checks out an AnalysisEngine from the pool without blocking the calling thread, waiting as long
+   * as needed for one to be checked in.
+   * 
+   * @return a future completed with an AnalysisEngine for use by the client, by the thread that
+   *         checks it in. It is cancelled if the pool is destroyed.
+   */
+  @SuppressWarnings("unchecked")
+  public CompletableFuture<AnalysisEngine> getAnalysisEngineAsync() {
+    // all the Resources in this pool are AnalysisEngines
+    return (CompletableFuture<AnalysisEngine>) (CompletableFuture<?>) mPool.getResourceAsync();
+  }
+
   /**
    * Destroys all AnalysisEngines in this pool.
    */
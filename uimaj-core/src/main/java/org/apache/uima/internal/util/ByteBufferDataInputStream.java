@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.internal.util;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A DataInputStream reading from a ByteBuffer, typically a memory mapped file.
+ * 
+ * Besides the usual stream reads (which are bulk gets from the buffer for the array forms,
+ * with no intermediate buffering), deserializers which know about this class can get at the 
+ * buffer itself, to decode sections of it in place (e.g. via an IntBuffer view).
+ * 
+ * Mark and reset are supported; the read limit is ignored.
+ */
+public class ByteBufferDataInputStream extends DataInputStream {
+
+  private final ByteBuffer buffer;
+  
+  /**
+   * @param buffer the bytes to read, from its position to its limit. 
+   *               Reading advances the buffer's position.
+   */
+  public ByteBufferDataInputStream(ByteBuffer buffer) {
+    super(new ByteBufferInputStream(buffer));
+    this.buffer = buffer;
+  }
+  
+  /**
+   * @return the buffer being read; its position is the next byte to be read.  
+   *         Users may advance the position to skip over what they've consumed directly.
+   */
+  public ByteBuffer getByteBuffer() {
+    return buffer;
+  }
+  
+  /**
+   * @param length the number of bytes
+   * @return a stream reading the next length bytes in place, without copying them; 
+   *         this stream is advanced past them 
+   * @throws EOFException if there are fewer than length bytes left
+   */
+  public InputStream readSlice(int length) throws EOFException {
+    if (buffer.remaining() < length) {
+      throw new EOFException();
+    }
+    final ByteBuffer slice = buffer.slice();
+    slice.limit(length);
+    buffer.position(buffer.position() + length);
+    return new ByteBufferInputStream(slice);
+  }
+  
+  private static class ByteBufferInputStream extends InputStream {
+    
+    private final ByteBuffer buffer;
+    
+    private int markPos;
+    
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+      this.markPos = buffer.position();
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      final int n = Math.min(len, buffer.remaining());
+      if (n == 0) {
+        return -1;
+      }
+      buffer.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public long skip(long n) {
+      final int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+      markPos = buffer.position();
+    }
+
+    @Override
+    public synchronized void reset() {
+      buffer.position(markPos);
+    }
+  }
+}
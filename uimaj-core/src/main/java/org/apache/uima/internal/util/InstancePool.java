@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.internal.util;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A fixed set of reusable instances that can be checked out and checked in by many threads,
+ * without a pool-wide monitor. This is the common machinery behind {@link ResourcePool} and
+ * {@link org.apache.uima.util.CasPool}.
+ * <p>
+ * Design considerations:
+ * <ul>
+ * <li>Checking out first takes a permit from a fair {@link Semaphore}. Waiting threads are parked
+ * in arrival order, and a check-in wakes exactly one of them, so there is no thundering herd and
+ * no starvation.</li>
+ * <li>The free instances are kept in a lock-free deque, used as a stack, so that a lightly loaded
+ * pool keeps reusing the same few instances.</li>
+ * <li>Each thread remembers the instance it last checked in, and gets that one back if it is still
+ * free. This keeps an instance's data warm in the caches of the core that last used it.</li>
+ * <li>Every instance has a free flag which is claimed with a compare-and-set, so an instance is
+ * handed out at most once however it is found, and a double check-in is detected.</li>
+ * <li>Asynchronous requests, see {@link #acquireAsync()}, wait in a queue of their own without
+ * holding a thread, and are served by check-ins when no thread is parked.</li>
+ * </ul>
+ * 
+ * @param <T> the kind of instance pooled
+ */
+public class InstancePool<T> {
+
+  /**
+   * Holder for one pooled instance and its free flag. The deque and the thread affinity refer
+   * to slots, so that lookups are by identity.
+   */
+  private static class Slot<T> {
+    final T instance;
+
+    final AtomicBoolean free = new AtomicBoolean(true);
+
+    Slot(T instance) {
+      this.instance = instance;
+    }
+  }
+
+  // filled in the constructor, read-only afterwards
+  private final Map<T, Slot<T>> mSlots;
+
+  private final ConcurrentLinkedDeque<Slot<T>> mFreeSlots = new ConcurrentLinkedDeque<Slot<T>>();
+
+  // one permit per free instance
+  private final Semaphore mPermits;
+
+  // the slot each thread last checked in; weak, so that it does not keep a discarded pool's
+  // instances reachable from long lived threads
+  private final ThreadLocal<WeakReference<Slot<T>>> mLastReleased = new ThreadLocal<WeakReference<Slot<T>>>();
+
+  private final ConcurrentLinkedQueue<CompletableFuture<T>> mAsyncWaiters = new ConcurrentLinkedQueue<CompletableFuture<T>>();
+
+  private volatile boolean mCleared = false;
+
+  /**
+   * Creates a pool in which all the given instances are free.
+   * 
+   * @param aInstances
+   *          the instances to pool. Instances are told apart by identity.
+   */
+  public InstancePool(Collection<? extends T> aInstances) {
+    Map<T, Slot<T>> slots = new IdentityHashMap<T, Slot<T>>();
+    for (T instance : aInstances) {
+      Slot<T> slot = new Slot<T>(instance);
+      slots.put(instance, slot);
+      mFreeSlots.addLast(slot);
+    }
+    mSlots = slots;
+    mPermits = new Semaphore(slots.size(), true);
+  }
+
+  /**
+   * Checks out an instance if one is free, without waiting.
+   * 
+   * @return a free instance, or <code>null</code> if none are available
+   */
+  public T tryAcquire() {
+    return mPermits.tryAcquire() ? claim() : null;
+  }
+
+  /**
+   * Checks out an instance, waiting for one to be checked in if none is free.
+   * 
+   * @param aTimeout
+   *          the time to wait in milliseconds. A value of &lt;=0 will wait forever.
+   * @return a free instance, or <code>null</code> if none became available within the timeout, or
+   *         if the waiting thread was interrupted (its interrupt status is then set again)
+   */
+  public T acquire(long aTimeout) {
+    if (aTimeout <= 0) {
+      mPermits.acquireUninterruptibly();
+      return claim();
+    }
+    try {
+      if (mPermits.tryAcquire(aTimeout, TimeUnit.MILLISECONDS)) {
+        return claim();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // a check-in may have skipped the asynchronous requests in favor of this thread
+    serveAsyncWaiters();
+    return null;
+  }
+
+  /**
+   * Checks out an instance without blocking the calling thread, waiting as long as needed for one
+   * to be checked in.
+   * <p>
+   * The future is completed by the thread checking the instance in, so callers should run any
+   * substantial work with the <code>...Async</code> methods of the future.
+   * 
+   * @return a future completed with the instance. If it is cancelled before it completes, the
+   *         request is withdrawn. It is cancelled if the pool is cleared.
+   */
+  public CompletableFuture<T> acquireAsync() {
+    T instance = tryAcquire();
+    if (instance != null) {
+      return CompletableFuture.completedFuture(instance);
+    }
+    CompletableFuture<T> waiter = new CompletableFuture<T>();
+    mAsyncWaiters.add(waiter);
+    // an instance may have been checked in between the failed attempt and queuing
+    serveAsyncWaiters();
+    if (mCleared) {
+      waiter.cancel(false);
+    }
+    return waiter;
+  }
+
+  /**
+   * Checks out one particular instance, waiting as long as needed until it is checked in.
+   * 
+   * @param aInstance
+   *          the instance to check out
+   * @return <code>false</code> if the instance is not part of this pool, or the pool has been
+   *         cleared
+   */
+  public boolean acquire(T aInstance) {
+    Slot<T> slot = mSlots.get(aInstance);
+    if (slot == null) {
+      return false;
+    }
+    while (!mCleared) {
+      // a permit must be held while claiming, or a thread that already has one could find
+      // nothing left to claim
+      if (mPermits.tryAcquire()) {
+        if (slot.free.compareAndSet(true, false)) {
+          mFreeSlots.removeFirstOccurrence(slot);
+          return true;
+        }
+        mPermits.release();
+        serveAsyncWaiters();
+      }
+      // rarely used (reconfiguration and the like), so polling is good enough
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    return false;
+  }
+
+  /**
+   * Checks an instance back in, waking up the longest waiting thread, if any.
+   * 
+   * @param aInstance
+   *          the instance to check in
+   * @return <code>false</code> if the instance is not part of this pool or is not checked out; the
+   *         pool is unchanged in that case
+   */
+  public boolean release(T aInstance) {
+    Slot<T> slot = mSlots.get(aInstance);
+    if (slot == null || mCleared || !slot.free.compareAndSet(false, true)) {
+      return false;
+    }
+    mFreeSlots.addFirst(slot);
+    WeakReference<Slot<T>> lastRef = mLastReleased.get();
+    if (lastRef == null || lastRef.get() != slot) {
+      mLastReleased.set(new WeakReference<Slot<T>>(slot));
+    }
+    mPermits.release(); // must follow making the slot claimable
+    serveAsyncWaiters();
+    return true;
+  }
+
+  /**
+   * @param aInstance
+   *          an instance
+   * @return true if the instance is part of this pool and is currently checked out
+   */
+  public boolean isCheckedOut(T aInstance) {
+    Slot<T> slot = mSlots.get(aInstance);
+    return slot != null && !slot.free.get();
+  }
+
+  /**
+   * @return all the instances of this pool, free or not
+   */
+  public List<T> getAll() {
+    return new ArrayList<T>(mSlots.keySet());
+  }
+
+  /**
+   * @return a snapshot of the currently free instances
+   */
+  public List<T> getFree() {
+    List<T> free = new ArrayList<T>();
+    for (Slot<T> slot : mSlots.values()) {
+      if (slot.free.get()) {
+        free.add(slot.instance);
+      }
+    }
+    return free;
+  }
+
+  /**
+   * @return the number of currently free instances
+   */
+  public int getNumAvailable() {
+    return mPermits.availablePermits();
+  }
+
+  /**
+   * Marks all instances as checked out for good, for instance when they have been destroyed.
+   * Later check-ins are refused, and threads waiting without a timeout keep waiting.
+   */
+  public void clear() {
+    mCleared = true;
+    mPermits.drainPermits();
+    for (Slot<T> slot : mSlots.values()) {
+      slot.free.set(false);
+    }
+    mFreeSlots.clear();
+    CompletableFuture<T> waiter;
+    while ((waiter = mAsyncWaiters.poll()) != null) {
+      waiter.cancel(false);
+    }
+  }
+
+  /**
+   * Hands free instances to queued asynchronous requests. Threads parked for an instance go first,
+   * as the semaphore is fair for them; the asynchronous requests get instances when none are
+   * parked.
+   */
+  private void serveAsyncWaiters() {
+    while (!mAsyncWaiters.isEmpty() && !mPermits.hasQueuedThreads() && mPermits.tryAcquire()) {
+      T instance = claim();
+      if (instance == null) {
+        return; // cleared
+      }
+      CompletableFuture<T> waiter;
+      do {
+        waiter = mAsyncWaiters.poll();
+      } while (waiter != null && !waiter.complete(instance)); // skip withdrawn requests
+      if (waiter == null) {
+        // the requests were served or withdrawn meanwhile
+        release(instance);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Claims a free instance; the caller holds a permit, so there is at least one unless the pool
+   * was cleared meanwhile.
+   */
+  private T claim() {
+    WeakReference<Slot<T>> lastRef = mLastReleased.get();
+    Slot<T> last = (lastRef == null) ? null : lastRef.get();
+    if (last != null && last.free.compareAndSet(true, false)) {
+      mFreeSlots.removeFirstOccurrence(last);
+      return last.instance;
+    }
+    while (true) {
+      Slot<T> slot = mFreeSlots.pollFirst();
+      if (slot == null) {
+        if (mCleared) {
+          return null;
+        }
+        // a check-in has set its free flag but not yet queued it
+        Thread.yield();
+      } else if (slot.free.compareAndSet(true, false)) {
+        return slot.instance;
+      }
+      // else stale entry of a slot claimed through thread affinity; drop it
+    }
+  }
+}
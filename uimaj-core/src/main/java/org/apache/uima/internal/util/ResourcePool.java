@@ -19,9 +19,8 @@
 
 package org.apache.uima.internal.util;
 
-import java.util.Date;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.Vector;
 
 import org.apache.uima.UIMAFramework;
@@ -42,7 +41,9 @@ import org.apache.uima.util.Level;
  * pool. All resources are assumed to be equivalent and to share the same metadata. Therefore, the
  * resource metadata can be retrieved via the {@link #getMetaData()} method without checking out a
  * Resource instance from the pool.
- * 
+ * <p>
+ * Check-out and check-in do not lock the pool; see {@link InstancePool} for how waiting threads are
+ * served fairly.
  * 
  * 
  */
@@ -98,6 +99,7 @@ public class ResourcePool {
     mNumInstances = aNumInstances;
 
     fillPool(aResourceSpecifier, aResourceClass, aResourceInitParams);
+    mPool = new InstancePool<Resource>(mAllInstances);
 
     // store metadata so it can be accessed without a check-out
     mMetaData = mAllInstances.get(0).getMetaData();
@@ -107,22 +109,10 @@ public class ResourcePool {
    * Checks out a Resource from the pool.
    * 
    * @return a Resource for use by the client. Returns <code>null</code> if none are available (in
-   *         which case the client may wait on this object in order to be notified when an instance
-   *         becomes available).
+   *         which case the client may use {@link #getResource(long)} to wait for one).
    */
-  public synchronized Resource getResource() {
-    if (!mFreeInstances.isEmpty()) {
-      Resource r = mFreeInstances.remove(0);
-      /*
-       * UIMAFramework.getLogger().log( "Acquired resource " + r.getMetaData().getUUID() + " from
-       * pool.");
-       */
-      return r;
-    } else {
-      // no instances available
-      // UIMAFramework.getLogger().log("No Resource instances currently available");
-      return null;
-    }
+  public Resource getResource() {
+    return mPool.tryAcquire();
   }
 
   /**
@@ -132,22 +122,12 @@ public class ResourcePool {
    * @param aResource
    *          the resource to release
    */
-  public synchronized void releaseResource(Resource aResource) {
-    // make sure this Resource was actually belongs to this pool and is checked out
-    if (!mAllInstances.contains(aResource) || mFreeInstances.contains(aResource)) {
+  public void releaseResource(Resource aResource) {
+    // refused if this Resource does not belong to this pool or is not checked out
+    if (!mPool.release(aResource)) {
       UIMAFramework.getLogger(CLASS_NAME).logrb(Level.WARNING, CLASS_NAME.getName(),
               "releaseResource", LOG_RESOURCE_BUNDLE, "UIMA_return_resource_to_pool__WARNING");
-    } else {
-      /*
-       * UIMAFramework.getLogger().log( "Returned resource " + aResource.getMetaData().getUUID() + "
-       * to the pool.");
-       */
-      // Add the Resource to the end of the free instances List
-      mFreeInstances.add(aResource);
     }
-
-    // Notify any threads waiting on this object
-    notifyAll();
   }
 
   /**
@@ -157,24 +137,22 @@ public class ResourcePool {
    * @param aTimeout
    *          the time to wait in milliseconds. A value of &lt;=0 will wait forever.
    * 
-   * @return a Resource for use by the client. Returns <code>null</code> if none are available (in
-   *         which case the client may wait on this object in order to be notified when an instance
-   *         becomes available).
+   * @return a Resource for use by the client. Returns <code>null</code> if none became available
+   *         within the timeout period, or if a timed wait was interrupted.
    */
-  public synchronized Resource getResource(long aTimeout) {
-    long startTime = new Date().getTime();
-    Resource resource;
-    while ((resource = getResource()) == null) {
-      try {
-        wait(aTimeout);
-      } catch (InterruptedException e) {
-      }
-      if (aTimeout > 0 && (new Date().getTime() - startTime) >= aTimeout) {
-        // Timeout has expired
-        return null;
-      }
-    }
-    return resource;
+  public Resource getResource(long aTimeout) {
+    return mPool.acquire(aTimeout);
+  }
+
+  /**
+   * Checks out a Resource from the pool without blocking the calling thread, waiting as long as
+   * needed for one to be checked in.
+   * 
+   * @return a future completed with a Resource for use by the client, by the thread that checks
+   *         it in. It is cancelled if the pool is destroyed.
+   */
+  public CompletableFuture<Resource> getResourceAsync() {
+    return mPool.acquireAsync();
   }
 
   /*
@@ -182,27 +160,19 @@ public class ResourcePool {
    * @param r
    */
 
-  public synchronized void checkoutSpecificResource(Resource r) {
-    while (!mFreeInstances.contains(r)) {
-      try {
-        wait();
-      } catch (InterruptedException e) {
-      }
-    }
-    mFreeInstances.remove(r);
+  public void checkoutSpecificResource(Resource r) {
+    mPool.acquire(r);
   }
   
   /**
    * Destroys all Resources in this pool.
    */
   public synchronized void destroy() {
-    Iterator<Resource> i = mAllInstances.iterator();
-    while (i.hasNext()) {
-      Resource current = i.next();
+    mPool.clear();
+    for (Resource current : mAllInstances) {
       current.destroy();
     }
     mAllInstances.clear();
-    mFreeInstances.clear();
   }
 
   /**
@@ -247,7 +217,6 @@ public class ResourcePool {
               aResourceClass, aResourceSpecifier, aResourceInitParams);
 
       mAllInstances.add(resource);
-      mFreeInstances.add(resource);
     }
   }
 
@@ -255,13 +224,16 @@ public class ResourcePool {
     return mAllInstances;
   }
 
+  /**
+   * @return a snapshot of the Resources that are currently checked in
+   */
   protected Vector<Resource> getFreeInstances() {
-    return mFreeInstances;
+    return new Vector<Resource>(mPool.getFree());
   }
 
   private final Vector<Resource> mAllInstances = new Vector<Resource>();
 
-  private final Vector<Resource> mFreeInstances = new Vector<Resource>();
+  private final InstancePool<Resource> mPool;
 
   private final int mNumInstances;
 
@@ -687,6 +687,23 @@ public interface JCas extends AbstractCas {
    */
   void protectIndexes(Runnable runnable);
   
+  /**
+   * Freeze this CAS (all of its views), making its indexes read-only until the next reset,
+   * so any number of threads may iterate over them without locking.
+   * @see org.apache.uima.cas.CAS#freeze()
+   */
+  default void freeze() {
+    getCas().freeze();
+  }
+
+  /**
+   * @return true if this CAS is frozen
+   * @see org.apache.uima.cas.CAS#freeze()
+   */
+  default boolean isFrozen() {
+    return getCas().isFrozen();
+  }
+  
   /**
    * Retrieve an index according to a label and a type specified using a JCas class. 
    * The type is used to narrow down the index of a more general type to a more specific one.
@@ -1701,6 +1701,22 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
   public void protectIndexes(Runnable runnable) {
     casImpl.protectIndexes(runnable);  
   }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.jcas.JCas#freeze()
+   */
+  @Override
+  public void freeze() {
+    casImpl.freeze();
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.uima.jcas.JCas#isFrozen()
+   */
+  @Override
+  public boolean isFrozen() {
+    return casImpl.isFrozen();
+  }
   
   /**
    * Static method to get the corresponding Type for a JCas class object 
@@ -455,6 +455,14 @@ public class ResourceInitializationException extends UIMAException {
    */
   public static final String UNDEFINED_KEY_IN_FLOW = "undefined_key_in_flow";
 
+  /**
+   * Message key for a standard UIMA exception message: The descriptor for Aggregate Analysis Engine "{0}" 
+   * specified an invalid delegate scaleout.  The key "{1}" must be defined as a key in the
+   * &lt;delegateAnalysisEngineSpecifiers&gt; element of the descriptor, and its number of instances, {2},
+   * must be at least 1.
+   */
+  public static final String INVALID_DELEGATE_SCALEOUT = "invalid_delegate_scaleout";
+
   /**
    * Message key for a standard UIMA exception message: The value "{0}" is an invalid value for
    * the FixedFlowController's "ActionAfterCasMultiplier" configuration parameter.  Valid values
@@ -21,11 +21,12 @@ package org.apache.uima.resource.impl;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.uima.UIMAFramework;
 import org.apache.uima.UIMARuntimeException;
 import org.apache.uima.UimaContext;
 import org.apache.uima.UimaContextAdmin;
@@ -35,6 +36,7 @@ import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.cas.impl.CasState;
+import org.apache.uima.cas.impl.StringInternTable;
 import org.apache.uima.internal.util.JmxMBeanAgent;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.CasDefinition;
@@ -69,16 +71,19 @@ public class CasManager_impl implements CasManager {
    */
   private final List<ProcessingResourceMetaData> mMetaDataList = new ArrayList<ProcessingResourceMetaData>();
 
-  private final Map<String, CasPool> mRequestorToCasPoolMap = Collections.synchronizedMap(new HashMap<String, CasPool>());
+  // concurrent maps: these are read on every getCas / releaseCas, from many threads
+  private final Map<String, CasPool> mRequestorToCasPoolMap = new ConcurrentHashMap<String, CasPool>();
 
-  private final Map<CAS, CasPool> mCasToCasPoolMap = Collections.synchronizedMap(new HashMap<CAS, CasPool>());
+  private final Map<CAS, CasPool> mCasToCasPoolMap = new ConcurrentHashMap<CAS, CasPool>();
   
-  private final Map<CAS, UimaContext> mCasToUimaContextMap = Collections.synchronizedMap(new HashMap<CAS, UimaContext>());
+  private final Map<CAS, UimaContext> mCasToUimaContextMap = new ConcurrentHashMap<CAS, UimaContext>();
 
   private volatile CasDefinition mCasDefinition = null;  // once goes non-null, stays
   
   private volatile TypeSystem mCurrentTypeSystem = null; // once set, same identical typesystem object used for subseq. CASes
 
+  private volatile StringInternTable mStringInternTable = null; // lazily created, once set, stays
+
   private volatile Object mMBeanServer;
 
   private volatile String mMBeanNamePrefix;
@@ -256,7 +261,15 @@ public class CasManager_impl implements CasManager {
    * @see org.apache.uima.resource.CasManager#createNewCas(java.util.Properties)
    */
   public CAS createNewCas(Properties aPerformanceTuningSettings) throws ResourceInitializationException {
+    CAS cas = createNewCasNoInterning(aPerformanceTuningSettings);
+    if (aPerformanceTuningSettings != null && "true".equalsIgnoreCase(
+        aPerformanceTuningSettings.getProperty(UIMAFramework.CAS_STRING_INTERNING))) {
+      ((CASImpl) cas).setStringInternTable(getStringInternTable());
+    }
+    return cas;
+  }
 
+  private CAS createNewCasNoInterning(Properties aPerformanceTuningSettings) throws ResourceInitializationException {
     if (mCurrentTypeSystem != null) {
       return CasCreationUtils.createCas(getCasDefinition(), aPerformanceTuningSettings, mCurrentTypeSystem);      
     } else {
@@ -272,6 +285,33 @@ public class CasManager_impl implements CasManager {
     }    
   }
 
+  /**
+   * @return the string intern table shared by the CASes created by this CAS Manager, when the 
+   *         {@link UIMAFramework#CAS_STRING_INTERNING} performance tuning setting is on. 
+   *         Created on first use, without a shared dictionary.
+   */
+  public StringInternTable getStringInternTable() {
+    StringInternTable t = mStringInternTable;
+    if (t == null) {
+      synchronized (this) {
+        t = mStringInternTable;
+        if (t == null) {  // double check idiom
+          mStringInternTable = t = new StringInternTable();
+        }
+      }
+    }
+    return t;
+  }
+
+  /**
+   * Supply the string intern table, for instance one with a shared dictionary, to be used
+   * by the CASes created by this CAS Manager. This must be done before creating any CAS pools.
+   * @param aStringInternTable the table to share
+   */
+  public synchronized void setStringInternTable(StringInternTable aStringInternTable) {
+    mStringInternTable = aStringInternTable;
+  }
+
   /**
    * Gets a specified interface to a CAS.
    * 
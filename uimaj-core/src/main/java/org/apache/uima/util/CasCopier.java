@@ -35,6 +35,7 @@ import org.apache.uima.cas.impl.LowLevelIterator;
 import org.apache.uima.cas.impl.TypeImpl;
 import org.apache.uima.cas.impl.TypeSystemImpl;
 import org.apache.uima.internal.util.Int2IntHashMap;
+import org.apache.uima.internal.util.IntKeyValueIterator;
 import org.apache.uima.internal.util.IntVector;
 import org.apache.uima.internal.util.PositiveIntSet;
 import org.apache.uima.internal.util.PositiveIntSet_impl;
@@ -74,6 +75,12 @@ public class CasCopier {
     final int[] codesAndOffsets;  // indexed with count * 2
     final byte[] frc;
     final int tgtTypeCode;
+    
+    // the next are only set when the source and target type systems are the same, for copyFsSameTypeSystem
+    int[] stringOffsets;
+    int[] longOffsets;     // long and double valued slots
+    int[] refOffsets;
+    int[] refFeatCodes;
         
     TypeInfo(int srcTypeCode) {    
 
@@ -111,6 +118,7 @@ public class CasCopier {
           codesAndOffsets[i2 + K_SRC_FEAT_OFFSET] = originalSrcCasImpl.getFeatureOffset(srcFeatCode);
           codesAndOffsets[i2 + K_TGT_FEAT_CODE] = srcFeatCodes[i];
         }
+        setSlotOffsets();
       } else {        
         for (int i = 0; i < srcFeatCodes.length; i++) { 
          final int srcFeatCode = srcFeatCodes[i];
@@ -165,6 +173,38 @@ public class CasCopier {
         frc[i] = FRC_REF;
       }
     }
+    
+    /**
+     * Collects the offsets of the slots whose values are not copied by a plain heap copy
+     */
+    private void setSlotOffsets() {
+      final IntVector strings = new IntVector();
+      final IntVector longs = new IntVector();
+      final IntVector refs = new IntVector();
+      final IntVector refCodes = new IntVector();
+      for (int i = 0; i < frc.length; i++) {
+        final int offset = codesAndOffsets[(i << 1) + K_SRC_FEAT_OFFSET];
+        switch (frc[i]) {
+        case FRC_STRING:
+          strings.add(offset);
+          break;
+        case FRC_LONG:
+        case FRC_DOUBLE:
+          longs.add(offset);
+          break;
+        case FRC_REF:
+          refs.add(offset);
+          refCodes.add(codesAndOffsets[(i << 1) + K_TGT_FEAT_CODE]);
+          break;
+        default:
+          break;
+        }
+      }
+      stringOffsets = strings.toArrayCopy();
+      longOffsets = longs.toArrayCopy();
+      refOffsets = refs.toArrayCopy();
+      refFeatCodes = refCodes.toArrayCopy();
+    }
   }
     
   private final TypeInfo[] tInfoArray;
@@ -211,6 +251,13 @@ public class CasCopier {
   final private int srcSofaTypeCode;
   
   final private boolean lenient; //true: ignore feature structures and features that are not defined in the destination CAS
+  
+  /**
+   * true if the source and target CASs share the same type system.
+   * FSs are then copied as a block of heap cells, and only the reference valued slots
+   * are relocated one by one, instead of copying feature by feature. 
+   */
+  final private boolean isSameTypeSystem;
 
   /**
    * key is source FS, value is target FS 
@@ -281,6 +328,7 @@ public class CasCopier {
     mDestSofaFeatureCode = ((FeatureImpl)mDestSofaFeature).getCode();
     srcSofaTypeCode = originalSrcCasImpl.getTypeSystemImpl().sofaType.getCode();
     this.lenient = lenient;
+    isSameTypeSystem = srcTsi == tgtTsi;
     
     // the next is to support the style of use where
     //   an instance of this copier is made, corresponding to two views in the same CAS
@@ -527,6 +575,9 @@ public class CasCopier {
     
     final PositiveIntSet indexedFs = new PositiveIntSet_impl();
     
+    // the copies are added to the target indexes in one batch, at the end
+    final IntVector copiesToIndex = new IntVector();
+    
     // The indexFs set starts out "cleared", but 
     // we don't clear the cas copier instance map "mFsMap" here, in order to skip actually copying the
     //   FSs when doing a full CAS copy with multiple views - the 2nd and subsequent
@@ -567,11 +618,12 @@ public class CasCopier {
 
         // also don't index the DocumentAnnotation (it's indexed by default)
         if (!isDocumentAnnotation(fs)) {
-          tgtCasViewImpl.ll_getIndexRepository().ll_addFS(copyOfFs);
+          copiesToIndex.add(copyOfFs);
         }
         indexedFs.add(fs);
       }
     }
+    tgtCasViewImpl.ll_getIndexRepository().ll_addAll(copiesToIndex.toArrayCopy());
   }
 
   /**
@@ -627,7 +679,11 @@ public class CasCopier {
     while (fsToDo.size() > 0) {
       int copyToFillSlots = fsToDo.remove(fsToDo.size()-1);
       int srcToFillSlots = fsToDo.remove(fsToDo.size()-1);
-      copyFeatures(srcToFillSlots, copyToFillSlots);   
+      if (isSameTypeSystem) {
+        relocateRefs(srcToFillSlots, copyToFillSlots);
+      } else {
+        copyFeatures(srcToFillSlots, copyToFillSlots);
+      }
     }
     return copy;
   }
@@ -700,6 +756,10 @@ public class CasCopier {
       return destDocAnnot;
     }
 
+    if (isSameTypeSystem) {
+      return copyFsSameTypeSystem(aFS, srcTypeCode);
+    }
+
     // Arrays - need to be created a populated differently than "normal" FS
     if (srcType.isArray()) {
       copy = copyArray(aFS);
@@ -727,6 +787,57 @@ public class CasCopier {
     return tgtFsAddr;
   }
   
+  /**
+   * Copies a FS when the source and target share the same type system: the heap cells
+   * are copied as a block, with the strings and the long / double values and the 
+   * contents of the arrays kept outside of the main heap.
+   * The copy is queued for having its reference slots relocated, if it has any.
+   * 
+   * @param aFS the FS to copy, not a Sofa or the DocumentAnnotation
+   * @param srcTypeCode the type of aFS
+   * @return the copy of aFS in the target CAS
+   */
+  private int copyFsSameTypeSystem(int aFS, int srcTypeCode) {
+    final TypeInfo tInfo = getTypeInfo(srcTypeCode);
+    final int copy = tgtCasViewImpl.ll_copyFsFrom(srcCasViewImpl, aFS, tInfo.stringOffsets, tInfo.longOffsets);
+    mFsMap.put(aFS, copy);
+    if (tInfo.refOffsets.length > 0 || srcTypeCode == TypeSystemImpl.fsArrayTypeCode) {
+      fsToDo.add(aFS); // order important
+      fsToDo.add(copy);
+    }
+    return copy;
+  }
+  
+  /**
+   * Relocate the reference slots (or the FSArray elements) of a FS copied by copyFsSameTypeSystem:
+   * they still hold the source CAS addresses, which are replaced with the (deep) copies of the referenced FSs.
+   * 
+   * @param srcFS the FS that was copied
+   * @param tgtFS the copy
+   */
+  private void relocateRefs(int srcFS, int tgtFS) {
+    final int srcTypeCode = srcCasViewImpl.getTypeCode(srcFS);
+    if (srcTypeCode == TypeSystemImpl.fsArrayTypeCode) {
+      final int len = srcCasViewImpl.ll_getArraySize(srcFS);
+      for (int i = 0; i < len; i++) {
+        final int srcItem = srcCasViewImpl.ll_getRefArrayValue(srcFS, i);
+        if (srcItem != 0) {
+          tgtCasViewImpl.ll_setRefArrayValue(tgtFS, i, copyFsInner(srcItem));
+        }
+      }
+      return;
+    }
+    
+    final TypeInfo tInfo = getTypeInfo(srcTypeCode);
+    final int[] refOffsets = tInfo.refOffsets;
+    for (int i = 0; i < refOffsets.length; i++) {
+      final int refFS = srcCasViewImpl.ll_getRefValueFeatOffset(srcFS, refOffsets[i]);
+      if (refFS != 0) {
+        tgtCasViewImpl.ll_setRefValue(tgtFS, tInfo.refFeatCodes[i], copyFsInner(refFS));
+      }
+    }
+  }
+
   /**
    * There are two cases for getting target sofa name from the source one, depending on whether or not
    * the API which allows specifying a different target view name for the source view name, is in use.
@@ -823,6 +934,44 @@ public class CasCopier {
   public boolean alreadyCopied(int aFS) {
     return mFsMap.get(aFS) != 0;
   }
+  
+  /**
+   * Creates a CasCopier that copies in the other direction, from the destination CAS of this
+   * CasCopier into its source CAS. This is used to merge back into the source CAS the 
+   * Feature Structures that were created in a copy of it.
+   * 
+   * The Feature Structures already copied by this CasCopier are not copied back: references to their
+   * copies are mapped back to the original Feature Structures.  This is also done for the 
+   * DocumentAnnotations of views having the same name in both CASs.
+   * 
+   * @return a CasCopier from the destination CAS of this CasCopier to its source CAS
+   */
+  public CasCopier createReverseCopier() {
+    CasCopier reverse = new CasCopier(originalTgtCas, originalSrcCas, lenient);
+    IntKeyValueIterator it = mFsMap.keyValueIterator();
+    while (it.isValid()) {
+      reverse.mFsMap.put(it.getValue(), it.get());
+      it.inc();
+    }
+    
+    Iterator<CAS> viewIterator = originalTgtCas.getViewIterator();
+    while (viewIterator.hasNext()) {
+      CASImpl tgtView = (CASImpl) viewIterator.next().getLowLevelCAS();
+      int tgtDocAnnot = tgtView.ll_getDocumentAnnotation();
+      if (tgtDocAnnot == 0) {
+        continue;
+      }
+      try {
+        int srcDocAnnot = ((CASImpl) originalSrcCas.getView(tgtView.getViewName()).getLowLevelCAS()).ll_getDocumentAnnotation();
+        if (srcDocAnnot != 0) {
+          reverse.mFsMap.put(tgtDocAnnot, srcDocAnnot);
+        }
+      } catch (CASRuntimeException e) {
+        // no view of that name in the source CAS
+      }
+    }
+    return reverse;
+  }
 
   /**
    * @param arrayFS
@@ -19,6 +19,7 @@
 
 package org.apache.uima.util;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -579,6 +580,16 @@ public class CasCreationUtils {
       }
     }
 
+    // Check off heap storage performance settings.  Defaults to false.
+    boolean heapsOffHeap = false;
+    String mappedFileDirStr = null;
+    if (aPerformanceTuningSettings != null) {
+      heapsOffHeap = "true".equalsIgnoreCase(aPerformanceTuningSettings.getProperty(
+          UIMAFramework.CAS_HEAPS_OFF_HEAP));
+      mappedFileDirStr = aPerformanceTuningSettings.getProperty(
+          UIMAFramework.CAS_HEAPS_MAPPED_FILE_DIRECTORY);
+    }
+
     // create CAS using either aTypeSystem or aTypeSystemDesc
     CASMgr casMgr;
     if (aTypeSystem != null) {
@@ -600,6 +611,10 @@ public class CasCreationUtils {
       ((CASImpl) casMgr).commitTypeSystem();
     }
 
+    if (heapsOffHeap || mappedFileDirStr != null) {
+      ((CASImpl) casMgr).setHeapsOffHeap((mappedFileDirStr == null) ? null : new File(mappedFileDirStr));
+    }
+
     try {
       // install TypePriorities into CAS
       setupTypePriorities(casMgr, aTypePriorities);
@@ -29,7 +29,12 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
 import org.apache.uima.UIMARuntimeException;
@@ -50,6 +55,7 @@ import org.apache.uima.cas.impl.Serialization;
 import org.apache.uima.cas.impl.TypeSystemImpl;
 import org.apache.uima.cas.impl.XCASSerializer;
 import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.apache.uima.internal.util.ByteBufferDataInputStream;
 import org.xml.sax.SAXException;
 
 /**
@@ -104,17 +110,17 @@ import org.xml.sax.SAXException;
  *   <li>the CAS's type system</li>
  * </ul>
  *
- * <p>The serialization formats supported here are specified in the SerialFormat enum.</p>
+ * <p>The serialization formats supported here are specified in the SerialFormat enum.
+ *   The JSON format is handled by the uimaj-json module, which is used if it is on the classpath.</p>
  *
  * <p>The <code>load </code>api's automatically use the appropriate deserializers, based on the input data format.</p>
  *
- * <p>Loading inputs may be supplied as URLs or as an appropriately buffered InputStream.</p>
+ * <p>Loading inputs may be supplied as Paths, URLs or as an appropriately buffered InputStream.</p>
  *
- * <p>Note: you can use Files or Paths by converting these to URLs:</p>
- * <ul>
- *   <li><code>URL url = a_path.toUri().toURL();</code></li>
- *   <li><code>URL url = a_file.toUri().toURL();</code></li>
- * </ul>
+ * <p>Loading from a Path memory maps the file, and the binary formats are decoded directly from the
+ *   mapped bytes; this is the fastest way to load CASes stored in local files.</p>
+ *
+ * <p>Note: you can use Files by converting these to Paths: <code>a_file.toPath()</code></p>
  *
  * <p>When loading, an optional CasLoadMode enum value maybe specified to indicate</p>
  * <ul>
@@ -137,11 +143,13 @@ import org.xml.sax.SAXException;
  *
  * <p>Summary of APIs for loading:</p>
  * <pre style="padding-left: 30px;">
+ *   <code>load(aPath&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; , aCas)</code>
  *   <code>load(aURL&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; , aCas)</code>
  *   <code>load(inputStream, aCas)</code>
  *   <code>load(inputStream, aCas, typeSystem)</code> // typeSystem used for decoding Compressed Form 6
  *   <code>load(inputStream, tsiInputStream, aCas)</code></pre>
  * <pre style="padding-left: 30px;">
+ *   <code>load(aPath&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; , tsiPath&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; , aCAS, casLoadMode)&nbsp;&nbsp; - the second Path is for loading a separately-stored TSI</code>
  *   <code>load(aURL&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; , tsiURL&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; , aCAS, casLoadMode)&nbsp;&nbsp; - the second URL is for loading a separately-stored TSI</code>
  *   <code>load(inputStream, tsiInputStream, aCAS, aCasLoadMode)</code>
  *   <code>load(aURL&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; , tsiURL&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; , aCAS, lenient)&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; - lenient is used to set the CasLoadMode to LENIENT or DEFAULT</code>
@@ -150,6 +158,65 @@ import org.xml.sax.SAXException;
 
 public class CasIOUtils {
 
+  /**
+   * Loads a Cas from a file. The file is memory mapped, and binary formats are 
+   * decoded directly from the mapped bytes.
+   * For SerialFormats ending with _TSI except for COMPRESSED_FILTERED_TSI, 
+   * the CAS's type system and indexes definition are replaced.
+   * CasLoadMode is DEFAULT.
+   * 
+   * @param casPath
+   *          The file containing the CAS
+   * @param aCAS
+   *          The CAS that should be filled
+   * @return the SerialFormat of the loaded CAS
+   * @throws IOException
+   *           - Problem loading from given file
+   */
+  public static SerialFormat load(Path casPath, CAS aCAS) throws IOException {
+    return load(casPath, null, aCAS, CasLoadMode.DEFAULT);
+  }
+  
+  /**
+   * Loads a CAS from a file. The format is determined from the content.
+   * The file is memory mapped, and binary formats are decoded directly from the mapped bytes;
+   * for uncompressed binary, the heaps are bulk copied from the mapped file.
+   * 
+   * If the value of tsiPath is null it is ignored.
+   * 
+   * @param casPath
+   *          The file to deserialize the CAS from
+   * @param tsiPath
+   *          null or an optional file to deserialize the type system and index definitions from
+   * @param aCAS
+   *          The CAS that should be filled
+   * @param casLoadMode specifies how to handle reinitialization and lenient loading
+   *          see the Javadocs for CasLoadMode
+   * @return the SerialFormat of the loaded CAS
+   * @throws IOException Problem loading
+   */
+  public static SerialFormat load(Path casPath, Path tsiPath, CAS aCAS, CasLoadMode casLoadMode)
+          throws IOException {
+    InputStream casIS;
+    FileChannel fc = FileChannel.open(casPath, StandardOpenOption.READ);
+    try {
+      final long size = fc.size();
+      // the mapping remains valid after the channel is closed
+      casIS = (size > Integer.MAX_VALUE)   // too big to map in one piece
+                ? new BufferedInputStream(Files.newInputStream(casPath))
+                : new ByteBufferDataInputStream(fc.map(FileChannel.MapMode.READ_ONLY, 0, size));
+    } finally {
+      fc.close();
+    }
+    InputStream tsIS = (tsiPath == null) ? null : new BufferedInputStream(Files.newInputStream(tsiPath));
+    try {
+      return load(casIS, tsIS, aCAS, casLoadMode);
+    } finally {
+      closeQuitely(casIS);
+      closeQuitely(tsIS);
+    }  
+  }
+
   /**
    * Loads a Cas from a URL source. 
    * For SerialFormats ending with _TSI except for COMPRESSED_FILTERED_TSI, 
@@ -369,6 +436,12 @@ public class CasIOUtils {
       }
     }
     
+    if (isJson(casInputStream)) {
+      casImpl.setupCasFromCasMgrSerializer(readCasManager(tsiInputStream));
+      deserializeJson(casInputStream, aCAS, casLoadMode == CasLoadMode.LENIENT);
+      return SerialFormat.JSON;
+    }
+    
     //  Not an XML file, decode as binary file
     DataInputStream deserIn = CommonSerDes.maybeWrapToDataInputStream(casInputStream);
     if (CommonSerDes.isBinaryHeader(deserIn)) {
@@ -481,6 +554,9 @@ public class CasIOUtils {
           serializeWithCompression(aCas, docOS, false, true);
           typeSystemWritten = true; // Embedded type system
           break;
+        case JSON:
+          serializeJson(aCas, docOS);
+          break;
         default:
           StringBuilder sb = new StringBuilder();
           for (SerialFormat sf : SerialFormat.values()) {
@@ -502,6 +578,81 @@ public class CasIOUtils {
     }
   }
 
+  /*
+   * JSON support is in the uimaj-json module, which depends on this one, so it is found by name
+   */
+  private static final String JSON_SERIALIZER = "org.apache.uima.json.JsonCasSerializer";
+  private static final String JSON_DESERIALIZER = "org.apache.uima.json.JsonCasDeserializer";
+  
+  private static void serializeJson(CAS aCas, OutputStream docOS) throws IOException {
+    try {
+      loadJsonClass(JSON_SERIALIZER).getMethod("jsonSerialize", CAS.class, Object.class).invoke(null, aCas, docOS);
+    } catch (InvocationTargetException e) {
+      throw unwrapJsonException(e);
+    } catch (ReflectiveOperationException e) {
+      throw new IOException(e);
+    }
+  }
+  
+  /**
+   * Checks if a stream holds JSON: after an optional UTF-8 byte order mark and any whitespace,
+   * the first character is '{'.  The stream is reset to where it was.
+   * 
+   * @param casInputStream a stream which supports mark and reset
+   * @return true if the stream starts with a JSON object
+   * @throws IOException if reading the stream fails
+   */
+  static boolean isJson(InputStream casInputStream) throws IOException {
+    casInputStream.mark(Integer.MAX_VALUE);  // the buffer only grows as far as the whitespace goes
+    try {
+      int b = casInputStream.read();
+      if (b == 0xEF) {  // UTF-8 byte order mark
+        if (casInputStream.read() != 0xBB || casInputStream.read() != 0xBF) {
+          return false;
+        }
+        b = casInputStream.read();
+      }
+      while (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+        b = casInputStream.read();
+      }
+      return b == '{';
+    } finally {
+      casInputStream.reset();
+    }
+  }
+
+  private static void deserializeJson(InputStream casInputStream, CAS aCAS, boolean leniently) throws IOException {
+    Class<?> deserializer = loadJsonClass(JSON_DESERIALIZER);
+    try {
+      Object d = deserializer.newInstance();
+      deserializer.getMethod("setLenient", boolean.class).invoke(d, leniently);
+      deserializer.getMethod("deserialize", CAS.class, Object.class).invoke(d, aCAS, casInputStream);
+    } catch (InvocationTargetException e) {
+      throw unwrapJsonException(e);
+    } catch (ReflectiveOperationException e) {
+      throw new IOException(e);
+    }
+  }
+  
+  private static IOException unwrapJsonException(InvocationTargetException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof IOException) {
+      return (IOException) cause;
+    }
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    }
+    return new IOException(cause);
+  }
+  
+  private static Class<?> loadJsonClass(String name) throws IOException {
+    try {
+      return Class.forName(name, true, CasIOUtils.class.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      throw new IOException("The JSON serial format needs the uimaj-json module on the classpath", e);
+    }
+  }
+  
   private static CASMgrSerializer readCasManager(InputStream tsiInputStream) throws IOException {
     try {
       if (null == tsiInputStream) {
@@ -22,22 +22,21 @@ package org.apache.uima.util;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.StringInternTable;
+import org.apache.uima.internal.util.InstancePool;
 import org.apache.uima.resource.CasDefinition;
 import org.apache.uima.resource.CasManager;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.ResourceManager;
+import org.apache.uima.resource.impl.CasManager_impl;
 import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
 
 /**
@@ -57,6 +56,8 @@ import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
  *   If more threads request CASes from the pool than are available, the pool (optionally) puts requesting
  *   threads into a wait state.  When CASes become available, the longest-waiting thread gets the CAS; this
  *   approach prevents starvation behavior (where some threads get all the CASes and others get none).
+ *   
+ *   Checking out and checking in do not lock the pool; see {@link InstancePool}.
  * 
  */
 public class CasPool {
@@ -71,28 +72,14 @@ public class CasPool {
    */
   private static final Class<CasPool> CLASS_NAME = CasPool.class;
 
-  // no sync needed because this list is filled during initialization of this instance, and
-  // from then on is read-only, which can occur in parallel
-  final private Set<CAS> mAllInstances;
-
-  
-  // We use this rather than a form of BlockingQueue, to achieve an (arbitrary) LIFO-like reuse of CASes
-  // this is a set rather than an array, to speed up "contains()" check used when releasing
-  //   (user code could call release multiple times on same cas...)
-  final private Set<CAS> mFreeInstances;
+  // LIFO-like reuse of CASes, fair to waiting threads
+  final private InstancePool<CAS> mPool;
  
   final private int mNumInstances;
   
-  // a fair lock to prevent starvation of a thread
-  final private Semaphore permits;
-  
   private CasPool(int aNumInstances, Set<CAS> allInstances) {
     mNumInstances = aNumInstances;
-    permits = new Semaphore(mNumInstances, true);
-    mAllInstances = allInstances;
-    Set<CAS> free = Collections.newSetFromMap(new ConcurrentHashMap<CAS, Boolean>());
-    free.addAll(mAllInstances);
-    mFreeInstances = free;  // concurrent safe publishing idiom 
+    mPool = new InstancePool<CAS>(allInstances);
   }
 
   /**
@@ -218,13 +205,7 @@ public class CasPool {
    *         instance becomes available).
    */
   public CAS getCas() {
-    boolean gotPermit;
-    gotPermit = permits.tryAcquire();
-    if (!gotPermit) {
-      return null;
-    }
-    
-    return getCasAfterPermitAcquired();      
+    return mPool.tryAcquire();
   }
   
   /**
@@ -238,41 +219,7 @@ public class CasPool {
    *         timeout period.
    */
   public CAS getCas(long aTimeout) {
-    if (aTimeout == 0) {
-      permits.acquireUninterruptibly();
-      return getCasAfterPermitAcquired();
-    }
-    boolean gotIt;
-    try {
-      gotIt = permits.tryAcquire(aTimeout, TimeUnit.MILLISECONDS);
-    } catch (InterruptedException e) {
-      return null;
-    }
-    
-    if (!gotIt) {
-      return null;
-    }    
-    return getCasAfterPermitAcquired();
-  }
-
-  
-  private CAS getCasAfterPermitAcquired() {
-    // synchronize so only one iterator is running
-    synchronized (mFreeInstances) {
-      final Iterator<CAS> freeIterator = mFreeInstances.iterator();
-      if (!freeIterator.hasNext()) {
-        throw new RuntimeException("internal error");
-      }
-      final CAS cas = freeIterator.next();
-      freeIterator.remove();
-//      mFreeInstances.remove(cas);
-//      int debugFree = mFreeInstances.size();
-//      int debugAvail = permits.availablePermits();
-//      if (debugFree != debugAvail) {
-//        System.out.println("  on acquire permits != free: " + debugAvail + " " + debugFree);
-//      }
-      return cas;
-    }
+    return mPool.acquire(aTimeout);
   }
 
   /**
@@ -295,7 +242,7 @@ public class CasPool {
     // make sure this CAS actually belongs to this pool and is checked out
     // synchronize to avoid the same CAS being released on 2 threads
     synchronized (cas) {
-      if (!mAllInstances.contains(cas) || mFreeInstances.contains(cas)) {
+      if (!mPool.isCheckedOut(cas)) {
         UIMAFramework.getLogger(CLASS_NAME).logrb(Level.WARNING, CLASS_NAME.getName(), "releaseCas",
                 LOG_RESOURCE_BUNDLE, "UIMA_return_cas_to_pool__WARNING");
       } else {
@@ -306,9 +253,8 @@ public class CasPool {
         // reset CAS
         cas.reset();
         
-        // Add the CAS to the end of the free instances List
-        mFreeInstances.add(cas);
-        permits.release();  // should follow adding cas back to mFreeInstances
+        // make the CAS available again, waking up the longest waiting thread
+        mPool.release(cas);
       }
     }
 
@@ -334,7 +280,7 @@ public class CasPool {
    * @return the numberof available CASes 
    */
   public int getNumAvailable() {
-    return mFreeInstances.size();
+    return mPool.getNumAvailable();
   }  
 
   /**
@@ -353,17 +299,34 @@ public class CasPool {
     // create first CAS from metadata
     CAS c0 = CasCreationUtils.createCas(casDef, performanceTuningSettings);
     Set<CAS> all = new HashSet<CAS>(aNumInstances);
+    final StringInternTable internTable = getStringInternTable(casDef.getCasManager(), performanceTuningSettings);
     // set owner so cas.release() can return it to the pool
     ((CASImpl) c0).setOwner(casDef.getCasManager());
+    ((CASImpl) c0).setStringInternTable(internTable);
     all.add(c0);
     // create additional CASes that share same type system
     for (int i = 1; i < aNumInstances; i++) {
       CAS c = CasCreationUtils.createCas(casDef, performanceTuningSettings, c0.getTypeSystem());
       ((CASImpl) c).setOwner(casDef.getCasManager());
+      ((CASImpl) c).setStringInternTable(internTable);
       all.add(c);
     }
     return all;
   }
+  
+  /**
+   * @return null if string interning is off, 
+   *         otherwise the CAS Manager's table, or (if none) a new one for this pool 
+   */
+  private static StringInternTable getStringInternTable(CasManager casManager, Properties performanceTuningSettings) {
+    if (performanceTuningSettings == null || !"true".equalsIgnoreCase(
+        performanceTuningSettings.getProperty(UIMAFramework.CAS_STRING_INTERNING))) {
+      return null;
+    }
+    return (casManager instanceof CasManager_impl) 
+        ? ((CasManager_impl) casManager).getStringInternTable() 
+        : new StringInternTable();
+  }
 
   private static Set<CAS> fillPool(int aNumInstances, CasManager casManager, Properties performanceTuningSettings)
           throws ResourceInitializationException {
@@ -380,12 +343,12 @@ public class CasPool {
   // no callers as of March 2014
   // left as Vector
   protected Vector<CAS> getAllInstances() {
-    return new Vector<CAS>(mAllInstances);
+    return new Vector<CAS>(mPool.getAll());
   }
 
   // no callers as of March 2014
   // left as Vector
   protected Vector<CAS> getFreeInstances() {
-    return new Vector<CAS>(mFreeInstances);
+    return new Vector<CAS>(mPool.getFree());
   }
 }
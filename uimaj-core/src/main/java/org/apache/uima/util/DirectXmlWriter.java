@@ -0,0 +1,380 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * A SAX ContentHandler which writes XML 1.0 as UTF-8 directly to an OutputStream, without going
+ * through a JAXP Transformer.  
+ * 
+ * The bytes are encoded into a fixed size buffer which is written to the stream each time it
+ * fills, so memory use doesn't depend on the size of the document.  The buffer is kept across 
+ * documents: an instance may be reused (by one thread at a time), via {@link #setOutputStream(OutputStream)}.
+ * 
+ * Element and attribute names are written as their qNames; namespace declarations are expected
+ * to be passed as ordinary (xmlns:...) attributes, as the XMI and XCAS serializers do, so the 
+ * prefix mapping events are ignored.  
+ * 
+ * Attributes passed as an {@link IntAttributesImpl} may hold int values, which are written 
+ * as digits without making a String.
+ * 
+ * Like {@link XMLSerializer}, characters which are not allowed in XML 1.0 cause a SAXParseException.
+ */
+public class DirectXmlWriter implements ContentHandler {
+
+  private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+  
+  private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+  
+  private static final int INDENT_AMOUNT = 4;  // same as XMLSerializer, when formatted
+  
+  private final byte[] buf;
+  
+  private int pos = 0;
+  
+  private char[] chars = new char[256];  // work area for strings
+  
+  private OutputStream os;
+  
+  private final boolean isFormattedOutput;
+  
+  private int depth = 0;
+  
+  // "<name attrs" written, waiting to see if ">" or "/>"
+  private boolean isStartTagOpen = false;
+  
+  // for formatted output, per open element: has child elements, has text
+  private boolean[] hasChildElements = new boolean[16];
+  private boolean[] hasText = new boolean[16];
+  
+  /**
+   * @param os where to write the XML
+   */
+  public DirectXmlWriter(OutputStream os) {
+    this(os, false);
+  }
+  
+  /**
+   * @param os where to write the XML
+   * @param isFormattedOutput true to put each element on a new line, indented by depth
+   */
+  public DirectXmlWriter(OutputStream os, boolean isFormattedOutput) {
+    this(os, isFormattedOutput, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * @param os where to write the XML
+   * @param isFormattedOutput true to put each element on a new line, indented by depth
+   * @param bufferSize the number of bytes to encode before writing to os
+   */
+  public DirectXmlWriter(OutputStream os, boolean isFormattedOutput, int bufferSize) {
+    this.buf = new byte[Math.max(bufferSize, 16)];
+    this.isFormattedOutput = isFormattedOutput;
+    setOutputStream(os);
+  }
+  
+  /**
+   * Direct the next document to another stream, reusing this writer's buffers
+   * @param os where to write the XML
+   */
+  public void setOutputStream(OutputStream os) {
+    this.os = os;
+    pos = 0;
+    depth = 0;
+    isStartTagOpen = false;
+  }
+
+  public void startDocument() throws SAXException {
+    writeRaw(XML_DECLARATION);
+  }
+
+  public void endDocument() throws SAXException {
+    if (isFormattedOutput) {
+      writeByte('\n');
+    }
+    flushBuffer();
+    try {
+      os.flush();
+    } catch (IOException e) {
+      throw new SAXException(e);
+    }
+  }
+
+  public void startElement(String uri, String localName, String qName, Attributes atts)
+      throws SAXException {
+    closeStartTag();
+    if (isFormattedOutput) {
+      if (depth > 0) {
+        hasChildElements[depth - 1] = true;
+      }
+      if (depth == 0 || !hasText[depth - 1]) {
+        newLineAndIndent();
+      }
+      if (depth == hasText.length) {
+        hasText = Arrays.copyOf(hasText, depth * 2);
+        hasChildElements = Arrays.copyOf(hasChildElements, depth * 2);
+      }
+      hasText[depth] = false;
+      hasChildElements[depth] = false;
+    }
+    writeByte('<');
+    writeRaw(qName);
+    final int nbrAttrs = atts.getLength();
+    final IntAttributesImpl intAtts = (atts instanceof IntAttributesImpl) ? (IntAttributesImpl) atts : null;
+    for (int i = 0; i < nbrAttrs; i++) {
+      writeByte(' ');
+      writeRaw(atts.getQName(i));
+      writeByte('=');
+      writeByte('"');
+      if (intAtts != null && intAtts.isIntValue(i)) {
+        writeInt(intAtts.getIntValue(i));
+      } else {
+        writeEscaped(atts.getValue(i), true);
+      }
+      writeByte('"');
+    }
+    isStartTagOpen = true;
+    depth++;
+  }
+
+  public void endElement(String uri, String localName, String qName) throws SAXException {
+    depth--;
+    if (isStartTagOpen) {
+      writeByte('/');
+      writeByte('>');
+      isStartTagOpen = false;
+      return;
+    }
+    if (isFormattedOutput && hasChildElements[depth] && !hasText[depth]) {
+      newLineAndIndent();
+    }
+    writeByte('<');
+    writeByte('/');
+    writeRaw(qName);
+    writeByte('>');
+  }
+
+  public void characters(char[] ch, int start, int length) throws SAXException {
+    closeStartTag();
+    if (isFormattedOutput && depth > 0) {
+      hasText[depth - 1] = true;
+    }
+    writeEscaped(ch, start, length, false);
+  }
+
+  public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+    characters(ch, start, length);
+  }
+
+  public void processingInstruction(String target, String data) throws SAXException {
+    closeStartTag();
+    writeRaw("<?");
+    writeRaw(target);
+    if (data != null && data.length() > 0) {
+      writeByte(' ');
+      writeRaw(data);
+    }
+    writeRaw("?>");
+  }
+
+  public void setDocumentLocator(Locator locator) {}
+
+  public void startPrefixMapping(String prefix, String uri) throws SAXException {}
+
+  public void endPrefixMapping(String prefix) throws SAXException {}
+
+  public void skippedEntity(String name) throws SAXException {}
+  
+  private void closeStartTag() throws SAXException {
+    if (isStartTagOpen) {
+      writeByte('>');
+      isStartTagOpen = false;
+    }
+  }
+  
+  private void newLineAndIndent() throws SAXException {
+    final int n = depth * INDENT_AMOUNT;
+    ensureRoom(n + 1);
+    buf[pos++] = '\n';
+    for (int i = 0; i < n; i++) {
+      buf[pos++] = ' ';
+    }
+  }
+  
+  /*********************************
+   * UTF-8 encoding into the buffer
+   *********************************/
+  
+  private void flushBuffer() throws SAXException {
+    try {
+      os.write(buf, 0, pos);
+    } catch (IOException e) {
+      throw new SAXException(e);
+    }
+    pos = 0;
+  }
+  
+  private void ensureRoom(int n) throws SAXException {
+    if (pos + n > buf.length) {
+      flushBuffer();
+    }
+  }
+  
+  private void writeByte(char c) throws SAXException {
+    ensureRoom(1);
+    buf[pos++] = (byte) c;
+  }
+  
+  // ascii, short
+  private void writeAscii(String s) throws SAXException {
+    final int len = s.length();
+    ensureRoom(len);
+    for (int i = 0; i < len; i++) {
+      buf[pos++] = (byte) s.charAt(i);
+    }
+  }
+
+  // same digits as Integer.toString
+  private void writeInt(int v) throws SAXException {
+    ensureRoom(11);
+    long u = v;
+    if (u < 0) {
+      buf[pos++] = '-';
+      u = -u;
+    }
+    final int start = pos;
+    do {
+      buf[pos++] = (byte) ('0' + (u % 10));
+      u /= 10;
+    } while (u != 0);
+    // reverse the digits
+    for (int i = start, j = pos - 1; i < j; i++, j--) {
+      final byte b = buf[i];
+      buf[i] = buf[j];
+      buf[j] = b;
+    }
+  }
+
+  // names and other strings needing no escapes
+  private void writeRaw(String s) throws SAXException {
+    final int len = s.length();
+    final char[] ch = toChars(s);
+    for (int i = 0; i < len; i++) {
+      final int last = writeUtf8(ch, i, len);
+      if (last < 0) {
+        throw nonXmlChar(ch, 0, len, -last - 1);
+      }
+      i = last;
+    }
+  }
+  
+  private void writeEscaped(String s, boolean isAttr) throws SAXException {
+    writeEscaped(toChars(s), 0, s.length(), isAttr);
+  }
+  
+  private char[] toChars(String s) {
+    final int len = s.length();
+    if (len > chars.length) {
+      chars = new char[Math.max(len, chars.length * 2)];
+    }
+    s.getChars(0, len, chars, 0);
+    return chars;
+  }
+  
+  private void writeEscaped(char[] ch, int start, int length, boolean isAttr) throws SAXException {
+    final int end = start + length;
+    for (int i = start; i < end; i++) {
+      final char c = ch[i];
+      if (c >= 0x80) {
+        i = writeUtf8(ch, i, end);
+        if (i < 0) {
+          throw nonXmlChar(ch, start, length, -i - 1);
+        }
+        continue;
+      }
+      switch (c) {
+      case '&':  writeAscii("&amp;"); break;
+      case '<':  writeAscii("&lt;");  break;
+      case '>':  writeAscii("&gt;");  break;
+      case '\r': writeAscii("&#13;"); break;
+      case '"':  if (isAttr) { writeAscii("&quot;"); } else { writeByte(c); } break;
+      // in attributes, escaped so parsers don't normalize them to spaces
+      case '\n': if (isAttr) { writeAscii("&#10;");  } else { writeByte(c); } break;
+      case '\t': if (isAttr) { writeAscii("&#9;");   } else { writeByte(c); } break;
+      default:
+        if (c < 0x20) {
+          throw nonXmlChar(ch, start, length, i);
+        }
+        writeByte(c);
+      }
+    }
+  }
+  
+  /**
+   * Write ch[i] (and its low surrogate if it is a high one) as UTF-8
+   * @return the index of the last char written, or -(index + 1) of a char which isn't allowed in XML 1.0
+   */
+  private int writeUtf8(char[] ch, int i, int end) throws SAXException {
+    final char c = ch[i];
+    ensureRoom(4);
+    if (c < 0x80) {
+      buf[pos++] = (byte) c;
+    } else if (c < 0x800) {
+      buf[pos++] = (byte) (0xc0 | (c >> 6));
+      buf[pos++] = (byte) (0x80 | (c & 0x3f));
+    } else if (Character.isHighSurrogate(c)) {
+      if (i + 1 >= end || !Character.isLowSurrogate(ch[i + 1])) {
+        return -i - 1;
+      }
+      final int cp = Character.toCodePoint(c, ch[++i]);
+      buf[pos++] = (byte) (0xf0 | (cp >> 18));
+      buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+      buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+      buf[pos++] = (byte) (0x80 | (cp & 0x3f));
+    } else if (Character.isLowSurrogate(c) || c >= 0xfffe) {
+      return -i - 1;
+    } else {
+      buf[pos++] = (byte) (0xe0 | (c >> 12));
+      buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+      buf[pos++] = (byte) (0x80 | (c & 0x3f));
+    }
+    return i;
+  }
+  
+  // same message as XMLSerializer's CharacterValidatingContentHandler
+  private static SAXParseException nonXmlChar(char[] ch, int start, int length, int index) {
+    final int offset = index - start;
+    String startStr = (offset == 0) 
+        ? "[The Very First Character]"
+        : new String(ch, start, Math.min(offset, 100));
+    String msg = String.format("Trying to serialize non-XML %s character: 0x%x at offset %,d in string starting with %s",
+        "1.0", (int) ch[index], offset, startStr);
+    return new SAXParseException(msg, null);
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.util;
+
+import java.util.Arrays;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * An AttributesImpl which can also hold int values, without converting them to Strings.
+ * 
+ * The String form of an int value is made only when it is asked for, via one of the getValue 
+ * methods; {@link DirectXmlWriter} instead writes the digits straight into its output buffer. 
+ * The XMI serializer uses this for xmi:ids, references and integer feature values, so writing
+ * them with a DirectXmlWriter creates no String per attribute, while other ContentHandlers
+ * see ordinary attributes.
+ */
+public class IntAttributesImpl extends AttributesImpl {
+
+  private int[] intValues = new int[16];
+  
+  private boolean[] isIntValue = new boolean[16];
+  
+  /**
+   * Add an attribute with an int value to the end of the list.
+   * 
+   * @param uri the Namespace URI, or the empty string if none is available or Namespace processing 
+   *          is not being performed
+   * @param localName the local name, or the empty string if Namespace processing is not being performed
+   * @param qName the qualified (prefixed) name, or the empty string if qualified names are not available
+   * @param type the attribute type as a string
+   * @param value the attribute value
+   */
+  public void addAttribute(String uri, String localName, String qName, String type, int value) {
+    final int index = getLength();
+    super.addAttribute(uri, localName, qName, type, null);
+    ensureCapacity(index + 1);
+    intValues[index] = value;
+    isIntValue[index] = true;
+  }
+
+  @Override
+  public void addAttribute(String uri, String localName, String qName, String type, String value) {
+    final int index = getLength();
+    super.addAttribute(uri, localName, qName, type, value);
+    ensureCapacity(index + 1);
+    isIntValue[index] = false;
+  }
+  
+  /**
+   * @param index the attribute's index (zero-based)
+   * @return true if the attribute at this index was added with an int value
+   */
+  public boolean isIntValue(int index) {
+    return index >= 0 && index < getLength() && isIntValue[index];
+  }
+  
+  /**
+   * @param index the attribute's index (zero-based), of an attribute added with an int value
+   * @return the int value
+   */
+  public int getIntValue(int index) {
+    return intValues[index];
+  }
+
+  @Override
+  public String getValue(int index) {
+    return isIntValue(index) ? Integer.toString(intValues[index]) : super.getValue(index);
+  }
+
+  @Override
+  public String getValue(String uri, String localName) {
+    return getValue(getIndex(uri, localName));
+  }
+
+  @Override
+  public String getValue(String qName) {
+    return getValue(getIndex(qName));
+  }
+
+  @Override
+  public void setAttributes(Attributes atts) {
+    super.setAttributes(atts);
+    final int length = getLength();
+    ensureCapacity(length);
+    Arrays.fill(isIntValue, 0, length, false);
+  }
+
+  @Override
+  public void setAttribute(int index, String uri, String localName, String qName, String type, String value) {
+    super.setAttribute(index, uri, localName, qName, type, value);
+    isIntValue[index] = false;
+  }
+
+  @Override
+  public void setValue(int index, String value) {
+    super.setValue(index, value);
+    isIntValue[index] = false;
+  }
+
+  @Override
+  public void removeAttribute(int index) {
+    final int length = getLength();
+    super.removeAttribute(index);
+    System.arraycopy(intValues, index + 1, intValues, index, length - index - 1);
+    System.arraycopy(isIntValue, index + 1, isIntValue, index, length - index - 1);
+  }
+  
+  private void ensureCapacity(int n) {
+    if (n > isIntValue.length) {
+      final int newLength = Math.max(n, isIntValue.length * 2);
+      intValues = Arrays.copyOf(intValues, newLength);
+      isIntValue = Arrays.copyOf(isIntValue, newLength);
+    }
+  }
+}
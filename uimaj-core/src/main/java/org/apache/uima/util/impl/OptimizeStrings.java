@@ -57,6 +57,9 @@ import java.util.TreeSet;
  * 
  * Nulls, passed in as strings, are mostly ignored, but handled appropriately.
  * 
+ * Strings known in advance to the reader (a shared dictionary) may be preassigned the first
+ * sequential indexes (see getIndexOrSeqIndex); these are not added to the common strings.
+ * 
  * 
  */
 public class OptimizeStrings {
@@ -100,6 +103,9 @@ public class OptimizeStrings {
   
   private Map<String, String> returnedStrings = new HashMap<String, String>();
   
+  // null, or the preassigned strings with their (negative) sequential index
+  private Map<String, Integer> preassigned;
+  
   private long              savedCharsExact   = 0;
   private long              savedCharsSubstr  = 0;
   private int               nextSeq           = -1;
@@ -145,11 +151,24 @@ public class OptimizeStrings {
     if (inStrings.size() == (Integer.MAX_VALUE -1)) {
       throw new RuntimeException(String.format("Exceeded size limit, size = %,d%n", inStrings.size()));
     }
-    if (null != s) {
+    if (null != s && (null == preassigned || !preassigned.containsKey(s))) {
       inStrings.add(s);
     }
   }
 
+  /**
+   * Preassign the first sequential indexes to some strings, which are then not part of the common strings.
+   * Must be called before any add.
+   * @param sa distinct strings; the one at position i gets the sequential index -(i+1)
+   */
+  public void setPreassignedStrings(String[] sa) {
+    preassigned = new HashMap<String, Integer>(Math.max(16, sa.length * 2));
+    for (int i = 0; i < sa.length; i++) {
+      preassigned.put(sa[i], -(i + 1));
+    }
+    nextSeq = -(sa.length + 1);
+  }
+
   public void add(String[] sa) {
     if (null != sa) {
       for (String s : sa) {
@@ -325,6 +344,9 @@ public class OptimizeStrings {
     for (int i = ssLength - 1; i >= 0; i--) {
       stringToIndexMap.put(sortedStrings[i], i);
     }
+    if (null != preassigned) {
+      stringToIndexMap.putAll(preassigned);
+    }
   }
   
   /**
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.analysis_engine.asb.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.Constants;
+import org.apache.uima.ResourceSpecifierFactory;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_component.CasAnnotator_ImplBase;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.analysis_engine.impl.ParallelFlowController;
+import org.apache.uima.analysis_engine.metadata.impl.FlowControllerDeclaration_impl;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.flow.FlowControllerDescription;
+import org.apache.uima.resource.metadata.ConfigurationParameter;
+import org.apache.uima.resource.metadata.TypeDescription;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+
+public class ParallelStepRunnerTest extends TestCase {
+  
+  private static final String PERSON_TYPE = "test.Person";
+  private static final String PLACE_TYPE = "test.Place";
+  
+  /** the delegates wait for each other here, so the test fails if they don't run concurrently */
+  static volatile CyclicBarrier barrier;
+
+  /**
+   * Adds an annotation of the configured type for each word of the document,
+   * with the word as its "word" feature
+   */
+  public static class WordAnnotator extends CasAnnotator_ImplBase {
+    public void process(CAS aCas) throws AnalysisEngineProcessException {
+      String typeName = (String) getContext().getConfigParameterValue("TypeName");
+      String text = aCas.getDocumentText();
+      if (text.equals("fail")) {
+        if (typeName.equals(PLACE_TYPE)) {
+          throw new AnalysisEngineProcessException(new RuntimeException("fail"));
+        }
+        return;
+      }
+      if (barrier != null) {
+        try {
+          barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+          throw new AnalysisEngineProcessException(e);
+        }
+      }
+      Type type = aCas.getTypeSystem().getType(typeName);
+      Feature wordFeat = type.getFeatureByBaseName("word");
+      int begin = 0;
+      for (String word : text.split(" ")) {
+        AnnotationFS a = aCas.createAnnotation(type, begin, begin + word.length());
+        a.setStringValue(wordFeat, word);
+        aCas.addFsToIndexes(a);
+        begin += word.length() + 1;
+      }
+    }
+  }
+  
+  public void testConcurrentParallelStep() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Map<String, Object> params = new HashMap<String, Object>();
+      params.put(AnalysisEngine.PARAM_PARALLEL_STEP_EXECUTOR, executor);
+      AnalysisEngine ae = UIMAFramework.produceAnalysisEngine(createAggregate(), params);
+      AnalysisEngine sequentialAe = UIMAFramework.produceAnalysisEngine(createAggregate());
+      
+      barrier = new CyclicBarrier(2);
+      CAS cas = ae.newCAS();
+      cas.setDocumentText("John went to Paris");
+      ae.process(cas);
+      
+      barrier = null;
+      CAS sequentialCas = sequentialAe.newCAS();
+      sequentialCas.setDocumentText("John went to Paris");
+      sequentialAe.process(sequentialCas);
+      
+      assertEquals(annotations(sequentialCas), annotations(cas));
+      assertEquals(4, annotations(cas, PERSON_TYPE).size());
+      assertEquals(4, annotations(cas, PLACE_TYPE).size());
+      assertEquals("Paris", annotations(cas, PLACE_TYPE).get(3));
+      
+      // the scratch CASes are reset and reused for the next document
+      barrier = new CyclicBarrier(2);
+      cas.reset();
+      cas.setDocumentText("Mary");
+      ae.process(cas);
+      assertEquals(Collections.singletonList("Mary"), annotations(cas, PERSON_TYPE));
+      assertEquals(Collections.singletonList("Mary"), annotations(cas, PLACE_TYPE));
+      
+      // a failure is reported after all delegates finished, as the flow does not continue on failure
+      barrier = null;
+      cas.reset();
+      cas.setDocumentText("fail");
+      try {
+        ae.process(cas);
+        fail();
+      } catch (AnalysisEngineProcessException e) {
+        // expected
+      }
+      ae.destroy();
+      sequentialAe.destroy();
+    } finally {
+      barrier = null;
+      executor.shutdown();
+    }
+  }
+  
+  private static List<String> annotations(CAS cas) {
+    List<String> r = new ArrayList<String>();
+    for (AnnotationFS a : cas.getAnnotationIndex()) {
+      r.add(a.getType().getName() + " " + a.getBegin() + " " + a.getEnd() + " " + a.getCoveredText());
+    }
+    return r;
+  }
+  
+  private static List<String> annotations(CAS cas, String typeName) {
+    Type type = cas.getTypeSystem().getType(typeName);
+    Feature wordFeat = type.getFeatureByBaseName("word");
+    List<String> r = new ArrayList<String>();
+    for (AnnotationFS a : cas.getAnnotationIndex(type)) {
+      assertEquals(cas.getViewName(), a.getView().getViewName());
+      r.add(a.getStringValue(wordFeat));
+    }
+    return r;
+  }
+
+  private static AnalysisEngineDescription createAggregate() {
+    ResourceSpecifierFactory f = UIMAFramework.getResourceSpecifierFactory();
+    TypeSystemDescription tsd = f.createTypeSystemDescription();
+    for (String typeName : new String[] {PERSON_TYPE, PLACE_TYPE}) {
+      TypeDescription type = tsd.addType(typeName, "", CAS.TYPE_NAME_ANNOTATION);
+      type.addFeature("word", "", CAS.TYPE_NAME_STRING);
+    }
+    
+    AnalysisEngineDescription agg = f.createAnalysisEngineDescription();
+    agg.setFrameworkImplementation(Constants.JAVA_FRAMEWORK_NAME);
+    agg.setPrimitive(false);
+    agg.getMetaData().setName("aggregate");
+    agg.getDelegateAnalysisEngineSpecifiersWithImports().put("Persons", createDelegate(tsd, PERSON_TYPE));
+    agg.getDelegateAnalysisEngineSpecifiersWithImports().put("Places", createDelegate(tsd, PLACE_TYPE));
+    
+    FlowControllerDescription fc = f.createFlowControllerDescription();
+    fc.setFrameworkImplementation(Constants.JAVA_FRAMEWORK_NAME);
+    fc.setImplementationName(ParallelFlowController.class.getName());
+    fc.getMetaData().setName("flowController");
+    FlowControllerDeclaration_impl fcd = new FlowControllerDeclaration_impl();
+    fcd.setKey("flowController");
+    fcd.setSpecifier(fc);
+    agg.setFlowControllerDeclaration(fcd);
+    return agg;
+  }
+  
+  private static AnalysisEngineDescription createDelegate(TypeSystemDescription tsd, String typeName) {
+    ResourceSpecifierFactory f = UIMAFramework.getResourceSpecifierFactory();
+    AnalysisEngineDescription desc = f.createAnalysisEngineDescription();
+    desc.setFrameworkImplementation(Constants.JAVA_FRAMEWORK_NAME);
+    desc.setPrimitive(true);
+    desc.setAnnotatorImplementationName(WordAnnotator.class.getName());
+    desc.getMetaData().setName(typeName);
+    desc.getAnalysisEngineMetaData().setTypeSystem(tsd);
+    ConfigurationParameter p = f.createConfigurationParameter();
+    p.setName("TypeName");
+    p.setType(ConfigurationParameter.TYPE_STRING);
+    desc.getAnalysisEngineMetaData().getConfigurationParameterDeclarations().addConfigurationParameter(p);
+    desc.getAnalysisEngineMetaData().getConfigurationParameterSettings().setParameterValue("TypeName", typeName);
+    return desc;
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.analysis_engine.asb.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.Constants;
+import org.apache.uima.ResourceSpecifierFactory;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_component.CasAnnotator_ImplBase;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.analysis_engine.metadata.DelegateScaleout;
+import org.apache.uima.analysis_engine.metadata.FixedFlow;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.resource.metadata.ConfigurationParameter;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+
+public class PipelineTest extends TestCase {
+  
+  private static final String[] STAGES = {"First", "Second", "Third"};
+  
+  /** the number of CASes in each stage */
+  static final Map<String, AtomicInteger> inStage = new ConcurrentHashMap<String, AtomicInteger>();
+  
+  /** the most CASes seen at the same time in each stage */
+  static final Map<String, AtomicInteger> maxInStage = new ConcurrentHashMap<String, AtomicInteger>();
+  
+  /** counted down when the document "b" is in the first stage */
+  static volatile CountDownLatch bInFirstStage;
+  
+  /** counted down by each document in the second stage, which waits for the others */
+  static volatile CountDownLatch allInSecondStage;
+
+  /**
+   * Adds an annotation of type test.Stage covering the document; document "a" waits in the 
+   * second stage for document "b" to be in the first one, or all documents wait in the
+   * second stage for each other
+   */
+  public static class StageAnnotator extends CasAnnotator_ImplBase {
+    public void process(CAS aCas) throws AnalysisEngineProcessException {
+      String stage = (String) getContext().getConfigParameterValue("Stage");
+      AtomicInteger count = inStage.get(stage);
+      int n = count.incrementAndGet();
+      try {
+        if (n > maxInStage.get(stage).get()) {
+          maxInStage.get(stage).set(n);
+        }
+        String text = aCas.getDocumentText();
+        CountDownLatch latch = bInFirstStage;
+        CountDownLatch all = allInSecondStage;
+        if (latch != null) {
+          if (stage.equals("First") && text.equals("b")) {
+            latch.countDown();
+          } else if (stage.equals("Second") && text.equals("a")) {
+            await(latch);
+          }
+        } else if (all != null) {
+          if (stage.equals("Second")) {
+            all.countDown();
+            await(all);
+          }
+        } else {
+          Thread.yield();
+        }
+        Type type = aCas.getTypeSystem().getType("test.Stage");
+        aCas.addFsToIndexes(aCas.createAnnotation(type, 0, text.length()));
+      } finally {
+        count.decrementAndGet();
+      }
+    }
+    
+    private static void await(CountDownLatch latch) throws AnalysisEngineProcessException {
+      try {
+        if (!latch.await(10, TimeUnit.SECONDS)) {
+          throw new AnalysisEngineProcessException(new RuntimeException("not concurrent"));
+        }
+      } catch (InterruptedException e) {
+        throw new AnalysisEngineProcessException(e);
+      }
+    }
+  }
+  
+  protected void setUp() throws Exception {
+    for (String stage : STAGES) {
+      inStage.put(stage, new AtomicInteger());
+      maxInStage.put(stage, new AtomicInteger());
+    }
+  }
+  
+  protected void tearDown() throws Exception {
+    bInFirstStage = null;
+    allInSecondStage = null;
+  }
+  
+  public void testStagesOverlap() throws Exception {
+    final AnalysisEngine ae = createPipeline(1);
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    try {
+      bInFirstStage = new CountDownLatch(1);
+      Future<Integer> a = threads.submit(process(ae, "a"));
+      // "a" leaves the first stage and waits in the second one for "b" 
+      Future<Integer> b = threads.submit(process(ae, "b"));
+      assertEquals(3, a.get().intValue());
+      assertEquals(3, b.get().intValue());
+    } finally {
+      threads.shutdown();
+      ae.destroy();
+    }
+  }
+  
+  public void testOneCasPerStage() throws Exception {
+    final AnalysisEngine ae = createPipeline(1);
+    ExecutorService threads = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int i = 0; i < 200; i++) {
+        results.add(threads.submit(process(ae, "doc" + i)));
+      }
+      for (Future<Integer> result : results) {
+        assertEquals(3, result.get().intValue());
+      }
+      for (String stage : STAGES) {
+        assertEquals(1, maxInStage.get(stage).get());
+      }
+    } finally {
+      threads.shutdown();
+      ae.destroy();
+    }
+  }
+  
+  public void testScaleout() throws Exception {
+    final AnalysisEngine ae = createPipeline(3);
+    ExecutorService threads = Executors.newFixedThreadPool(3);
+    try {
+      // the 3 instances of the second stage each hold a document at the same time
+      allInSecondStage = new CountDownLatch(3);
+      List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int i = 0; i < 3; i++) {
+        results.add(threads.submit(process(ae, "doc" + i)));
+      }
+      for (Future<Integer> result : results) {
+        assertEquals(3, result.get().intValue());
+      }
+      assertEquals(1, maxInStage.get("First").get());
+      assertEquals(3, maxInStage.get("Second").get());
+      assertEquals(1, maxInStage.get("Third").get());
+      
+      // the instances are reused for more documents than instances
+      allInSecondStage = null;
+      results.clear();
+      for (int i = 0; i < 30; i++) {
+        results.add(threads.submit(process(ae, "doc" + i)));
+      }
+      for (Future<Integer> result : results) {
+        assertEquals(3, result.get().intValue());
+      }
+      assertEquals(1, maxInStage.get("First").get());
+      assertEquals(1, maxInStage.get("Third").get());
+    } finally {
+      threads.shutdown();
+      ae.destroy();
+    }
+  }
+  
+  /**
+   * @return a task processing a document with the pipeline, returning the number of annotations
+   *         added by the delegates 
+   */
+  private static Callable<Integer> process(final AnalysisEngine ae, final String text) {
+    return new Callable<Integer>() {
+      public Integer call() throws Exception {
+        CAS cas = ae.newCAS();
+        cas.setDocumentText(text);
+        ae.process(cas);
+        return cas.getAnnotationIndex(cas.getTypeSystem().getType("test.Stage")).size();
+      }};
+  }
+
+  /**
+   * @param secondStageInstances the number of instances of the second stage
+   * @return a pipeline of the STAGES
+   */
+  private static AnalysisEngine createPipeline(int secondStageInstances) throws Exception {
+    ResourceSpecifierFactory f = UIMAFramework.getResourceSpecifierFactory();
+    TypeSystemDescription tsd = f.createTypeSystemDescription();
+    tsd.addType("test.Stage", "", CAS.TYPE_NAME_ANNOTATION);
+    
+    AnalysisEngineDescription agg = f.createAnalysisEngineDescription();
+    agg.setFrameworkImplementation(Constants.JAVA_FRAMEWORK_NAME);
+    agg.setPrimitive(false);
+    agg.getMetaData().setName("pipeline");
+    for (String stage : STAGES) {
+      agg.getDelegateAnalysisEngineSpecifiersWithImports().put(stage, createDelegate(tsd, stage));
+    }
+    FixedFlow flow = f.createFixedFlow();
+    flow.setFixedFlow(STAGES);
+    agg.getAnalysisEngineMetaData().setFlowConstraints(flow);
+    if (secondStageInstances > 1) {
+      DelegateScaleout scaleout = f.createDelegateScaleout();
+      scaleout.setComponentKey("Second");
+      scaleout.setNumberOfInstances(secondStageInstances);
+      agg.setDelegateScaleouts(new DelegateScaleout[] { scaleout });
+    }
+    
+    Map<String, Object> params = new HashMap<String, Object>();
+    params.put(AnalysisEngine.PARAM_PIPELINED, Boolean.TRUE);
+    return UIMAFramework.produceAnalysisEngine(agg, params);
+  }
+  
+  private static AnalysisEngineDescription createDelegate(TypeSystemDescription tsd, String stage) {
+    ResourceSpecifierFactory f = UIMAFramework.getResourceSpecifierFactory();
+    AnalysisEngineDescription desc = f.createAnalysisEngineDescription();
+    desc.setFrameworkImplementation(Constants.JAVA_FRAMEWORK_NAME);
+    desc.setPrimitive(true);
+    desc.setAnnotatorImplementationName(StageAnnotator.class.getName());
+    desc.getMetaData().setName(stage);
+    desc.getAnalysisEngineMetaData().setTypeSystem(tsd);
+    ConfigurationParameter p = f.createConfigurationParameter();
+    p.setName("Stage");
+    p.setType(ConfigurationParameter.TYPE_STRING);
+    desc.getAnalysisEngineMetaData().getConfigurationParameterDeclarations().addConfigurationParameter(p);
+    desc.getAnalysisEngineMetaData().getConfigurationParameterSettings().setParameterValue("Stage", stage);
+    return desc;
+  }
+}
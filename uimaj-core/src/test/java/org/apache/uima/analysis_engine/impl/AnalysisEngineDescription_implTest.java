@@ -38,6 +38,7 @@ import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.metadata.AnalysisEngineMetaData;
+import org.apache.uima.analysis_engine.metadata.DelegateScaleout;
 import org.apache.uima.analysis_engine.metadata.FixedFlow;
 import org.apache.uima.analysis_engine.metadata.FlowControllerDeclaration;
 import org.apache.uima.analysis_engine.metadata.impl.FixedFlow_impl;
@@ -268,6 +269,11 @@ public class AnalysisEngineDescription_implTest extends TestCase {
       binding.setResourceName("Resource1");
       resMgrCfg.setExternalResourceBindings(new ExternalResourceBinding[] {binding});
       aggregateDesc.setResourceManagerConfiguration(resMgrCfg);
+      
+      DelegateScaleout scaleout = UIMAFramework.getResourceSpecifierFactory().createDelegateScaleout();
+      scaleout.setComponentKey("Test");
+      scaleout.setNumberOfInstances(2);
+      aggregateDesc.setDelegateScaleouts(new DelegateScaleout[] { scaleout });
 
       // AsbCreationSpecifier asbSpec = new AsbCreationSpecifier_impl();
       // asbSpec.getAsbMetaData().setAsynchronousModeSupported(true);
@@ -585,6 +591,19 @@ public class AnalysisEngineDescription_implTest extends TestCase {
       assertNotNull(e.getMessage());
       assertFalse(e.getMessage().startsWith("EXCEPTION MESSAGE LOCALIZATION FAILED"));
     }
+    
+    //test invalid aggregate with a scaleout of an undefined key
+    aggregateDesc.validate();
+    aggregateDesc.getDelegateScaleouts()[0].setComponentKey("Undefined");
+    try {
+      aggregateDesc.validate();  
+      fail();
+    }
+    catch(ResourceInitializationException e) {
+      assertEquals(ResourceInitializationException.INVALID_DELEGATE_SCALEOUT, e.getMessageKey());
+      assertNotNull(e.getMessage());
+      assertFalse(e.getMessage().startsWith("EXCEPTION MESSAGE LOCALIZATION FAILED"));
+    }
   }
 
   public void testGetAllComponentSpecifiers() throws Exception {
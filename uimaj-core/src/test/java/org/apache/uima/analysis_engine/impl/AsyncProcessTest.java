@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.analysis_engine.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.Constants;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_component.CasAnnotator_ImplBase;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.analysis_engine.AsyncCasIterator;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.internal.util.AnalysisEnginePool;
+import org.apache.uima.test.junit_extension.JUnitExtension;
+import org.apache.uima.util.ProcessTrace;
+import org.apache.uima.util.XMLInputSource;
+
+public class AsyncProcessTest extends TestCase {
+
+  /** the number of CASes being processed */
+  static final AtomicInteger inProcess = new AtomicInteger();
+
+  /** the most CASes processed at the same time */
+  static final AtomicInteger maxInProcess = new AtomicInteger();
+
+  /** if set, the document "block" waits for it */
+  static volatile CountDownLatch unblock;
+
+  /**
+   * Counts the CASes it processes at once; fails on the document "fail"
+   */
+  public static class CountingAnnotator extends CasAnnotator_ImplBase {
+    public void process(CAS aCas) throws AnalysisEngineProcessException {
+      int n = inProcess.incrementAndGet();
+      try {
+        if (n > maxInProcess.get()) {
+          maxInProcess.set(n);
+        }
+        String text = aCas.getDocumentText();
+        if (text.equals("fail")) {
+          throw new AnalysisEngineProcessException(new RuntimeException("failed on purpose"));
+        }
+        CountDownLatch latch = unblock;
+        if (latch != null && text.equals("block")) {
+          try {
+            latch.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            throw new AnalysisEngineProcessException(e);
+          }
+        } else {
+          Thread.yield();
+        }
+      } finally {
+        inProcess.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Runs tasks on a thread pool, counting them
+   */
+  static class CountingExecutor implements Executor {
+    final ExecutorService threads = Executors.newCachedThreadPool();
+
+    final AtomicInteger tasks = new AtomicInteger();
+
+    public void execute(Runnable aTask) {
+      tasks.incrementAndGet();
+      threads.execute(aTask);
+    }
+  }
+
+  private CountingExecutor executor;
+
+  protected void setUp() throws Exception {
+    inProcess.set(0);
+    maxInProcess.set(0);
+    executor = new CountingExecutor();
+  }
+
+  protected void tearDown() throws Exception {
+    unblock = null;
+    executor.threads.shutdown();
+  }
+
+  private AnalysisEngine createEngine(int aNumInstances) throws Exception {
+    AnalysisEngineDescription desc = new AnalysisEngineDescription_impl();
+    desc.setFrameworkImplementation(Constants.JAVA_FRAMEWORK_NAME);
+    desc.setPrimitive(true);
+    desc.setAnnotatorImplementationName(CountingAnnotator.class.getName());
+    desc.getMetaData().setName("Counting");
+    Map<String, Object> params = new HashMap<String, Object>();
+    if (aNumInstances > 1) {
+      params.put(AnalysisEngine.PARAM_NUM_SIMULTANEOUS_REQUESTS, aNumInstances);
+    }
+    return UIMAFramework.produceAnalysisEngine(desc, params);
+  }
+
+  private List<CompletableFuture<ProcessTrace>> processAll(AnalysisEngine aEngine, String... aTexts)
+          throws Exception {
+    List<CompletableFuture<ProcessTrace>> results = new ArrayList<CompletableFuture<ProcessTrace>>();
+    for (String text : aTexts) {
+      CAS cas = aEngine.newCAS();
+      cas.setDocumentText(text);
+      results.add(aEngine.processAsync(cas, executor));
+    }
+    return results;
+  }
+
+  public void testQueuedRequests() throws Exception {
+    AnalysisEngine ae = createEngine(1);
+    unblock = new CountDownLatch(1);
+    List<CompletableFuture<ProcessTrace>> results = processAll(ae, "block", "b", "c", "d");
+    Thread.sleep(100);
+    // the requests waiting for the engine do not hold a thread
+    assertEquals(1, executor.tasks.get());
+    assertFalse(results.get(3).isDone());
+    unblock.countDown();
+    for (CompletableFuture<ProcessTrace> result : results) {
+      assertNotNull(result.get(10, TimeUnit.SECONDS));
+    }
+    assertEquals(4, executor.tasks.get());
+    assertEquals(1, maxInProcess.get());
+  }
+
+  public void testFailure() throws Exception {
+    AnalysisEngine ae = createEngine(1);
+    List<CompletableFuture<ProcessTrace>> results = processAll(ae, "a", "fail", "c");
+    try {
+      results.get(1).get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof AnalysisEngineProcessException);
+    }
+    // the next request is not affected
+    assertNotNull(results.get(0).get(10, TimeUnit.SECONDS));
+    assertNotNull(results.get(2).get(10, TimeUnit.SECONDS));
+  }
+
+  public void testMultiprocessing() throws Exception {
+    AnalysisEngine ae = createEngine(2);
+    assertTrue(ae instanceof MultiprocessingAnalysisEngine_impl);
+    unblock = new CountDownLatch(1);
+    List<CompletableFuture<ProcessTrace>> results = processAll(ae, "block", "block", "c", "fail", "e");
+    Thread.sleep(100);
+    // both instances are busy; the other requests wait for one without holding a thread
+    assertEquals(2, executor.tasks.get());
+    assertEquals(2, inProcess.get());
+    unblock.countDown();
+    for (int i = 0; i < results.size(); i++) {
+      if (i == 3) {
+        try {
+          results.get(i).get(10, TimeUnit.SECONDS);
+          fail();
+        } catch (ExecutionException e) {
+          assertTrue(e.getCause() instanceof AnalysisEngineProcessException);
+        }
+      } else {
+        assertNotNull(results.get(i).get(10, TimeUnit.SECONDS));
+      }
+    }
+    assertEquals(2, maxInProcess.get());
+    // all instances were checked back in
+    AnalysisEnginePool pool = ((MultiprocessingAnalysisEngine_impl) ae).getPool();
+    AnalysisEngine one = pool.getAnalysisEngine();
+    AnalysisEngine two = pool.getAnalysisEngine();
+    assertNotNull(one);
+    assertNotNull(two);
+    pool.releaseAnalysisEngine(one);
+    pool.releaseAnalysisEngine(two);
+  }
+
+  public void testAsyncCasIterator() throws Exception {
+    AnalysisEngineDescription segmenterDesc = UIMAFramework.getXMLParser()
+            .parseAnalysisEngineDescription(
+                    new XMLInputSource(JUnitExtension
+                            .getFile("TextAnalysisEngineImplTest/NewlineSegmenter.xml")));
+    for (int numInstances = 1; numInstances <= 2; numInstances++) {
+      Map<String, Object> params = new HashMap<String, Object>();
+      params.put(AnalysisEngine.PARAM_NUM_SIMULTANEOUS_REQUESTS, numInstances);
+      AnalysisEngine ae = UIMAFramework.produceAnalysisEngine(segmenterDesc, params);
+      CAS cas = ae.newCAS();
+      cas.setDocumentText("Line one\nLine two\nLine three");
+      AsyncCasIterator iter = ae.processAndOutputNewCASesAsync(cas, executor);
+      // calls may be made before the earlier ones complete
+      CompletableFuture<CAS> first = iter.next();
+      CAS outCas = first.get(10, TimeUnit.SECONDS);
+      assertEquals("Line one", outCas.getDocumentText());
+      outCas.release();
+      outCas = iter.next().get(10, TimeUnit.SECONDS);
+      assertEquals("Line two", outCas.getDocumentText());
+      outCas.release();
+      outCas = iter.next().get(10, TimeUnit.SECONDS);
+      assertEquals("Line three", outCas.getDocumentText());
+      outCas.release();
+      assertNull(iter.next().get(10, TimeUnit.SECONDS));
+      assertNull(iter.next().get(10, TimeUnit.SECONDS));
+
+      // stop early; the engine is then free for the next CAS
+      cas.reset();
+      cas.setDocumentText("Line one\nLine two");
+      iter = ae.processAndOutputNewCASesAsync(cas, executor);
+      outCas = iter.next().get(10, TimeUnit.SECONDS);
+      assertEquals("Line one", outCas.getDocumentText());
+      outCas.release();
+      iter.release().get(10, TimeUnit.SECONDS);
+      cas = ae.newCAS();
+      cas.setDocumentText("Line three");
+      iter = ae.processAndOutputNewCASesAsync(cas, executor);
+      outCas = iter.next().get(10, TimeUnit.SECONDS);
+      assertEquals("Line three", outCas.getDocumentText());
+      outCas.release();
+      assertNull(iter.next().get(10, TimeUnit.SECONDS));
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.test.CASInitializer;
+import org.apache.uima.cas.test.CASTestSetup;
+
+/**
+ * Bulk loading of the indexes, as done by deserializers, with the per leaf index inserts
+ * run concurrently, must give the same indexes as adding one at a time.
+ */
+public class BulkIndexLoadTest extends TestCase {
+  
+  private static final int NBR_ANNOTS = 15000;  // per view, enough to go parallel
+  
+  private static final String[] INDEXES = {CAS.STD_ANNOTATION_INDEX, CASTestSetup.ANNOT_SORT_INDEX, 
+                                           CASTestSetup.ANNOT_SET_INDEX};
+
+  public void testParallelLoad() throws Exception {
+    CAS cas1 = CASInitializer.initCas(new CASTestSetup());
+    CAS cas2 = CASInitializer.initCas(new CASTestSetup());
+    List<CAS> views1 = createViews(cas1);
+    List<CAS> views2 = createViews(cas2);
+    
+    BulkIndexLoad load = new BulkIndexLoad(true);
+    for (int v = 0; v < views1.size(); v++) {
+      int[] fsRefs = createAnnotations(views1.get(v));
+      assertTrue(Arrays.equals(fsRefs, createAnnotations(views2.get(v))));
+      for (int fsRef : fsRefs) {
+        views1.get(v).getLowLevelCAS().ll_getIndexRepository().ll_addFS(fsRef);
+      }
+      ((FSIndexRepositoryImpl) views2.get(v).getIndexRepository()).ll_addAll(fsRefs, 0, fsRefs.length, load);
+    }
+    load.run();
+    
+    for (int v = 0; v < views1.size(); v++) {
+      for (String indexName : INDEXES) {
+        List<Integer> expected = addresses(views1.get(v).getIndexRepository().getIndex(indexName).iterator());
+        assertTrue(expected.size() > 100);
+        assertEquals(expected, addresses(views2.get(v).getIndexRepository().getIndex(indexName).iterator()));
+      }
+    }
+  }
+  
+  private static List<CAS> createViews(CAS cas) {
+    List<CAS> views = new ArrayList<CAS>();
+    views.add(cas);
+    views.add(cas.createView("second"));
+    for (CAS view : views) {
+      view.setDocumentText("0123456789 0123456789 0123456789 0123456789 0123456789");
+    }
+    return views;
+  }
+  
+  private static int[] createAnnotations(CAS view) {
+    Type tokenType = view.getTypeSystem().getType(CASTestSetup.TOKEN_TYPE);
+    Type sentType = view.getTypeSystem().getType(CASTestSetup.SENT_TYPE);
+    Random r = new Random(42);
+    int[] fsRefs = new int[NBR_ANNOTS];
+    for (int i = 0; i < NBR_ANNOTS; i++) {
+      int begin = r.nextInt(50);
+      FeatureStructure fs = view.createAnnotation(r.nextBoolean() ? tokenType : sentType, begin, begin + r.nextInt(5));
+      fsRefs[i] = ((FeatureStructureImpl) fs).getAddress();
+    }
+    return fsRefs;
+  }
+  
+  private static List<Integer> addresses(FSIterator<FeatureStructure> it) {
+    List<Integer> r = new ArrayList<Integer>();
+    while (it.hasNext()) {
+      r.add(((FeatureStructureImpl) it.next()).getAddress());
+    }
+    return r;
+  }
+}
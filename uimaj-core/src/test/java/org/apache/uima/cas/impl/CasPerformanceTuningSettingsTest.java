@@ -19,6 +19,10 @@
 
 package org.apache.uima.cas.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -29,9 +33,23 @@ import junit.framework.TestCase;
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_engine.TaeDescription;
 import org.apache.uima.analysis_engine.TextAnalysisEngine;
+import org.apache.uima.resource.CasDefinition;
+import org.apache.uima.resource.ResourceManager;
+import org.apache.uima.resource.impl.CasManager_impl;
+import org.apache.uima.util.CasPool;
+import org.apache.uima.cas.ByteArrayFS;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.DoubleArrayFS;
+import org.apache.uima.cas.IntArrayFS;
+import org.apache.uima.cas.LongArrayFS;
+import org.apache.uima.cas.SerialFormat;
+import org.apache.uima.cas.ShortArrayFS;
+import org.apache.uima.cas.StringArrayFS;
 import org.apache.uima.resource.Resource;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
 import org.apache.uima.test.junit_extension.JUnitExtension;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.CasIOUtils;
 import org.apache.uima.util.XMLInputSource;
 
 
@@ -61,7 +79,7 @@ public class CasPerformanceTuningSettingsTest extends TestCase {
       // check default setting
       TextAnalysisEngine taeDefault = UIMAFramework.produceTAE(testDescriptor);
       CAS tcasDefault = taeDefault.newCAS();
-      int heapSize = ((CASImpl) tcasDefault).getHeap().heap.length;
+      int heapSize = ((CASImpl) tcasDefault).getHeap().getHeapSize();
       Assert.assertEquals(expectedHeapSizeDefault, heapSize);
 
       // check override
@@ -69,11 +87,150 @@ public class CasPerformanceTuningSettingsTest extends TestCase {
       params.put(Resource.PARAM_PERFORMANCE_TUNING_SETTINGS, newProps);
       TextAnalysisEngine taeOverride = UIMAFramework.produceTAE(testDescriptor, params);
       CAS tcasOverride = taeOverride.newCAS();
-      heapSize = ((CASImpl) tcasOverride).getHeap().heap.length;
+      heapSize = ((CASImpl) tcasOverride).getHeap().getHeapSize();
       Assert.assertEquals(100000, heapSize);
     } catch (Exception e) {
       JUnitExtension.handleException(e);
     }
   }
 
+  public void testHeapsOffHeap() throws Exception {
+    Properties props = UIMAFramework.getDefaultPerformanceTuningProperties();
+    props.setProperty(UIMAFramework.CAS_HEAPS_OFF_HEAP, "true");
+    checkOffHeap(props);
+    TypeSystemDescription tsd = UIMAFramework.getResourceSpecifierFactory().createTypeSystemDescription();
+    CASImpl cas = (CASImpl) CasCreationUtils.createCas(tsd, null, null);
+    assertFalse(cas.getHeap().isOffHeap());
+    assertFalse(cas.getStringHeap().isOffHeap());
+    assertFalse(cas.getLongHeap().isOffHeap());
+  }
+
+  public void testHeapsInMappedFiles() throws Exception {
+    File dir = new File("target/mappedCasHeaps");
+    dir.mkdirs();
+    Properties props = UIMAFramework.getDefaultPerformanceTuningProperties();
+    props.setProperty(UIMAFramework.CAS_HEAPS_MAPPED_FILE_DIRECTORY, dir.getPath());
+    checkOffHeap(props);
+    assertEquals(0, dir.list().length);  // the files are deleted once mapped
+  }
+
+  private void checkOffHeap(Properties props) throws Exception {
+    TypeSystemDescription tsd = UIMAFramework.getResourceSpecifierFactory().createTypeSystemDescription();
+    CASImpl cas = (CASImpl) CasCreationUtils.createCas(tsd, null, null, props);
+    assertTrue(cas.getHeap().isOffHeap());
+    assertTrue(cas.getStringHeap().isOffHeap());
+    assertTrue(cas.getByteHeap().isOffHeap());
+    assertTrue(cas.getShortHeap().isOffHeap());
+    assertTrue(cas.getLongHeap().isOffHeap());
+
+    final int size = 100000;  // more than 1 page
+    ByteArrayFS byteArray = cas.createByteArrayFS(size);
+    ShortArrayFS shortArray = cas.createShortArrayFS(size);
+    LongArrayFS longArray = cas.createLongArrayFS(size);
+    DoubleArrayFS doubleArray = cas.createDoubleArrayFS(size);
+    IntArrayFS intArray = cas.createIntArrayFS(size);
+    StringArrayFS stringArray = cas.createStringArrayFS(size);
+    for (int i = 0; i < size; i++) {
+      byteArray.set(i, (byte) i);
+      shortArray.set(i, (short) i);
+      longArray.set(i, i * 1000000000L);
+      doubleArray.set(i, i / 3.0);
+      intArray.set(i, -i);
+      stringArray.set(i, (i % 10 == 0) ? "" : Integer.toString(i));
+    }
+    checkArrays(cas, byteArray, shortArray, longArray, doubleArray, intArray, stringArray);
+
+    // these formats keep the heap addresses, so the arrays are found at the same addresses
+    for (SerialFormat format : new SerialFormat[] {SerialFormat.BINARY, SerialFormat.COMPRESSED}) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      CasIOUtils.save(cas, baos, format);
+      CASImpl cas2 = (CASImpl) CasCreationUtils.createCas(tsd, null, null, props);
+      CasIOUtils.load(new ByteArrayInputStream(baos.toByteArray()), cas2);
+      checkArrays(cas2, byteArray, shortArray, longArray, doubleArray, intArray, stringArray);
+    }
+
+    cas.reset();
+    byteArray = cas.createByteArrayFS(10);
+    assertEquals(0, byteArray.get(9));
+    stringArray = cas.createStringArrayFS(2);
+    stringArray.set(1, "after reset");
+    assertNull(stringArray.get(0));
+    assertEquals("after reset", stringArray.get(1));
+  }
+
+  public void testStringInterning() throws Exception {
+    Properties props = UIMAFramework.getDefaultPerformanceTuningProperties();
+    props.setProperty(UIMAFramework.CAS_STRING_INTERNING, "true");
+    TypeSystemDescription tsd = UIMAFramework.getResourceSpecifierFactory().createTypeSystemDescription();
+    ResourceManager rm = UIMAFramework.newDefaultResourceManager();
+    CasPool pool = new CasPool(2, new CasDefinition(tsd, null, null, rm, props), props);
+    CASImpl cas1 = (CASImpl) pool.getCas();
+    CASImpl cas2 = (CASImpl) pool.getCas();
+    assertNotNull(cas1.getStringInternTable());
+    assertSame(((CasManager_impl) rm.getCasManager()).getStringInternTable(), cas1.getStringInternTable());
+    assertSame(cas1.getStringInternTable(), cas2.getStringInternTable());
+    
+    String s1 = cas1.getStringHeap().getStringForCode(cas1.getStringHeap().addString(new String("NN")));
+    String s2 = cas2.getStringHeap().getStringForCode(cas2.getStringHeap().addString(new String("NN")));
+    assertEquals("NN", s2);
+    assertSame(s1, s2);
+    
+    // too long to be interned
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() <= StringInternTable.DEFAULT_MAX_STRING_LENGTH) {
+      sb.append("long string ");
+    }
+    s1 = cas1.getStringHeap().getStringForCode(cas1.getStringHeap().addString(sb.toString()));
+    s2 = cas2.getStringHeap().getStringForCode(cas2.getStringHeap().addString(sb.toString()));
+    assertNotSame(s1, s2);
+    
+    // off by default
+    pool = new CasPool(1, new CasDefinition(tsd, null, null, rm, null), null);
+    assertNull(((CASImpl) pool.getCas()).getStringInternTable());
+  }
+
+  public void testStringInternTable() {
+    StringInternTable table = new StringInternTable(new String[] {"dict1", "dict2"}, 2, 10);
+    String d = new String("dict1");
+    assertNotSame(d, table.intern(d));
+    assertEquals(2, table.size());
+    String a = new String("a");
+    assertSame(a, table.intern(a));
+    assertSame(a, table.intern(new String("a")));
+    String b = new String("b");
+    assertSame(b, table.intern(b));
+    // full
+    String c = new String("c");
+    assertSame(c, table.intern(c));
+    assertNotSame(c, table.intern(new String("c")));
+    assertEquals(4, table.size());
+    assertNull(table.intern(null));
+    assertTrue(Arrays.equals(new String[] {"dict1", "dict2"}, table.getDictionary()));
+    
+    try {
+      new StringInternTable(new String[] {"x", "x"});
+      fail();
+    } catch (IllegalArgumentException e) {
+    }
+  }
+
+  private void checkArrays(CASImpl cas, ByteArrayFS byteArray, ShortArrayFS shortArray, 
+      LongArrayFS longArray, DoubleArrayFS doubleArray, IntArrayFS intArray, StringArrayFS stringArray) {
+    byte[] bytes = ((ByteArrayFS) cas.createFS(((FeatureStructureImpl) byteArray).getAddress())).toArray();
+    short[] shorts = ((ShortArrayFS) cas.createFS(((FeatureStructureImpl) shortArray).getAddress())).toArray();
+    long[] longs = ((LongArrayFS) cas.createFS(((FeatureStructureImpl) longArray).getAddress())).toArray();
+    double[] doubles = ((DoubleArrayFS) cas.createFS(((FeatureStructureImpl) doubleArray).getAddress())).toArray();
+    int[] ints = ((IntArrayFS) cas.createFS(((FeatureStructureImpl) intArray).getAddress())).toArray();
+    String[] strings = ((StringArrayFS) cas.createFS(((FeatureStructureImpl) stringArray).getAddress())).toArray();
+    assertEquals(byteArray.size(), bytes.length);
+    for (int i = 0; i < bytes.length; i++) {
+      assertEquals((byte) i, bytes[i]);
+      assertEquals((short) i, shorts[i]);
+      assertEquals(i * 1000000000L, longs[i]);
+      assertEquals(i / 3.0, doubles[i]);
+      assertEquals(-i, ints[i]);
+      assertEquals((i % 10 == 0) ? "" : Integer.toString(i), strings[i]);
+    }
+  }
+
 }
@@ -59,10 +59,9 @@ public class CasResetResizeTest extends TestCase {
       TextAnalysisEngine taeDefault = UIMAFramework.produceTAE(testDescriptor, Collections.singletonMap(Resource.PARAM_PERFORMANCE_TUNING_SETTINGS, (Object) perfSettings));
       CAS cas = taeDefault.newCAS();
       int heapSize = ((CASImpl) cas).getHeap().getHeapSize();
-      int bufSize = ((CASImpl)cas).getHeap().heap.length;
-      //System.out.println("Heap size: " + heapSize + ", buffer size: " + bufSize);       
-      Assert.assertTrue(bufSize < CASImpl.DEFAULT_RESET_HEAP_SIZE);
-      assertTrue(heapSize <= bufSize);
+      //System.out.println("Heap size: " + heapSize);       
+      Assert.assertTrue(heapSize < CASImpl.DEFAULT_RESET_HEAP_SIZE);
+      assertEquals(50000, heapSize);
       
       //create enough annotations to exceed the DEFAULT_RESET_HEAP_SIZE
       Type annotType = cas.getTypeSystem().getType(CAS.TYPE_NAME_ANNOTATION);
@@ -70,29 +69,22 @@ public class CasResetResizeTest extends TestCase {
         cas.createAnnotation(annotType, i, i);
       }
       
-      // heap growth (words):
-      //                      500K is the switchover point
-      //                     16 * 1024 *1024 = 16,777,216 is the switchover point
-      //                        then the additional is 16,777,216
-      //  50k, 100k, 200k, 400k, 800k, 1.6m, 3.2m, 6.4m, 12.8m
-      //   8    7     6     5     4     3     2     1       0  
-      
+      // heap growth: the first page grows like an array from 50k up to the page size,
+      //   then whole pages are added; the growth never copies the filled pages.
+      int cellsUsed = ((CASImpl) cas).getHeap().getCellsUsed();
+      int fullSize = CommonAuxHeap.pagesFor(cellsUsed) * CommonAuxHeap.PAGE_SIZE;
       heapSize = ((CASImpl) cas).getHeap().getHeapSize();
-      assertEquals(12800000, heapSize);
-      
-      //reset the CAS - it should shrink the 4th time
-      //  first time, Cas is of capacity 8,500,000, but has 8,000,008 cells used ==> shrunk size should remain the same
-      //  second time, prev is 8,500,000, so no shrinking
-      //  third time, gets shrunk to half the # of steps
-      //  fourth time, gets shrunk to half the # of steps
+      assertEquals(fullSize, heapSize);
       
-//      int[] expected = new int[] {8300000, 8300000, 3800000, 1300000, 400000, 200000, 100000, 50000};  // for doubling
+      //reset the CAS - the first reset still finds all the pages used;
+      //  the unused trailing pages are released after more than 20 further resets,
+      //  keeping just the page holding the initial size
+      resets(cas, 21, fullSize);
+      resets(cas, 1, CommonAuxHeap.PAGE_SIZE);
       
-      int[] expected = {6400000, 3200000, 1600000, 800000, 400000, 200000};    // for 1 step
-      resets(cas, 20, 12800000);
-      for (int i = 0; i < 6; i++) {
-        resets(cas, 5, expected[i]);
-      }
+      //the remaining page shrinks like an array, but not when one step down (half)
+      //  would be below the initial size
+      resets(cas, 100, CommonAuxHeap.PAGE_SIZE);
 
       //If instead we create the annotations in smaller chunks and reset each time,
       //the CAS buffer size shouldn't grow
@@ -104,7 +96,7 @@ public class CasResetResizeTest extends TestCase {
         }
         
         heapSize = ((CASImpl) cas).getHeap().getHeapSize();
-        Assert.assertTrue(heapSize == 1600000);      
+        Assert.assertTrue(heapSize == CommonAuxHeap.pagesFor(800001) * CommonAuxHeap.PAGE_SIZE);      
         cas.reset();
       }
   
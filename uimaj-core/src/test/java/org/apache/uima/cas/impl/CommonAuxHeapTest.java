@@ -19,6 +19,11 @@
 
 package org.apache.uima.cas.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.util.Arrays;
+
 import junit.framework.TestCase;
 
 
@@ -72,6 +77,171 @@ public class CommonAuxHeapTest extends TestCase {
    
   }
   
+  public void testPages() {
+    final int n = CommonAuxHeap.PAGE_SIZE * 2 + 10;  // spans 3 pages
+    
+    ShortHeap sh = new ShortHeap();
+    assertEquals(16, sh.getCapacity());
+    sh.reserve(20);
+    assertEquals(32, sh.getCapacity());  // the first page grows by doubling
+    sh.reset();
+    
+    int start = sh.reserve(n);
+    assertEquals(3 * CommonAuxHeap.PAGE_SIZE, sh.getCapacity());
+    short[] shorts = new short[n];
+    for (int i = 0; i < n; i++) {
+      shorts[i] = (short) (i - 5000);
+    }
+    sh.copyFromArray(shorts, 0, start, n);
+    for (int i = 0; i < n; i++) {
+      assertEquals(shorts[i], sh.getHeapValue(start + i));
+    }
+    short[] shorts2 = new short[n];
+    sh.copyToArray(start, shorts2, 0, n);
+    assertTrue(Arrays.equals(shorts, shorts2));
+    
+    sh.reset();
+    assertEquals(3 * CommonAuxHeap.PAGE_SIZE, sh.getCapacity());  // pages kept
+    assertEquals(0, sh.getHeapValue(start + n - 1));                 // but zeroed
+    
+    // trailing pages are released after more than 20 resets not needing them
+    for (int i = 0; i < 20; i++) {
+      sh.reserve(10);
+      sh.reset();
+    }
+    assertEquals(3 * CommonAuxHeap.PAGE_SIZE, sh.getCapacity());
+    sh.reserve(CommonAuxHeap.PAGE_SIZE + 10);
+    sh.reset();
+    assertEquals(2 * CommonAuxHeap.PAGE_SIZE, sh.getCapacity());  // keeps the most used in those resets
+    for (int i = 0; i < 21; i++) {
+      sh.reserve(10);
+      sh.reset();
+    }
+    assertEquals(CommonAuxHeap.PAGE_SIZE, sh.getCapacity());
+    // then the first page shrinks like an array
+    for (int i = 0; i < 21; i++) {
+      sh.reserve(10);
+      sh.reset();
+    }
+    assertEquals(CommonAuxHeap.PAGE_SIZE / 2, sh.getCapacity());
+    
+    StringHeap strh = new StringHeap();
+    for (int i = 1; i < n; i++) {
+      assertEquals(i, strh.addString(Integer.toString(i)));
+    }
+    assertEquals(n - 1, strh.getLargestStringCode());
+    assertEquals(Integer.toString(CommonAuxHeap.PAGE_SIZE + 1), strh.getStringForCode(CommonAuxHeap.PAGE_SIZE + 1));
+    strh.reset();
+    assertNull(strh.getStringForCode(5));
+    assertEquals(0, strh.getLargestStringCode());
+    assertEquals(1, strh.addString("a"));
+  }
+  
+  public void testOffHeap() throws Exception {
+    final int n = CommonAuxHeap.PAGE_SIZE * 2 + 10;  // spans 3 pages
+    
+    LongHeap lh = new LongHeap();
+    lh.setOffHeap();
+    assertTrue(lh.isOffHeap());
+    assertEquals(0, lh.getCapacity());  // pages are allocated lazily
+    int start = lh.reserve(n);
+    assertEquals(CommonAuxHeap.FIRST_CELL_REF, start);
+    assertEquals(3 * CommonAuxHeap.PAGE_SIZE, lh.getCapacity());
+    for (int i = 0; i < n; i++) {
+      lh.setHeapValue(Long.MAX_VALUE - i, start + i);
+    }
+    long[] longs = new long[n];
+    lh.copyToArray(start, longs, 0, n);
+    for (int i = 0; i < n; i++) {
+      assertEquals(Long.MAX_VALUE - i, longs[i]);
+    }
+    lh.reset();
+    assertEquals(3 * CommonAuxHeap.PAGE_SIZE, lh.getCapacity());  // pages kept
+    assertEquals(0L, lh.getHeapValue(start + n - 1));                // but zeroed
+    
+    // trailing pages are released after more than 20 resets not needing them
+    for (int i = 0; i < 20; i++) {
+      lh.reserve(10);
+      lh.reset();
+    }
+    assertEquals(3 * CommonAuxHeap.PAGE_SIZE, lh.getCapacity());
+    lh.reserve(10);
+    lh.reset();
+    assertEquals(CommonAuxHeap.PAGE_SIZE, lh.getCapacity());
+    
+    ShortHeap sh = new ShortHeap();
+    sh.setOffHeap();
+    start = sh.reserve(n);
+    short[] shorts = new short[n];
+    for (int i = 0; i < n; i++) {
+      shorts[i] = (short) (i - 5000);
+    }
+    sh.copyFromArray(shorts, 0, start, n);
+    for (int i = 0; i < n; i++) {
+      assertEquals(shorts[i], sh.getHeapValue(start + i));
+    }
+    
+    ByteHeap bh = new ByteHeap();
+    bh.setOffHeap();
+    start = bh.reserve(n);
+    for (int i = 0; i < n; i++) {
+      bh.setHeapValue((byte) i, start + i);
+    }
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    bh.write(baos, start, n);
+    byte[] bytes = baos.toByteArray();
+    assertEquals(n, bytes.length);
+    
+    ByteHeap bh2 = new ByteHeap();
+    bh2.setOffHeap();
+    bh2.reinitSizeOnly(n + 1);
+    bh2.readFully(new DataInputStream(new ByteArrayInputStream(bytes)), 1, n);
+    for (int i = 0; i < n; i++) {
+      assertEquals((byte) i, bytes[i]);
+      assertEquals((byte) i, bh2.getHeapValue(i + 1));
+    }
+    
+    boolean ok = false;
+    ByteHeap notEmpty = new ByteHeap();
+    notEmpty.addByte((byte) 1);
+    try {
+      notEmpty.setOffHeap();
+    } catch (IllegalStateException e) {
+      ok = true;
+    }
+    assertTrue(ok);
+  }
+  
+  public void testMainHeapPages() {
+    final int n = CommonAuxHeap.PAGE_SIZE * 2 + 10;  // spans 3 pages
+    
+    Heap heap = new Heap(50000);
+    assertEquals(50000, heap.getHeapSize());  // the initial size is allocated exactly
+    int[] cells = new int[n];
+    for (int i = 0; i < n; i++) {
+      cells[i] = i * 3;
+    }
+    int start = heap.add(cells);
+    assertEquals(1, start);
+    assertEquals(3 * CommonAuxHeap.PAGE_SIZE, heap.getHeapSize());
+    for (int i = 0; i < n; i++) {
+      assertEquals(i * 3, heap.getHeapValue(start + i));
+    }
+    int[] cells2 = new int[n];
+    heap.copyToArray(start, cells2, 0, n);
+    assertTrue(Arrays.equals(cells, cells2));
+    heap.setHeapValue(-1, CommonAuxHeap.PAGE_SIZE);
+    assertEquals(-1, heap.getHeapValue(CommonAuxHeap.PAGE_SIZE));
+    
+    heap.reset();
+    assertEquals(3 * CommonAuxHeap.PAGE_SIZE, heap.getHeapSize());  // pages kept
+    assertEquals(0, heap.getHeapValue(n));                             // but zeroed
+    for (int i = 0; i < 21; i++) {
+      heap.reset();
+    }
+    assertEquals(CommonAuxHeap.PAGE_SIZE, heap.getHeapSize());  // the page holding the initial size is kept
+  }
+  
   private void tst(int expected, int size) {
     assertEquals(expected,  CommonAuxHeap.computeShrunkArraySize(capacity, size, 2, multLimit, minSize, shrinkableCount));
   }
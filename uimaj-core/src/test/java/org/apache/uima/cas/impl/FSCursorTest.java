@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASRuntimeException;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.test.CASInitializer;
+import org.apache.uima.cas.test.CASTestSetup;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.cas.text.AnnotationIndex;
+import org.apache.uima.resource.metadata.TypeDescription;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+
+/**
+ * Reading and writing features through a cursor, or exporting them from an index, 
+ * gives the same values as the low-level CAS API
+ */
+public class FSCursorTest extends TestCase {
+  
+  private CASImpl cas;
+  private TypeSystemImpl ts;
+  
+  public void setUp() throws Exception {
+    cas = (CASImpl) CASInitializer.initCas(new CASTestSetup());
+    ts = cas.getTypeSystemImpl();
+    cas.setDocumentText("abc def ghi");
+  }
+  
+  private int feat(String name) {
+    return ts.ll_getCodeForFeatureName(name);
+  }
+
+  public void testReadWrite() {
+    final int tokenType = ts.ll_getCodeForTypeName(CASTestSetup.TOKEN_TYPE);
+    final int beginFeat = feat(CAS.FEATURE_FULL_NAME_BEGIN);
+    final int lemmaFeat = feat(CASTestSetup.LEMMA_FEAT_Q);
+    final int floatFeat = feat(CASTestSetup.TOKEN_FLOAT_FEAT_Q);
+    final int typeFeat = feat(CASTestSetup.TOKEN_TYPE_FEAT_Q);
+    final int[] tokens = new int[3];
+    for (int i = 0; i < tokens.length; i++) {
+      tokens[i] = cas.ll_createFS(tokenType);
+      cas.ll_setIntValue(tokens[i], beginFeat, i * 4);
+      cas.ll_setStringValue(tokens[i], lemmaFeat, "lemma" + i);
+      cas.ll_setFloatValue(tokens[i], floatFeat, i / 2f);
+    }
+    final int word = cas.ll_createFS(ts.ll_getCodeForTypeName(CASTestSetup.WORD_TYPE));
+    
+    FSCursor c = cas.ll_createCursor(tokenType, new int[] {beginFeat, lemmaFeat, floatFeat, typeFeat});
+    assertEquals(4, c.getNumberOfFeatures());
+    for (int i = 0; i < tokens.length; i++) {
+      c.moveTo(tokens[i]);
+      assertEquals(tokens[i], c.getAddress());
+      assertEquals(i * 4, c.getInt(0));
+      assertEquals("lemma" + i, c.getString(1));
+      assertEquals(i / 2f, c.getFloat(2));
+      assertEquals(0, c.getRef(3));
+      
+      c.setInt(0, i * 5);
+      c.setString(1, null);
+      c.setFloat(2, -i);
+      c.setRef(3, word);
+      assertEquals(i * 5, cas.ll_getIntValue(tokens[i], beginFeat));
+      assertNull(cas.ll_getStringValue(tokens[i], lemmaFeat));
+      assertEquals((float) -i, cas.ll_getFloatValue(tokens[i], floatFeat));
+      assertEquals(word, cas.ll_getRefValue(tokens[i], typeFeat));
+    }
+    
+    // a cursor for a supertype can be moved to subtypes
+    c = cas.ll_createCursor(ts.ll_getCodeForTypeName(CAS.TYPE_NAME_ANNOTATION), new int[] {beginFeat});
+    assertEquals(5, c.moveTo(tokens[1]).getInt(0));
+    
+    try {
+      c.moveTo(word);
+      fail();
+    } catch (LowLevelException e) {
+      assertEquals(LowLevelException.ACCESS_TYPE_ERROR, e.getError());
+    }
+    try {
+      c.getString(0);
+      fail();
+    } catch (LowLevelException e) {
+      assertEquals(LowLevelException.FEAT_RAN_ERROR, e.getError());
+    }
+    try {
+      cas.ll_createCursor(ts.ll_getCodeForTypeName(CAS.TYPE_NAME_ANNOTATION), new int[] {lemmaFeat});
+      fail();
+    } catch (LowLevelException e) {
+      assertEquals(LowLevelException.FEAT_DOM_ERROR, e.getError());
+    }
+  }
+  
+  public void testExportColumns() {
+    final Type tokenType = cas.getTypeSystem().getType(CASTestSetup.TOKEN_TYPE);
+    final Feature lemmaFeat = tokenType.getFeatureByBaseName(CASTestSetup.LEMMA_FEAT);
+    final Feature floatFeat = tokenType.getFeatureByBaseName(CASTestSetup.TOKEN_FLOAT_FEAT);
+    final Feature beginFeat = tokenType.getFeatureByBaseName(CAS.FEATURE_BASE_NAME_BEGIN);
+    final Feature endFeat = tokenType.getFeatureByBaseName(CAS.FEATURE_BASE_NAME_END);
+    for (int i = 0; i < 50; i++) {
+      AnnotationFS t = cas.createAnnotation(tokenType, (i * 7) % 11, (i * 7) % 11 + 3);
+      t.setStringValue(lemmaFeat, "l" + i);
+      t.setFloatValue(floatFeat, i / 4f);
+      cas.addFsToIndexes(t);
+    }
+    AnnotationIndex<AnnotationFS> index = cas.getAnnotationIndex(tokenType);
+    final int n = index.size();
+    int[] begins = new int[n];
+    int[] ends = new int[n];
+    String[] lemmas = new String[n];
+    double[] floats = new double[n];
+    assertEquals(n, index.exportColumns(new Feature[] {beginFeat, endFeat, lemmaFeat, floatFeat}, 
+                                        new Object[] {begins, ends, lemmas, floats}));
+    int i = 0;
+    for (AnnotationFS t : index) {
+      assertEquals(t.getBegin(), begins[i]);
+      assertEquals(t.getEnd(), ends[i]);
+      assertEquals(t.getStringValue(lemmaFeat), lemmas[i]);
+      assertEquals((double) t.getFloatValue(floatFeat), floats[i]);
+      i++;
+    }
+    assertEquals(n, i);
+    
+    // low level, on a set index
+    LowLevelIndex llIndex = cas.ll_getIndexRepository().ll_getIndex(CASTestSetup.ANNOT_SET_INDEX, ((TypeImpl) tokenType).getCode());
+    int[] llBegins = new int[llIndex.size()];
+    float[] llFloats = new float[llIndex.size()];
+    assertEquals(llIndex.size(), llIndex.ll_exportColumns(
+        new int[] {((FeatureImpl) beginFeat).getCode(), ((FeatureImpl) floatFeat).getCode()}, new Object[] {llBegins, llFloats}));
+    i = 0;
+    for (LowLevelIterator it = llIndex.ll_iterator(); it.isValid(); it.moveToNext()) {
+      assertEquals(cas.ll_getIntValue(it.ll_get(), ((FeatureImpl) beginFeat).getCode()), llBegins[i]);
+      assertEquals(cas.ll_getFloatValue(it.ll_get(), ((FeatureImpl) floatFeat).getCode()), llFloats[i]);
+      i++;
+    }
+    
+    // the size passed in is only a hint; the iterator decides how many FSs are exported
+    int[] hintBegins = new int[llIndex.size()];
+    assertEquals(llIndex.size(), cas.ll_createCursor(((TypeImpl) tokenType).getCode(), 
+        new int[] {((FeatureImpl) beginFeat).getCode()}).exportColumns(llIndex.ll_iterator(), 1, new Object[] {hintBegins}));
+    assertEquals(llBegins[llIndex.size() - 1], hintBegins[llIndex.size() - 1]);
+    
+    try {
+      index.exportColumns(new Feature[] {lemmaFeat}, new Object[] {new int[n]});
+      fail();
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      index.exportColumns(new Feature[] {beginFeat}, new Object[] {new int[n - 1]});
+      fail();
+    } catch (IllegalArgumentException e) {
+    }
+  }
+  
+  public void testStringSubtype() {
+    final int langPair = ts.ll_getCodeForTypeName(CASTestSetup.LANG_PAIR);
+    final int lang1Feat = feat(CASTestSetup.LANG_PAIR + TypeSystem.FEATURE_SEPARATOR + CASTestSetup.LANG1);
+    FSCursor c = cas.ll_createCursor(langPair, new int[] {lang1Feat}).moveTo(cas.ll_createFS(langPair));
+    c.setString(0, "Chinese");
+    assertEquals("Chinese", c.getString(0));
+    try {
+      c.setString(0, "Klingon");
+      fail();
+    } catch (CASRuntimeException e) {
+    }
+  }
+  
+  public void testLongDouble() throws Exception {
+    TypeSystemDescription tsd = UIMAFramework.getResourceSpecifierFactory().createTypeSystemDescription();
+    TypeDescription td = tsd.addType("test.Values", "", CAS.TYPE_NAME_TOP);
+    td.addFeature("aLong", "", CAS.TYPE_NAME_LONG);
+    td.addFeature("aDouble", "", CAS.TYPE_NAME_DOUBLE);
+    CASImpl cas2 = (CASImpl) CasCreationUtils.createCas(tsd, null, null);
+    final int type = ts(cas2).ll_getCodeForTypeName("test.Values");
+    final int longFeat = ts(cas2).ll_getCodeForFeatureName("test.Values:aLong");
+    final int doubleFeat = ts(cas2).ll_getCodeForFeatureName("test.Values:aDouble");
+    final int fs = cas2.ll_createFS(type);
+    cas2.ll_setLongValue(fs, longFeat, Long.MAX_VALUE);
+    
+    FSCursor c = cas2.ll_createCursor(type, new int[] {longFeat, doubleFeat}).moveTo(fs);
+    assertEquals(Long.MAX_VALUE, c.getLong(0));
+    c.setLong(0, -3L);
+    c.setDouble(1, 1.5);
+    assertEquals(-3L, cas2.ll_getLongValue(fs, longFeat));
+    assertEquals(1.5, cas2.ll_getDoubleValue(fs, doubleFeat));
+    assertEquals(1.5, c.getDouble(1));
+  }
+  
+  private static TypeSystemImpl ts(CASImpl cas) {
+    return cas.getTypeSystemImpl();
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class Lz4CodecTest extends TestCase {
+  
+  public void testRoundTrip() throws IOException {
+    Random r = new Random(1234);
+    
+    roundTrip(new byte[0]);
+    roundTrip(new byte[] {1});
+    roundTrip(new byte[13]);
+    
+    // random, incompressible
+    byte[] b = new byte[100000];
+    r.nextBytes(b);
+    roundTrip(b);
+    
+    // long runs (overlapping matches, long match lengths)
+    roundTrip(new byte[100000]);
+    
+    // words from a small vocabulary: many short matches; long literal run at the start
+    String[] words = {"the ", "of ", "annotation ", "feature ", "structure ", "index ", "type "};
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append((char) ('0' + r.nextInt(64)));
+    }
+    while (sb.length() < 100000) {
+      sb.append(words[r.nextInt(words.length)]);
+    }
+    b = sb.toString().getBytes("UTF-8");
+    int len = roundTrip(b);
+    assertTrue(len < b.length / 2);
+    
+    // repeats farther apart than the max offset
+    byte[] block = new byte[70000];
+    r.nextBytes(block);
+    b = new byte[block.length * 3];
+    for (int i = 0; i < 3; i++) {
+      System.arraycopy(block, 0, b, i * block.length, block.length);
+    }
+    roundTrip(b);
+    
+    for (int size = 1; size < 300; size++) {
+      b = new byte[size];
+      for (int i = 0; i < size; i++) {
+        b[i] = (byte) r.nextInt(3);
+      }
+      roundTrip(b);
+    }
+  }
+  
+  public void testMalformed() throws IOException {
+    byte[] b = new byte[1000];
+    Arrays.fill(b, (byte) 'a');
+    byte[] c = new byte[Lz4Codec.maxCompressedLength(b.length)];
+    int len = Lz4Codec.compress(b, b.length, c);
+    
+    try {
+      Lz4Codec.decompress(c, 0, len, new byte[b.length + 1], b.length + 1);
+      fail();
+    } catch (IOException e) {
+    }
+    
+    try {
+      Lz4Codec.decompress(c, 0, len - 1, new byte[b.length], b.length);
+      fail();
+    } catch (IOException e) {
+    }
+  }
+  
+  private int roundTrip(byte[] b) throws IOException {
+    byte[] c = new byte[Lz4Codec.maxCompressedLength(b.length)];
+    int len = Lz4Codec.compress(b, b.length, c);
+    assertTrue(len <= c.length);
+    byte[] d = new byte[b.length];
+    Lz4Codec.decompress(c, 0, len, d, d.length);
+    assertTrue(Arrays.equals(b, d));
+    return len;
+  }
+}
@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import static org.apache.uima.cas.impl.SerDesTest6.TypeSystems.TwoTypesSubsetFeatures;
+import static org.apache.uima.cas.impl.SerDesTest6.Types.Akof1;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.SerialFormat;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressCodec;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressLevel;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressStrat;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.ReuseInfo;
+import org.apache.uima.cas.impl.SerDesTest6.TTypeSystem;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.CasIOUtils;
+
+/**
+ * Tests of the form 6 codecs, parallel compression, the reusable serializer and the shared dictionary,
+ * using the type systems and CAS contents set up by {@link SerDesTest6}
+ */
+public class SerDesForm6CodecTest extends TestCase {
+
+  private final SerDesTest6 fixture = new SerDesTest6();
+  
+  private TTypeSystem mSrc;
+  
+  private CASImpl casSrc;
+
+  public void setUp() {
+    fixture.setUp();
+    mSrc = fixture.mSrc;
+    casSrc = fixture.casSrc;
+  }
+  
+  public void tearDown() {
+    fixture.tearDown();
+    mSrc = null;
+    casSrc = null;
+  }
+  
+  /**
+   * Each codec round trips, and is picked up from the header by the deserializers 
+   */
+  public void testCodecs() throws Exception {
+    fixture.loadCas(casSrc, mSrc);
+    int deflateSize = 0;
+    for (CompressCodec codec : CompressCodec.values()) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+      Serialization.serializeWithCompression(casSrc, baos, null, codec);
+      byte[] bytes = baos.toByteArray();
+      if (codec == CompressCodec.Deflate) {
+        deflateSize = bytes.length;
+      } else {
+        assertTrue(bytes.length > deflateSize);
+      }
+      
+      CASImpl casTgt = fixture.createCAS(casSrc.getTypeSystemImpl());
+      casTgt.reinit(new ByteArrayInputStream(bytes));
+      assertTrue(new BinaryCasSerDes6(casSrc).compareCASes(casSrc, casTgt));
+      
+      casTgt = fixture.createCAS(casSrc.getTypeSystemImpl());
+      Serialization.deserializeCAS(casTgt, new ByteArrayInputStream(bytes), null, null);
+      assertTrue(new BinaryCasSerDes6(casSrc).compareCASes(casSrc, casTgt));
+      
+      casTgt = fixture.createCAS(casSrc.getTypeSystemImpl());
+      assertEquals(SerialFormat.COMPRESSED_FILTERED, CasIOUtils.load(new ByteArrayInputStream(bytes), casTgt));
+      assertTrue(new BinaryCasSerDes6(casSrc).compareCASes(casSrc, casTgt));
+    }
+  }
+
+  /**
+   * Concurrent (de)compression of the streams gives the same serialized form, and deserializes the same
+   */
+  public void testParallelZip() throws Exception {
+    fixture.loadCas(casSrc, mSrc);
+    // big enough for several streams to be handed to the executor
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < 300000) {
+      sb.append(Integer.toString(fixture.random.nextInt(), 36)).append(' ');
+    }
+    casSrc.setDocumentText(sb.toString());
+    for (int i = 0; i < 30000; i++) {
+      int begin = fixture.random.nextInt(sb.length() - 100);
+      casSrc.addFsToIndexes(casSrc.createAnnotation(casSrc.getAnnotationType(), begin, begin + fixture.random.nextInt(100)));
+    }
+    
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (CompressCodec codec : CompressCodec.values()) {
+        BinaryCasSerDes6 bcs = new BinaryCasSerDes6(casSrc, null, null, null, false, CompressLevel.Default, CompressStrat.Default, codec);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        bcs.serialize(baos);
+        byte[] serial = baos.toByteArray();
+        
+        bcs = new BinaryCasSerDes6(casSrc, null, null, null, false, CompressLevel.Default, CompressStrat.Default, codec);
+        bcs.setExecutor(executor);
+        baos = new ByteArrayOutputStream();
+        bcs.serialize(baos);
+        assertTrue(Arrays.equals(serial, baos.toByteArray()));
+        
+        CASImpl casTgt = fixture.createCAS(casSrc.getTypeSystemImpl());
+        bcs = new BinaryCasSerDes6(casTgt);
+        bcs.setExecutor(executor);
+        bcs.deserialize(new ByteArrayInputStream(serial));
+        assertTrue(new BinaryCasSerDes6(casSrc).compareCASes(casSrc, casTgt));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * One shared instance, used repeatedly by several threads, 
+   * with and without type filtering
+   */
+  public void testReusable() throws Exception {
+    fixture.loadCas(casSrc, mSrc);
+    final CASImpl filtered = fixture.setupCas(fixture.getTT(TwoTypesSubsetFeatures));
+    final ReusableBinaryCasSerDes6 same = ReusableBinaryCasSerDes6.get(casSrc.getTypeSystem(), null);
+    assertSame(same, ReusableBinaryCasSerDes6.get(casSrc.getTypeSystem(), casSrc.getTypeSystem()));
+    final ReusableBinaryCasSerDes6 toFiltered = ReusableBinaryCasSerDes6.get(casSrc.getTypeSystem(), filtered.getTypeSystem());
+    
+    // expected results, from one time use instances
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new BinaryCasSerDes6(casSrc).serialize(baos);
+    final byte[] expected = baos.toByteArray();
+    baos = new ByteArrayOutputStream();
+    new BinaryCasSerDes6(casSrc, filtered.getTypeSystemImpl()).serialize(baos);
+    final byte[] expectedFiltered = baos.toByteArray();
+    
+    final Throwable[] failure = new Throwable[1];
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(new Runnable() {
+        public void run() {
+          try {
+            CASImpl casTgt = fixture.createCAS(casSrc.getTypeSystemImpl());
+            for (int i = 0; i < 20; i++) {
+              ByteArrayOutputStream out = new ByteArrayOutputStream();
+              same.serialize(casSrc, out);
+              assertTrue(Arrays.equals(expected, out.toByteArray()));
+              same.deserialize(casTgt, new ByteArrayInputStream(out.toByteArray()));
+              assertTrue(new BinaryCasSerDes6(casSrc).compareCASes(casSrc, casTgt));
+
+              out = new ByteArrayOutputStream();
+              toFiltered.serialize(casSrc, out);
+              assertTrue(Arrays.equals(expectedFiltered, out.toByteArray()));
+            }
+          } catch (Throwable e) {
+            failure[0] = e;
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    if (failure[0] != null) {
+      throw new RuntimeException(failure[0]);
+    }
+    
+    try {
+      same.serialize(filtered, new ByteArrayOutputStream());
+      fail();
+    } catch (IllegalArgumentException e) {
+    }
+    
+    // after close, the pooled Deflater / Inflaters are ended, and new ones are made per call
+    ReusableBinaryCasSerDes6 closed = new ReusableBinaryCasSerDes6(casSrc.getTypeSystem(), null, 
+        CompressLevel.Default, CompressStrat.Default, CompressCodec.Deflate);
+    closed.serialize(casSrc, new ByteArrayOutputStream());
+    closed.close();
+    baos = new ByteArrayOutputStream();
+    closed.serialize(casSrc, baos);
+    assertTrue(Arrays.equals(expected, baos.toByteArray()));
+    CASImpl casTgt = fixture.createCAS(casSrc.getTypeSystemImpl());
+    closed.deserialize(casTgt, new ByteArrayInputStream(baos.toByteArray()));
+    assertTrue(new BinaryCasSerDes6(casSrc).compareCASes(casSrc, casTgt));
+  }
+
+  /**
+   * The cached instances don't keep their target type system from being garbage collected
+   */
+  public void testReusableTargetNotKept() throws Exception {
+    TypeSystemDescription tsd = UIMAFramework.getResourceSpecifierFactory().createTypeSystemDescription();
+    TypeSystem filteredTs = CasCreationUtils.createCas(tsd, null, null).getTypeSystem();
+    ReusableBinaryCasSerDes6.get(casSrc.getTypeSystem(), filteredTs);
+    WeakReference<TypeSystem> tgtTs = new WeakReference<TypeSystem>(filteredTs);
+    filteredTs = null;
+    for (int i = 0; i < 20 && tgtTs.get() != null; i++) {
+      System.gc();
+      Thread.sleep(50);
+    }
+    assertNull(tgtTs.get());
+  }
+
+  /**
+   * The shared dictionary strings are not serialized, but referenced; 
+   * the deserializing CAS must have the same dictionary 
+   */
+  public void testSharedDictionary() throws Exception {
+    fixture.loadCas(casSrc, mSrc);
+    FeatureStructure fs = fixture.makeAkof(casSrc, mSrc, Akof1);
+    fixture.maybeSetString(fs, mSrc, "ghijklm");
+    casSrc.addFsToIndexes(fs);
+    final String[] dictionary = {"abcdef", "ghijklm", "a", "not used"};
+    casSrc.setStringInternTable(new StringInternTable(dictionary));
+    
+    // no codec, so the strings can be looked for in the serialized form
+    BinaryCasSerDes6 bcs = new BinaryCasSerDes6(casSrc, null, null, null, false, CompressLevel.Default, CompressStrat.Default, CompressCodec.None);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    bcs.serialize(baos);
+    assertTrue(new String(baos.toByteArray(), "ISO-8859-1").contains("ghijklm"));
+    
+    bcs = new BinaryCasSerDes6(casSrc, null, null, null, false, CompressLevel.Default, CompressStrat.Default, CompressCodec.None);
+    bcs.setSharedDictionary(true);
+    baos = new ByteArrayOutputStream();
+    bcs.serialize(baos);
+    final byte[] bytes = baos.toByteArray();
+    assertFalse(new String(bytes, "ISO-8859-1").contains("ghijklm"));
+    
+    CASImpl casTgt = fixture.createCAS(casSrc.getTypeSystemImpl());
+    casTgt.setStringInternTable(new StringInternTable(dictionary.clone()));
+    casTgt.reinit(new ByteArrayInputStream(bytes));
+    assertTrue(new BinaryCasSerDes6(casSrc).compareCASes(casSrc, casTgt));
+    
+    casTgt = fixture.createCAS(casSrc.getTypeSystemImpl());
+    casTgt.setStringInternTable(new StringInternTable(new String[] {"abcdef", "ghijklm", "a", "other"}));
+    try {
+      casTgt.reinit(new ByteArrayInputStream(bytes));
+      fail();
+    } catch (RuntimeException e) {
+    }
+    
+    try {
+      new BinaryCasSerDes6(fixture.createCAS(casSrc.getTypeSystemImpl())).deserialize(new ByteArrayInputStream(bytes));
+      fail();
+    } catch (UnsupportedOperationException e) {
+    }
+  }
+
+  /**
+   * Delta CASes reference the shared dictionary too; its strings are added to the 
+   * receiving CAS's string heap once, not for every delta
+   */
+  public void testSharedDictionaryDelta() throws Exception {
+    final String[] dictionary = new String[100];
+    for (int i = 0; i < dictionary.length; i++) {
+      dictionary[i] = "d" + i;
+    }
+    casSrc.setStringInternTable(new StringInternTable(dictionary));
+    fixture.loadCas(casSrc, mSrc);
+    FeatureStructure fs = fixture.makeAkof(casSrc, mSrc, Akof1);
+    fixture.maybeSetString(fs, mSrc, "d1");
+    casSrc.addFsToIndexes(fs);
+    
+    int stringsBefore = 0;
+    for (int round = 0; round < 2; round++) {
+      CASImpl remote = fixture.setupCas(mSrc);
+      remote.setStringInternTable(new StringInternTable(dictionary.clone()));
+      // full, src -> remote
+      BinaryCasSerDes6 bcs = new BinaryCasSerDes6(casSrc, remote.getTypeSystemImpl());
+      bcs.setSharedDictionary(true);
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      bcs.serialize(baos);
+      final ReuseInfo riSrc = bcs.getReuseInfo();
+      final ReuseInfo riRemote = Serialization.deserializeCAS(remote, new ByteArrayInputStream(baos.toByteArray()), 
+          null, null).getReuseInfo();
+      
+      // delta, remote -> src
+      MarkerImpl marker = (MarkerImpl) remote.createMarker();
+      fs = fixture.makeAkof(remote, mSrc, Akof1);
+      fixture.maybeSetString(fs, mSrc, (round == 0) ? "d2" : "d3");
+      remote.addFsToIndexes(fs);
+      fs = fixture.makeAkof(remote, mSrc, Akof1);
+      fixture.maybeSetString(fs, mSrc, "not in the dictionary " + round);
+      remote.addFsToIndexes(fs);
+      bcs = new BinaryCasSerDes6(remote, marker, null, riRemote);
+      bcs.setSharedDictionary(true);
+      baos = new ByteArrayOutputStream();
+      bcs.serialize(baos);
+      stringsBefore = casSrc.getStringHeap().getSize();
+      BinaryCasSerDes6 bcsDeserialize = Serialization.deserializeCAS(casSrc, new ByteArrayInputStream(baos.toByteArray()), 
+          remote.getTypeSystemImpl(), riSrc);
+      assertTrue(bcsDeserialize.compareCASes(casSrc, remote));
+    }
+    // the dictionary was added by the first delta only
+    assertTrue(casSrc.getStringHeap().getSize() - stringsBefore < dictionary.length);
+  }
+}
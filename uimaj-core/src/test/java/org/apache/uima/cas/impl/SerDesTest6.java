@@ -83,8 +83,8 @@ public class SerDesTest6 extends SerDesTstCommon {
   
   private boolean doPlain = false;
 //  private TypeSystemMgr tsmSrc, tsmTgt;
-  private TTypeSystem mSrc;
-  private CASImpl casSrc;
+  TTypeSystem mSrc;
+  CASImpl casSrc;
   private TTypeSystem[] alternateTTypeSystems;
   
   public class CASTestSetup implements AnnotatorInitializer {
@@ -905,7 +905,7 @@ public class SerDesTest6 extends SerDesTstCommon {
   }
   
   // make an instance of akof with all features set
-  private FeatureStructure makeAkof(CASImpl cas, TTypeSystem m, Types typeKind) {
+  FeatureStructure makeAkof(CASImpl cas, TTypeSystem m, Types typeKind) {
     FeatureStructure fs = cas.createFS(m.getType(Akof1));
     maybeSetBoolean(fs, m, random.nextBoolean());
     maybeSetByte(fs, m, (byte)random.nextInt());
@@ -1031,7 +1031,7 @@ public class SerDesTest6 extends SerDesTstCommon {
     }
   }
   
-  private void loadCas(CASImpl cas, TTypeSystem m) {
+  void loadCas(CASImpl cas, TTypeSystem m) {
     makeFeaturesForAkof(cas, m, Akof1);
     // TwoTypes, EqTwoTypes, OneType, TwoTypesSubsetFeatures, OneTypeSubsetFeatures, NoFeatures,
     switch (m.kind){
@@ -1094,7 +1094,7 @@ public class SerDesTest6 extends SerDesTstCommon {
     }
   }
 
-  private void maybeSetString(FeatureStructure fs, TTypeSystem m, String value) {
+  void maybeSetString(FeatureStructure fs, TTypeSystem m, String value) {
     Feature f = m.getFeature(fs, "String");
     if (f != null) {
       fs.setStringValue(f, value);
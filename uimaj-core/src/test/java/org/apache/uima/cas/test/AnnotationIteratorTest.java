@@ -20,21 +20,31 @@
 package org.apache.uima.cas.test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 
 import junit.framework.TestCase;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASRuntimeException;
+import org.apache.uima.cas.FSIndex;
 import org.apache.uima.cas.FSIndexRepository;
 import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.cas.impl.FSIndexFlat;
 import org.apache.uima.cas.impl.FSIteratorWrapper;
+import org.apache.uima.cas.impl.FlatIndexManagementImpl;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.cas.text.AnnotationIndex;
+import org.apache.uima.cas.text.AnnotationTree;
 import org.apache.uima.jcas.tcas.Annotation;
 
 /**
@@ -423,6 +433,254 @@ public class AnnotationIteratorTest extends TestCase {
     }
   }
 
+  public void testStream() {
+    cas.setDocumentText("0123456789012345678901234567890123456789012345678901234567890123456789");
+    for (int i = 0; i < 60; i++) {
+      cas.addFsToIndexes(cas.createAnnotation(this.tokenType, i, i + 5));
+    }
+    for (int i = 0; i < 6; i++) {
+      cas.addFsToIndexes(cas.createAnnotation(this.sentenceType, i * 10, i * 10 + 10));
+    }
+    
+    // the annotation index holds tokens, sentences and the document annotation, 
+    // so iteration merges several leaf indexes
+    AnnotationIndex<AnnotationFS> annotIndex = cas.getAnnotationIndex();
+    List<AnnotationFS> expected = new ArrayList<AnnotationFS>();
+    for (AnnotationFS a : annotIndex) {
+      expected.add(a);
+    }
+    assertEquals(60 + 6 + 1, expected.size());
+    
+    assertEquals(expected, annotIndex.stream().collect(Collectors.<AnnotationFS>toList()));
+    assertEquals(expected, annotIndex.stream().parallel().collect(Collectors.<AnnotationFS>toList()));  // ORDERED
+    
+    Spliterator<AnnotationFS> s1 = cas.getAnnotationIndex(this.tokenType).spliterator();
+    assertTrue(s1.hasCharacteristics(Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED));
+    Spliterator<AnnotationFS> s0 = s1.trySplit();
+    assertEquals(30, s0.estimateSize());
+    assertEquals(30, s1.estimateSize());
+    
+    assertEquals(6, cas.getAnnotationIndex(this.sentenceType).stream().count());
+    
+    // the iterator stream starts at the current position
+    FSIterator<AnnotationFS> it = annotIndex.iterator();
+    it.moveTo(expected.get(10));
+    assertEquals(57, it.stream().count());
+    
+    cas.freeze();
+    // single type: uses the index array directly
+    AnnotationIndex<AnnotationFS> sentenceIndex = cas.getAnnotationIndex(this.sentenceType);
+    List<AnnotationFS> sentences = sentenceIndex.stream().parallel().collect(Collectors.<AnnotationFS>toList());
+    assertEquals(6, sentences.size());
+    for (int i = 0; i < 6; i++) {
+      assertEquals(i * 10, sentences.get(i).getBegin());
+    }
+    assertEquals(expected, annotIndex.stream().parallel().collect(Collectors.<AnnotationFS>toList()));
+  }
+
+  public void testFlatIndexUpdates() {
+    if (!FSIndexFlat.enabled) {
+      return;
+    }
+    cas.setDocumentText("0123456789012345678901234567890123456789012345678901234567890123456789");
+    for (int i = 0; i < 60; i++) {
+      cas.addFsToIndexes(cas.createAnnotation(this.tokenType, i, i + 5));
+    }
+    for (int i = 0; i < 6; i++) {
+      cas.addFsToIndexes(cas.createAnnotation(this.sentenceType, i * 10, i * 10 + 10));
+    }
+    AnnotationIndex<AnnotationFS> annotIndex = cas.getAnnotationIndex();
+    FlatIndexManagementImpl stats = new FlatIndexManagementImpl();
+    final long flattenedBefore = stats.getFlattenedCount();
+    final long flatIteratorsBefore = stats.getFlatIteratorCount();
+    
+    // iterate until the merging of the 3 types is judged worth flattening
+    FSIterator<AnnotationFS> it = null;
+    for (int i = 0; i < 10 && !(it instanceof FSIndexFlat.FSIteratorFlat); i++) {
+      it = annotIndex.iterator();
+      for (AnnotationFS a : annotIndex) {
+        assertNotNull(a);
+      }
+    }
+    assertTrue(it instanceof FSIndexFlat.FSIteratorFlat);
+    assertTrue(stats.getFlattenedCount() > flattenedBefore);
+    assertTrue(stats.getFlatIteratorCount() > flatIteratorsBefore);
+    
+    // same order as the normal iterator, moveTo to the leftmost equal one
+    AnnotationFS sentence = cas.getAnnotationIndex(this.sentenceType).iterator().get();
+    it.moveTo(cas.createAnnotation(this.tokenType, 10, 15));
+    assertEquals(10, it.get().getBegin());
+    assertEquals(15, it.get().getEnd());
+    assertEquals(it.get(), it.copy().get());
+    it.moveToPrevious();
+    assertEquals(20, it.get().getEnd());  // the sentence 10-20 sorts before the token 10-15
+    
+    // an update makes the flattened version invalid for the updated type
+    cas.addFsToIndexes(cas.createAnnotation(this.tokenType, 3, 4));
+    it.moveToFirst();  // picks up the update, like other iterators
+    int count = 0;
+    for (; it.isValid(); it.moveToNext()) {
+      count++;
+    }
+    assertEquals(60 + 6 + 1 + 1, count);
+    
+    FSIterator<AnnotationFS> it2 = annotIndex.iterator();
+    assertFalse(it2 instanceof FSIndexFlat.FSIteratorFlat);
+    assertEquals(sentence, cas.getAnnotationIndex(this.sentenceType).iterator().get());
+
+    // rebuild, then check an update during iteration is detected
+    it = null;
+    for (int i = 0; i < 10 && !(it instanceof FSIndexFlat.FSIteratorFlat); i++) {
+      it = annotIndex.iterator();
+      for (AnnotationFS a : annotIndex) {
+        assertNotNull(a);
+      }
+    }
+    assertTrue(it instanceof FSIndexFlat.FSIteratorFlat);
+    it.moveTo(sentence);
+    cas.removeFsFromIndexes(it.get());
+    try {
+      it.get();
+      fail();
+    } catch (ConcurrentModificationException e) {
+    }
+  }
+
+  public void testIntervalQueries() {
+    cas.setDocumentText("0123456789012345678901234567890123456789012345678901234567890123456789");
+    Random r = new Random(1234);
+    for (int i = 0; i < 200; i++) {
+      int begin = r.nextInt(60);
+      cas.addFsToIndexes(cas.createAnnotation((i % 4 == 0) ? this.sentenceType : this.tokenType, 
+          begin, begin + r.nextInt(10)));  // includes 0 length ones
+    }
+    AnnotationIndex<AnnotationFS> annotIndex = cas.getAnnotationIndex();
+    // uses the default implementations of the queries
+    AnnotationIndex<AnnotationFS> plainIndex = new DelegatingAnnotationIndex<AnnotationFS>(annotIndex);
+    
+    for (int q = 0; q < 100; q++) {
+      final int begin = r.nextInt(70);
+      final int end = begin + r.nextInt(20);
+      List<AnnotationFS> coveredBy = new ArrayList<AnnotationFS>();
+      List<AnnotationFS> covering = new ArrayList<AnnotationFS>();
+      List<AnnotationFS> overlapping = new ArrayList<AnnotationFS>();
+      AnnotationFS nearestPreceding = null;
+      for (AnnotationFS a : annotIndex) {
+        if (begin <= a.getBegin() && a.getEnd() <= end) {
+          coveredBy.add(a);
+        }
+        if (a.getBegin() <= begin && end <= a.getEnd()) {
+          covering.add(a);
+        }
+        if (a.getBegin() < end && begin < a.getEnd()) {
+          overlapping.add(a);
+        }
+        if (a.getEnd() <= begin && (nearestPreceding == null || a.getEnd() >= nearestPreceding.getEnd())) {
+          nearestPreceding = a;
+        }
+      }
+      assertEquals(coveredBy, annotIndex.coveredBy(begin, end));
+      assertEquals(covering, annotIndex.covering(begin, end));
+      assertEquals(overlapping, annotIndex.overlapping(begin, end));
+      assertEquals(nearestPreceding, annotIndex.nearestPreceding(begin));
+      assertEquals(coveredBy, plainIndex.coveredBy(begin, end));
+      assertEquals(covering, plainIndex.covering(begin, end));
+      assertEquals(overlapping, plainIndex.overlapping(begin, end));
+      assertEquals(nearestPreceding, plainIndex.nearestPreceding(begin));
+    }
+    
+    // subtype only, and pick up index updates
+    AnnotationIndex<AnnotationFS> sentIndex = cas.getAnnotationIndex(this.sentenceType);
+    final int nbrCovering = sentIndex.covering(30, 30).size();
+    cas.addFsToIndexes(cas.createAnnotation(this.sentenceType, 25, 35));
+    cas.addFsToIndexes(cas.createAnnotation(this.tokenType, 25, 35));
+    assertEquals(nbrCovering + 1, sentIndex.covering(30, 30).size());
+    for (AnnotationFS a : sentIndex.covering(30, 30)) {
+      assertEquals(this.sentenceType, a.getType());
+    }
+    assertNull(sentIndex.nearestPreceding(-1));
+    assertTrue(sentIndex.coveredBy(40, 30).isEmpty());
+    AnnotationIndex<AnnotationFS> plainSentIndex = new DelegatingAnnotationIndex<AnnotationFS>(sentIndex);
+    assertEquals(sentIndex.covering(30, 30), plainSentIndex.covering(30, 30));
+    assertEquals(sentIndex.coveredBy(20, 40), plainSentIndex.coveredBy(20, 40));
+    assertNull(plainSentIndex.nearestPreceding(-1));
+    assertTrue(plainSentIndex.coveredBy(40, 30).isEmpty());
+    
+    // the default queries don't create any feature structures
+    final int heapUsed = ((CASImpl) cas).getHeap().getNextId();
+    plainIndex.coveredBy(20, 40);
+    plainIndex.covering(30, 30);
+    assertEquals(heapUsed, ((CASImpl) cas).getHeap().getNextId());
+  }
+
+  public void testDefaultExportColumns() {
+    cas.setDocumentText("0123456789012345678901234567890123456789");
+    for (int i = 0; i < 20; i++) {
+      AnnotationFS a = cas.createAnnotation(this.tokenType, i, i + 3);
+      a.setStringValue(this.lemmaFeat, "l" + i);
+      a.setFloatValue(this.tokenFloatFeat, i / 2f);
+      cas.addFsToIndexes(a);
+    }
+    AnnotationIndex<AnnotationFS> index = cas.getAnnotationIndex(this.tokenType);
+    AnnotationIndex<AnnotationFS> plainIndex = new DelegatingAnnotationIndex<AnnotationFS>(index);
+    final int n = index.size();
+    final Feature[] features = new Feature[] {this.startFeature, this.lemmaFeat, this.tokenFloatFeat};
+    int[] begins = new int[n], plainBegins = new int[n];
+    String[] lemmas = new String[n], plainLemmas = new String[n];
+    double[] floats = new double[n], plainFloats = new double[n];
+    assertEquals(n, index.exportColumns(features, new Object[] {begins, lemmas, floats}));
+    assertEquals(n, plainIndex.exportColumns(features, new Object[] {plainBegins, plainLemmas, plainFloats}));
+    assertTrue(Arrays.equals(begins, plainBegins));
+    assertTrue(Arrays.equals(lemmas, plainLemmas));
+    assertTrue(Arrays.equals(floats, plainFloats));
+    try {
+      plainIndex.exportColumns(new Feature[] {this.startFeature}, new Object[] {new int[n - 1]});
+      fail();
+    } catch (IllegalArgumentException e) {
+    }
+    // all the columns are checked before any is written
+    int[] unwritten = new int[n];
+    try {
+      plainIndex.exportColumns(features, new Object[] {unwritten, new int[n], floats});
+      fail();
+    } catch (IllegalArgumentException e) {
+    }
+    assertTrue(Arrays.equals(new int[n], unwritten));
+    try {
+      plainIndex.exportColumns(features, new Object[] {unwritten, lemmas, new float[n - 1]});
+      fail();
+    } catch (IllegalArgumentException e) {
+    }
+    assertTrue(Arrays.equals(new int[n], unwritten));
+  }
+
+  /**
+   * Implements only the abstract methods of AnnotationIndex, so the default methods are used.
+   */
+  private static class DelegatingAnnotationIndex<T extends AnnotationFS> implements AnnotationIndex<T> {
+    private final AnnotationIndex<T> index;
+
+    DelegatingAnnotationIndex(AnnotationIndex<T> index) {
+      this.index = index;
+    }
+
+    public int size() { return index.size(); }
+    public Type getType() { return index.getType(); }
+    public boolean contains(FeatureStructure fs) { return index.contains(fs); }
+    public FeatureStructure find(FeatureStructure fs) { return index.find(fs); }
+    public int compare(FeatureStructure fs1, FeatureStructure fs2) { return index.compare(fs1, fs2); }
+    public FSIterator<T> iterator() { return index.iterator(); }
+    public FSIterator<T> iterator(FeatureStructure fs) { return index.iterator(fs); }
+    public int getIndexingStrategy() { return index.getIndexingStrategy(); }
+    public FSIndex<T> withSnapshotIterators() { return index.withSnapshotIterators(); }
+    public FSIterator<T> iterator(boolean ambiguous) { return index.iterator(ambiguous); }
+    public FSIterator<T> subiterator(AnnotationFS annot) { return index.subiterator(annot); }
+    public FSIterator<T> subiterator(AnnotationFS annot, boolean ambiguous, boolean strict) {
+      return index.subiterator(annot, ambiguous, strict);
+    }
+    public AnnotationTree<T> tree(T annot) { return index.tree(annot); }
+  }
+
   public static void main(String[] args) {
     AnnotationIteratorTest test = new AnnotationIteratorTest(null);
     test.run();
@@ -18,6 +18,16 @@
  */
 package org.apache.uima.cas.test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import junit.framework.TestCase;
 
 import org.apache.uima.cas.CAS;
@@ -156,6 +166,70 @@ public class IndexRepositoryTest extends TestCase {
     
   }
   
+  public void testFreeze() throws Exception {
+    final Type tokenType = this.typeSystem.getType(CASTestSetup.TOKEN_TYPE);
+    final Type sentType = this.typeSystem.getType(CASTestSetup.SENT_TYPE);
+    cas.setDocumentText("0123456789 0123456789 0123456789 0123456789 0123456789");
+    for (int i = 0; i < 5; i++) {
+      cas.addFsToIndexes(cas.createAnnotation(sentType, i * 11, i * 11 + 10));
+      for (int j = 0; j < 10; j++) {
+        cas.addFsToIndexes(cas.createAnnotation(tokenType, i * 11 + j, i * 11 + j + 1));
+      }
+    }
+    AnnotationFS notIndexed = cas.createAnnotation(tokenType, 0, 1);
+    
+    assertFalse(cas.isFrozen());
+    cas.freeze();
+    assertTrue(cas.isFrozen());
+    assertTrue(cas.getJCas().isFrozen());
+    
+    try {
+      cas.addFsToIndexes(notIndexed);
+      fail("required exception not thrown");
+    } catch (CASRuntimeException e) {
+      assertEquals(CASRuntimeException.CAS_FROZEN, e.getMessageKey());
+    }
+    try {
+      indexRep.removeAllIncludingSubtypes(tokenType);
+      fail("required exception not thrown");
+    } catch (CASRuntimeException e) {
+      assertEquals(CASRuntimeException.CAS_FROZEN, e.getMessageKey());
+    }
+    
+    // many threads iterating at once
+    final AnnotationIndex<AnnotationFS> annotIndex = cas.getAnnotationIndex();
+    final AnnotationIndex<AnnotationFS> sentIndex = cas.getAnnotationIndex(sentType);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int t = 0; t < 32; t++) {
+        results.add(executor.submit(new Callable<Integer>() {
+          public Integer call() {
+            int n = 0;
+            for (int r = 0; r < 20; r++) {
+              for (AnnotationFS sentence : sentIndex) {
+                FSIterator<AnnotationFS> it = annotIndex.subiterator(sentence);
+                while (it.hasNext()) {
+                  it.next();
+                  n++;
+                }
+              }
+            }
+            return n;
+          }}));
+      }
+      for (Future<Integer> f : results) {
+        assertEquals(20 * 5 * 10, f.get().intValue());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    
+    cas.reset();
+    assertFalse(cas.isFrozen());
+    cas.addFsToIndexes(cas.createAnnotation(tokenType, 0, 1));
+  }
+
   /**
    * To test non-normal case, change Eclipse run config by adding the jvm arg:
    *   -Duima.allow_duplicate_add_to_indexes
@@ -172,6 +246,71 @@ public class IndexRepositoryTest extends TestCase {
     assertEquals(expected, cas.getIndexRepository().getIndex(CAS.STD_ANNOTATION_INDEX).size());
   }
   
+  public void testAddAll() throws Exception {
+    CAS cas2 = CASInitializer.initCas(new CASTestSetup());
+    List<FeatureStructure> fss1 = createForAddAll(cas);
+    List<FeatureStructure> fss2 = createForAddAll(cas2);
+    
+    // some already indexed, then the rest (with an already indexed one and a duplicate) added
+    //   one at a time to one CAS and as a batch to the other
+    for (int i = 0; i < 50; i++) {
+      cas.addFsToIndexes(fss1.get(i));
+      cas2.addFsToIndexes(fss2.get(i));
+    }
+    List<FeatureStructure> batch = new ArrayList<FeatureStructure>(fss2.subList(49, fss2.size()));
+    batch.add(fss2.get(100));
+    for (FeatureStructure fs : fss1.subList(49, fss1.size())) {
+      cas.addFsToIndexes(fs);
+    }
+    cas.addFsToIndexes(fss1.get(100));
+    cas2.getIndexRepository().addAll(batch);
+    
+    for (String indexName : new String[] {CASTestSetup.ANNOT_SORT_INDEX, CAS.STD_ANNOTATION_INDEX, 
+                                          CASTestSetup.ANNOT_SET_INDEX}) {
+      assertEquals(addresses(cas.getIndexRepository().getIndex(indexName)),
+                   addresses(cas2.getIndexRepository().getIndex(indexName)));
+    }
+    FSIndex<FeatureStructure> bag1 = cas.getIndexRepository().getIndex(CASTestSetup.ANNOT_BAG_INDEX);
+    FSIndex<FeatureStructure> bag2 = cas2.getIndexRepository().getIndex(CASTestSetup.ANNOT_BAG_INDEX);
+    assertEquals(bag1.size(), bag2.size());
+    assertEquals(new HashSet<Integer>(addresses(bag1)), new HashSet<Integer>(addresses(bag2)));
+    // the non-annotation type gets a default bag index, as with addFS
+    Type tokenTypeType = cas2.getTypeSystem().getType(CASTestSetup.TOKEN_TYPE_TYPE);
+    assertEquals(10, addresses(cas2.getIndexRepository().getAllIndexedFS(tokenTypeType)).size());
+  }
+  
+  // annotations with many equal keys, in random order; same addresses in each CAS
+  private List<FeatureStructure> createForAddAll(CAS aCas) {
+    TypeSystem ts = aCas.getTypeSystem();
+    Type tokenType = ts.getType(CASTestSetup.TOKEN_TYPE);
+    Type sentType = ts.getType(CASTestSetup.SENT_TYPE);
+    Type tokenTypeType = ts.getType(CASTestSetup.TOKEN_TYPE_TYPE);
+    aCas.setDocumentText("0123456789 0123456789 0123456789 0123456789 0123456789");
+    Random r = new Random(1234);
+    List<FeatureStructure> fss = new ArrayList<FeatureStructure>();
+    for (int i = 0; i < 300; i++) {
+      int begin = r.nextInt(50);
+      fss.add(aCas.createAnnotation(r.nextBoolean() ? tokenType : sentType, begin, begin + r.nextInt(5)));
+    }
+    for (int i = 0; i < 10; i++) {
+      fss.add(aCas.createFS(tokenTypeType));
+    }
+    Collections.shuffle(fss, r);
+    return fss;
+  }
+  
+  private static List<Integer> addresses(FSIndex<FeatureStructure> index) {
+    return addresses(index.iterator());
+  }
+  
+  private static List<Integer> addresses(FSIterator<FeatureStructure> it) {
+    List<Integer> r = new ArrayList<Integer>();
+    while (it.hasNext()) {
+      r.add(((FeatureStructureImpl) it.next()).getAddress());
+    }
+    return r;
+  }
+  
   public static int NBR_ITEMS = 40000;
   
   public void testRemovalSpeed() throws Exception {
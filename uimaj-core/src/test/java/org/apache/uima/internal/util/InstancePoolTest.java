@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.internal.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the InstancePool class.
+ */
+public class InstancePoolTest extends TestCase {
+
+  private final String a = new String("a");
+
+  private final String b = new String("b");
+
+  private final String c = new String("c");
+
+  public void testAcquireRelease() throws Exception {
+    InstancePool<String> pool = new InstancePool<String>(Arrays.asList(a, b, c));
+    assertEquals(3, pool.getNumAvailable());
+    String x = pool.tryAcquire();
+    String y = pool.tryAcquire();
+    String z = pool.tryAcquire();
+    assertNull(pool.tryAcquire());
+    assertEquals(0, pool.getFree().size());
+    assertTrue(x != y && y != z && x != z);
+
+    assertTrue(pool.isCheckedOut(y));
+    assertTrue(pool.release(y));
+    assertFalse(pool.isCheckedOut(y));
+    // released twice, or not from this pool
+    assertFalse(pool.release(y));
+    assertFalse(pool.release(new String("a")));
+    assertEquals(1, pool.getNumAvailable());
+    assertSame(y, pool.getFree().get(0));
+
+    pool.release(x);
+    pool.release(z);
+    assertEquals(3, pool.getFree().size());
+  }
+
+  public void testThreadAffinity() throws Exception {
+    InstancePool<String> pool = new InstancePool<String>(Arrays.asList(a, b, c));
+    String x = pool.tryAcquire();
+    String y = pool.tryAcquire();
+    pool.release(x);
+    pool.release(y);
+    // the instance last released by this thread comes back first, then the rest in LIFO order
+    assertSame(y, pool.tryAcquire());
+    assertSame(x, pool.tryAcquire());
+    assertNotNull(pool.tryAcquire());
+    assertNull(pool.tryAcquire());
+  }
+
+  public void testTimeout() throws Exception {
+    final InstancePool<String> pool = new InstancePool<String>(Arrays.asList(a));
+    final String x = pool.acquire(1000);
+    assertSame(a, x);
+    long startTime = System.currentTimeMillis();
+    assertNull(pool.acquire(200));
+    assertTrue(System.currentTimeMillis() - startTime >= 200);
+
+    Thread releaser = new Thread() {
+      public void run() {
+        try {
+          Thread.sleep(200);
+        } catch (InterruptedException e) {
+        }
+        pool.release(x);
+      }
+    };
+    releaser.start();
+    assertSame(a, pool.acquire(0));
+    releaser.join();
+  }
+
+  public void testAcquireSpecific() throws Exception {
+    final InstancePool<String> pool = new InstancePool<String>(Arrays.asList(a, b));
+    assertTrue(pool.acquire(b));
+    assertSame(a, pool.tryAcquire());
+    assertFalse(pool.acquire(new String("b")));
+    pool.release(a);
+
+    final AtomicBoolean gotIt = new AtomicBoolean();
+    Thread waiter = new Thread() {
+      public void run() {
+        gotIt.set(pool.acquire(b));
+      }
+    };
+    waiter.start();
+    Thread.sleep(100);
+    // a free instance does not satisfy the waiter
+    assertTrue(waiter.isAlive());
+    assertEquals(1, pool.getNumAvailable());
+    pool.release(b);
+    waiter.join(5000);
+    assertTrue(gotIt.get());
+    assertTrue(pool.isCheckedOut(b));
+    assertFalse(pool.isCheckedOut(a));
+  }
+
+  public void testAcquireAsync() throws Exception {
+    InstancePool<String> pool = new InstancePool<String>(Arrays.asList(a, b));
+    CompletableFuture<String> x = pool.acquireAsync();
+    CompletableFuture<String> y = pool.acquireAsync();
+    assertTrue(x.isDone() && y.isDone());
+    CompletableFuture<String> withdrawn = pool.acquireAsync();
+    CompletableFuture<String> waiting = pool.acquireAsync();
+    assertFalse(waiting.isDone());
+    withdrawn.cancel(false);
+    // a check-in hands the instance to the oldest request still waiting
+    pool.release(x.get());
+    assertSame(x.get(), waiting.getNow(null));
+    assertEquals(0, pool.getNumAvailable());
+    pool.release(y.get());
+    assertEquals(1, pool.getNumAvailable());
+
+    CompletableFuture<String> cancelled = pool.acquireAsync();
+    assertTrue(cancelled.isDone());
+    cancelled = pool.acquireAsync();
+    pool.clear();
+    assertTrue(cancelled.isCancelled());
+  }
+
+  public void testClear() throws Exception {
+    InstancePool<String> pool = new InstancePool<String>(Arrays.asList(a, b));
+    String x = pool.tryAcquire();
+    pool.clear();
+    assertTrue(pool.getFree().isEmpty());
+    assertNull(pool.tryAcquire());
+    assertFalse(pool.release(x));
+    assertEquals(0, pool.getNumAvailable());
+  }
+
+  public void testManyThreads() throws Exception {
+    final int numInstances = 4;
+    final int numThreads = 32;
+    final int numIterations = 2000;
+    List<AtomicBoolean> instances = new ArrayList<AtomicBoolean>();
+    for (int i = 0; i < numInstances; i++) {
+      instances.add(new AtomicBoolean());
+    }
+    final InstancePool<AtomicBoolean> pool = new InstancePool<AtomicBoolean>(instances);
+    final AtomicInteger errors = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      threads[i] = new Thread() {
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            errors.incrementAndGet();
+            return;
+          }
+          for (int j = 0; j < numIterations; j++) {
+            AtomicBoolean inUse = pool.acquire(0);
+            // an instance must never be handed to two threads at once
+            if (!inUse.compareAndSet(false, true)) {
+              errors.incrementAndGet();
+            }
+            Thread.yield();
+            inUse.set(false);
+            if (!pool.release(inUse)) {
+              errors.incrementAndGet();
+            }
+          }
+        }
+      };
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertEquals(0, errors.get());
+    assertEquals(numInstances, pool.getNumAvailable());
+    assertEquals(numInstances, pool.getFree().size());
+  }
+}
@@ -29,9 +29,17 @@ import junit.framework.TestCase;
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.UIMARuntimeException;
 import org.apache.uima.cas.ArrayFS;
+import org.apache.uima.cas.BooleanArrayFS;
+import org.apache.uima.cas.ByteArrayFS;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.DoubleArrayFS;
 import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.LongArrayFS;
+import org.apache.uima.cas.ShortArrayFS;
+import org.apache.uima.cas.StringArrayFS;
+import org.apache.uima.cas.Type;
 import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.cas.impl.LowLevelCAS;
 import org.apache.uima.cas.impl.XCASDeserializer;
@@ -189,6 +197,77 @@ public class CasCopierTest extends TestCase {
     CasComparer.assertEquals(srcCasBase, destCasBase);
   }  
 
+  public void testCopyCasSameTypeSystem() throws Exception {
+    CAS srcCas = CasCreationUtils.createCas(typeSystem, new TypePriorities_impl(), indexes);
+    InputStream serCasStream = new FileInputStream(JUnitExtension
+            .getFile("ExampleCas/multiSofaCas.xml"));
+    XCASDeserializer.deserialize(serCasStream, srcCas);
+    serCasStream.close();
+
+    // share the type system object, so the copy is done a block of heap cells at a time
+    CAS destCas = CasCreationUtils.createCas(srcCas.getTypeSystem(), new TypePriorities_impl(), indexes, null);
+    assertSame(srcCas.getTypeSystem(), destCas.getTypeSystem());
+    CasCopier.copyCas(srcCas, destCas, true);
+    CasComparer.assertEquals(srcCas, destCas);
+    
+    // references to FSs, including cycles, and arrays whose contents are outside of the main heap
+    CAS destCas2 = CasCreationUtils.createCas(srcCas.getTypeSystem(), new TypePriorities_impl(), indexes, null);
+    CasCopier copier = new CasCopier(srcCas, destCas2);
+    Type linkType = srcCas.getTypeSystem().getType("org.apache.uima.testTypeSystem.Link");
+    Feature fromFeat = linkType.getFeatureByBaseName("from");
+    Feature toFeat = linkType.getFeatureByBaseName("to");
+    Feature idFeat = linkType.getFeatureByBaseName("componentId");
+    FeatureStructure link = srcCas.createFS(linkType);
+    link.setStringValue(idFeat, "link1");
+    link.setFeatureValue(fromFeat, link);
+    StringArrayFS strings = srcCas.createStringArrayFS(3);
+    strings.set(0, "a");
+    strings.set(2, "c");
+    link.setFeatureValue(toFeat, strings);
+    FeatureStructure linkCopy = copier.copyFs(link);
+    assertEquals("link1", linkCopy.getStringValue(idFeat));
+    assertEquals(linkCopy, linkCopy.getFeatureValue(fromFeat));
+    StringArrayFS stringsCopy = (StringArrayFS) linkCopy.getFeatureValue(toFeat);
+    assertEquals(destCas2, stringsCopy.getCAS());
+    assertEquals("a", stringsCopy.get(0));
+    assertNull(stringsCopy.get(1));
+    assertEquals("c", stringsCopy.get(2));
+    assertEquals(linkCopy, copier.copyFs(link));
+    
+    LongArrayFS longs = srcCas.createLongArrayFS(2);
+    longs.set(0, Long.MAX_VALUE);
+    longs.set(1, -1L);
+    LongArrayFS longsCopy = (LongArrayFS) copier.copyFs(longs);
+    assertEquals(Long.MAX_VALUE, longsCopy.get(0));
+    assertEquals(-1L, longsCopy.get(1));
+    
+    DoubleArrayFS doubles = srcCas.createDoubleArrayFS(1);
+    doubles.set(0, 1.5d);
+    assertEquals(1.5d, ((DoubleArrayFS) copier.copyFs(doubles)).get(0));
+    
+    ByteArrayFS bytes = srcCas.createByteArrayFS(2);
+    bytes.set(1, (byte) 7);
+    ByteArrayFS bytesCopy = (ByteArrayFS) copier.copyFs(bytes);
+    assertEquals(0, bytesCopy.get(0));
+    assertEquals(7, bytesCopy.get(1));
+
+    ShortArrayFS shorts = srcCas.createShortArrayFS(1);
+    shorts.set(0, (short) -3);
+    assertEquals(-3, ((ShortArrayFS) copier.copyFs(shorts)).get(0));
+    
+    BooleanArrayFS booleans = srcCas.createBooleanArrayFS(2);
+    booleans.set(1, true);
+    BooleanArrayFS booleansCopy = (BooleanArrayFS) copier.copyFs(booleans);
+    assertFalse(booleansCopy.get(0));
+    assertTrue(booleansCopy.get(1));
+
+    ArrayFS fsArray = srcCas.createArrayFS(2);
+    fsArray.set(0, link);
+    ArrayFS fsArrayCopy = (ArrayFS) copier.copyFs(fsArray);
+    assertEquals(linkCopy, fsArrayCopy.get(0));
+    assertNull(fsArrayCopy.get(1));
+  }
+
   public void testCopyCasView() throws Exception {
     // create a source CAS by deserializing from XCAS
     CAS srcCas = CasCreationUtils.createCas(typeSystem, new TypePriorities_impl(), indexes);
@@ -27,6 +27,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -197,6 +198,18 @@ public class CasIOUtilsTest extends TestCase{
     casInputStream.close();
     Assert.assertEquals(format, loadedFormat);
     assertCorrectlyLoaded(casToUse, leniently);
+    
+    // again, memory mapped
+    casToUse.reset();
+    loadedFormat = CasIOUtils.load(casFile.toPath(), null, casToUse, leniently ? CasLoadMode.LENIENT : CasLoadMode.DEFAULT);
+    Assert.assertEquals(format, loadedFormat);
+    assertCorrectlyLoaded(casToUse, leniently);
+    if (format == SerialFormat.BINARY) {
+      // bulk copied heaps: saving again gives the same bytes
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      CasIOUtils.save(casToUse, baos, format);
+      Assert.assertArrayEquals(Files.readAllBytes(casFile.toPath()), baos.toByteArray());
+    }
   }
   
   private static void assertCorrectlyLoaded(CAS cas, boolean leniently) throws Exception {
@@ -269,6 +282,24 @@ public class CasIOUtilsTest extends TestCase{
     Assert.fail("An exception should have been thrown for wrong format.");
   }
   
+  public void testJsonDetection() throws Exception {
+    // pretty printed, with more leading whitespace than the other format checks look at, and a BOM
+    String json = "\n\n    \t\r\n  {\n    \"_context\" : {\n      \"_types\" : { }\n    }\n  }\n";
+    byte[] bom = new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    byte[] jsonBytes = json.getBytes("UTF-8");
+    byte[] withBom = new byte[bom.length + jsonBytes.length];
+    System.arraycopy(bom, 0, withBom, 0, bom.length);
+    System.arraycopy(jsonBytes, 0, withBom, bom.length, jsonBytes.length);
+    
+    ByteArrayInputStream in = new ByteArrayInputStream(withBom);
+    assertTrue(CasIOUtils.isJson(in));
+    assertEquals(0xEF, in.read());  // reset to the start
+    assertTrue(CasIOUtils.isJson(new ByteArrayInputStream(jsonBytes)));
+    assertFalse(CasIOUtils.isJson(new ByteArrayInputStream("  <?xml version=\"1.0\"?>".getBytes("UTF-8"))));
+    assertFalse(CasIOUtils.isJson(new ByteArrayInputStream(new byte[] {(byte) 0xEF, (byte) 0xBB, '{'})));
+    assertFalse(CasIOUtils.isJson(new ByteArrayInputStream(new byte[0])));
+  }
+  
   
   protected void tearDown() throws Exception {
     cas.release();
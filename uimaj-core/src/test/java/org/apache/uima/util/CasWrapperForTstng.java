@@ -306,5 +306,15 @@ public class CasWrapperForTstng implements CAS {
   public AutoCloseable protectIndexes() {
     return originalCAS.protectIndexes();
   }
+
+  @Override
+  public void freeze() {
+    originalCAS.freeze();
+  }
+
+  @Override
+  public boolean isFrozen() {
+    return originalCAS.isFrozen();
+  }
   
 }
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
+import org.w3c.dom.Document;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+
+public class DirectXmlWriterTest extends TestCase {
+  
+  private static final String NASTY = "a&b<c>d\"e'f\tg\nh\ri é€😀 ]]>";
+
+  public void testSimple() throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    ContentHandler ch = new DirectXmlWriter(baos);
+    ch.startDocument();
+    ch.startElement("","foo","foo", new AttributesImpl());
+    ch.endElement("", "foo", "foo");
+    ch.endDocument();
+    assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?><foo/>", new String(baos.toByteArray(), "UTF-8"));    
+  }
+  
+  /**
+   * Parsed, the output must be the same as XMLSerializer's, 
+   * including with a buffer small enough to be flushed many times
+   */
+  public void testSameAsXMLSerializer() throws Exception {
+    for (boolean formatted : new boolean[] {false, true}) {
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      writeSample(new XMLSerializer(expected, formatted).getContentHandler());
+      ByteArrayOutputStream actual = new ByteArrayOutputStream();
+      writeSample(new DirectXmlWriter(actual, formatted, 16));
+      assertTrue(parse(expected.toByteArray()).isEqualNode(parse(actual.toByteArray())));
+    }
+  }
+  
+  public void testReuse() throws Exception {
+    DirectXmlWriter w = new DirectXmlWriter(null);
+    byte[] first = null;
+    for (int i = 0; i < 2; i++) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      w.setOutputStream(baos);
+      writeSample(w);
+      if (first == null) {
+        first = baos.toByteArray();
+      } else {
+        assertEquals(new String(first, "UTF-8"), new String(baos.toByteArray(), "UTF-8"));
+      }
+    }
+  }
+  
+  public void testXml10Error() throws Exception {
+    ContentHandler ch = new DirectXmlWriter(new ByteArrayOutputStream());
+    ch.startDocument();
+    ch.startElement("","foo","foo", new AttributesImpl());
+    try {
+      ch.characters(new char[] {32, 33, 5, 34}, 0, 4);
+      fail("required exception not thrown");
+    } catch (SAXParseException e) {
+      String expected = "Trying to serialize non-XML 1.0 character: " + "0x5 at offset 2";
+      assertEquals(expected, e.getMessage().substring(0, expected.length()));
+    }
+    try {
+      ch.characters(new char[] {'a', '\ud83d'}, 0, 2);  // unpaired surrogate
+      fail("required exception not thrown");
+    } catch (SAXParseException e) {
+    }
+  }
+  
+  public void testXmi() throws Exception {
+    TypeSystemDescription tsd = new TypeSystemDescription_impl();
+    CAS cas = CasCreationUtils.createCas(tsd, null, null);
+    cas.setDocumentText(NASTY);
+    for (int i = 0; i < 5; i++) {
+      cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), i, i + 3));
+    }
+    cas.createView("second").setDocumentText("more " + NASTY);
+    
+    for (boolean formatted : new boolean[] {false, true}) {
+      // the static serialize methods use the DirectXmlWriter
+      ByteArrayOutputStream direct = new ByteArrayOutputStream();
+      XmiCasSerializer.serialize(cas, null, direct, formatted, null);
+      
+      ByteArrayOutputStream jaxp = new ByteArrayOutputStream();
+      new XmiCasSerializer(null).serialize(cas, new XMLSerializer(jaxp, formatted).getContentHandler());
+      assertTrue(parse(jaxp.toByteArray()).isEqualNode(parse(direct.toByteArray())));
+      
+      CAS cas2 = CasCreationUtils.createCas(tsd, null, null);
+      XmiCasDeserializer.deserialize(new ByteArrayInputStream(direct.toByteArray()), cas2);
+      assertEquals(NASTY, cas2.getDocumentText());
+      assertEquals("more " + NASTY, cas2.getView("second").getDocumentText());
+      assertEquals(6, cas2.getAnnotationIndex().size());
+    }
+  }
+  
+  public void testIntAttributes() throws Exception {
+    IntAttributesImpl attrs = new IntAttributesImpl();
+    attrs.addAttribute("", "a", "a", "CDATA", -42);
+    attrs.addAttribute("", "b", "b", "CDATA", "x");
+    attrs.addAttribute("", "c", "c", "CDATA", 42);
+    assertTrue(attrs.isIntValue(0));
+    assertFalse(attrs.isIntValue(1));
+    assertEquals("-42", attrs.getValue(0));
+    assertEquals("42", attrs.getValue("c"));
+    assertEquals("x", attrs.getValue("", "b"));
+    attrs.removeAttribute(0);
+    assertEquals("42", attrs.getValue(1));
+    attrs.setValue(1, "y");
+    assertFalse(attrs.isIntValue(1));
+    assertEquals("y", attrs.getValue("c"));
+    attrs.clear();
+    attrs.addAttribute("", "d", "d", "CDATA", "z");
+    assertFalse(attrs.isIntValue(0));
+    
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    ContentHandler ch = new DirectXmlWriter(baos);
+    attrs.clear();
+    attrs.addAttribute("", "n", "n", "CDATA", Integer.MIN_VALUE);
+    ch.startDocument();
+    ch.startElement("","foo","foo", attrs);
+    ch.endElement("", "foo", "foo");
+    ch.endDocument();
+    assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?><foo n=\"-2147483648\"/>", 
+        new String(baos.toByteArray(), "UTF-8"));    
+  }
+  
+  private static void writeSample(ContentHandler ch) throws SAXException {
+    ch.startDocument();
+    AttributesImpl attrs = new AttributesImpl();
+    attrs.addAttribute("", "a", "a", "CDATA", NASTY);
+    attrs.addAttribute("", "b", "b", "CDATA", "");
+    ch.startElement("", "root", "root", attrs);
+    IntAttributesImpl intAttrs = new IntAttributesImpl();
+    intAttrs.addAttribute("", "s", "s", "CDATA", NASTY);
+    int[] ints = {0, 7, -1, 1234567890, Integer.MIN_VALUE, Integer.MAX_VALUE};
+    for (int i = 0; i < ints.length; i++) {
+      intAttrs.addAttribute("", "i" + i, "i" + i, "CDATA", ints[i]);
+    }
+    for (int i = 0; i < 3; i++) {
+      ch.startElement("", "child", "child", intAttrs);
+      ch.startElement("", "empty", "empty", attrs);
+      ch.endElement("", "empty", "empty");
+      ch.endElement("", "child", "child");
+      ch.startElement("", "text", "text", new AttributesImpl());
+      ch.characters(NASTY.toCharArray(), 0, NASTY.length());
+      ch.endElement("", "text", "text");
+    }
+    ch.endElement("", "root", "root");
+    ch.endDocument();
+  }
+  
+  private static Document parse(byte[] xml) throws Exception {
+    DocumentBuilderFactory f = DocumentBuilderFactory.newInstance();
+    f.setIgnoringElementContentWhitespace(true);
+    Document d = f.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+    d.normalizeDocument();
+    return d;
+  }
+}
@@ -0,0 +1,1167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.json;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASRuntimeException;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.SofaFS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.impl.AllowPreexistingFS;
+import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.CasSerializerSupport;
+import org.apache.uima.cas.impl.FSIndexRepositoryImpl;
+import org.apache.uima.cas.impl.FeatureImpl;
+import org.apache.uima.cas.impl.ListUtils;
+import org.apache.uima.cas.impl.LowLevelCAS;
+import org.apache.uima.cas.impl.TypeImpl;
+import org.apache.uima.cas.impl.TypeSystemImpl;
+import org.apache.uima.cas.impl.XmiSerializationSharedData;
+import org.apache.uima.internal.util.Int2IntHashMap;
+import org.apache.uima.internal.util.IntVector;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * <p>Reads a CAS from the JSON written by {@link JsonCasSerializer}.</p>
+ * 
+ * <p>The input is read in one streaming pass: FSs are created as they are encountered, 
+ * references to FSs not yet seen are recorded and fixed up at the end, and the 
+ * index additions are collected and done in bulk, per view, once all references are resolved.</p>
+ * 
+ * <p>References are by the ids the serializer wrote, so every referenced FS must have been written with an id:
+ * this is the case for the default (dynamic embedding) output, and for the output produced when a
+ * Marker or an XmiSerializationSharedData was passed to the serializer. It is not the case for output
+ * made with {@link JsonCasSerializer#setStaticEmbedding()}, where indexed FSs are written without their ids.</p>
+ * 
+ * <p>All the {@link JsonCasSerializer.JsonContextFormat} variants can be read. Only the type names of the _context 
+ * are used; everything else comes from the CAS's type system. Without the expanded type names, 
+ * short names are resolved against the type system, and namespace-prefixed names (written when short names collide) 
+ * by the last part of their namespace; where that is ambiguous, the input must have the expanded type names.</p>
+ * 
+ * <p>{@link org.apache.uima.util.CasIOUtils} uses this class to load JSON input, and JsonCasSerializer to save in
+ * {@link org.apache.uima.cas.SerialFormat#JSON} format.</p>
+ * 
+ * <p>Merging (including applying a Delta CAS) works as for {@link org.apache.uima.cas.impl.XmiCasDeserializer}: 
+ * pass the XmiSerializationSharedData used when serializing the CAS, and its max id at that time as the merge point.
+ * Ids at or below the merge point refer to FSs already in the CAS; those above are new FSs.
+ * What happens to preexisting FSs in the input is controlled by an {@link AllowPreexistingFS} value.</p>
+ * 
+ * <p>As with the serializer, an instance may be configured once and then used by multiple threads.</p>
+ */
+public class JsonCasDeserializer {
+  
+  private static final String CONTEXT_NAME = "_context";
+  private static final String TYPES_NAME = "_types";
+  private static final String ID_NAME = "_id";
+  private static final String VIEWS_NAME = "_views";
+  private static final String REFERENCED_FSS_NAME = "_referenced_fss";
+  private static final String TYPE_NAME = "_type";
+  private static final String COLLECTION_NAME = "_collection";
+  private static final String DELTA_CAS_NAME = "_delta_cas";
+  private static final String ADDED_MEMBERS_NAME = "added_members";
+  private static final String DELETED_MEMBERS_NAME = "deleted_members";
+  
+  private JsonFactory jsonFactory = null;
+  
+  private boolean isLenient = false;
+  
+  /**
+   * Creates a new JsonCasDeserializer
+   */
+  public JsonCasDeserializer() {
+  }
+  
+  /**
+   * Deserializes a CAS from JSON, replacing the CAS's contents
+   * @param aCAS the CAS to fill; its type system must contain the types and features in the JSON
+   * @param input a File, InputStream or Reader to read the JSON from
+   * @throws IOException if there was an IOException, or the JSON was not valid for this CAS
+   */
+  public static void jsonDeserialize(CAS aCAS, Object input) throws IOException {
+    new JsonCasDeserializer().deserialize(aCAS, input);
+  }
+  
+  /**
+   * Deserializes a CAS from JSON, or merges a (Delta) CAS into it
+   * @param aCAS the CAS to fill or merge into
+   * @param input a File, InputStream or Reader to read the JSON from
+   * @param sharedData if not null, receives the ids of the deserialized FSs (when not merging), 
+   *          or supplies the ids of the preexisting FSs (when merging)
+   * @param mergePoint -1 to reset the CAS and deserialize everything; 
+   *          otherwise, ids at or below this are preexisting FSs, and the CAS is not reset 
+   * @param allowPreexistingFS what to do with preexisting FSs and index updates to them, when merging
+   * @throws IOException if there was an IOException, or the JSON was not valid for this CAS
+   */
+  public static void jsonDeserialize(CAS aCAS, Object input, XmiSerializationSharedData sharedData, 
+      int mergePoint, AllowPreexistingFS allowPreexistingFS) throws IOException {
+    new JsonCasDeserializer().deserialize(aCAS, input, sharedData, mergePoint, allowPreexistingFS);
+  }
+  
+  /**
+   * set which JsonFactory instance to use; if null, a new instance is used
+   * @param jsonFactory -
+   * @return the original instance, possibly updated
+   */
+  public JsonCasDeserializer setJsonFactory(JsonFactory jsonFactory) {
+    this.jsonFactory = jsonFactory;
+    return this;
+  }
+  
+  /**
+   * @param lenient true to skip types and features not in the CAS's type system, and 
+   *   to set references to FSs not in the input to null, instead of failing
+   * @return the original instance, possibly updated
+   */
+  public JsonCasDeserializer setLenient(boolean lenient) {
+    isLenient = lenient;
+    return this;
+  }
+  
+  /**
+   * Deserialize a CAS from an input (File, InputStream or Reader), replacing the CAS's contents.
+   * Streams and Readers are not closed.
+   * @param cas the CAS to fill
+   * @param input where to read the JSON from
+   * @throws IOException if there was an IOException, or the JSON was not valid for this CAS
+   */
+  public void deserialize(CAS cas, Object input) throws IOException {
+    deserialize(cas, input, null, -1, AllowPreexistingFS.ignore);
+  }
+
+  /**
+   * Deserialize a CAS, or merge a (Delta) CAS into it, from an input (File, InputStream or Reader).
+   * Streams and Readers are not closed.
+   * @param cas the CAS to fill or merge into
+   * @param input where to read the JSON from
+   * @param sharedData see {@link #jsonDeserialize(CAS, Object, XmiSerializationSharedData, int, AllowPreexistingFS)}
+   * @param mergePoint see {@link #jsonDeserialize(CAS, Object, XmiSerializationSharedData, int, AllowPreexistingFS)}
+   * @param allowPreexistingFS see {@link #jsonDeserialize(CAS, Object, XmiSerializationSharedData, int, AllowPreexistingFS)}
+   * @throws IOException if there was an IOException, or the JSON was not valid for this CAS
+   */
+  public void deserialize(CAS cas, Object input, XmiSerializationSharedData sharedData, 
+      int mergePoint, AllowPreexistingFS allowPreexistingFS) throws IOException {
+    final JsonFactory f = (jsonFactory == null) ? new JsonFactory() : jsonFactory;
+    final JsonParser jp;
+    if (input instanceof File) {
+      jp = f.createParser((File) input);
+    } else {
+      if (input instanceof InputStream) {
+        jp = f.createParser((InputStream) input);
+      } else if (input instanceof Reader) {
+        jp = f.createParser((Reader) input);
+      } else {
+        throw new IllegalArgumentException("input must be a File, InputStream or Reader, but was " + 
+            ((input == null) ? "null" : input.getClass().getName()));
+      }
+      jp.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);  // the caller's
+    }
+    try {
+      deserialize(cas, jp, sharedData, mergePoint, allowPreexistingFS);
+    } finally {
+      jp.close();
+    }
+  }
+  
+  /**
+   * Deserialize a CAS, or merge a (Delta) CAS into it, reading from a configured Jackson parser
+   * @param cas the CAS to fill or merge into
+   * @param jp the parser, positioned before the start of the JSON object holding the CAS
+   * @param sharedData see {@link #jsonDeserialize(CAS, Object, XmiSerializationSharedData, int, AllowPreexistingFS)}
+   * @param mergePoint see {@link #jsonDeserialize(CAS, Object, XmiSerializationSharedData, int, AllowPreexistingFS)}
+   * @param allowPreexistingFS see {@link #jsonDeserialize(CAS, Object, XmiSerializationSharedData, int, AllowPreexistingFS)}
+   * @throws IOException if there was an IOException, or the JSON was not valid for this CAS
+   */
+  public void deserialize(CAS cas, JsonParser jp, XmiSerializationSharedData sharedData, 
+      int mergePoint, AllowPreexistingFS allowPreexistingFS) throws IOException {
+    new JsonDocDeserializer(((CASImpl) cas).getBaseCAS(), jp, sharedData, mergePoint, allowPreexistingFS).deserialize();
+  }
+  
+  /**
+   * The state for one deserialization
+   */
+  private class JsonDocDeserializer {
+    
+    private final CASImpl cas;
+    
+    private final TypeSystemImpl tsi;
+    
+    private final JsonParser jp;
+    
+    private final XmiSerializationSharedData sharedData;
+    
+    private final int mergePoint;
+    
+    private final AllowPreexistingFS allowPreexistingFS;
+
+    private final ListUtils listUtils;
+    
+    private final int sofaTypeCode;
+    
+    private final int sofaMimeFeatCode;
+    private final int sofaStringFeatCode;
+    private final int sofaUriFeatCode;
+    private final int sofaArrayFeatCode;
+    
+    /** by feature code, the LowLevelCAS.TYPE_CLASS_xxx or CasSerializerSupport.TYPE_CLASS_xxxLIST of its range */
+    private final int[] featureClass;
+    
+    /** from the _context: the names used in the JSON to the full type names */
+    private final Map<String, String> contextTypeNames = new HashMap<String, String>();
+    
+    private final Map<String, TypeImpl> typeByJsonName = new HashMap<String, TypeImpl>();
+    
+    /** for resolving type names when there's no _context; built on first use */
+    private Map<String, List<TypeImpl>> typesByShortName = null;
+    
+    /** when merging, the ids of FSs above the merge point; these may be reused by different merges */
+    private final Int2IntHashMap localIdToAddr = new Int2IntHashMap();
+    
+    /** forward references: the FS, the feature code (or -1 - the array index), and the id referred to */
+    private final IntVector fixupAddrs = new IntVector();
+    private final IntVector fixupSlots = new IntVector();
+    private final IntVector fixupIds = new IntVector();
+    
+    /** by index repository, the FSs to add / remove: addresses, or -id if not yet resolved */
+    private final Map<FSIndexRepositoryImpl, IntVector> toBeAdded = new LinkedHashMap<FSIndexRepositoryImpl, IntVector>();
+    private final Map<FSIndexRepositoryImpl, IntVector> toBeRemoved = new LinkedHashMap<FSIndexRepositoryImpl, IntVector>();
+    
+    private final Map<String, CAS> viewsByName = new HashMap<String, CAS>();
+    
+    /** names of the views which were in the CAS before merging */
+    private final Set<String> preexistingViews = new HashSet<String>();
+    
+    /** views whose Sofa was created by this deserialization */
+    private final List<CAS> viewsWithNewSofa = new ArrayList<CAS>();
+    
+    private boolean disallowedViewMemberEncountered = false;
+    
+    private JsonDocDeserializer(CASImpl cas, JsonParser jp, XmiSerializationSharedData sharedData, 
+        int mergePoint, AllowPreexistingFS allowPreexistingFS) {
+      this.cas = cas;
+      this.tsi = cas.getTypeSystemImpl();
+      this.jp = jp;
+      this.sharedData = (sharedData != null) ? sharedData : new XmiSerializationSharedData();
+      this.mergePoint = mergePoint;
+      this.allowPreexistingFS = allowPreexistingFS;
+      if (mergePoint < 0) {
+        cas.resetNoQuestions();
+        this.sharedData.clearIdMap();
+      } else {
+        Iterator<CAS> it = cas.getViewIterator();
+        while (it.hasNext()) {
+          CAS view = it.next();
+          viewsByName.put(view.getViewName(), view);
+          preexistingViews.add(view.getViewName());
+        }
+      }
+      listUtils = new ListUtils(cas, null, null);
+      sofaTypeCode = tsi.ll_getCodeForTypeName(CAS.TYPE_NAME_SOFA);
+      sofaMimeFeatCode = tsi.ll_getCodeForFeatureName(CAS.FEATURE_FULL_NAME_SOFAMIME);
+      sofaStringFeatCode = tsi.ll_getCodeForFeatureName(CAS.FEATURE_FULL_NAME_SOFASTRING);
+      sofaUriFeatCode = tsi.ll_getCodeForFeatureName(CAS.FEATURE_FULL_NAME_SOFAURI);
+      sofaArrayFeatCode = tsi.ll_getCodeForFeatureName(CAS.FEATURE_FULL_NAME_SOFAARRAY);
+      featureClass = new int[tsi.getNumberOfFeatures() + 1];
+      Iterator<Feature> it = tsi.getFeatures();
+      while (it.hasNext()) {
+        final int featCode = ((FeatureImpl) it.next()).getCode();
+        featureClass[featCode] = classifyType(tsi.range(featCode));
+      }
+    }
+    
+    private int classifyType(int typeCode) {
+      return listUtils.isIntListType(typeCode)    ? CasSerializerSupport.TYPE_CLASS_INTLIST :
+             listUtils.isFloatListType(typeCode)  ? CasSerializerSupport.TYPE_CLASS_FLOATLIST :
+             listUtils.isStringListType(typeCode) ? CasSerializerSupport.TYPE_CLASS_STRINGLIST :
+             listUtils.isFsListType(typeCode)     ? CasSerializerSupport.TYPE_CLASS_FSLIST :
+                                                    cas.ll_getTypeClass(typeCode);
+    }
+    
+    private void deserialize() throws IOException {
+      if (jp.nextToken() != JsonToken.START_OBJECT) {
+        throw error("JSON CAS must start with an object");
+      }
+      // when merging, preexisting FSs being updated are taken out of the indexes until the end
+      final AutoCloseable protectedIndexes = (mergePoint < 0) ? null : cas.protectIndexes();
+      try {
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+          final String name = jp.getCurrentName();
+          jp.nextToken();
+          if (CONTEXT_NAME.equals(name)) {
+            readContext();
+          } else if (VIEWS_NAME.equals(name)) {
+            readViews();
+          } else if (REFERENCED_FSS_NAME.equals(name)) {
+            readReferencedFss();
+          } else if (DELTA_CAS_NAME.equals(name)) {
+            readDeltaCas();
+          } else {
+            jp.skipChildren();
+          }
+        }
+      } finally {
+        if (protectedIndexes != null) {
+          try {
+            protectedIndexes.close();
+          } catch (Exception e) {
+            throw new RuntimeException(e);  // never happen, adding back to the indexes throws no checked exceptions
+          }
+        }
+      }
+      
+      resolveForwardRefs();
+      
+      updateIndexes();
+      
+      for (CAS view : viewsWithNewSofa) {
+        ((CASImpl) view).updateDocumentAnnotation();
+      }
+      
+      if (disallowedViewMemberEncountered) {
+        throw new CASRuntimeException(CASRuntimeException.DELTA_CAS_PREEXISTING_FS_DISALLOWED,
+            new String[] {"Preexisting FS view member encountered."});
+      }
+    }
+    
+    /**
+     * _context : { _types : { jsonTypeName : { _id : fullTypeName, ... }, ... }, ... }
+     * only the type names are needed, the rest is derivable from the CAS's type system
+     */
+    private void readContext() throws IOException {
+      while (jp.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = jp.getCurrentName();
+        jp.nextToken();
+        if (!TYPES_NAME.equals(name)) {
+          jp.skipChildren();
+          continue;
+        }
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+          final String jsonTypeName = jp.getCurrentName();
+          jp.nextToken();
+          while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String itemName = jp.getCurrentName();
+            jp.nextToken();
+            if (ID_NAME.equals(itemName)) {
+              contextTypeNames.put(jsonTypeName, jp.getText());
+            } else {
+              jp.skipChildren();
+            }
+          }
+        }
+      }
+    }
+    
+    /**
+     * _views : { viewName : { jsonTypeName : [ {fs} or id, ... ], ... }, ... }
+     * 
+     * Objects are FSs without id (new); numbers are ids of FSs in _referenced_fss or, when merging, in the CAS.
+     */
+    private void readViews() throws IOException {
+      while (jp.nextToken() == JsonToken.FIELD_NAME) {
+        final String viewName = jp.getCurrentName();
+        final CAS view = getOrCreateView(viewName);
+        final boolean isNewView = !preexistingViews.contains(viewName);
+        final IntVector todo = getTodo(toBeAdded, view);
+        jp.nextToken();  // start of the by-type object
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+          final TypeImpl type = getType(jp.getCurrentName());
+          jp.nextToken();  // start of the array of FSs
+          if (type == null) {
+            jp.skipChildren();
+            continue;
+          }
+          JsonToken t;
+          while ((t = jp.nextToken()) != JsonToken.END_ARRAY) {
+            if (t == JsonToken.START_OBJECT) {
+              todo.add(readFs(type, -1));
+            } else {
+              final int id = jp.getIntValue();
+              if (isNewView || !isPreexisting(id) || isAllowedPreexistingViewMember()) {
+                todo.add(-id);
+              }
+            }
+          }
+        }
+      }
+    }
+    
+    /**
+     * _referenced_fss : { id : { _type : jsonTypeName, ... }, ... }
+     */
+    private void readReferencedFss() throws IOException {
+      while (jp.nextToken() == JsonToken.FIELD_NAME) {
+        final int id;
+        try {
+          id = Integer.parseInt(jp.getCurrentName());
+        } catch (NumberFormatException e) {
+          throw error("Expected an FS id, found: " + jp.getCurrentName());
+        }
+        jp.nextToken();
+        readFs(null, id);
+      }
+    }
+    
+    /**
+     * _delta_cas : { sofaId : [ id, ... ]     // a new view, and all its members 
+     *                sofaId : { added_members : [ id, ... ], deleted_members : [ id, ... ], reindexed_members : [ id, ... ] }, ... }
+     *                
+     * Sofa id 0 is the initial view, when it has no Sofa. 
+     * Reindexed members need nothing done: updates of preexisting FSs were reindexed as they were applied.
+     */
+    private void readDeltaCas() throws IOException {
+      while (jp.nextToken() == JsonToken.FIELD_NAME) {
+        final int sofaId;
+        try {
+          sofaId = Integer.parseInt(jp.getCurrentName());
+        } catch (NumberFormatException e) {
+          throw error("Expected a Sofa id, found: " + jp.getCurrentName());
+        }
+        final CAS view = getViewForSofaId(sofaId);
+        final boolean isNewView = sofaId != 0 && !isPreexisting(sofaId);
+        if (jp.nextToken() == JsonToken.START_ARRAY) {
+          readViewMembers(getTodo(toBeAdded, view), isNewView);
+          continue;
+        }
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+          final String kind = jp.getCurrentName();
+          jp.nextToken();
+          if (ADDED_MEMBERS_NAME.equals(kind)) {
+            readViewMembers(getTodo(toBeAdded, view), isNewView);
+          } else if (DELETED_MEMBERS_NAME.equals(kind)) {
+            readViewMembers(getTodo(toBeRemoved, view), isNewView);
+          } else {
+            jp.skipChildren();
+          }
+        }
+      }
+    }
+    
+    private void readViewMembers(IntVector todo, boolean isNewView) throws IOException {
+      while (jp.nextToken() != JsonToken.END_ARRAY) {
+        final int id = jp.getIntValue();
+        if (isNewView || !isPreexisting(id) || isAllowedPreexistingViewMember()) {
+          todo.add(-id);
+        }
+      }
+    }
+    
+    /**
+     * For an index update to a preexisting FS in a preexisting view: 
+     * ignore it, or flag it, unless allowed
+     */
+    private boolean isAllowedPreexistingViewMember() {
+      if (allowPreexistingFS == AllowPreexistingFS.disallow) {
+        disallowedViewMemberEncountered = true;
+      }
+      return allowPreexistingFS == AllowPreexistingFS.allow;
+    }
+    
+    /**
+     * Read one FS, from its start object token through its end object token
+     * @param type the type, or null if the FS has a _type (as do FSs not directly under _views)
+     * @param id the FS's id, or -1 if it has none (it is then a new FS)
+     * @return the address of the FS, or 0 if it was skipped
+     */
+    private int readFs(TypeImpl type, int id) throws IOException {
+      JsonToken t = jp.nextToken();
+      if (t == JsonToken.FIELD_NAME && TYPE_NAME.equals(jp.getCurrentName())) {
+        jp.nextToken();
+        final TypeImpl typeInJson = getType(jp.getText());
+        if (type == null) {
+          type = typeInJson;
+        }
+        t = jp.nextToken();
+      }
+      if (type == null) {
+        if (jp.getCurrentToken() != JsonToken.END_OBJECT && !isLenient) {
+          throw error("No _type for the FS");
+        }
+        skipRestOfObject();
+        return 0;
+      }
+      final int typeCode = type.getCode();
+      
+      if (typeCode == sofaTypeCode) {
+        return readSofa(id);
+      }
+      
+      int addr = 0;
+      final boolean isPreexisting = isPreexisting(id);
+      if (isPreexisting) {
+        if (allowPreexistingFS == AllowPreexistingFS.disallow) {
+          throw new CASRuntimeException(CASRuntimeException.DELTA_CAS_PREEXISTING_FS_DISALLOWED,
+              new String[] {ID_NAME + "=" + id + ", " + TYPE_NAME + "=" + type.getName()});
+        }
+        addr = getAddrForId(id);
+        if (allowPreexistingFS == AllowPreexistingFS.ignore || addr <= 0) {
+          if (addr <= 0 && !isLenient) {
+            throw error("Unknown preexisting FS id: " + id);
+          }
+          skipRestOfObject();
+          return Math.max(0, addr);
+        }
+      }
+      
+      if (cas.isArrayType(typeCode)) {
+        if (t == JsonToken.FIELD_NAME && COLLECTION_NAME.equals(jp.getCurrentName())) {
+          jp.nextToken();
+          final int arrayAddr = readArray(typeCode, addr);
+          if (isPreexisting && arrayAddr != addr) {
+            throw error("The length of the preexisting array with id " + id + " changed");
+          }
+          addr = arrayAddr;
+          jp.nextToken();
+        } else {
+          addr = readArrayOfLength0(typeCode, addr);
+        }
+        skipRestOfObject();
+        addIdMapping(addr, id);
+        return addr;
+      }
+      
+      if (!isPreexisting) {
+        addr = cas.ll_createFS(typeCode);
+        addIdMapping(addr, id);
+      }
+      final IntVector featsSeen = isPreexisting ? new IntVector() : null;
+      while (t == JsonToken.FIELD_NAME) {
+        final String featName = jp.getCurrentName();
+        jp.nextToken();
+        final FeatureImpl feat = (FeatureImpl) type.getFeatureByBaseName(featName);
+        if (feat == null) {
+          if (!isLenient) {
+            throw error("Unknown feature " + featName + " for type " + type.getName());
+          }
+          jp.skipChildren();
+        } else {
+          readFeatureValue(addr, feat.getCode(), isPreexisting);
+          if (isPreexisting) {
+            featsSeen.add(feat.getCode());
+          }
+        }
+        t = jp.nextToken();
+      }
+      
+      if (isPreexisting) {
+        // features not written are null / 0 (the serializer omits these)
+        for (int featCode : tsi.ll_getAppropriateFeatures(typeCode)) {
+          if (!featsSeen.contains(featCode)) {
+            cas.setFeatureValue(addr, featCode, CASImpl.NULL);
+          }
+        }
+      }
+      return addr;
+    }
+    
+    /**
+     * Sofas are created via their views; the sofaNum is assigned by the receiving CAS.
+     * Preexisting Sofas are not updated.
+     */
+    private int readSofa(int id) throws IOException {
+      String sofaID = null;
+      String mimeType = null;
+      String sofaString = null;
+      String sofaURI = null;
+      int sofaArray = 0;
+      int sofaArrayId = 0;
+      JsonToken t = jp.getCurrentToken();
+      while (t == JsonToken.FIELD_NAME) {
+        final String featName = jp.getCurrentName();
+        t = jp.nextToken();
+        if (t != JsonToken.VALUE_NULL) {
+          if (CAS.FEATURE_BASE_NAME_SOFAID.equals(featName)) {
+            sofaID = jp.getText();
+          } else if (CAS.FEATURE_BASE_NAME_SOFAMIME.equals(featName)) {
+            mimeType = jp.getText();
+          } else if (CAS.FEATURE_BASE_NAME_SOFASTRING.equals(featName)) {
+            sofaString = jp.getText();
+          } else if (CAS.FEATURE_BASE_NAME_SOFAURI.equals(featName)) {
+            sofaURI = jp.getText();
+          } else if (CAS.FEATURE_BASE_NAME_SOFAARRAY.equals(featName)) {
+            if (t == JsonToken.START_OBJECT) {
+              sofaArray = readFs(null, -1);
+            } else {
+              sofaArrayId = jp.getIntValue();
+              sofaArray = getAddrForIdIfKnown(sofaArrayId);
+            }
+          } else {
+            jp.skipChildren();
+          }
+        }
+        t = jp.nextToken();
+      }
+      
+      if (isPreexisting(id)) {
+        if (allowPreexistingFS == AllowPreexistingFS.disallow) {
+          throw new CASRuntimeException(CASRuntimeException.DELTA_CAS_PREEXISTING_FS_DISALLOWED,
+              new String[] {ID_NAME + "=" + id + ", " + CAS.FEATURE_BASE_NAME_SOFAID + "=" + sofaID});
+        }
+        return Math.max(0, getAddrForId(id));
+      }
+      
+      if (sofaID == null) {
+        throw error("Sofa without a sofaID");
+      }
+      if (sofaID.equals("_DefaultTextSofaName")) {
+        sofaID = CAS.NAME_DEFAULT_SOFA;
+      }
+      final CASImpl view = (CASImpl) getOrCreateView(sofaID);
+      final int sofaAddr = view.getSofaRef();  // creates the initial view's Sofa, if needed
+      addIdMapping(sofaAddr, id);
+      // the Sofa features are set directly: the document annotation may be in the input, 
+      // so it is only created (if missing) at the end
+      if (cas.ll_getStringValue(sofaAddr, sofaStringFeatCode) == null &&
+          cas.ll_getStringValue(sofaAddr, sofaUriFeatCode) == null &&
+          cas.ll_getRefValue(sofaAddr, sofaArrayFeatCode) == 0) {
+        if (sofaString != null) {
+          cas.ll_setStringValue(sofaAddr, sofaStringFeatCode, sofaString);
+        } else if (sofaURI != null) {
+          cas.ll_setStringValue(sofaAddr, sofaUriFeatCode, sofaURI);
+        } else if (sofaArray != 0) {
+          cas.ll_setRefValue(sofaAddr, sofaArrayFeatCode, sofaArray);
+        } else if (sofaArrayId != 0) {
+          fixupAddrs.add(sofaAddr);
+          fixupSlots.add(sofaArrayFeatCode);
+          fixupIds.add(sofaArrayId);
+        }
+        if (mimeType != null) {
+          cas.ll_setStringValue(sofaAddr, sofaMimeFeatCode, mimeType);
+        }
+        viewsWithNewSofa.add(view);
+      }
+      return sofaAddr;
+    }
+    
+    /**
+     * Set one feature from the JSON value at the current token
+     */
+    private void readFeatureValue(int addr, int featCode, boolean isPreexisting) throws IOException {
+      final JsonToken t = jp.getCurrentToken();
+      if (t == JsonToken.VALUE_NULL) {
+        if (isPreexisting) {
+          cas.setFeatureValue(addr, featCode, CASImpl.NULL);
+        }
+        return;
+      }
+      final int fc = featureClass[featCode];
+      switch (fc) {
+      case LowLevelCAS.TYPE_CLASS_INT:
+        cas.ll_setIntValue(addr, featCode, jp.getIntValue());
+        break;
+      case LowLevelCAS.TYPE_CLASS_SHORT:
+        cas.ll_setShortValue(addr, featCode, jp.getShortValue());
+        break;
+      case LowLevelCAS.TYPE_CLASS_BYTE:
+        cas.ll_setByteValue(addr, featCode, jp.getByteValue());
+        break;
+      case LowLevelCAS.TYPE_CLASS_BOOLEAN:
+        cas.ll_setBooleanValue(addr, featCode, jp.getBooleanValue());
+        break;
+      case LowLevelCAS.TYPE_CLASS_FLOAT:
+        cas.ll_setFloatValue(addr, featCode, getFloatValue());
+        break;
+      case LowLevelCAS.TYPE_CLASS_LONG:
+        cas.ll_setLongValue(addr, featCode, jp.getLongValue());
+        break;
+      case LowLevelCAS.TYPE_CLASS_DOUBLE:
+        cas.ll_setDoubleValue(addr, featCode, getDoubleValue());
+        break;
+      case LowLevelCAS.TYPE_CLASS_STRING:
+        cas.ll_setStringValue(addr, featCode, jp.getText());
+        break;
+      case LowLevelCAS.TYPE_CLASS_FS:
+        readRef(addr, featCode);
+        break;
+      default:  // arrays and lists: a reference (if multiply referenced), or the values
+        if (t == JsonToken.VALUE_NUMBER_INT) {
+          readRef(addr, featCode);
+        } else {
+          final int rangeCode = tsi.range(featCode);
+          final int v;
+          if (fc == CasSerializerSupport.TYPE_CLASS_INTLIST ||
+              fc == CasSerializerSupport.TYPE_CLASS_FLOATLIST ||
+              fc == CasSerializerSupport.TYPE_CLASS_STRINGLIST ||
+              fc == CasSerializerSupport.TYPE_CLASS_FSLIST) {
+            v = readList(rangeCode, addr);
+          } else {
+            // inline FS arrays have no _type; like other serializations, these are plain FSArrays
+            v = readArray((fc == LowLevelCAS.TYPE_CLASS_FSARRAY) ? TypeSystemImpl.fsArrayTypeCode : rangeCode, 
+                          isPreexisting ? cas.ll_getRefValue(addr, featCode) : 0);
+            sharedData.addNonsharedRefToFSMapping(v, addr);
+          }
+          cas.ll_setRefValue(addr, featCode, v);
+        }
+      }
+    }
+    
+    private float getFloatValue() throws IOException {
+      // NaN and the infinities are written as strings
+      return (jp.getCurrentToken() == JsonToken.VALUE_STRING) ? Float.parseFloat(jp.getText()) : jp.getFloatValue();
+    }
+    
+    private double getDoubleValue() throws IOException {
+      return (jp.getCurrentToken() == JsonToken.VALUE_STRING) ? Double.parseDouble(jp.getText()) : jp.getDoubleValue();
+    }
+    
+    /**
+     * Set a reference slot from the current token: an id, or an embedded FS
+     * @param addr the FS or array being set
+     * @param slot the feature code, or -1 - the array index
+     */
+    private void readRef(int addr, int slot) throws IOException {
+      final int v;
+      final JsonToken t = jp.getCurrentToken();
+      if (t == JsonToken.START_OBJECT) {
+        v = readFs(null, -1);
+      } else if (t == JsonToken.VALUE_NULL) {
+        v = 0;
+      } else {
+        final int id = jp.getIntValue();
+        v = (id == 0) ? 0 : getAddrForIdIfKnown(id);
+        if (id != 0 && v == 0) {
+          fixupAddrs.add(addr);
+          fixupSlots.add(slot);
+          fixupIds.add(id);
+          return;
+        }
+      }
+      if (v != 0) {
+        setRef(addr, slot, v);
+      }
+    }
+    
+    private void setRef(int addr, int slot, int v) {
+      if (slot >= 0) {
+        cas.ll_setRefValue(addr, slot, v);
+      } else {
+        cas.ll_setRefArrayValue(addr, -1 - slot, v);
+      }
+    }
+    
+    /**
+     * Read the values of an array, at the current token: a JSON array, or, for byte arrays, a base64 string
+     * @param typeCode the array type
+     * @param existing 0, or a preexisting array which is updated if it has the same length
+     * @return the array
+     */
+    private int readArray(int typeCode, int existing) throws IOException {
+      final int typeClass = cas.ll_getTypeClass(typeCode);
+      if (typeClass == LowLevelCAS.TYPE_CLASS_BYTEARRAY) {
+        final byte[] bytes = jp.getBinaryValue();
+        final int addr = getArray(typeCode, typeClass, bytes.length, existing);
+        for (int i = 0; i < bytes.length; i++) {
+          cas.ll_setByteArrayValue(addr, i, bytes[i]);
+        }
+        return addr;
+      }
+      if (jp.getCurrentToken() != JsonToken.START_ARRAY) {
+        throw error("Expected an array of values");
+      }
+      
+      switch (typeClass) {
+      case LowLevelCAS.TYPE_CLASS_STRINGARRAY: {
+        final List<String> values = new ArrayList<String>();
+        while (jp.nextToken() != JsonToken.END_ARRAY) {
+          values.add((jp.getCurrentToken() == JsonToken.VALUE_NULL) ? null : jp.getText());
+        }
+        final int addr = getArray(typeCode, typeClass, values.size(), existing);
+        for (int i = 0; i < values.size(); i++) {
+          cas.ll_setStringArrayValue(addr, i, values.get(i));
+        }
+        return addr;
+      }
+      case LowLevelCAS.TYPE_CLASS_LONGARRAY:
+      case LowLevelCAS.TYPE_CLASS_DOUBLEARRAY: {
+        long[] values = new long[16];
+        int n = 0;
+        while (jp.nextToken() != JsonToken.END_ARRAY) {
+          if (n == values.length) {
+            values = java.util.Arrays.copyOf(values, n * 2);
+          }
+          values[n++] = (typeClass == LowLevelCAS.TYPE_CLASS_LONGARRAY) ? 
+              jp.getLongValue() : 
+              Double.doubleToRawLongBits(getDoubleValue());
+        }
+        final int addr = getArray(typeCode, typeClass, n, existing);
+        for (int i = 0; i < n; i++) {
+          if (typeClass == LowLevelCAS.TYPE_CLASS_LONGARRAY) {
+            cas.ll_setLongArrayValue(addr, i, values[i]);
+          } else {
+            cas.ll_setDoubleArrayValue(addr, i, Double.longBitsToDouble(values[i]));
+          }
+        }
+        return addr;
+      }
+      case LowLevelCAS.TYPE_CLASS_FSARRAY: {
+        // elements are FS addresses, or -id for forward references
+        final IntVector values = new IntVector();
+        JsonToken t;
+        while ((t = jp.nextToken()) != JsonToken.END_ARRAY) {
+          if (t == JsonToken.START_OBJECT) {
+            values.add(readFs(null, -1));
+          } else if (t == JsonToken.VALUE_NULL) {
+            values.add(0);
+          } else {
+            final int id = jp.getIntValue();
+            final int v = (id == 0) ? 0 : getAddrForIdIfKnown(id);
+            values.add((id != 0 && v == 0) ? -id : v);
+          }
+        }
+        final int addr = getArray(typeCode, typeClass, values.size(), existing);
+        for (int i = 0; i < values.size(); i++) {
+          final int v = values.get(i);
+          if (v < 0) {
+            fixupAddrs.add(addr);
+            fixupSlots.add(-1 - i);
+            fixupIds.add(-v);
+          } else {
+            cas.ll_setRefArrayValue(addr, i, v);
+          }
+        }
+        return addr;
+      }
+      default: {  // boolean, short, int, float: one int each
+        final IntVector values = new IntVector();
+        while (jp.nextToken() != JsonToken.END_ARRAY) {
+          values.add(
+              (typeClass == LowLevelCAS.TYPE_CLASS_BOOLEANARRAY) ? (jp.getBooleanValue() ? 1 : 0) :
+              (typeClass == LowLevelCAS.TYPE_CLASS_FLOATARRAY)   ? Float.floatToRawIntBits(getFloatValue()) :
+                                                                   jp.getIntValue());
+        }
+        final int addr = getArray(typeCode, typeClass, values.size(), existing);
+        for (int i = 0; i < values.size(); i++) {
+          final int v = values.get(i);
+          switch (typeClass) {
+          case LowLevelCAS.TYPE_CLASS_BOOLEANARRAY:
+            cas.ll_setBooleanArrayValue(addr, i, v == 1);
+            break;
+          case LowLevelCAS.TYPE_CLASS_SHORTARRAY:
+            cas.ll_setShortArrayValue(addr, i, (short) v);
+            break;
+          case LowLevelCAS.TYPE_CLASS_FLOATARRAY:
+            cas.ll_setFloatArrayValue(addr, i, Float.intBitsToFloat(v));
+            break;
+          default:
+            cas.ll_setIntArrayValue(addr, i, v);
+          }
+        }
+        return addr;
+      }
+      }
+    }
+    
+    /** an array FS with no _collection */
+    private int readArrayOfLength0(int typeCode, int existing) {
+      return getArray(typeCode, cas.ll_getTypeClass(typeCode), 0, existing);
+    }
+    
+    /**
+     * @return the existing array, if it has this length, otherwise a new one
+     */
+    private int getArray(int typeCode, int typeClass, int length, int existing) {
+      if (existing != 0 && cas.ll_getArraySize(existing) == length) {
+        return existing;
+      }
+      switch (typeClass) {
+      case LowLevelCAS.TYPE_CLASS_BOOLEANARRAY: return cas.ll_createBooleanArray(length);
+      case LowLevelCAS.TYPE_CLASS_BYTEARRAY:    return cas.ll_createByteArray(length);
+      case LowLevelCAS.TYPE_CLASS_SHORTARRAY:   return cas.ll_createShortArray(length);
+      case LowLevelCAS.TYPE_CLASS_LONGARRAY:    return cas.ll_createLongArray(length);
+      case LowLevelCAS.TYPE_CLASS_DOUBLEARRAY:  return cas.ll_createDoubleArray(length);
+      default:                                  return cas.ll_createArray(typeCode, length);
+      }
+    }
+    
+    /**
+     * Read a list written as a JSON array of its elements, building the list nodes
+     * @param rangeCode the list type of the feature
+     * @param encompassingFs the FS having the list as a feature value
+     * @return the first node
+     */
+    private int readList(int rangeCode, int encompassingFs) throws IOException {
+      if (jp.getCurrentToken() != JsonToken.START_ARRAY) {
+        throw error("Expected an array of list elements");
+      }
+      final int neListType = listUtils.getNeListType(rangeCode);
+      final int headFeat = listUtils.getHeadFeatCode(rangeCode);
+      final int tailFeat = listUtils.getTailFeatCode(rangeCode);
+      int first = 0;
+      int prev = 0;
+      JsonToken t;
+      while ((t = jp.nextToken()) != JsonToken.END_ARRAY) {
+        final int node = cas.ll_createFS(neListType);
+        if (prev == 0) {
+          first = node;
+        } else {
+          cas.ll_setRefValue(prev, tailFeat, node);
+        }
+        prev = node;
+        sharedData.addNonsharedRefToFSMapping(node, encompassingFs);
+        if (neListType == listUtils.neIntListType) {
+          cas.ll_setIntValue(node, headFeat, jp.getIntValue());
+        } else if (neListType == listUtils.neFloatListType) {
+          cas.ll_setFloatValue(node, headFeat, getFloatValue());
+        } else if (neListType == listUtils.neStringListType) {
+          cas.ll_setStringValue(node, headFeat, (t == JsonToken.VALUE_NULL) ? null : jp.getText());
+        } else {
+          readRef(node, headFeat);
+        }
+      }
+      final int end = cas.ll_createFS(listUtils.getEListType(rangeCode));
+      sharedData.addNonsharedRefToFSMapping(end, encompassingFs);
+      if (prev == 0) {
+        return end;
+      }
+      cas.ll_setRefValue(prev, tailFeat, end);
+      return first;
+    }
+    
+    /**
+     * skip the remaining features of an object; the current token is a field name, or the end of the object
+     */
+    private void skipRestOfObject() throws IOException {
+      JsonToken t = jp.getCurrentToken();
+      while (t == JsonToken.FIELD_NAME) {
+        jp.nextToken();
+        jp.skipChildren();
+        t = jp.nextToken();
+      }
+    }
+    
+    private void resolveForwardRefs() throws IOException {
+      for (int i = 0; i < fixupIds.size(); i++) {
+        final int v = getAddrForIdOrNull(fixupIds.get(i));
+        if (v != 0) {
+          setRef(fixupAddrs.get(i), fixupSlots.get(i), v);
+        }
+      }
+    }
+    
+    /**
+     * Index updates are done after all the references (including the sofa refs) are set, 
+     * the adds in bulk, per index repository
+     */
+    private void updateIndexes() throws IOException {
+      for (Map.Entry<FSIndexRepositoryImpl, IntVector> e : toBeAdded.entrySet()) {
+        final int[] fss = resolveAll(e.getValue());
+        e.getKey().ll_addAll(fss);
+      }
+      for (Map.Entry<FSIndexRepositoryImpl, IntVector> e : toBeRemoved.entrySet()) {
+        for (int fs : resolveAll(e.getValue())) {
+          e.getKey().ll_removeFS(fs);
+        }
+      }
+    }
+    
+    /**
+     * @param todo addresses, or -id
+     * @return the addresses, leaving out ids not found (if lenient)
+     */
+    private int[] resolveAll(IntVector todo) throws IOException {
+      final int[] r = new int[todo.size()];
+      int n = 0;
+      for (int i = 0; i < todo.size(); i++) {
+        final int v = todo.get(i);
+        final int addr = (v < 0) ? getAddrForIdOrNull(-v) : v;
+        if (addr != 0) {
+          r[n++] = addr;
+        }
+      }
+      return (n == r.length) ? r : java.util.Arrays.copyOf(r, n);
+    }
+    
+    private IntVector getTodo(Map<FSIndexRepositoryImpl, IntVector> todos, CAS view) {
+      final FSIndexRepositoryImpl ir = (FSIndexRepositoryImpl) view.getIndexRepository();
+      IntVector todo = todos.get(ir);
+      if (todo == null) {
+        todos.put(ir, todo = new IntVector());
+      }
+      return todo;
+    }
+    
+    private CAS getOrCreateView(String viewName) {
+      CAS view = viewsByName.get(viewName);
+      if (view == null) {
+        view = CAS.NAME_DEFAULT_SOFA.equals(viewName) ? cas.getView(viewName) : cas.createView(viewName);
+        viewsByName.put(viewName, view);
+      }
+      return view;
+    }
+    
+    private CAS getViewForSofaId(int sofaId) throws IOException {
+      if (sofaId == 0) {
+        return getOrCreateView(CAS.NAME_DEFAULT_SOFA);
+      }
+      final int sofaAddr = getAddrForIdIfKnown(sofaId);
+      if (sofaAddr <= 0) {
+        throw error("Unknown Sofa id: " + sofaId);
+      }
+      return cas.getView(cas.<SofaFS>ll_getFSForRef(sofaAddr));
+    }
+    
+    /**
+     * @param jsonTypeName the type name as written in the JSON; 
+     *          it is mapped to the full name using the _context, if present, otherwise
+     *          it is resolved as the serializer would have written it without a context
+     * @return the type, or null if lenient and not in the type system 
+     */
+    private TypeImpl getType(String jsonTypeName) throws IOException {
+      TypeImpl type = typeByJsonName.get(jsonTypeName);
+      if (type == null) {
+        final String fullName = contextTypeNames.get(jsonTypeName);
+        type = (fullName != null) ? (TypeImpl) tsi.getType(fullName) : resolveTypeName(jsonTypeName);
+        if (type == null) {
+          if (!isLenient) {
+            throw error((fullName != null) ? ("Unknown type: " + fullName) : 
+                ("Unknown, or without the _context's expanded names ambiguous, type: " + jsonTypeName));
+          }
+          return null;
+        }
+        typeByJsonName.put(jsonTypeName, type);
+      }
+      return type;
+    }
+    
+    /**
+     * Without the _context's expanded type names, types are written by their short name, 
+     * or, if the short name is used by more than one type in the output, as prefix:shortName,
+     * the prefix being the last part of the namespace, possibly with a number appended to make it unique.
+     * When namespaces end the same way, the _context's expanded names are needed to tell the types apart.
+     * 
+     * @param jsonTypeName the name as written
+     * @return the type, or null if there's none, or more than one type could be meant
+     */
+    private TypeImpl resolveTypeName(String jsonTypeName) {
+      TypeImpl type = (TypeImpl) tsi.getType(jsonTypeName);  // a full name
+      if (type != null) {
+        return type;
+      }
+      if (typesByShortName == null) {
+        typesByShortName = new HashMap<String, List<TypeImpl>>();
+        Iterator<Type> it = tsi.getTypeIterator();
+        while (it.hasNext()) {
+          final TypeImpl ti = (TypeImpl) it.next();
+          List<TypeImpl> types = typesByShortName.get(ti.getShortName());
+          if (types == null) {
+            typesByShortName.put(ti.getShortName(), types = new ArrayList<TypeImpl>(1));
+          }
+          types.add(ti);
+        }
+      }
+      final int colon = jsonTypeName.indexOf(':');
+      final List<TypeImpl> candidates = typesByShortName.get(jsonTypeName.substring(colon + 1));
+      if (candidates == null) {
+        return null;
+      }
+      if (colon == -1) {
+        return (candidates.size() == 1) ? candidates.get(0) : null;
+      }
+      // the prefix is the last part of the namespace, possibly with a number appended;
+      // if more than one candidate could have been written with this prefix, which one was is unknown 
+      final String prefix = jsonTypeName.substring(0, colon);
+      TypeImpl r = null;
+      for (TypeImpl ti : candidates) {
+        final String name = ti.getName();
+        final int lastDot = name.lastIndexOf('.');
+        final String nsLastPart = (lastDot == -1) ? "noNamespace" : name.substring(name.lastIndexOf('.', lastDot - 1) + 1, lastDot);
+        if (prefix.startsWith(nsLastPart) && isDigits(prefix, nsLastPart.length())) {
+          if (r != null) {
+            return null;  // ambiguous
+          }
+          r = ti;
+        }
+      }
+      return r;
+    }
+    
+    private boolean isDigits(String s, int start) {
+      for (int i = start; i < s.length(); i++) {
+        if (!Character.isDigit(s.charAt(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    
+    private boolean isPreexisting(int id) {
+      return mergePoint >= 0 && id > 0 && id <= mergePoint;
+    }
+    
+    private void addIdMapping(int addr, int id) {
+      if (id > 0) {
+        if (mergePoint < 0) {
+          sharedData.addIdMapping(addr, id);
+        } else {
+          localIdToAddr.put(id, addr);
+        }
+      }
+    }
+    
+    /**
+     * @return the address for the id, or -1 if not (yet) known
+     */
+    private int getAddrForId(int id) {
+      if (mergePoint < 0 || isPreexisting(id)) {
+        return sharedData.getFsAddrForXmiId(id);
+      }
+      final int addr = localIdToAddr.get(id);
+      return (addr == 0) ? -1 : addr;
+    }
+    
+    private int getAddrForIdIfKnown(int id) {
+      return Math.max(0, getAddrForId(id));
+    }
+    
+    /**
+     * For the end of deserialization, when all ids have been seen
+     * @return the address for the id, or 0 if lenient and the id is unknown
+     */
+    private int getAddrForIdOrNull(int id) throws IOException {
+      final int addr = getAddrForId(id);
+      if (addr <= 0) {
+        if (!isLenient) {
+          throw error("Unknown FS id: " + id);
+        }
+        return 0;
+      }
+      return addr;
+    }
+    
+    private JsonParseException error(String msg) {
+      return new JsonParseException(msg, jp.getCurrentLocation());
+    }
+  }
+}
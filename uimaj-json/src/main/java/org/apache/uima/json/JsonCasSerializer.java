@@ -79,8 +79,17 @@ import com.fasterxml.jackson.core.io.SerializedString;
  *   <li>(I,S) a type system - (default null) if supplied, it is used to "filter" types and features that are serialized.  If provided, only 
  *   those that exist in the passed in type system are included in the serialization</li>
  *   <li>(I,S) a flag for prettyprinting - default false (no prettyprinting)</li>
+ *   <li>(S) a Marker, to serialize only what changed since the mark was set (a Delta CAS), and 
+ *   an XmiSerializationSharedData, which keeps the ids of FSs stable across serializations</li>
  * </ul>
  * 
+ * <p>When a Marker or an XmiSerializationSharedData is passed to serialize, every FS is written 
+ * once, by id, in the _referenced_fss section (static embedding is used), and the _views section lists just ids.
+ * This is what makes the output mergeable: the receiver can tell preexisting FSs from new ones.
+ * A Delta CAS has no _views section; instead, the _delta_cas section lists, per view (keyed by the Sofa's id), 
+ * the added_members, deleted_members and reindexed_members.  Use {@link JsonCasDeserializer} with a 
+ * merge point to apply it to the CAS it was produced from.</p>
+ * 
  * <p>For Json serialization, additional configuration from the Jackson implementation can be configured</p>
  * on 2 associated Jackson instances:  
  *   <ul><li>JsonFactory</li> 
@@ -246,7 +255,9 @@ public class JsonCasSerializer {
    *          the mark was set. Used to serialize a Delta CAS consisting of only new FSs and views and
    *          preexisting FSs and Views that have been modified.  If null, full serialization is done.        
    *          See the JavaDocs for {@link Marker} for details.
-   * @param sharedData optional, used for delta serialization (not yet supported)
+   * @param sharedData optional; if supplied, FSs are written with the ids recorded in it (by the
+   *          deserialization that produced this CAS), and new FSs get ids above those. 
+   *          Needed for a Delta CAS to be merged back into the CAS it came from.
    * @throws IOException if there was an IOException
    */
   public static void jsonSerialize(CAS aCAS, TypeSystem aTargetTypeSystem, Object output, boolean aPrettyPrint, 
@@ -485,9 +496,12 @@ public class JsonCasSerializer {
 
     private boolean startedFeatureTypes;
     
+    private final boolean isIdMode;  // true: all FSs written by id in _referenced_fss, views list ids
     
     private JsonDocSerializer(ContentHandler ch, CASImpl cas, XmiSerializationSharedData sharedData, MarkerImpl marker) {
-      cds = css.new CasDocSerializer(ch, cas, sharedData, marker, this, JsonCasSerializer.this.isDynamicEmbedding);
+      // mergeable output needs every FS written once, by id, so dynamic embedding is off
+      isIdMode = marker != null || sharedData != null;
+      cds = css.new CasDocSerializer(ch, cas, sharedData, marker, this, JsonCasSerializer.this.isDynamicEmbedding && !isIdMode);
       this.isOmitDefaultValues = JsonCasSerializer.this.isOmit0Values;  
       isWithExpandedTypeNames = JsonCasSerializer.this.isWithExpandedTypeNames; 
       isWithSubtypes = JsonCasSerializer.this.isWithSubtypes; 
@@ -501,7 +515,7 @@ public class JsonCasSerializer {
     @Override
     protected void initializeNamespaces() {
       if (cds.sharedData != null &&
-          (null != cds.sharedData.getOutOfTypeSystemElements() ||
+          (!cds.sharedData.getOutOfTypeSystemElements().isEmpty() ||
            cds.sharedData.hasOutOfTypeSystemArrayElements())) {
         throw new UnsupportedOperationException("Can't do JSON serialization "
             + "if there are out-of-type-system elements,"
@@ -534,6 +548,11 @@ public class JsonCasSerializer {
       
       jch.writeNlJustBeforeNext();
       
+      if (isIdMode) {
+        writeIndexedIdsAndAllFSs();
+        return;
+      }
+      
       // write the reachable from indexes FS
       indexId = false;
 
@@ -579,6 +598,57 @@ public class JsonCasSerializer {
             
     }
       
+    /**
+     * Id mode: _views lists the ids of the indexed FSs, by view, by type (omitted for a delta, 
+     * where _delta_cas has this information); all FSs are then written by id into _referenced_fss
+     */
+    private void writeIndexedIdsAndAllFSs() throws Exception {
+      if (!cds.isDelta) {
+        jg.writeFieldName(VIEWS_NAME);
+        jg.writeStartObject();
+        final Integer[][] byViewByTypeFSs = sortByViewType();
+        for (int viewNbr = 1; viewNbr <= byViewByTypeFSs.length; viewNbr++) {
+          final Integer[] fssInView = byViewByTypeFSs[viewNbr - 1];
+          final int sofaAddr = cds.getSofaAddr(viewNbr);
+          if (sofaAddr == 0 && fssInView.length == 0) {
+            continue;  // skip non-existent initial view with no sofa and no elements                    
+          }
+          jch.writeNlJustBeforeNext();
+          jg.writeFieldName((0 == sofaAddr) ?  
+              CAS.NAME_DEFAULT_SOFA :
+              cds.cas.getStringValue(sofaAddr, TypeSystemImpl.sofaIdFeatCode));
+          jg.writeStartObject();
+          int lastTypeCode = -1;
+          for (Integer fs : fssInView) {
+            final int typeCode = cds.cas.getHeapValue(fs);
+            if (typeCode != lastTypeCode) {
+              if (lastTypeCode != -1) {
+                jg.writeEndArray();
+              }
+              lastTypeCode = typeCode;
+              jch.writeNlJustBeforeNext();
+              jg.writeFieldName(getSerializedTypeName(typeCode));
+              jg.writeStartArray();
+            }
+            jg.writeNumber(cds.getXmiIdAsInt(fs));
+          }
+          if (lastTypeCode != -1) {
+            jg.writeEndArray();
+          }
+          jg.writeEndObject();
+        }
+        jg.writeEndObject();  // end of value for _views
+      }
+      
+      indexId = true;
+      startedReferencedFSs = false;
+      cds.encodeIndexed();
+      cds.encodeQueued();
+      if (startedReferencedFSs) {
+        jg.writeEndObject(); // of all referenced FSs
+      }
+    }
+      
     @Override
     protected void writeEndOfSerialization() throws IOException {
       jg.writeEndObject(); // wrapper of _context and cas
@@ -609,8 +679,10 @@ public class JsonCasSerializer {
       //check for out-of-typesystem members
       if (cds.sharedData != null) {
         List<String> ootsMembers = cds.sharedData.getOutOfTypeSystemViewMembers(sofaXmiId);
-        jch.writeNlJustBeforeNext();
-        writeViewMembers(ootsMembers);
+        if (ootsMembers != null) {
+          jch.writeNlJustBeforeNext();
+          writeViewMembers(ootsMembers);
+        }
       }
 
       jg.writeEndArray();
@@ -626,7 +698,7 @@ public class JsonCasSerializer {
     @Override
     protected void writeView(int sofaAddr, int[] added, int[] deleted, int[] reindexed) throws IOException {
       jch.writeNlJustBeforeNext();
-      jg.writeFieldName(cds.getXmiId(sofaAddr));
+      jg.writeFieldName((0 == sofaAddr) ? "0" : cds.getXmiId(sofaAddr));
       jg.writeStartObject();
       writeViewForDeltas(ADDED_MEMBERS_NAME, added);
       writeViewForDeltas(DELETED_MEMBERS_NAME, deleted);
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.fasterxml.jackson.core.JsonParseException;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.ArrayFS;
+import org.apache.uima.cas.ByteArrayFS;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASRuntimeException;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Marker;
+import org.apache.uima.cas.SerialFormat;
+import org.apache.uima.cas.StringArrayFS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.impl.AllowPreexistingFS;
+import org.apache.uima.cas.impl.XmiSerializationSharedData;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.json.JsonCasSerializer.JsonContextFormat;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.test.junit_extension.JUnitExtension;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.CasIOUtils;
+import org.apache.uima.util.XMLInputSource;
+
+public class JsonCasDeserializerTest extends TestCase {
+
+  private TypeSystemDescription tsd;
+  
+  private Type allTypesType;
+  
+  protected void setUp() throws Exception {
+    File tsdFile = JUnitExtension.getFile("CasSerialization/desc/allTypes.xml");
+    tsd = UIMAFramework.getXMLParser().parseTypeSystemDescription(new XMLInputSource(tsdFile));
+  }
+  
+  private CAS createCas() throws Exception {
+    CAS cas = CasCreationUtils.createCas(tsd, null, null);
+    allTypesType = cas.getTypeSystem().getType("org.apache.uima.test.AllTypes");
+    return cas;
+  }
+  
+  public void testRoundTrip() throws Exception {
+    CAS cas = createCas();
+    fill(cas);
+    
+    String r = serialize(cas, new JsonCasSerializer(), null, null);
+    CAS cas2 = createCas();
+    JsonCasDeserializer.jsonDeserialize(cas2, new StringReader(r));
+    assertEquals(canonical(cas), canonical(cas2));
+    
+    // id mode
+    XmiSerializationSharedData sd = new XmiSerializationSharedData();
+    r = serialize(cas, new JsonCasSerializer(), sd, null);
+    cas2 = createCas();
+    XmiSerializationSharedData sd2 = new XmiSerializationSharedData();
+    JsonCasDeserializer.jsonDeserialize(cas2, new StringReader(r), sd2, -1, AllowPreexistingFS.ignore);
+    assertEquals(sd.getMaxXmiId(), sd2.getMaxXmiId());
+    // same ids
+    assertEquals(sortedLines(r), sortedLines(serialize(cas2, new JsonCasSerializer(), sd2, null)));
+  }
+  
+  public void testContextFormats() throws Exception {
+    CAS cas = createCas();
+    fill(cas);
+    for (JsonContextFormat format : JsonContextFormat.values()) {
+      String r = serialize(cas, new JsonCasSerializer().setJsonContext(format), null, null);
+      CAS cas2 = createCas();
+      JsonCasDeserializer.jsonDeserialize(cas2, new StringReader(r));
+      assertEquals(format.toString(), canonical(cas), canonical(cas2));
+    }
+  }
+  
+  public void testNameSpaceCollision() throws Exception {
+    tsd = UIMAFramework.getXMLParser().parseTypeSystemDescription(new XMLInputSource(
+        JUnitExtension.getFile("CasSerialization/desc/nameSpaceNeeded.xml")));
+    CAS cas = CasCreationUtils.createCas(tsd, null, null);
+    cas.addFsToIndexes(cas.createFS(cas.getTypeSystem().getType("org.apache.uima.test.Token")));
+    cas.addFsToIndexes(cas.createFS(cas.getTypeSystem().getType("org.apache.uimax.test.Token")));
+    cas.addFsToIndexes(cas.createFS(cas.getTypeSystem().getType("org.apache.uima.test2.Token")));
+    
+    String r = serialize(cas, new JsonCasSerializer(), null, null);
+    CAS cas2 = CasCreationUtils.createCas(tsd, null, null);
+    JsonCasDeserializer.jsonDeserialize(cas2, new StringReader(r));
+    // the prefixes depend on the order types are first serialized, so compare the types
+    assertEquals(indexedTypeNames(cas), indexedTypeNames(cas2));
+    
+    // the namespace prefixes alone can't tell org.apache.uima.test.Token and org.apache.uimax.test.Token apart
+    r = serialize(cas, new JsonCasSerializer().setJsonContext(JsonContextFormat.omitExpandedTypeNames), null, null);
+    try {
+      JsonCasDeserializer.jsonDeserialize(cas2, new StringReader(r));
+      fail();
+    } catch (JsonParseException e) {
+      assertTrue(e.getMessage().contains("ambiguous"));
+    }
+  }
+  
+  public void testCasIOUtils() throws Exception {
+    CAS cas = createCas();
+    fill(cas);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    CasIOUtils.save(cas, baos, SerialFormat.JSON);
+    CAS cas2 = createCas();
+    assertEquals(SerialFormat.JSON, CasIOUtils.load(new ByteArrayInputStream(baos.toByteArray()), cas2));
+    assertEquals(canonical(cas), canonical(cas2));
+    
+    // pretty printed, after a byte order mark and some blank lines
+    baos = new ByteArrayOutputStream();
+    baos.write(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+    baos.write("\n\n    ".getBytes("UTF-8"));
+    baos.write(serialize(cas, new JsonCasSerializer(), null, null).getBytes("UTF-8"));
+    CAS cas3 = createCas();
+    assertEquals(SerialFormat.JSON, CasIOUtils.load(new ByteArrayInputStream(baos.toByteArray()), cas3));
+    assertEquals(canonical(cas), canonical(cas3));
+  }
+  
+  public void testDelta() throws Exception {
+    CAS serverCas = createCas();
+    fill(serverCas);
+    XmiSerializationSharedData serverSd = new XmiSerializationSharedData();
+    String r = serialize(serverCas, new JsonCasSerializer(), serverSd, null);
+    final int mergePoint = serverSd.getMaxXmiId();
+    
+    CAS clientCas = createCas();
+    XmiSerializationSharedData clientSd = new XmiSerializationSharedData();
+    JsonCasDeserializer.jsonDeserialize(clientCas, new StringReader(r), clientSd, -1, AllowPreexistingFS.ignore);
+    
+    Marker marker = clientCas.createMarker();
+    // new FSs, in the existing view and in a new one
+    AnnotationFS a = clientCas.createAnnotation(allTypesType, 1, 3);
+    a.setStringValue(allTypesType.getFeatureByBaseName("aString"), "new");
+    clientCas.addFsToIndexes(a);
+    CAS newView = clientCas.createView("NewView");
+    newView.setDocumentText("another");
+    newView.addFsToIndexes(newView.createAnnotation(allTypesType, 0, 7));
+    // modify, and remove, preexisting FSs
+    AnnotationFS first = null;
+    AnnotationFS second = null;
+    for (FeatureStructure fs : clientCas.getAnnotationIndex(allTypesType)) {
+      if (first == null) {
+        first = (AnnotationFS) fs;
+      } else if (second == null) {
+        second = (AnnotationFS) fs;
+      }
+    }
+    first.setIntValue(allTypesType.getFeatureByBaseName("aInteger"), 99);
+    first.setFeatureValue(allTypesType.getFeatureByBaseName("aFS"), a);
+    clientCas.removeFsFromIndexes(second);
+    
+    String delta = serialize(clientCas, new JsonCasSerializer(), clientSd, marker);
+    assertTrue(delta.contains("_delta_cas"));
+    assertFalse(delta.contains("\"_views\""));
+    
+    JsonCasDeserializer.jsonDeserialize(serverCas, new StringReader(delta), serverSd, mergePoint, AllowPreexistingFS.allow);
+    
+    assertEquals(canonical(clientCas), canonical(serverCas));
+    
+    // updates of preexisting FSs may be disallowed
+    CAS serverCas2 = createCas();
+    fill(serverCas2);
+    XmiSerializationSharedData serverSd2 = new XmiSerializationSharedData();
+    serialize(serverCas2, new JsonCasSerializer(), serverSd2, null);
+    try {
+      JsonCasDeserializer.jsonDeserialize(serverCas2, new StringReader(delta), serverSd2, mergePoint, AllowPreexistingFS.disallow);
+      fail();
+    } catch (CASRuntimeException e) {
+      assertEquals(CASRuntimeException.DELTA_CAS_PREEXISTING_FS_DISALLOWED, e.getMessageKey());
+    }
+  }
+  
+  private void fill(CAS cas) {
+    cas.setDocumentText("some text for the annotations");
+    AnnotationFS fs = cas.createAnnotation(allTypesType, 0, 4);
+    fs.setBooleanValue(allTypesType.getFeatureByBaseName("aBoolean"), true);
+    fs.setByteValue   (allTypesType.getFeatureByBaseName("aByte"), (byte) -117);
+    fs.setShortValue  (allTypesType.getFeatureByBaseName("aShort"), (short) -112);
+    fs.setIntValue    (allTypesType.getFeatureByBaseName("aInteger"), 17);
+    fs.setLongValue   (allTypesType.getFeatureByBaseName("aLong"), 1234);
+    fs.setFloatValue  (allTypesType.getFeatureByBaseName("aFloat"), Float.NaN);
+    fs.setDoubleValue (allTypesType.getFeatureByBaseName("aDouble"), Double.NEGATIVE_INFINITY);
+    fs.setStringValue (allTypesType.getFeatureByBaseName("aString"), "some \"String\"");
+    
+    AnnotationFS fs2 = cas.createAnnotation(allTypesType, 5, 9);
+    fs.setFeatureValue(allTypesType.getFeatureByBaseName("aFS"), fs2);
+    fs2.setFeatureValue(allTypesType.getFeatureByBaseName("aFS"), fs);  // a loop
+    
+    ByteArrayFS bytes = cas.createByteArrayFS(2);
+    bytes.set(0, (byte) 15);
+    bytes.set(1, (byte) 0xee);
+    fs.setFeatureValue(allTypesType.getFeatureByBaseName("aArrayByte"), bytes);
+    StringArrayFS strings = cas.createStringArrayFS(2);
+    strings.set(0, "a");
+    fs.setFeatureValue(allTypesType.getFeatureByBaseName("aArrayString"), strings);
+    StringArrayFS mrStrings = cas.createStringArrayFS(1);
+    mrStrings.set(0, "b");
+    fs.setFeatureValue(allTypesType.getFeatureByBaseName("aArrayMrString"), mrStrings);
+    fs2.setFeatureValue(allTypesType.getFeatureByBaseName("aArrayMrString"), mrStrings);  // shared
+    ArrayFS fsArray = cas.createArrayFS(2);
+    fsArray.set(0, fs2);
+    fs.setFeatureValue(allTypesType.getFeatureByBaseName("aArrayFS"), fsArray);
+
+    FeatureStructure sl = cas.createFS(cas.getTypeSystem().getType(CAS.TYPE_NAME_NON_EMPTY_STRING_LIST));
+    sl.setStringValue(sl.getType().getFeatureByBaseName("head"), "testStr");
+    sl.setFeatureValue(sl.getType().getFeatureByBaseName("tail"), 
+        cas.createFS(cas.getTypeSystem().getType(CAS.TYPE_NAME_EMPTY_STRING_LIST)));
+    fs.setFeatureValue(allTypesType.getFeatureByBaseName("aListString"), sl);
+    
+    cas.addFsToIndexes(fs);
+    cas.addFsToIndexes(fs2);
+    cas.addFsToIndexes(cas.createAnnotation(allTypesType, 10, 14));
+    
+    CAS v2 = cas.createView("View2");
+    v2.setDocumentText("second");
+    v2.addFsToIndexes(v2.createAnnotation(allTypesType, 0, 6));
+    FeatureStructure top = cas.createFS(cas.getTypeSystem().getTopType());
+    cas.addFsToIndexes(top);
+  }
+  
+  private List<String> indexedTypeNames(CAS cas) {
+    List<String> r = new ArrayList<String>();
+    FSIterator<FeatureStructure> it = cas.getIndexRepository().getAllIndexedFS(cas.getTypeSystem().getTopType());
+    while (it.hasNext()) {
+      r.add(it.next().getType().getName());
+    }
+    Collections.sort(r);
+    return r;
+  }
+  
+  /**
+   * ids are otherwise FS addresses, which differ between CASs having the same content
+   */
+  private String canonical(CAS cas) throws Exception {
+    return sortedLines(serialize(cas, new JsonCasSerializer(), new XmiSerializationSharedData(), null));
+  }
+  
+  private String sortedLines(String json) {
+    String[] lines = json.split("\\n");
+    for (int i = 0; i < lines.length; i++) {
+      lines[i] = lines[i].replaceAll("[\\s,}\\]]+$", "");
+    }
+    Arrays.sort(lines);  // FSs are one per line, but not always in the same order
+    return Arrays.toString(lines);
+  }
+  
+  private String serialize(CAS cas, JsonCasSerializer jcs, XmiSerializationSharedData sd, Marker marker) throws Exception {
+    StringWriter sw = new StringWriter();
+    jcs.setPrettyPrint(true);
+    jcs.serialize(cas, sw, sd, marker);
+    return sw.toString();
+  }
+}